@@ -0,0 +1,90 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.codelibs.fesen.benchmark.action.bulk;
+
+import org.codelibs.fesen.action.bulk.BulkRequestParser;
+import org.codelibs.fesen.common.bytes.BytesArray;
+import org.codelibs.fesen.common.bytes.BytesReference;
+import org.codelibs.fesen.common.xcontent.XContentType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how fast {@link BulkRequestParser} splits a bulk body into index, update and delete requests.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class BulkRequestParserBenchmark {
+
+    @Param({ "100", "1000" })
+    private int numItems;
+
+    private final BulkRequestParser parser = new BulkRequestParser(false);
+
+    private BytesReference data;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < numItems; i++) {
+            int op = random.nextInt(10);
+            if (op < 8) {
+                body.append("{\"index\":{\"_index\":\"logs\",\"_id\":\"").append(i).append("\",\"routing\":\"r").append(i % 8)
+                    .append("\"}}\n");
+                body.append("{\"@timestamp\":").append(1_600_000_000_000L + i).append(",\"message\":\"request ").append(i)
+                    .append(" served in ").append(random.nextInt(1000)).append("ms\",\"status\":").append(200 + random.nextInt(4))
+                    .append(",\"host\":{\"name\":\"host-").append(random.nextInt(32)).append("\"}}\n");
+            } else if (op < 9) {
+                body.append("{\"update\":{\"_index\":\"logs\",\"_id\":\"").append(i).append("\"}}\n");
+                body.append("{\"doc\":{\"status\":").append(200 + random.nextInt(4)).append("}}\n");
+            } else {
+                body.append("{\"delete\":{\"_index\":\"logs\",\"_id\":\"").append(i).append("\"}}\n");
+            }
+        }
+        data = new BytesArray(body.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public void parse(Blackhole bh) throws IOException {
+        parser.parse(data, null, null, null, null, null, true, XContentType.JSON,
+            bh::consume, bh::consume, bh::consume);
+    }
+}
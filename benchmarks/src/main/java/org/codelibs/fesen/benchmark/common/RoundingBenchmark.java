@@ -0,0 +1,108 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.codelibs.fesen.benchmark.common;
+
+import org.codelibs.fesen.common.Rounding;
+import org.codelibs.fesen.common.unit.TimeValue;
+import org.codelibs.fesen.search.aggregations.bucket.histogram.DateHistogramAggregationBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures rounding a range of timestamps the way a date histogram does, for calendar and fixed intervals in several time zones.
+ */
+@Fork(2)
+@Warmup(iterations = 10)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class RoundingBenchmark {
+
+    private static final long MIN = 1_577_836_800_000L; // 2020-01-01T00:00:00Z
+    private static final long MAX = 1_609_459_200_000L; // 2021-01-01T00:00:00Z
+
+    @Param({ "UTC", "America/New_York", "Asia/Kolkata" })
+    public String zone;
+
+    @Param({ "calendar_interval:1d", "calendar_interval:1M", "interval:1h", "interval:10d" })
+    public String interval;
+
+    @Param({ "1", "10000", "1000000" })
+    public int count;
+
+    private long[] dates;
+    private Rounding.Prepared rounding;
+
+    @Setup
+    public void buildDates() {
+        dates = new long[count];
+        long date = MIN;
+        long diff = (MAX - MIN) / count;
+        for (int i = 0; i < dates.length; i++) {
+            if (date >= MAX) {
+                throw new IllegalStateException("made a bad date [" + date + "]");
+            }
+            dates[i] = date;
+            date += diff;
+        }
+        String[] params = interval.split(":");
+        Rounding.Builder builder;
+        switch (params[0]) {
+            case "calendar_interval":
+                builder = Rounding.builder(DateHistogramAggregationBuilder.DATE_FIELD_UNITS.get(params[1]));
+                break;
+            case "interval":
+                builder = Rounding.builder(TimeValue.parseTimeValue(params[1], "interval"));
+                break;
+            default:
+                throw new IllegalArgumentException("Expected calendar_interval or interval but got [" + params[0] + "]");
+        }
+        rounding = builder.timeZone(ZoneId.of(zone)).build().prepare(dates[0], dates[dates.length - 1]);
+    }
+
+    @Benchmark
+    public void round(Blackhole bh) {
+        for (long date : dates) {
+            bh.consume(rounding.round(date));
+        }
+    }
+
+    @Benchmark
+    public void nextRoundingValue(Blackhole bh) {
+        for (long date : dates) {
+            bh.consume(rounding.nextRoundingValue(date));
+        }
+    }
+}
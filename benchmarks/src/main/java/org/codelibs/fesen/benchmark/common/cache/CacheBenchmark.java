@@ -0,0 +1,119 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.codelibs.fesen.benchmark.common.cache;
+
+import org.codelibs.fesen.common.cache.Cache;
+import org.codelibs.fesen.common.cache.CacheBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link Cache} throughput when many threads hit it at once, with and without buffered LRU promotion. Keys follow a
+ * skewed distribution so that a small set of hot entries is read over and over, as is typical for request and query caches.
+ */
+@Fork(2)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class CacheBenchmark {
+
+    private static final int NUM_KEYS = 1 << 16;
+
+    @Param({ "false", "true" })
+    private boolean bufferedPromotion;
+
+    @Param({ "1024", "65536" })
+    private int maximumWeight;
+
+    private Cache<Integer, Integer> cache;
+    private int[] keys;
+
+    @Setup
+    public void setUp() {
+        cache = CacheBuilder.<Integer, Integer>builder()
+            .setMaximumWeight(maximumWeight)
+            .setBufferedPromotion(bufferedPromotion)
+            .build();
+        Random random = new Random(42);
+        keys = new int[NUM_KEYS];
+        for (int i = 0; i < NUM_KEYS; i++) {
+            // squaring a uniform value favours small keys, which approximates a zipfian access pattern
+            double uniform = random.nextDouble();
+            keys[i] = (int) (uniform * uniform * NUM_KEYS);
+        }
+        for (int i = 0; i < maximumWeight; i++) {
+            cache.put(keys[i & (NUM_KEYS - 1)], i);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next = new Random().nextInt(NUM_KEYS);
+
+        int nextKey(int[] keys) {
+            return keys[next++ & (NUM_KEYS - 1)];
+        }
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Integer read(Cursor cursor) {
+        return cache.get(cursor.nextKey(keys));
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Integer computeIfAbsent(Cursor cursor) throws Exception {
+        return cache.computeIfAbsent(cursor.nextKey(keys), key -> key);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(6)
+    public Integer mixedRead(Cursor cursor) {
+        return cache.get(cursor.nextKey(keys));
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(2)
+    public void mixedWrite(Cursor cursor) {
+        int key = cursor.nextKey(keys);
+        cache.put(key, key);
+    }
+}
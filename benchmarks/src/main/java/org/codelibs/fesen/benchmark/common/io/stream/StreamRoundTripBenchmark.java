@@ -0,0 +1,148 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.codelibs.fesen.benchmark.common.io.stream;
+
+import org.apache.lucene.util.BytesRef;
+import org.codelibs.fesen.action.search.SearchRequest;
+import org.codelibs.fesen.common.bytes.BytesReference;
+import org.codelibs.fesen.common.io.stream.BytesStreamOutput;
+import org.codelibs.fesen.common.io.stream.NamedWriteableAwareStreamInput;
+import org.codelibs.fesen.common.io.stream.NamedWriteableRegistry;
+import org.codelibs.fesen.common.io.stream.StreamInput;
+import org.codelibs.fesen.common.settings.Settings;
+import org.codelibs.fesen.index.query.QueryBuilders;
+import org.codelibs.fesen.search.SearchModule;
+import org.codelibs.fesen.search.aggregations.AggregationBuilders;
+import org.codelibs.fesen.search.builder.SearchSourceBuilder;
+import org.codelibs.fesen.search.sort.SortOrder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.emptyList;
+
+/**
+ * Measures {@code StreamOutput}/{@code StreamInput} round-trips of primitive values and of a search request, which
+ * exercises the named writeable machinery used by most transport messages.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class StreamRoundTripBenchmark {
+
+    @Param({ "1000" })
+    private int numValues;
+
+    private final NamedWriteableRegistry namedWriteableRegistry =
+        new NamedWriteableRegistry(new SearchModule(Settings.EMPTY, false, emptyList()).getNamedWriteables());
+
+    private long[] longs;
+    private String[] strings;
+    private BytesRef bytes;
+    private SearchRequest searchRequest;
+
+    private BytesReference serializedValues;
+    private BytesReference serializedSearchRequest;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(42);
+        longs = new long[numValues];
+        strings = new String[numValues];
+        for (int i = 0; i < numValues; i++) {
+            // a mix of small and large values so that both short and long vlong encodings are used
+            longs[i] = random.nextBoolean() ? random.nextInt(128) : random.nextLong() & Long.MAX_VALUE;
+            strings[i] = "value-" + random.nextInt(10_000) + (random.nextBoolean() ? "-\u00e9\u00e8" : "");
+        }
+        byte[] raw = new byte[16 * 1024];
+        random.nextBytes(raw);
+        bytes = new BytesRef(raw);
+
+        searchRequest = new SearchRequest("index-1", "index-2").source(new SearchSourceBuilder()
+            .query(QueryBuilders.boolQuery()
+                .must(QueryBuilders.matchQuery("title", "quick brown fox"))
+                .filter(QueryBuilders.termsQuery("tag", "a", "b", "c"))
+                .filter(QueryBuilders.rangeQuery("timestamp").gte("now-1d")))
+            .aggregation(AggregationBuilders.terms("tags").field("tag")
+                .subAggregation(AggregationBuilders.avg("avg_price").field("price")))
+            .sort("timestamp", SortOrder.DESC)
+            .size(20));
+
+        serializedValues = writeValues();
+        serializedSearchRequest = writeSearchRequest();
+    }
+
+    @Benchmark
+    public BytesReference writeValues() throws IOException {
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            for (int i = 0; i < numValues; i++) {
+                out.writeVLong(longs[i]);
+                out.writeLong(longs[i]);
+                out.writeString(strings[i]);
+            }
+            out.writeBytesRef(bytes);
+            return out.bytes();
+        }
+    }
+
+    @Benchmark
+    public void readValues(Blackhole bh) throws IOException {
+        try (StreamInput in = serializedValues.streamInput()) {
+            for (int i = 0; i < numValues; i++) {
+                bh.consume(in.readVLong());
+                bh.consume(in.readLong());
+                bh.consume(in.readString());
+            }
+            bh.consume(in.readBytesRef());
+        }
+    }
+
+    @Benchmark
+    public BytesReference writeSearchRequest() throws IOException {
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            searchRequest.writeTo(out);
+            return out.bytes();
+        }
+    }
+
+    @Benchmark
+    public SearchRequest readSearchRequest() throws IOException {
+        try (StreamInput in = new NamedWriteableAwareStreamInput(serializedSearchRequest.streamInput(), namedWriteableRegistry)) {
+            return new SearchRequest(in);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.codelibs.fesen.benchmark.common.util;
+
+import org.codelibs.fesen.common.util.BigArrays;
+import org.codelibs.fesen.common.util.LongArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures allocating, growing and randomly accessing {@link BigArrays} backed arrays, which aggregations use for per-bucket state.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class BigArraysBenchmark {
+
+    @Param({ "100000", "10000000" })
+    private int size;
+
+    private final BigArrays bigArrays = BigArrays.NON_RECYCLING_INSTANCE;
+
+    private int[] indices;
+    private LongArray array;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        indices = new int[size];
+        for (int i = 0; i < size; i++) {
+            indices[i] = random.nextInt(size);
+        }
+        array = bigArrays.newLongArray(size);
+    }
+
+    @Benchmark
+    public long growAndFill() {
+        LongArray grown = bigArrays.newLongArray(1);
+        try {
+            for (int i = 0; i < size; i++) {
+                grown = bigArrays.grow(grown, i + 1);
+                grown.set(i, i);
+            }
+            return grown.get(size - 1);
+        } finally {
+            grown.close();
+        }
+    }
+
+    @Benchmark
+    public long randomIncrement() {
+        for (int index : indices) {
+            array.increment(index, 1);
+        }
+        return array.get(indices[0]);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.codelibs.fesen.benchmark.common.util;
+
+import org.apache.lucene.util.BytesRef;
+import org.codelibs.fesen.common.util.BigArrays;
+import org.codelibs.fesen.common.util.BytesRefHash;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link BytesRefHash} inserts and lookups, the structure behind string terms aggregations and global ordinals building.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class BytesRefHashBenchmark {
+
+    @Param({ "10000", "1000000" })
+    private int numTerms;
+
+    @Param({ "0.1", "1" })
+    private double uniqueRatio;
+
+    private BytesRef[] terms;
+    private BytesRefHash lookupHash;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        int numUnique = Math.max(1, (int) (numTerms * uniqueRatio));
+        BytesRef[] dictionary = new BytesRef[numUnique];
+        for (int i = 0; i < numUnique; i++) {
+            dictionary[i] = new BytesRef("term-" + Long.toString(random.nextLong(), Character.MAX_RADIX));
+        }
+        terms = new BytesRef[numTerms];
+        for (int i = 0; i < numTerms; i++) {
+            terms[i] = dictionary[random.nextInt(numUnique)];
+        }
+        lookupHash = new BytesRefHash(numUnique, BigArrays.NON_RECYCLING_INSTANCE);
+        for (BytesRef term : dictionary) {
+            lookupHash.add(term);
+        }
+    }
+
+    @Benchmark
+    public long add() {
+        try (BytesRefHash hash = new BytesRefHash(16, BigArrays.NON_RECYCLING_INSTANCE)) {
+            for (BytesRef term : terms) {
+                hash.add(term);
+            }
+            return hash.size();
+        }
+    }
+
+    @Benchmark
+    public long find() {
+        long sum = 0;
+        for (BytesRef term : terms) {
+            sum += lookupHash.find(term);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.codelibs.fesen.benchmark.common.util;
+
+import org.codelibs.fesen.common.util.BigArrays;
+import org.codelibs.fesen.common.util.LongHash;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link LongHash} inserts and lookups, the structure behind numeric terms and date histogram bucket ordinals.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class LongHashBenchmark {
+
+    @Param({ "10000", "1000000" })
+    private int numValues;
+
+    @Param({ "0.1", "1" })
+    private double uniqueRatio;
+
+    private long[] values;
+    private LongHash lookupHash;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        int numUnique = Math.max(1, (int) (numValues * uniqueRatio));
+        long[] dictionary = new long[numUnique];
+        for (int i = 0; i < numUnique; i++) {
+            dictionary[i] = random.nextLong();
+        }
+        values = new long[numValues];
+        for (int i = 0; i < numValues; i++) {
+            values[i] = dictionary[random.nextInt(numUnique)];
+        }
+        lookupHash = new LongHash(numUnique, BigArrays.NON_RECYCLING_INSTANCE);
+        for (long value : dictionary) {
+            lookupHash.add(value);
+        }
+    }
+
+    @Benchmark
+    public long add() {
+        try (LongHash hash = new LongHash(16, BigArrays.NON_RECYCLING_INSTANCE)) {
+            for (long value : values) {
+                hash.add(value);
+            }
+            return hash.size();
+        }
+    }
+
+    @Benchmark
+    public long find() {
+        long sum = 0;
+        for (long value : values) {
+            sum += lookupHash.find(value);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.codelibs.fesen.benchmark.index.mapper;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.codelibs.fesen.Version;
+import org.codelibs.fesen.cluster.metadata.IndexMetadata;
+import org.codelibs.fesen.common.bytes.BytesArray;
+import org.codelibs.fesen.common.bytes.BytesReference;
+import org.codelibs.fesen.common.compress.CompressedXContent;
+import org.codelibs.fesen.common.settings.Settings;
+import org.codelibs.fesen.common.xcontent.NamedXContentRegistry;
+import org.codelibs.fesen.common.xcontent.XContentType;
+import org.codelibs.fesen.index.IndexSettings;
+import org.codelibs.fesen.index.analysis.AnalyzerScope;
+import org.codelibs.fesen.index.analysis.IndexAnalyzers;
+import org.codelibs.fesen.index.analysis.NamedAnalyzer;
+import org.codelibs.fesen.index.mapper.DocumentMapper;
+import org.codelibs.fesen.index.mapper.MapperService;
+import org.codelibs.fesen.index.mapper.ParsedDocument;
+import org.codelibs.fesen.index.mapper.SourceToParse;
+import org.codelibs.fesen.index.similarity.SimilarityService;
+import org.codelibs.fesen.indices.IndicesModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of {@link DocumentMapper#parse}, which turns the source of an indexing request into Lucene
+ * documents, against a mapping with the field types commonly found in log and content indices.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class DocumentParserBenchmark {
+
+    private static final String MAPPING = "{\"_doc\":{\"properties\":{"
+        + "\"@timestamp\":{\"type\":\"date\"},"
+        + "\"message\":{\"type\":\"text\"},"
+        + "\"status\":{\"type\":\"integer\"},"
+        + "\"bytes\":{\"type\":\"long\"},"
+        + "\"tags\":{\"type\":\"keyword\"},"
+        + "\"client\":{\"properties\":{\"ip\":{\"type\":\"ip\"},\"agent\":{\"type\":\"keyword\"}}}"
+        + "}}}";
+
+    private static final int NUM_SOURCES = 1024;
+
+    private MapperService mapperService;
+    private DocumentMapper documentMapper;
+    private BytesReference[] sources;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        Settings settings = Settings.builder()
+            .put(IndexMetadata.SETTING_VERSION_CREATED, Version.CURRENT)
+            .put(IndexMetadata.SETTING_NUMBER_OF_SHARDS, 1)
+            .put(IndexMetadata.SETTING_NUMBER_OF_REPLICAS, 0)
+            .build();
+        IndexMetadata indexMetadata = IndexMetadata.builder("index").settings(settings).build();
+        IndexSettings indexSettings = new IndexSettings(indexMetadata, settings);
+        NamedAnalyzer defaultAnalyzer = new NamedAnalyzer("default", AnalyzerScope.INDEX, new StandardAnalyzer());
+        IndexAnalyzers indexAnalyzers = new IndexAnalyzers(Collections.singletonMap("default", defaultAnalyzer),
+            Collections.emptyMap(), Collections.emptyMap());
+        SimilarityService similarityService = new SimilarityService(indexSettings, null, Collections.emptyMap());
+        mapperService = new MapperService(indexSettings, indexAnalyzers, NamedXContentRegistry.EMPTY, similarityService,
+            new IndicesModule(Collections.emptyList()).getMapperRegistry(), () -> null, () -> false, null);
+        documentMapper = mapperService.merge("_doc", new CompressedXContent(MAPPING), MapperService.MergeReason.MAPPING_UPDATE);
+
+        Random random = new Random(42);
+        sources = new BytesReference[NUM_SOURCES];
+        for (int i = 0; i < NUM_SOURCES; i++) {
+            String source = "{\"@timestamp\":" + (1_600_000_000_000L + i)
+                + ",\"message\":\"GET /products/" + random.nextInt(10_000) + " HTTP/1.1 served by upstream " + random.nextInt(16) + "\""
+                + ",\"status\":" + (200 + random.nextInt(4))
+                + ",\"bytes\":" + random.nextInt(1 << 20)
+                + ",\"tags\":[\"web\",\"shard-" + random.nextInt(8) + "\"]"
+                + ",\"client\":{\"ip\":\"10.0." + random.nextInt(256) + "." + random.nextInt(256) + "\",\"agent\":\"agent-"
+                + random.nextInt(64) + "\"}}";
+            sources[i] = new BytesArray(source.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        mapperService.close();
+    }
+
+    @Benchmark
+    public ParsedDocument parse() {
+        int i = next++ & (NUM_SOURCES - 1);
+        return documentMapper.parse(new SourceToParse("index", "_doc", Integer.toString(i), sources[i], XContentType.JSON));
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.codelibs.fesen.benchmark.search;
+
+import org.apache.lucene.document.InetAddressPoint;
+import org.apache.lucene.util.BytesRef;
+import org.codelibs.fesen.common.network.InetAddresses;
+import org.codelibs.fesen.common.time.DateFormatter;
+import org.codelibs.fesen.index.mapper.DateFieldMapper;
+import org.codelibs.fesen.search.DocValueFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.ZoneId;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures formatting doc values for responses, e.g. bucket keys and sort values, with the formats that are not a plain copy.
+ */
+@Fork(2)
+@Warmup(iterations = 10)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class DocValueFormatBenchmark {
+
+    @Param({ "1000" })
+    private int numValues;
+
+    @Param({ "UTC", "America/New_York" })
+    private String zone;
+
+    private long[] millis;
+    private double[] doubles;
+    private BytesRef[] ips;
+
+    private DocValueFormat dateFormat;
+    private DocValueFormat decimalFormat;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        millis = new long[numValues];
+        doubles = new double[numValues];
+        ips = new BytesRef[numValues];
+        byte[] address = new byte[4];
+        for (int i = 0; i < numValues; i++) {
+            millis[i] = 1_577_836_800_000L + (random.nextLong() & 0xFFFFFFFFFL);
+            doubles[i] = random.nextDouble() * 1_000_000;
+            random.nextBytes(address);
+            ips[i] = new BytesRef(InetAddressPoint.encode(InetAddresses.forString(
+                (address[0] & 0xFF) + "." + (address[1] & 0xFF) + "." + (address[2] & 0xFF) + "." + (address[3] & 0xFF))));
+        }
+        dateFormat = new DocValueFormat.DateTime(DateFormatter.forPattern("strict_date_optional_time"), ZoneId.of(zone),
+            DateFieldMapper.Resolution.MILLISECONDS);
+        decimalFormat = new DocValueFormat.Decimal("###,###.00");
+    }
+
+    @Benchmark
+    public void formatDate(Blackhole bh) {
+        for (long value : millis) {
+            bh.consume(dateFormat.format(value));
+        }
+    }
+
+    @Benchmark
+    public void parseDate(Blackhole bh) {
+        for (long value : millis) {
+            bh.consume(dateFormat.parseLong(dateFormat.format(value).toString(), false, () -> 0L));
+        }
+    }
+
+    @Benchmark
+    public void formatDecimal(Blackhole bh) {
+        for (double value : doubles) {
+            bh.consume(decimalFormat.format(value));
+        }
+    }
+
+    @Benchmark
+    public void formatIp(Blackhole bh) {
+        for (BytesRef value : ips) {
+            bh.consume(DocValueFormat.IP.format(value));
+        }
+    }
+}
@@ -29,7 +29,7 @@ class UserAgentCache {
     private final Cache<CompositeCacheKey, Details> cache;
 
     UserAgentCache(long cacheSize) {
-        cache = CacheBuilder.<CompositeCacheKey, Details>builder().setMaximumWeight(cacheSize).build();
+        cache = CacheBuilder.<CompositeCacheKey, Details>builder().setMaximumWeight(cacheSize).setBufferedPromotion(true).build();
     }
 
     public Details get(String parserName, String userAgent) {
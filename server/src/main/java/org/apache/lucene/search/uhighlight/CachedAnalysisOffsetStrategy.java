@@ -0,0 +1,46 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.lucene.search.uhighlight;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.index.LeafReader;
+import org.codelibs.fesen.search.fetch.subphase.highlight.HighlightAnalysisCache;
+
+import java.io.IOException;
+
+/**
+ * An {@link AnalysisOffsetStrategy} that gets the analyzed content of the highlighted field from a
+ * {@link HighlightAnalysisCache}, so that the content of a document is only analyzed the first time it is highlighted.
+ */
+public class CachedAnalysisOffsetStrategy extends AnalysisOffsetStrategy {
+
+    private final HighlightAnalysisCache cache;
+
+    public CachedAnalysisOffsetStrategy(UHComponents components, Analyzer analyzer, HighlightAnalysisCache cache) {
+        super(components, analyzer);
+        this.cache = cache;
+    }
+
+    @Override
+    public OffsetsEnum getOffsetsEnum(LeafReader reader, int docId, String content) throws IOException {
+        final LeafReader analyzed = cache.getOrAnalyze(reader, docId, getField(), content, () -> tokenStream(content));
+        return createOffsetsEnumFromReader(analyzed, 0);
+    }
+}
@@ -35,6 +35,7 @@ import org.codelibs.fesen.common.CheckedSupplier;
 import org.codelibs.fesen.common.Nullable;
 import org.codelibs.fesen.common.lucene.search.MultiPhrasePrefixQuery;
 import org.codelibs.fesen.index.IndexSettings;
+import org.codelibs.fesen.search.fetch.subphase.highlight.HighlightAnalysisCache;
 
 import java.io.IOException;
 import java.text.BreakIterator;
@@ -66,6 +67,7 @@ public class CustomUnifiedHighlighter extends UnifiedHighlighter {
     private final FieldHighlighter fieldHighlighter;
     private final int keywordIgnoreAbove;
     private final int maxAnalyzedOffset;
+    private final HighlightAnalysisCache analysisCache;
 
     /**
      * Creates a new instance of {@link CustomUnifiedHighlighter}
@@ -100,6 +102,27 @@ public class CustomUnifiedHighlighter extends UnifiedHighlighter {
                                     Predicate<String> fieldMatcher,
                                     int keywordIgnoreAbove,
                                     int maxAnalyzedOffset) throws IOException {
+        this(searcher, analyzer, offsetSource, passageFormatter, breakIteratorLocale, breakIterator, index, field, query,
+            noMatchSize, maxPassages, fieldMatcher, keywordIgnoreAbove, maxAnalyzedOffset, null);
+    }
+
+    /**
+     * Creates a new instance of {@link CustomUnifiedHighlighter} that gets the analyzed content of fields
+     * that use the ANALYZED offset source from the provided <code>analysisCache</code>, if not null.
+     */
+    public CustomUnifiedHighlighter(IndexSearcher searcher,
+                                    Analyzer analyzer,
+                                    OffsetSource offsetSource,
+                                    PassageFormatter passageFormatter,
+                                    @Nullable Locale breakIteratorLocale,
+                                    @Nullable BreakIterator breakIterator,
+                                    String index, String field, Query query,
+                                    int noMatchSize,
+                                    int maxPassages,
+                                    Predicate<String> fieldMatcher,
+                                    int keywordIgnoreAbove,
+                                    int maxAnalyzedOffset,
+                                    @Nullable HighlightAnalysisCache analysisCache) throws IOException {
         super(searcher, analyzer);
         this.offsetSource = offsetSource;
         this.breakIterator = breakIterator;
@@ -111,6 +134,7 @@ public class CustomUnifiedHighlighter extends UnifiedHighlighter {
         this.setFieldMatcher(fieldMatcher);
         this.keywordIgnoreAbove = keywordIgnoreAbove;
         this.maxAnalyzedOffset = maxAnalyzedOffset;
+        this.analysisCache = analysisCache;
         fieldHighlighter = getFieldHighlighter(field, query, extractTerms(query), maxPassages);
     }
 
@@ -182,6 +206,14 @@ public class CustomUnifiedHighlighter extends UnifiedHighlighter {
             getScorer(field), maxPassages, (noMatchSize > 0 ? 1 : 0), getFormatter(field), noMatchSize);
     }
 
+    @Override
+    protected FieldOffsetStrategy getOffsetStrategy(OffsetSource offsetSource, UHComponents components) {
+        if (offsetSource == OffsetSource.ANALYSIS && analysisCache != null) {
+            return new CachedAnalysisOffsetStrategy(components, getIndexAnalyzer(), analysisCache);
+        }
+        return super.getOffsetStrategy(offsetSource, components);
+    }
+
     @Override
     protected Collection<Query> preSpanQueryRewrite(Query query) {
         return rewriteCustomQuery(query);
@@ -82,6 +82,10 @@ public class PendingClusterTasksResponse extends ActionResponse implements Itera
             builder.field(Fields.EXECUTING, pendingClusterTask.isExecuting());
             builder.field(Fields.TIME_IN_QUEUE_MILLIS, pendingClusterTask.getTimeInQueueInMillis());
             builder.field(Fields.TIME_IN_QUEUE, pendingClusterTask.getTimeInQueue());
+            if (pendingClusterTask.isExecuting()) {
+                builder.field(Fields.EXECUTION_TIME_MILLIS, pendingClusterTask.getExecutionTimeInMillis());
+                builder.field(Fields.EXECUTION_TIME, pendingClusterTask.getExecutionTime());
+            }
             builder.endObject();
         }
         builder.endArray();
@@ -98,6 +102,8 @@ public class PendingClusterTasksResponse extends ActionResponse implements Itera
         static final String SOURCE = "source";
         static final String TIME_IN_QUEUE_MILLIS = "time_in_queue_millis";
         static final String TIME_IN_QUEUE = "time_in_queue";
+        static final String EXECUTION_TIME_MILLIS = "execution_time_millis";
+        static final String EXECUTION_TIME = "execution_time";
 
     }
 
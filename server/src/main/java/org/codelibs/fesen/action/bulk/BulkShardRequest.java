@@ -27,13 +27,15 @@ import org.codelibs.fesen.action.support.replication.ReplicationRequest;
 import org.codelibs.fesen.common.io.stream.StreamInput;
 import org.codelibs.fesen.common.io.stream.StreamOutput;
 import org.codelibs.fesen.index.shard.ShardId;
+import org.codelibs.fesen.transport.RawIndexingDataTransportRequest;
 
 import java.io.IOException;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.stream.Stream;
 
-public class BulkShardRequest extends ReplicatedWriteRequest<BulkShardRequest> implements Accountable {
+public class BulkShardRequest extends ReplicatedWriteRequest<BulkShardRequest>
+    implements Accountable, RawIndexingDataTransportRequest {
 
     public static final Version COMPACT_SHARD_ID_VERSION = Version.V_7_9_0;
     private static final long SHALLOW_SIZE = RamUsageEstimator.shallowSizeOfInstance(BulkShardRequest.class);
@@ -20,7 +20,9 @@
 package org.codelibs.fesen.action.explain;
 
 import org.apache.lucene.search.Explanation;
+import org.codelibs.fesen.Version;
 import org.codelibs.fesen.action.ActionResponse;
+import org.codelibs.fesen.action.support.single.shard.ExecutionStatsAwareResponse;
 import org.codelibs.fesen.common.ParseField;
 import org.codelibs.fesen.common.io.stream.StreamInput;
 import org.codelibs.fesen.common.io.stream.StreamOutput;
@@ -41,7 +43,7 @@ import java.util.Objects;
 /**
  * Response containing the score explanation.
  */
-public class ExplainResponse extends ActionResponse implements StatusToXContentObject {
+public class ExplainResponse extends ActionResponse implements StatusToXContentObject, ExecutionStatsAwareResponse {
 
     private static final ParseField _INDEX = new ParseField("_index");
     private static final ParseField _TYPE = new ParseField("_type");
@@ -59,6 +61,8 @@ public class ExplainResponse extends ActionResponse implements StatusToXContentO
     private boolean exists;
     private Explanation explanation;
     private GetResult getResult;
+    private long serviceTimeEWMA = -1;
+    private int nodeQueueSize = -1;
 
     // TODO(talevy): remove dependency on empty constructor from ExplainResponseTests
     ExplainResponse() {
@@ -93,6 +97,10 @@ public class ExplainResponse extends ActionResponse implements StatusToXContentO
         if (in.readBoolean()) {
             getResult = new GetResult(in);
         }
+        if (in.getVersion().onOrAfter(Version.V_0_13_1)) {
+            serviceTimeEWMA = in.readZLong();
+            nodeQueueSize = in.readInt();
+        }
     }
 
     public String getIndex() {
@@ -154,6 +162,30 @@ public class ExplainResponse extends ActionResponse implements StatusToXContentO
             out.writeBoolean(true);
             getResult.writeTo(out);
         }
+        if (out.getVersion().onOrAfter(Version.V_0_13_1)) {
+            out.writeZLong(serviceTimeEWMA);
+            out.writeInt(nodeQueueSize);
+        }
+    }
+
+    @Override
+    public long serviceTimeEWMA() {
+        return serviceTimeEWMA;
+    }
+
+    @Override
+    public void serviceTimeEWMA(long serviceTimeEWMA) {
+        this.serviceTimeEWMA = serviceTimeEWMA;
+    }
+
+    @Override
+    public int nodeQueueSize() {
+        return nodeQueueSize;
+    }
+
+    @Override
+    public void nodeQueueSize(int nodeQueueSize) {
+        this.nodeQueueSize = nodeQueueSize;
     }
 
     private static final ConstructingObjectParser<ExplainResponse, Boolean> PARSER = new ConstructingObjectParser<>("explain", true,
@@ -68,7 +68,7 @@ public class TransportExplainAction extends TransportSingleShardAction<ExplainRe
                                   SearchService searchService, ActionFilters actionFilters,
                                   IndexNameExpressionResolver indexNameExpressionResolver) {
         super(ExplainAction.NAME, threadPool, clusterService, transportService, actionFilters, indexNameExpressionResolver,
-                ExplainRequest::new, ThreadPool.Names.GET);
+                ExplainRequest::new, ThreadPool.Names.GET, searchService.getResponseCollectorService());
         this.searchService = searchService;
     }
 
@@ -161,7 +161,7 @@ public class TransportExplainAction extends TransportSingleShardAction<ExplainRe
     protected ShardIterator shards(ClusterState state, InternalRequest request) {
         return clusterService.operationRouting().getShards(
                 clusterService.state(), request.concreteIndex(), request.request().id(), request.request().routing(),
-            request.request().preference()
+            request.request().preference(), responseCollectorService
         );
     }
 
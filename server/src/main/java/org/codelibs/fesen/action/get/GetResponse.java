@@ -20,7 +20,9 @@
 package org.codelibs.fesen.action.get;
 
 import org.codelibs.fesen.FesenParseException;
+import org.codelibs.fesen.Version;
 import org.codelibs.fesen.action.ActionResponse;
+import org.codelibs.fesen.action.support.single.shard.ExecutionStatsAwareResponse;
 import org.codelibs.fesen.common.ParsingException;
 import org.codelibs.fesen.common.Strings;
 import org.codelibs.fesen.common.bytes.BytesReference;
@@ -44,13 +46,20 @@ import java.util.Objects;
  * @see GetRequest
  * @see org.codelibs.fesen.client.Client#get(GetRequest)
  */
-public class GetResponse extends ActionResponse implements Iterable<DocumentField>, ToXContentObject {
+public class GetResponse extends ActionResponse implements Iterable<DocumentField>, ToXContentObject,
+        ExecutionStatsAwareResponse {
 
     GetResult getResult;
+    private long serviceTimeEWMA = -1;
+    private int nodeQueueSize = -1;
 
     GetResponse(StreamInput in) throws IOException {
         super(in);
         getResult = new GetResult(in);
+        if (in.getVersion().onOrAfter(Version.V_0_13_1)) {
+            serviceTimeEWMA = in.readZLong();
+            nodeQueueSize = in.readInt();
+        }
     }
 
     public GetResponse(GetResult getResult) {
@@ -206,6 +215,30 @@ public class GetResponse extends ActionResponse implements Iterable<DocumentFiel
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         getResult.writeTo(out);
+        if (out.getVersion().onOrAfter(Version.V_0_13_1)) {
+            out.writeZLong(serviceTimeEWMA);
+            out.writeInt(nodeQueueSize);
+        }
+    }
+
+    @Override
+    public long serviceTimeEWMA() {
+        return serviceTimeEWMA;
+    }
+
+    @Override
+    public void serviceTimeEWMA(long serviceTimeEWMA) {
+        this.serviceTimeEWMA = serviceTimeEWMA;
+    }
+
+    @Override
+    public int nodeQueueSize() {
+        return nodeQueueSize;
+    }
+
+    @Override
+    public void nodeQueueSize(int nodeQueueSize) {
+        this.nodeQueueSize = nodeQueueSize;
     }
 
     @Override
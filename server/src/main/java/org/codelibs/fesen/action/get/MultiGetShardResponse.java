@@ -25,15 +25,19 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.codelibs.fesen.Version;
 import org.codelibs.fesen.action.ActionResponse;
+import org.codelibs.fesen.action.support.single.shard.ExecutionStatsAwareResponse;
 import org.codelibs.fesen.common.io.stream.StreamInput;
 import org.codelibs.fesen.common.io.stream.StreamOutput;
 
-public class MultiGetShardResponse extends ActionResponse {
+public class MultiGetShardResponse extends ActionResponse implements ExecutionStatsAwareResponse {
 
     final IntArrayList locations;
     final List<GetResponse> responses;
     final List<MultiGetResponse.Failure> failures;
+    private long serviceTimeEWMA = -1;
+    private int nodeQueueSize = -1;
 
     MultiGetShardResponse() {
         locations = new IntArrayList();
@@ -60,6 +64,10 @@ public class MultiGetShardResponse extends ActionResponse {
                 failures.add(null);
             }
         }
+        if (in.getVersion().onOrAfter(Version.V_0_13_1)) {
+            serviceTimeEWMA = in.readZLong();
+            nodeQueueSize = in.readInt();
+        }
     }
 
     public void add(int location, GetResponse response) {
@@ -92,5 +100,29 @@ public class MultiGetShardResponse extends ActionResponse {
                 failures.get(i).writeTo(out);
             }
         }
+        if (out.getVersion().onOrAfter(Version.V_0_13_1)) {
+            out.writeZLong(serviceTimeEWMA);
+            out.writeInt(nodeQueueSize);
+        }
+    }
+
+    @Override
+    public long serviceTimeEWMA() {
+        return serviceTimeEWMA;
+    }
+
+    @Override
+    public void serviceTimeEWMA(long serviceTimeEWMA) {
+        this.serviceTimeEWMA = serviceTimeEWMA;
+    }
+
+    @Override
+    public int nodeQueueSize() {
+        return nodeQueueSize;
+    }
+
+    @Override
+    public void nodeQueueSize(int nodeQueueSize) {
+        this.nodeQueueSize = nodeQueueSize;
     }
 }
@@ -36,6 +36,7 @@ import org.codelibs.fesen.index.get.GetResult;
 import org.codelibs.fesen.index.shard.IndexShard;
 import org.codelibs.fesen.index.shard.ShardId;
 import org.codelibs.fesen.indices.IndicesService;
+import org.codelibs.fesen.node.ResponseCollectorService;
 import org.codelibs.fesen.threadpool.ThreadPool;
 import org.codelibs.fesen.transport.TransportService;
 
@@ -49,9 +50,10 @@ public class TransportGetAction extends TransportSingleShardAction<GetRequest, G
     @Inject
     public TransportGetAction(ClusterService clusterService, TransportService transportService,
                               IndicesService indicesService, ThreadPool threadPool, ActionFilters actionFilters,
-                              IndexNameExpressionResolver indexNameExpressionResolver) {
+                              IndexNameExpressionResolver indexNameExpressionResolver,
+                              ResponseCollectorService responseCollectorService) {
         super(GetAction.NAME, threadPool, clusterService, transportService, actionFilters, indexNameExpressionResolver,
-                GetRequest::new, ThreadPool.Names.GET);
+                GetRequest::new, ThreadPool.Names.GET, responseCollectorService);
         this.indicesService = indicesService;
     }
 
@@ -64,7 +66,7 @@ public class TransportGetAction extends TransportSingleShardAction<GetRequest, G
     protected ShardIterator shards(ClusterState state, InternalRequest request) {
         return clusterService.operationRouting()
                 .getShards(clusterService.state(), request.concreteIndex(), request.request().id(), request.request().routing(),
-                    request.request().preference());
+                    request.request().preference(), responseCollectorService);
     }
 
     @Override
@@ -35,6 +35,7 @@ import org.codelibs.fesen.index.get.GetResult;
 import org.codelibs.fesen.index.shard.IndexShard;
 import org.codelibs.fesen.index.shard.ShardId;
 import org.codelibs.fesen.indices.IndicesService;
+import org.codelibs.fesen.node.ResponseCollectorService;
 import org.codelibs.fesen.threadpool.ThreadPool;
 import org.codelibs.fesen.transport.TransportService;
 
@@ -49,9 +50,10 @@ public class TransportShardMultiGetAction extends TransportSingleShardAction<Mul
     @Inject
     public TransportShardMultiGetAction(ClusterService clusterService, TransportService transportService,
                                         IndicesService indicesService, ThreadPool threadPool, ActionFilters actionFilters,
-                                        IndexNameExpressionResolver indexNameExpressionResolver) {
+                                        IndexNameExpressionResolver indexNameExpressionResolver,
+                                        ResponseCollectorService responseCollectorService) {
         super(ACTION_NAME, threadPool, clusterService, transportService, actionFilters, indexNameExpressionResolver,
-                MultiGetShardRequest::new, ThreadPool.Names.GET);
+                MultiGetShardRequest::new, ThreadPool.Names.GET, responseCollectorService);
         this.indicesService = indicesService;
     }
 
@@ -73,7 +75,8 @@ public class TransportShardMultiGetAction extends TransportSingleShardAction<Mul
     @Override
     protected ShardIterator shards(ClusterState state, InternalRequest request) {
         return clusterService.operationRouting()
-                .getShards(state, request.request().index(), request.request().shardId(), request.request().preference());
+                .getShards(state, request.request().index(), request.request().shardId(), request.request().preference(),
+                    responseCollectorService);
     }
 
     @Override
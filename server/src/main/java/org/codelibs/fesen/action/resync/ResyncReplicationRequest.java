@@ -30,11 +30,13 @@ import org.codelibs.fesen.common.io.stream.StreamOutput;
 import org.codelibs.fesen.index.seqno.SequenceNumbers;
 import org.codelibs.fesen.index.shard.ShardId;
 import org.codelibs.fesen.index.translog.Translog;
+import org.codelibs.fesen.transport.RawIndexingDataTransportRequest;
 
 /**
  * Represents a batch of operations sent from the primary to its replicas during the primary-replica resync.
  */
-public final class ResyncReplicationRequest extends ReplicatedWriteRequest<ResyncReplicationRequest> {
+public final class ResyncReplicationRequest extends ReplicatedWriteRequest<ResyncReplicationRequest>
+    implements RawIndexingDataTransportRequest {
 
     private final long trimAboveSeqNo;
     private final Translog.Operation[] operations;
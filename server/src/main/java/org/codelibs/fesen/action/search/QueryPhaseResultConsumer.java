@@ -25,6 +25,7 @@ import org.apache.lucene.search.TopDocs;
 import org.codelibs.fesen.action.search.SearchPhaseController.TopDocsStats;
 import org.codelibs.fesen.common.breaker.CircuitBreaker;
 import org.codelibs.fesen.common.breaker.CircuitBreakingException;
+import org.codelibs.fesen.common.io.stream.DelayableWriteable;
 import org.codelibs.fesen.common.io.stream.NamedWriteableRegistry;
 import org.codelibs.fesen.common.lease.Releasable;
 import org.codelibs.fesen.common.lease.Releasables;
@@ -58,6 +59,9 @@ import java.util.function.Consumer;
  * in the {@link CircuitBreaker#REQUEST} circuit breaker. Before any partial or final reduce, the memory
  * needed to reduce the aggregations is estimated and a {@link CircuitBreakingException} is thrown if it
  * exceeds the maximum memory allowed in this breaker.
+ * When {@code serializePartialResults} is set, the aggregations of buffered shard results and of the latest
+ * partial reduce are kept in serialized form, which is much more compact than the expanded object trees,
+ * so that the memory held between two reductions does not depend on the number of shards.
  */
 public class QueryPhaseResultConsumer extends ArraySearchPhaseResults<SearchPhaseResult> implements Releasable {
     private static final Logger logger = LogManager.getLogger(QueryPhaseResultConsumer.class);
@@ -73,6 +77,7 @@ public class QueryPhaseResultConsumer extends ArraySearchPhaseResults<SearchPhas
     private final boolean hasTopDocs;
     private final boolean hasAggs;
     private final boolean performFinalReduce;
+    private final boolean serializePartialResults;
 
     private final PendingMerges pendingMerges;
     private final Consumer<Exception> onPartialMergeFailure;
@@ -89,6 +94,24 @@ public class QueryPhaseResultConsumer extends ArraySearchPhaseResults<SearchPhas
                                     NamedWriteableRegistry namedWriteableRegistry,
                                     int expectedResultSize,
                                     Consumer<Exception> onPartialMergeFailure) {
+        this(request, executor, circuitBreaker, controller, progressListener, namedWriteableRegistry, expectedResultSize,
+            onPartialMergeFailure, true);
+    }
+
+    /**
+     * Creates a {@link QueryPhaseResultConsumer} that incrementally reduces aggregation results
+     * as shard results are consumed and, if {@code serializePartialResults} is set, buffers aggregations
+     * in serialized form between reductions.
+     */
+    public QueryPhaseResultConsumer(SearchRequest request,
+                                    Executor executor,
+                                    CircuitBreaker circuitBreaker,
+                                    SearchPhaseController controller,
+                                    SearchProgressListener progressListener,
+                                    NamedWriteableRegistry namedWriteableRegistry,
+                                    int expectedResultSize,
+                                    Consumer<Exception> onPartialMergeFailure,
+                                    boolean serializePartialResults) {
         super(expectedResultSize);
         this.executor = executor;
         this.circuitBreaker = circuitBreaker;
@@ -99,6 +122,7 @@ public class QueryPhaseResultConsumer extends ArraySearchPhaseResults<SearchPhas
         this.topNSize = getTopDocsSize(request);
         this.performFinalReduce = request.isFinalReduce();
         this.onPartialMergeFailure = onPartialMergeFailure;
+        this.serializePartialResults = serializePartialResults;
 
         SearchSourceBuilder source = request.source();
         this.hasTopDocs = source == null || source.size() != 0;
@@ -186,7 +210,7 @@ public class QueryPhaseResultConsumer extends ArraySearchPhaseResults<SearchPhas
         if (hasAggs) {
             List<InternalAggregations> aggsList = new ArrayList<>();
             if (lastMerge != null) {
-                aggsList.add(lastMerge.reducedAggs);
+                aggsList.add(lastMerge.reducedAggs.expand());
             }
             for (QuerySearchResult result : toConsume) {
                 aggsList.add(result.consumeAggs().expand());
@@ -204,10 +228,18 @@ public class QueryPhaseResultConsumer extends ArraySearchPhaseResults<SearchPhas
             processedShards.add(new SearchShard(target.getClusterAlias(), target.getShardId()));
         }
         progressListener.notifyPartialReduce(processedShards, topDocsStats.getTotalHits(), newAggs, numReducePhases);
+        if (hasAggs == false) {
+            return new MergeResult(processedShards, newTopDocs, null, 0);
+        }
+        if (serializePartialResults) {
+            // the reduced aggregations are held until the next reduction, keep them in their compact serialized form
+            DelayableWriteable.Serialized<InternalAggregations> serialized =
+                DelayableWriteable.referencing(newAggs).asSerialized(InternalAggregations::readFrom, namedWriteableRegistry);
+            return new MergeResult(processedShards, newTopDocs, serialized, serialized.ramBytesUsed());
+        }
         // we leave the results un-serialized because serializing is slow but we compute the serialized
         // size as an estimate of the memory used by the newly reduced aggregations.
-        long serializedSize = hasAggs ? newAggs.getSerializedSize() : 0;
-        return new MergeResult(processedShards, newTopDocs, newAggs, hasAggs ? serializedSize : 0);
+        return new MergeResult(processedShards, newTopDocs, DelayableWriteable.referencing(newAggs), newAggs.getSerializedSize());
     }
 
     public int getNumReducePhases() {
@@ -290,6 +322,10 @@ public class QueryPhaseResultConsumer extends ArraySearchPhaseResults<SearchPhas
             if (hasAggs == false) {
                 return 0;
             }
+            if (serializePartialResults) {
+                // keep the serialized form that we need for the estimate anyway rather than the expanded aggregations
+                return result.serializeAggregations(namedWriteableRegistry).ramBytesUsed();
+            }
             return result.aggregations()
                 .asSerialized(InternalAggregations::readFrom, namedWriteableRegistry)
                 .ramBytesUsed();
@@ -461,7 +497,7 @@ public class QueryPhaseResultConsumer extends ArraySearchPhaseResults<SearchPhas
             }
             List<InternalAggregations> aggsList = new ArrayList<>();
             if (mergeResult != null) {
-                aggsList.add(mergeResult.reducedAggs);
+                aggsList.add(mergeResult.reducedAggs.expand());
             }
             for (QuerySearchResult result : buffer) {
                 aggsList.add(result.consumeAggs().expand());
@@ -473,11 +509,11 @@ public class QueryPhaseResultConsumer extends ArraySearchPhaseResults<SearchPhas
     private static class MergeResult {
         private final List<SearchShard> processedShards;
         private final TopDocs reducedTopDocs;
-        private final InternalAggregations reducedAggs;
+        private final DelayableWriteable<InternalAggregations> reducedAggs;
         private final long estimatedSize;
 
         private MergeResult(List<SearchShard> processedShards, TopDocs reducedTopDocs,
-                            InternalAggregations reducedAggs, long estimatedSize) {
+                            DelayableWriteable<InternalAggregations> reducedAggs, long estimatedSize) {
             this.processedShards = processedShards;
             this.reducedTopDocs = reducedTopDocs;
             this.reducedAggs = reducedAggs;
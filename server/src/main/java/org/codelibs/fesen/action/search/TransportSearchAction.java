@@ -108,6 +108,13 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
     public static final Setting<Long> SHARD_COUNT_LIMIT_SETTING = Setting.longSetting(
             "action.search.shard_count.limit", Long.MAX_VALUE, 1L, Property.Dynamic, Property.NodeScope);
 
+    /**
+     * Whether the coordinating node keeps the aggregations that wait for a partial reduce in serialized form, trading some CPU for a
+     * much smaller heap footprint when many shards return large aggregations.
+     */
+    public static final Setting<Boolean> SERIALIZE_PARTIAL_REDUCE_SETTING = Setting.boolSetting(
+            "action.search.partial_reduce.serialize", true, Property.Dynamic, Property.NodeScope);
+
     private final NodeClient client;
     private final ThreadPool threadPool;
     private final ClusterService clusterService;
@@ -801,8 +808,10 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
                 };
             }, clusters);
         } else {
+            final boolean serializePartialResults = clusterService.getClusterSettings().get(SERIALIZE_PARTIAL_REDUCE_SETTING);
             final QueryPhaseResultConsumer queryResultConsumer = searchPhaseController.newSearchPhaseResults(executor,
-                circuitBreaker, task.getProgressListener(), searchRequest, shardIterators.size(), exc -> cancelTask(task, exc));
+                circuitBreaker, task.getProgressListener(), searchRequest, shardIterators.size(), exc -> cancelTask(task, exc),
+                serializePartialResults);
             AbstractSearchAsyncAction<? extends SearchPhaseResult> searchAsyncAction;
             switch (searchRequest.searchType()) {
                 case DFS_QUERY_THEN_FETCH:
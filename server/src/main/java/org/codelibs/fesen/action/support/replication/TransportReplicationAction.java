@@ -72,6 +72,7 @@ import org.codelibs.fesen.tasks.Task;
 import org.codelibs.fesen.tasks.TaskId;
 import org.codelibs.fesen.threadpool.ThreadPool;
 import org.codelibs.fesen.transport.ConnectTransportException;
+import org.codelibs.fesen.transport.RawIndexingDataTransportRequest;
 import org.codelibs.fesen.transport.TransportChannel;
 import org.codelibs.fesen.transport.TransportException;
 import org.codelibs.fesen.transport.TransportRequest;
@@ -146,6 +147,21 @@ public abstract class TransportReplicationAction<
                                          ActionFilters actionFilters, Writeable.Reader<Request> requestReader,
                                          Writeable.Reader<ReplicaRequest> replicaRequestReader, String executor,
                                          boolean syncGlobalCheckpointAfterOperation, boolean forceExecutionOnPrimary) {
+        this(settings, actionName, transportService, clusterService, indicesService, threadPool, shardStateAction, actionFilters,
+            requestReader, replicaRequestReader, executor, syncGlobalCheckpointAfterOperation, forceExecutionOnPrimary, false);
+    }
+
+    /**
+     * @param allowsUnsafeBuffers whether shard requests that are received from other nodes may reference the network buffers they were
+     *                            read from rather than copies of them, which are then retained until the shard responds
+     */
+    protected TransportReplicationAction(Settings settings, String actionName, TransportService transportService,
+                                         ClusterService clusterService, IndicesService indicesService,
+                                         ThreadPool threadPool, ShardStateAction shardStateAction,
+                                         ActionFilters actionFilters, Writeable.Reader<Request> requestReader,
+                                         Writeable.Reader<ReplicaRequest> replicaRequestReader, String executor,
+                                         boolean syncGlobalCheckpointAfterOperation, boolean forceExecutionOnPrimary,
+                                         boolean allowsUnsafeBuffers) {
         super(actionName, actionFilters, transportService.getTaskManager());
         this.threadPool = threadPool;
         this.transportService = transportService;
@@ -163,11 +179,11 @@ public abstract class TransportReplicationAction<
 
         transportService.registerRequestHandler(actionName, ThreadPool.Names.SAME, requestReader, this::handleOperationRequest);
 
-        transportService.registerRequestHandler(transportPrimaryAction, executor, forceExecutionOnPrimary, true,
+        transportService.registerRequestHandler(transportPrimaryAction, executor, forceExecutionOnPrimary, true, allowsUnsafeBuffers,
             in -> new ConcreteShardRequest<>(requestReader, in), this::handlePrimaryRequest);
 
         // we must never reject on because of thread pool capacity on replicas
-        transportService.registerRequestHandler(transportReplicaAction, executor, true, true,
+        transportService.registerRequestHandler(transportReplicaAction, executor, true, true, allowsUnsafeBuffers,
             in -> new ConcreteReplicaRequest<>(replicaRequestReader, in), this::handleReplicaRequest);
 
         this.transportOptions = transportOptions(settings);
@@ -1114,7 +1130,8 @@ public abstract class TransportReplicationAction<
     }
 
     /** a wrapper class to encapsulate a request when being sent to a specific allocation id **/
-    public static class ConcreteShardRequest<R extends TransportRequest> extends TransportRequest {
+    public static class ConcreteShardRequest<R extends TransportRequest> extends TransportRequest
+        implements RawIndexingDataTransportRequest {
 
         /** {@link AllocationId#getId()} of the shard this request is sent to **/
         private final String targetAllocationID;
@@ -1205,6 +1222,12 @@ public abstract class TransportReplicationAction<
             return primaryTerm;
         }
 
+        @Override
+        public boolean isRawIndexingData() {
+            return request instanceof RawIndexingDataTransportRequest
+                && ((RawIndexingDataTransportRequest) request).isRawIndexingData();
+        }
+
         @Override
         public String toString() {
             return "request: " + request + ", target allocation id: " + targetAllocationID + ", primary term: " + primaryTerm;
@@ -0,0 +1,44 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.codelibs.fesen.action.support.single.shard;
+
+import org.codelibs.fesen.node.ResponseCollectorService;
+
+/**
+ * A response of a shard level read that piggybacks the queue size and the service time EWMA of the node that executed it, so
+ * that the coordinating node can add them to its {@link ResponseCollectorService} and rank the shard copies of later reads
+ * with adaptive replica selection.
+ */
+public interface ExecutionStatsAwareResponse {
+
+    /**
+     * The EWMA of the time it took the executing node to serve shard reads, in nanoseconds, or -1 if it is unknown.
+     */
+    long serviceTimeEWMA();
+
+    void serviceTimeEWMA(long serviceTimeEWMA);
+
+    /**
+     * The number of tasks queued in the thread pool of the executing node when the read completed, or -1 if it is unknown.
+     */
+    int nodeQueueSize();
+
+    void nodeQueueSize(int nodeQueueSize);
+}
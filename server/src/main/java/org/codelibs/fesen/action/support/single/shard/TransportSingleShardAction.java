@@ -37,11 +37,14 @@ import org.codelibs.fesen.cluster.node.DiscoveryNodes;
 import org.codelibs.fesen.cluster.routing.ShardRouting;
 import org.codelibs.fesen.cluster.routing.ShardsIterator;
 import org.codelibs.fesen.cluster.service.ClusterService;
+import org.codelibs.fesen.common.ExponentiallyWeightedMovingAverage;
 import org.codelibs.fesen.common.Nullable;
 import org.codelibs.fesen.common.io.stream.StreamInput;
 import org.codelibs.fesen.common.io.stream.Writeable;
 import org.codelibs.fesen.common.logging.LoggerMessageFormat;
+import org.codelibs.fesen.common.util.concurrent.QueueResizingEsThreadPoolExecutor;
 import org.codelibs.fesen.index.shard.ShardId;
+import org.codelibs.fesen.node.ResponseCollectorService;
 import org.codelibs.fesen.tasks.Task;
 import org.codelibs.fesen.threadpool.ThreadPool;
 import org.codelibs.fesen.transport.TransportChannel;
@@ -53,6 +56,8 @@ import org.codelibs.fesen.transport.TransportService;
 import static org.codelibs.fesen.action.support.TransportActions.isShardNotAvailableException;
 
 import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 
 /**
  * A base class for operations that need to perform a read operation on a single shard copy. If the operation fails,
@@ -66,19 +71,36 @@ public abstract class TransportSingleShardAction<Request extends SingleShardRequ
     protected final ClusterService clusterService;
     protected final TransportService transportService;
     protected final IndexNameExpressionResolver indexNameExpressionResolver;
+    @Nullable
+    protected final ResponseCollectorService responseCollectorService;
 
     private final String transportShardAction;
     private final String executor;
+    private final ExponentiallyWeightedMovingAverage shardOperationEWMA =
+        new ExponentiallyWeightedMovingAverage(QueueResizingEsThreadPoolExecutor.EWMA_ALPHA, 0);
 
     protected TransportSingleShardAction(String actionName, ThreadPool threadPool, ClusterService clusterService,
                                          TransportService transportService, ActionFilters actionFilters,
                                          IndexNameExpressionResolver indexNameExpressionResolver, Writeable.Reader<Request> request,
                                          String executor) {
+        this(actionName, threadPool, clusterService, transportService, actionFilters, indexNameExpressionResolver, request, executor,
+            null);
+    }
+
+    /**
+     * Creates an action that adds the queue size and service time piggybacked on {@link ExecutionStatsAwareResponse}s to the given
+     * collector, if any, so that subclasses can rank the shard copies they read from with it.
+     */
+    protected TransportSingleShardAction(String actionName, ThreadPool threadPool, ClusterService clusterService,
+                                         TransportService transportService, ActionFilters actionFilters,
+                                         IndexNameExpressionResolver indexNameExpressionResolver, Writeable.Reader<Request> request,
+                                         String executor, @Nullable ResponseCollectorService responseCollectorService) {
         super(actionName, actionFilters, transportService.getTaskManager());
         this.threadPool = threadPool;
         this.clusterService = clusterService;
         this.transportService = transportService;
         this.indexNameExpressionResolver = indexNameExpressionResolver;
+        this.responseCollectorService = responseCollectorService;
 
         this.transportShardAction = actionName + "[s]";
         this.executor = executor;
@@ -106,8 +128,20 @@ public abstract class TransportSingleShardAction<Request extends SingleShardRequ
     protected abstract Response shardOperation(Request request, ShardId shardId) throws IOException;
 
     protected void asyncShardOperation(Request request, ShardId shardId, ActionListener<Response> listener) throws IOException {
-        threadPool.executor(getExecutor(request, shardId))
-            .execute(ActionRunnable.supply(listener, () -> shardOperation(request, shardId)));
+        final ExecutorService executorService = threadPool.executor(getExecutor(request, shardId));
+        executorService.execute(ActionRunnable.supply(listener, () -> {
+            final long startNanos = System.nanoTime();
+            final Response response = shardOperation(request, shardId);
+            if (response instanceof ExecutionStatsAwareResponse) {
+                shardOperationEWMA.addValue(System.nanoTime() - startNanos);
+                final ExecutionStatsAwareResponse statsAwareResponse = (ExecutionStatsAwareResponse) response;
+                statsAwareResponse.serviceTimeEWMA((long) shardOperationEWMA.getAverage());
+                if (executorService instanceof ThreadPoolExecutor) {
+                    statsAwareResponse.nodeQueueSize(((ThreadPoolExecutor) executorService).getQueue().size());
+                }
+            }
+            return response;
+        }));
     }
 
     protected abstract Writeable.Reader<Response> getResponseReader();
@@ -243,6 +277,7 @@ public abstract class TransportSingleShardAction<Request extends SingleShardRequ
                     );
                 }
                 final Writeable.Reader<Response> reader = getResponseReader();
+                final long startNanos = System.nanoTime();
                 transportService.sendRequest(node, transportShardAction, internalRequest.request(),
                     new TransportResponseHandler<Response>() {
 
@@ -258,6 +293,16 @@ public abstract class TransportSingleShardAction<Request extends SingleShardRequ
 
                         @Override
                         public void handleResponse(final Response response) {
+                            if (responseCollectorService != null && response instanceof ExecutionStatsAwareResponse) {
+                                final ExecutionStatsAwareResponse statsAwareResponse = (ExecutionStatsAwareResponse) response;
+                                final long serviceTimeEWMA = statsAwareResponse.serviceTimeEWMA();
+                                final int queueSize = statsAwareResponse.nodeQueueSize();
+                                // EWMA/queue size may be -1 if the node that served the read doesn't support capturing it
+                                if (serviceTimeEWMA > 0 && queueSize >= 0) {
+                                    responseCollectorService.addNodeStatistics(node.getId(), queueSize,
+                                        System.nanoTime() - startNanos, serviceTimeEWMA);
+                                }
+                            }
                             listener.onResponse(response);
                         }
 
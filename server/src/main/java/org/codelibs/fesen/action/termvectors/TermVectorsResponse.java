@@ -27,7 +27,9 @@ import org.apache.lucene.search.BoostAttribute;
 import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.CharsRefBuilder;
+import org.codelibs.fesen.Version;
 import org.codelibs.fesen.action.ActionResponse;
+import org.codelibs.fesen.action.support.single.shard.ExecutionStatsAwareResponse;
 import org.codelibs.fesen.action.termvectors.TermVectorsRequest.Flag;
 import org.codelibs.fesen.common.bytes.BytesArray;
 import org.codelibs.fesen.common.bytes.BytesReference;
@@ -44,7 +46,7 @@ import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.Set;
 
-public class TermVectorsResponse extends ActionResponse implements ToXContentObject {
+public class TermVectorsResponse extends ActionResponse implements ToXContentObject, ExecutionStatsAwareResponse {
 
     private static class FieldStrings {
         // term statistics strings
@@ -84,6 +86,8 @@ public class TermVectorsResponse extends ActionResponse implements ToXContentObj
     private boolean artificial = false;
     private long tookInMillis;
     private boolean hasScores = false;
+    private long serviceTimeEWMA = -1;
+    private int nodeQueueSize = -1;
 
     private boolean sourceCopied = false;
 
@@ -113,6 +117,10 @@ public class TermVectorsResponse extends ActionResponse implements ToXContentObj
             headerRef = in.readBytesReference();
             termVectors = in.readBytesReference();
         }
+        if (in.getVersion().onOrAfter(Version.V_0_13_1)) {
+            serviceTimeEWMA = in.readZLong();
+            nodeQueueSize = in.readInt();
+        }
     }
 
     @Override
@@ -130,6 +138,30 @@ public class TermVectorsResponse extends ActionResponse implements ToXContentObj
             out.writeBytesReference(headerRef);
             out.writeBytesReference(termVectors);
         }
+        if (out.getVersion().onOrAfter(Version.V_0_13_1)) {
+            out.writeZLong(serviceTimeEWMA);
+            out.writeInt(nodeQueueSize);
+        }
+    }
+
+    @Override
+    public long serviceTimeEWMA() {
+        return serviceTimeEWMA;
+    }
+
+    @Override
+    public void serviceTimeEWMA(long serviceTimeEWMA) {
+        this.serviceTimeEWMA = serviceTimeEWMA;
+    }
+
+    @Override
+    public int nodeQueueSize() {
+        return nodeQueueSize;
+    }
+
+    @Override
+    public void nodeQueueSize(int nodeQueueSize) {
+        this.nodeQueueSize = nodeQueueSize;
     }
 
     private boolean hasTermVectors() {
@@ -34,6 +34,7 @@ import org.codelibs.fesen.index.shard.IndexShard;
 import org.codelibs.fesen.index.shard.ShardId;
 import org.codelibs.fesen.index.termvectors.TermVectorsService;
 import org.codelibs.fesen.indices.IndicesService;
+import org.codelibs.fesen.node.ResponseCollectorService;
 import org.codelibs.fesen.threadpool.ThreadPool;
 import org.codelibs.fesen.transport.TransportService;
 
@@ -47,9 +48,10 @@ public class TransportShardMultiTermsVectorAction extends
     @Inject
     public TransportShardMultiTermsVectorAction(ClusterService clusterService, TransportService transportService,
                                                 IndicesService indicesService, ThreadPool threadPool, ActionFilters actionFilters,
-                                                IndexNameExpressionResolver indexNameExpressionResolver) {
+                                                IndexNameExpressionResolver indexNameExpressionResolver,
+                                                ResponseCollectorService responseCollectorService) {
         super(ACTION_NAME, threadPool, clusterService, transportService, actionFilters, indexNameExpressionResolver,
-                MultiTermVectorsShardRequest::new, ThreadPool.Names.GET);
+                MultiTermVectorsShardRequest::new, ThreadPool.Names.GET, responseCollectorService);
         this.indicesService = indicesService;
     }
 
@@ -71,7 +73,8 @@ public class TransportShardMultiTermsVectorAction extends
     @Override
     protected ShardIterator shards(ClusterState state, InternalRequest request) {
         return clusterService.operationRouting()
-                .getShards(state, request.concreteIndex(), request.request().shardId(), request.request().preference());
+                .getShards(state, request.concreteIndex(), request.request().shardId(), request.request().preference(),
+                    responseCollectorService);
     }
 
     @Override
@@ -37,6 +37,7 @@ import org.codelibs.fesen.index.shard.IndexShard;
 import org.codelibs.fesen.index.shard.ShardId;
 import org.codelibs.fesen.index.termvectors.TermVectorsService;
 import org.codelibs.fesen.indices.IndicesService;
+import org.codelibs.fesen.node.ResponseCollectorService;
 import org.codelibs.fesen.threadpool.ThreadPool;
 import org.codelibs.fesen.transport.TransportService;
 
@@ -50,9 +51,10 @@ public class TransportTermVectorsAction extends TransportSingleShardAction<TermV
     @Inject
     public TransportTermVectorsAction(ClusterService clusterService, TransportService transportService,
                                       IndicesService indicesService, ThreadPool threadPool, ActionFilters actionFilters,
-                                      IndexNameExpressionResolver indexNameExpressionResolver) {
+                                      IndexNameExpressionResolver indexNameExpressionResolver,
+                                      ResponseCollectorService responseCollectorService) {
         super(TermVectorsAction.NAME, threadPool, clusterService, transportService, actionFilters, indexNameExpressionResolver,
-                TermVectorsRequest::new, ThreadPool.Names.GET);
+                TermVectorsRequest::new, ThreadPool.Names.GET, responseCollectorService);
         this.indicesService = indicesService;
 
     }
@@ -67,7 +69,7 @@ public class TransportTermVectorsAction extends TransportSingleShardAction<TermV
         }
 
         return clusterService.operationRouting().getShards(state, request.concreteIndex(), request.request().id(),
-                request.request().routing(), request.request().preference());
+                request.request().routing(), request.request().preference(), responseCollectorService);
     }
 
     @Override
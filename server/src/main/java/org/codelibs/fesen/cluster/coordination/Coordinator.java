@@ -566,6 +566,7 @@ public class Coordinator extends AbstractLifecycleComponent implements Discovery
 
             if (prevMode == Mode.LEADER) {
                 cleanMasterService();
+                publicationHandler.clearAcceptedStates();
             }
 
             if (applierState.nodes().getMasterNodeId() != null) {
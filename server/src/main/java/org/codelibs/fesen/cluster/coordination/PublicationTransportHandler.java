@@ -83,6 +83,11 @@ public class PublicationTransportHandler {
     // TODO: look into these and check how to get rid of them
     private final AtomicReference<PublishRequest> currentPublishRequestToSelf = new AtomicReference<>();
 
+    // the last cluster state that each node accepted from this master and the number of publications to the node that are still in
+    // flight, so that a node that missed some publications can be sent a single diff from the state it has instead of the full state.
+    // Only tracks the publications of the term of each entry, and is cleared when this node stops being the master.
+    private final Map<DiscoveryNode, AcceptedState> acceptedStates = new HashMap<>();
+
     private final AtomicLong fullClusterStateReceivedCount = new AtomicLong();
     private final AtomicLong incompatibleClusterStateDiffReceivedCount = new AtomicLong();
     private final AtomicLong compatibleClusterStateDiffReceivedCount = new AtomicLong();
@@ -231,6 +236,9 @@ public class PublicationTransportHandler {
     }
 
     public PublicationContext newPublicationContext(ClusterChangedEvent clusterChangedEvent) {
+        synchronized (acceptedStates) {
+            acceptedStates.keySet().removeIf(node -> clusterChangedEvent.state().nodes().nodeExists(node) == false);
+        }
         final PublicationContext publicationContext = new PublicationContext(clusterChangedEvent);
 
         // Build the serializations we expect to need now, early in the process, so that an error during serialization fails the publication
@@ -240,6 +248,66 @@ public class PublicationTransportHandler {
         return publicationContext;
     }
 
+    /**
+     * Forgets the cluster states that the other nodes accepted from this node, since they may accept states from other masters once
+     * this node is no longer the master.
+     */
+    public void clearAcceptedStates() {
+        synchronized (acceptedStates) {
+            acceptedStates.clear();
+        }
+    }
+
+    /**
+     * Returns the last cluster state of the given term that the given node accepted from this master, or {@code null} if it is unknown
+     * or if there are publications to the node in flight, in which case the node may already have moved past that state.
+     */
+    private ClusterState lastAcceptedStateIfIdle(DiscoveryNode node, long term) {
+        synchronized (acceptedStates) {
+            final AcceptedState acceptedState = acceptedStates.get(node);
+            if (acceptedState == null || acceptedState.term != term || acceptedState.publicationsInFlight > 0) {
+                return null;
+            }
+            return acceptedState.clusterState;
+        }
+    }
+
+    private void onPublicationSent(DiscoveryNode node, long term) {
+        synchronized (acceptedStates) {
+            AcceptedState acceptedState = acceptedStates.get(node);
+            if (acceptedState == null || acceptedState.term != term) {
+                // the publications of an earlier term say nothing about what the node accepts in this one
+                acceptedState = new AcceptedState(term);
+                acceptedStates.put(node, acceptedState);
+            }
+            acceptedState.publicationsInFlight++;
+        }
+    }
+
+    private void onPublicationCompleted(DiscoveryNode node, long term, ClusterState acceptedClusterState) {
+        synchronized (acceptedStates) {
+            final AcceptedState acceptedState = acceptedStates.get(node);
+            if (acceptedState == null || acceptedState.term != term) {
+                return; // the node left the cluster or this node stepped down in the meantime
+            }
+            acceptedState.publicationsInFlight--;
+            if (acceptedClusterState != null && (acceptedState.clusterState == null
+                || acceptedState.clusterState.version() < acceptedClusterState.version())) {
+                acceptedState.clusterState = acceptedClusterState;
+            }
+        }
+    }
+
+    private static class AcceptedState {
+        private final long term;
+        private ClusterState clusterState;
+        private int publicationsInFlight;
+
+        AcceptedState(long term) {
+            this.term = term;
+        }
+    }
+
     private static BytesReference serializeFullClusterState(ClusterState clusterState, Version nodeVersion) throws IOException {
         final BytesStreamOutput bStream = new BytesStreamOutput();
         try (StreamOutput stream = new OutputStreamStreamOutput(CompressorFactory.COMPRESSOR.threadLocalOutputStream(bStream))) {
@@ -276,6 +344,8 @@ public class PublicationTransportHandler {
         private final boolean sendFullVersion;
         private final Map<Version, BytesReference> serializedStates = new HashMap<>();
         private final Map<Version, BytesReference> serializedDiffs = new HashMap<>();
+        // diffs for nodes that missed some publications, by the uuid of the last state they accepted
+        private final Map<String, Map<Version, BytesReference>> serializedCoalescedDiffs = new HashMap<>();
 
         PublicationContext(ClusterChangedEvent clusterChangedEvent) {
             discoveryNodes = clusterChangedEvent.state().nodes();
@@ -337,12 +407,32 @@ public class PublicationTransportHandler {
             } else {
                 responseActionListener = listener;
             }
-            if (sendFullVersion || previousState.nodes().nodeExists(destination) == false) {
+            final ClusterState lastAcceptedState = sendFullVersion ? null : lastAcceptedStateIfIdle(destination, newState.term());
+            onPublicationSent(destination, newState.term());
+            final ActionListener<PublishWithJoinResponse> trackingListener = new ActionListener<PublishWithJoinResponse>() {
+                @Override
+                public void onResponse(PublishWithJoinResponse publishWithJoinResponse) {
+                    onPublicationCompleted(destination, newState.term(), newState);
+                    responseActionListener.onResponse(publishWithJoinResponse);
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    onPublicationCompleted(destination, newState.term(), null);
+                    responseActionListener.onFailure(e);
+                }
+            };
+            if (lastAcceptedState != null && lastAcceptedState.version() < newState.version()
+                && lastAcceptedState.stateUUID().equals(previousState.stateUUID()) == false) {
+                logger.trace("sending cluster state diff for version [{}] from version [{}] to lagging node [{}]",
+                    newState.version(), lastAcceptedState.version(), destination);
+                sendCoalescedClusterStateDiff(destination, lastAcceptedState, trackingListener);
+            } else if (sendFullVersion || previousState.nodes().nodeExists(destination) == false) {
                 logger.trace("sending full cluster state version [{}] to [{}]", newState.version(), destination);
-                sendFullClusterState(destination, responseActionListener);
+                sendFullClusterState(destination, trackingListener);
             } else {
                 logger.trace("sending cluster state diff for version [{}] to [{}]", newState.version(), destination);
-                sendClusterStateDiff(destination, responseActionListener);
+                sendClusterStateDiff(destination, trackingListener);
             }
         }
 
@@ -406,6 +496,29 @@ public class PublicationTransportHandler {
             sendClusterState(destination, bytes, true, listener);
         }
 
+        /**
+         * Sends a node that missed some publications a diff from the last state it accepted to the new state, which is typically much
+         * smaller than the full state. Falls back to the full state if the node cannot apply the diff.
+         */
+        private void sendCoalescedClusterStateDiff(DiscoveryNode destination, ClusterState lastAcceptedState,
+                                                   ActionListener<PublishWithJoinResponse> listener) {
+            final Map<Version, BytesReference> serializedDiffsByVersion =
+                serializedCoalescedDiffs.computeIfAbsent(lastAcceptedState.stateUUID(), k -> new HashMap<>());
+            BytesReference bytes = serializedDiffsByVersion.get(destination.getVersion());
+            if (bytes == null) {
+                try {
+                    bytes = serializeDiffClusterState(newState.diff(lastAcceptedState), destination.getVersion());
+                    serializedDiffsByVersion.put(destination.getVersion(), bytes);
+                } catch (Exception e) {
+                    logger.warn(() -> new ParameterizedMessage("failed to serialize cluster state diff from version [{}] " +
+                        "before publishing it to node {}", lastAcceptedState.version(), destination), e);
+                    sendFullClusterState(destination, listener);
+                    return;
+                }
+            }
+            sendClusterState(destination, bytes, true, listener);
+        }
+
         private void sendClusterState(DiscoveryNode destination, BytesReference bytes, boolean retryWithFullClusterStateOnFailure,
                                       ActionListener<PublishWithJoinResponse> listener) {
             try {
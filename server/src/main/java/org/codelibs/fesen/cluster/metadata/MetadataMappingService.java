@@ -223,10 +223,19 @@ public class MetadataMappingService {
         public ClusterTasksResult<PutMappingClusterStateUpdateRequest>
         execute(ClusterState currentState, List<PutMappingClusterStateUpdateRequest> tasks) throws Exception {
             Map<Index, MapperService> indexMapperServices = new HashMap<>();
+            // the mapping versions of the indices right after each distinct request of the batch was applied: dynamic mapping updates
+            // from many bulk requests are often identical, and applying one again is a no-op while its indices' mappings are unchanged
+            Map<List<Object>, long[]> appliedRequests = new HashMap<>();
             ClusterTasksResult.Builder<PutMappingClusterStateUpdateRequest> builder = ClusterTasksResult.builder();
             try {
                 for (PutMappingClusterStateUpdateRequest request : tasks) {
                     try {
+                        final List<Object> requestKey =
+                            Arrays.asList(Arrays.asList(request.indices()), request.type(), request.source());
+                        if (Arrays.equals(appliedRequests.get(requestKey), mappingVersions(currentState, request.indices()))) {
+                            builder.success(request);
+                            continue;
+                        }
                         for (Index index : request.indices()) {
                             final IndexMetadata indexMetadata = currentState.metadata().getIndexSafe(index);
                             if (indexMapperServices.containsKey(indexMetadata.getIndex()) == false) {
@@ -237,6 +246,7 @@ public class MetadataMappingService {
                             }
                         }
                         currentState = applyRequest(currentState, request, indexMapperServices);
+                        appliedRequests.put(requestKey, mappingVersions(currentState, request.indices()));
                         builder.success(request);
                     } catch (Exception e) {
                         builder.failure(request, e);
@@ -248,6 +258,15 @@ public class MetadataMappingService {
             }
         }
 
+        private long[] mappingVersions(ClusterState currentState, Index[] indices) {
+            final long[] mappingVersions = new long[indices.length];
+            for (int i = 0; i < indices.length; i++) {
+                final IndexMetadata indexMetadata = currentState.metadata().index(indices[i]);
+                mappingVersions[i] = indexMetadata == null ? -1L : indexMetadata.getMappingVersion();
+            }
+            return mappingVersions;
+        }
+
         private ClusterState applyRequest(ClusterState currentState, PutMappingClusterStateUpdateRequest request,
                                           Map<Index, MapperService> indexMapperServices) throws IOException {
             String mappingType = request.type();
@@ -39,6 +39,7 @@ import static org.codelibs.fesen.common.Booleans.parseBoolean;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -104,14 +105,32 @@ public class OperationRouting {
 
     public ShardIterator getShards(ClusterState clusterState, String index, String id, @Nullable String routing,
                                    @Nullable String preference) {
+        return getShards(clusterState, index, id, routing, preference, null);
+    }
+
+    /**
+     * Returns the copies of the shard holding the given document, ranked with the statistics of the given collector, if any, when
+     * adaptive replica selection is enabled and no preference is given.
+     */
+    public ShardIterator getShards(ClusterState clusterState, String index, String id, @Nullable String routing,
+                                   @Nullable String preference, @Nullable ResponseCollectorService collectorService) {
         return preferenceActiveShardIterator(shards(clusterState, index, id, routing), clusterState.nodes().getLocalNodeId(),
-            clusterState.nodes(), preference, null, null);
+            clusterState.nodes(), preference, collectorService, collectorService == null ? null : new HashMap<>());
     }
 
     public ShardIterator getShards(ClusterState clusterState, String index, int shardId, @Nullable String preference) {
+        return getShards(clusterState, index, shardId, preference, null);
+    }
+
+    /**
+     * Returns the copies of the given shard, ranked with the statistics of the given collector, if any, when adaptive replica
+     * selection is enabled and no preference is given.
+     */
+    public ShardIterator getShards(ClusterState clusterState, String index, int shardId, @Nullable String preference,
+                                   @Nullable ResponseCollectorService collectorService) {
         final IndexShardRoutingTable indexShard = clusterState.getRoutingTable().shardRoutingTable(index, shardId);
         return preferenceActiveShardIterator(indexShard, clusterState.nodes().getLocalNodeId(), clusterState.nodes(),
-            preference, null, null);
+            preference, collectorService, collectorService == null ? null : new HashMap<>());
     }
 
     public GroupShardsIterator<ShardIterator> searchShards(ClusterState clusterState,
@@ -41,17 +41,20 @@ import org.codelibs.fesen.cluster.routing.allocation.decider.AllocationDeciders;
 import org.codelibs.fesen.cluster.routing.allocation.decider.Decision;
 import org.codelibs.fesen.cluster.routing.allocation.decider.DiskThresholdDecider;
 import org.codelibs.fesen.cluster.routing.allocation.decider.Decision.Type;
+import org.codelibs.fesen.cluster.service.MasterService;
 import org.codelibs.fesen.common.collect.Tuple;
 import org.codelibs.fesen.common.inject.Inject;
 import org.codelibs.fesen.common.settings.ClusterSettings;
 import org.codelibs.fesen.common.settings.Setting;
 import org.codelibs.fesen.common.settings.Settings;
 import org.codelibs.fesen.common.settings.Setting.Property;
+import org.codelibs.fesen.common.unit.TimeValue;
 import org.codelibs.fesen.gateway.PriorityComparator;
 
 import static org.codelibs.fesen.cluster.routing.ShardRoutingState.RELOCATING;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -91,6 +94,7 @@ public class BalancedShardsAllocator implements ShardsAllocator {
 
     private volatile WeightFunction weightFunction;
     private volatile float threshold;
+    private volatile TimeValue slowTaskLoggingThreshold;
 
     public BalancedShardsAllocator(Settings settings) {
         this(settings, new ClusterSettings(settings, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
@@ -102,6 +106,9 @@ public class BalancedShardsAllocator implements ShardsAllocator {
         setThreshold(THRESHOLD_SETTING.get(settings));
         clusterSettings.addSettingsUpdateConsumer(INDEX_BALANCE_FACTOR_SETTING, SHARD_BALANCE_FACTOR_SETTING, this::setWeightFunction);
         clusterSettings.addSettingsUpdateConsumer(THRESHOLD_SETTING, this::setThreshold);
+        setSlowTaskLoggingThreshold(MasterService.MASTER_SERVICE_SLOW_TASK_LOGGING_THRESHOLD_SETTING.get(settings));
+        clusterSettings.addSettingsUpdateConsumer(MasterService.MASTER_SERVICE_SLOW_TASK_LOGGING_THRESHOLD_SETTING,
+            this::setSlowTaskLoggingThreshold);
     }
 
     private void setWeightFunction(float indexBalance, float shardBalanceFactor) {
@@ -112,16 +119,47 @@ public class BalancedShardsAllocator implements ShardsAllocator {
         this.threshold = threshold;
     }
 
+    private void setSlowTaskLoggingThreshold(TimeValue slowTaskLoggingThreshold) {
+        this.slowTaskLoggingThreshold = slowTaskLoggingThreshold;
+    }
+
     @Override
     public void allocate(RoutingAllocation allocation) {
         if (allocation.routingNodes().size() == 0) {
             failAllocationOfNewPrimaries(allocation);
             return;
         }
+        final long startTime = System.nanoTime();
         final Balancer balancer = new Balancer(logger, allocation, weightFunction, threshold);
+        final long modelTime = System.nanoTime();
         balancer.allocateUnassigned();
+        final long allocateTime = System.nanoTime();
         balancer.moveShards();
+        final long moveTime = System.nanoTime();
         balancer.balance();
+        final long balanceTime = System.nanoTime();
+        logTimings(balanceTime - startTime, modelTime - startTime, allocateTime - modelTime, moveTime - allocateTime,
+            balanceTime - moveTime);
+    }
+
+    /**
+     * Logs how long each phase of {@link #allocate(RoutingAllocation)} took, as a warning if the allocation is slow enough
+     * to make the master service log the cluster state update that it is part of as a slow task.
+     */
+    private void logTimings(long totalNanos, long modelNanos, long allocateNanos, long moveNanos, long balanceNanos) {
+        final TimeValue threshold = slowTaskLoggingThreshold;
+        final boolean slow = TimeValue.nsecToMSec(totalNanos) > threshold.millis();
+        if (slow || logger.isDebugEnabled()) {
+            final String message = "took [{}] to allocate shards: building the model took [{}], allocating unassigned shards [{}], "
+                + "moving shards [{}] and balancing [{}]";
+            final Object[] params = new Object[] { TimeValue.timeValueNanos(totalNanos), TimeValue.timeValueNanos(modelNanos),
+                TimeValue.timeValueNanos(allocateNanos), TimeValue.timeValueNanos(moveNanos), TimeValue.timeValueNanos(balanceNanos) };
+            if (slow) {
+                logger.warn(message + ", which is over [" + threshold + "]", params);
+            } else {
+                logger.debug(message, params);
+            }
+        }
     }
 
     @Override
@@ -204,7 +242,7 @@ public class BalancedShardsAllocator implements ShardsAllocator {
      * </ul>
      * <code>weight(node, index) = weight<sub>index</sub>(node, index) + weight<sub>node</sub>(node, index)</code>
      */
-    private static class WeightFunction {
+    static class WeightFunction {
 
         private final float indexBalance;
         private final float shardBalance;
@@ -283,7 +321,7 @@ public class BalancedShardsAllocator implements ShardsAllocator {
          * returned sorter is not sorted. Use {@link NodeSorter#reset(String)}
          * to sort based on an index.
          */
-        private NodeSorter newNodeSorter() {
+        NodeSorter newNodeSorter() {
             return new NodeSorter(nodesArray(), weight, this);
         }
 
@@ -581,11 +619,7 @@ public class BalancedShardsAllocator implements ShardsAllocator {
          */
         private String[] buildWeightOrderedIndices() {
             final String[] indices = allocation.routingTable().indicesRouting().keys().toArray(String.class);
-            final float[] deltas = new float[indices.length];
-            for (int i = 0; i < deltas.length; i++) {
-                sorter.reset(indices[i]);
-                deltas[i] = sorter.delta();
-            }
+            final float[] deltas = weightDeltas(indices);
             new IntroSorter() {
 
                 float pivotWeight;
@@ -619,6 +653,61 @@ public class BalancedShardsAllocator implements ShardsAllocator {
             return indices;
         }
 
+        /**
+         * Returns the {@link #weightDelta} of each of the given indices.
+         */
+        float[] weightDeltas(String[] indices) {
+            final float[] deltas = new float[indices.length];
+            final Map<String, List<ModelNode>> nodesByIndex = new HashMap<>();
+            for (ModelNode node : nodes.values()) {
+                for (ModelIndex index : node) {
+                    nodesByIndex.computeIfAbsent(index.getIndexId(), k -> new ArrayList<>()).add(node);
+                }
+            }
+            final ModelNode[] nodesByNumShards = nodesArray();
+            Arrays.sort(nodesByNumShards, Comparator.comparingInt(ModelNode::numShards));
+            for (int i = 0; i < deltas.length; i++) {
+                deltas[i] = weightDelta(indices[i], nodesByIndex.getOrDefault(indices[i], Collections.emptyList()), nodesByNumShards);
+            }
+            return deltas;
+        }
+
+        /**
+         * Returns the difference between the highest and the lowest weight of the nodes with respect to the given index, which
+         * is the {@link NodeSorter#delta()} after a {@link NodeSorter#reset(String)} to the index, without weighing and sorting
+         * all the nodes. The weight of a node that holds no shard of the index only grows with its total number of shards, so
+         * only the nodes that hold shards of the index and the first node without shards of the index at each end of
+         * <code>nodesByNumShards</code> need to be weighed.
+         */
+        private float weightDelta(String index, List<ModelNode> nodesWithIndex, ModelNode[] nodesByNumShards) {
+            float min = Float.POSITIVE_INFINITY;
+            float max = Float.NEGATIVE_INFINITY;
+            for (ModelNode node : nodesWithIndex) {
+                final float weight = this.weight.weight(this, node, index);
+                min = Math.min(min, weight);
+                max = Math.max(max, weight);
+            }
+            if (nodesWithIndex.size() < nodesByNumShards.length) {
+                for (int i = 0; ; i++) {
+                    if (nodesByNumShards[i].getIndex(index) == null) {
+                        final float weight = this.weight.weight(this, nodesByNumShards[i], index);
+                        min = Math.min(min, weight);
+                        max = Math.max(max, weight);
+                        break;
+                    }
+                }
+                for (int i = nodesByNumShards.length - 1; ; i--) {
+                    if (nodesByNumShards[i].getIndex(index) == null) {
+                        final float weight = this.weight.weight(this, nodesByNumShards[i], index);
+                        min = Math.min(min, weight);
+                        max = Math.max(max, weight);
+                        break;
+                    }
+                }
+            }
+            return max - min;
+        }
+
         /**
          * Move started shards that can not be allocated to a node anymore
          *
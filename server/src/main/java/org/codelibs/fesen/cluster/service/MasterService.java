@@ -91,6 +91,8 @@ public class MasterService extends AbstractLifecycleComponent {
 
     private volatile PrioritizedEsThreadPoolExecutor threadPoolExecutor;
     private volatile Batcher taskBatcher;
+    // the time at which the master started executing the current batch of tasks, or -1 if it is idle
+    private volatile long executionStartTimeMillis = -1L;
 
     public MasterService(Settings settings, ClusterSettings clusterSettings, ThreadPool threadPool) {
         this.nodeName = Objects.requireNonNull(Node.NODE_NAME_SETTING.get(settings));
@@ -148,7 +150,12 @@ public class MasterService extends AbstractLifecycleComponent {
         protected void run(Object batchingKey, List<? extends BatchedTask> tasks, String tasksSummary) {
             ClusterStateTaskExecutor<Object> taskExecutor = (ClusterStateTaskExecutor<Object>) batchingKey;
             List<UpdateTask> updateTasks = (List<UpdateTask>) tasks;
-            runTasks(new TaskInputs(taskExecutor, updateTasks, tasksSummary));
+            executionStartTimeMillis = threadPool.relativeTimeInMillis();
+            try {
+                runTasks(new TaskInputs(taskExecutor, updateTasks, tasksSummary));
+            } finally {
+                executionStartTimeMillis = -1L;
+            }
         }
 
         class UpdateTask extends BatchedTask {
@@ -463,12 +470,15 @@ public class MasterService extends AbstractLifecycleComponent {
      * Returns the tasks that are pending.
      */
     public List<PendingClusterTask> pendingTasks() {
+        final long executionStartTimeMillis = this.executionStartTimeMillis;
+        final long executionTimeMillis = executionStartTimeMillis == -1L ? 0L
+            : Math.max(0L, threadPool.relativeTimeInMillis() - executionStartTimeMillis);
         return Arrays.stream(threadPoolExecutor.getPending()).map(pending -> {
             assert pending.task instanceof SourcePrioritizedRunnable :
                 "thread pool executor should only use SourcePrioritizedRunnable instances but found: " + pending.task.getClass().getName();
             SourcePrioritizedRunnable task = (SourcePrioritizedRunnable) pending.task;
             return new PendingClusterTask(pending.insertionOrder, pending.priority, new Text(task.source()),
-                task.getAgeInMillis(), pending.executing);
+                task.getAgeInMillis(), pending.executing, pending.executing ? executionTimeMillis : 0L);
         }).collect(Collectors.toList());
     }
 
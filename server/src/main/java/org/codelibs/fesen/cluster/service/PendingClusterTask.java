@@ -19,6 +19,7 @@
 
 package org.codelibs.fesen.cluster.service;
 
+import org.codelibs.fesen.Version;
 import org.codelibs.fesen.common.Priority;
 import org.codelibs.fesen.common.io.stream.StreamInput;
 import org.codelibs.fesen.common.io.stream.StreamOutput;
@@ -35,6 +36,7 @@ public class PendingClusterTask implements Writeable {
     private Text source;
     private long timeInQueue;
     private boolean executing;
+    private long executionTime;
 
     public PendingClusterTask(StreamInput in) throws IOException {
         insertOrder = in.readVLong();
@@ -42,16 +44,26 @@ public class PendingClusterTask implements Writeable {
         source = in.readText();
         timeInQueue = in.readLong();
         executing = in.readBoolean();
+        if (in.getVersion().onOrAfter(Version.V_0_13_1)) {
+            executionTime = in.readVLong();
+        }
     }
 
     public PendingClusterTask(long insertOrder, Priority priority, Text source, long timeInQueue, boolean executing) {
+        this(insertOrder, priority, source, timeInQueue, executing, 0L);
+    }
+
+    public PendingClusterTask(long insertOrder, Priority priority, Text source, long timeInQueue, boolean executing,
+                              long executionTime) {
         assert timeInQueue >= 0 : "got a negative timeInQueue [" + timeInQueue + "]";
         assert insertOrder >= 0 : "got a negative insertOrder [" + insertOrder + "]";
+        assert executionTime >= 0 : "got a negative executionTime [" + executionTime + "]";
         this.insertOrder = insertOrder;
         this.priority = priority;
         this.source = source;
         this.timeInQueue = timeInQueue;
         this.executing = executing;
+        this.executionTime = executionTime;
     }
 
     public long getInsertOrder() {
@@ -78,6 +90,17 @@ public class PendingClusterTask implements Writeable {
         return executing;
     }
 
+    /**
+     * How long the master has been computing and publishing the cluster state update of this task, or 0 if it is not executing.
+     */
+    public long getExecutionTimeInMillis() {
+        return executionTime;
+    }
+
+    public TimeValue getExecutionTime() {
+        return new TimeValue(getExecutionTimeInMillis());
+    }
+
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         out.writeVLong(insertOrder);
@@ -85,5 +108,8 @@ public class PendingClusterTask implements Writeable {
         out.writeText(source);
         out.writeLong(timeInQueue);
         out.writeBoolean(executing);
+        if (out.getVersion().onOrAfter(Version.V_0_13_1)) {
+            out.writeVLong(executionTime);
+        }
     }
 }
\ No newline at end of file
@@ -107,6 +107,27 @@ public final class ReleasableBytesReference implements Releasable, BytesReferenc
         return delegate.streamInput();
     }
 
+    /**
+     * Returns a stream over this reference whose {@link StreamInput#readBytesReference(int)} returns slices of this reference rather
+     * than copies. These slices are only valid until this reference is released, so the caller must keep it retained for as long as
+     * anything read from the stream is in use.
+     */
+    public StreamInput unsafeStreamInput() throws IOException {
+        return new BytesReferenceStreamInput(delegate) {
+            @Override
+            public BytesReference readBytesReference(int length) throws IOException {
+                if (length == 0) {
+                    return BytesArray.EMPTY;
+                }
+                ensureCanReadBytes(length);
+                final BytesReference slice = delegate.slice(offset(), length);
+                final long skipped = skip(length);
+                assert skipped == length : skipped + " vs " + length;
+                return slice;
+            }
+        };
+    }
+
     @Override
     public void writeTo(OutputStream os) throws IOException {
         delegate.writeTo(os);
@@ -23,12 +23,14 @@ import org.codelibs.fesen.common.collect.Tuple;
 import org.codelibs.fesen.common.util.concurrent.ReleasableLock;
 
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -46,20 +48,16 @@ import java.util.function.ToLongBiFunction;
  * accept reduced write performance in exchange for easy-to-understand code. Cache statistics for hits, misses and
  * evictions are exposed.
  * <p>
- * The design of the cache is relatively simple. The cache is segmented into 256 segments which are backed by HashMaps.
- * Each segment is protected by a re-entrant read/write lock. The read/write locks permit multiple concurrent readers
- * without contention, and the segments gives us write throughput without impacting readers (so readers are blocked only
- * if they are reading a segment that a writer is writing to).
+ * The design of the cache is relatively simple. The cache is segmented into 256 segments which are backed by
+ * ConcurrentHashMaps. Reads do not take any lock on the segment while mutations of a segment are serialized by a
+ * re-entrant lock, so the segments give us write throughput without impacting readers.
  * <p>
  * The LRU functionality is backed by a single doubly-linked list chaining the entries in order of insertion. This
- * LRU list is protected by a lock that serializes all writes to it. There are opportunities for improvements
- * here if write throughput is a concern.
- * <ol>
- * <li>LRU list mutations could be inserted into a blocking queue that a single thread is reading from
- * and applying to the LRU list.</li>
- * <li>Promotions could be deferred for entries that were "recently" promoted.</li>
- * <li>Locks on the list could be taken per node being modified instead of globally.</li>
- * </ol>
+ * LRU list is protected by a lock that serializes all writes to it. By default every read promotes its entry to the
+ * head of the list, which requires this lock. With {@link CacheBuilder#setBufferedPromotion(boolean)}, reads instead
+ * record their entry in a lossy buffer picked by the reading thread and the recorded promotions are applied in batches by
+ * whichever thread next acquires the lock. Reads then never block on the LRU lock, at the cost of an approximate LRU
+ * order: promotions are delayed and some of them are dropped when the buffers are full.
  * <p>
  * Evictions only occur after a mutation to the cache (meaning an entry promotion, a cache insertion, or a manual
  * invalidation) or an explicit call to {@link #refresh()}.
@@ -97,6 +95,15 @@ public class Cache<K, V> {
     private RemovalListener<K, V> removalListener = notification -> {
     };
 
+    // buffers of entries that were read and whose promotion is pending, null unless promotions are buffered
+    private ReadBuffer<K, V>[] readBuffers;
+
+    // the number of times a thread had to wait for the LRU lock
+    private final LongAdder lruLockContentions = new LongAdder();
+
+    // the number of buffered promotions that were dropped
+    private final LongAdder droppedPromotions = new LongAdder();
+
     // use CacheBuilder to construct
     Cache() {
     }
@@ -144,6 +151,27 @@ public class Cache<K, V> {
         this.removalListener = removalListener;
     }
 
+    @SuppressWarnings("unchecked")
+    void setBufferedPromotion(boolean bufferedPromotion) {
+        if (bufferedPromotion) {
+            int numberOfBuffers = 1;
+            while (numberOfBuffers < MAX_READ_BUFFERS && numberOfBuffers < 4 * Runtime.getRuntime().availableProcessors()) {
+                numberOfBuffers <<= 1;
+            }
+            readBuffers = new ReadBuffer[numberOfBuffers];
+            for (int i = 0; i < readBuffers.length; i++) {
+                readBuffers[i] = new ReadBuffer<>();
+            }
+        } else {
+            readBuffers = null;
+        }
+    }
+
+    // pkg-private for testing
+    boolean isBufferedPromotion() {
+        return readBuffers != null;
+    }
+
     /**
      * The relative time used to track time-based evictions.
      *
@@ -179,19 +207,19 @@ public class Cache<K, V> {
     /**
      * A cache segment.
      * <p>
-     * A CacheSegment is backed by a HashMap and is protected by a read/write lock.
+     * A CacheSegment is backed by a ConcurrentHashMap that is read without locking and whose mutations are protected by a
+     * lock.
      *
      * @param <K> the type of the keys
      * @param <V> the type of the values
      */
     private static class CacheSegment<K, V> {
-        // read/write lock protecting mutations to the segment
+        // lock protecting mutations to the segment
         ReadWriteLock segmentLock = new ReentrantReadWriteLock();
 
-        ReleasableLock readLock = new ReleasableLock(segmentLock.readLock());
         ReleasableLock writeLock = new ReleasableLock(segmentLock.writeLock());
 
-        Map<K, CompletableFuture<Entry<K, V>>> map = new HashMap<>();
+        volatile Map<K, CompletableFuture<Entry<K, V>>> map = new ConcurrentHashMap<>();
 
         SegmentStats segmentStats = new SegmentStats();
 
@@ -206,10 +234,7 @@ public class Cache<K, V> {
          * @return the entry if there was one, otherwise null
          */
         Entry<K, V> get(K key, long now, Predicate<Entry<K, V>> isExpired, Consumer<Entry<K, V>> onExpiration) {
-            CompletableFuture<Entry<K, V>> future;
-            try (ReleasableLock ignored = readLock.acquire()) {
-                future = map.get(key);
-            }
+            CompletableFuture<Entry<K, V>> future = map.get(key);
             if (future != null) {
                 Entry<K, V> entry;
                 try {
@@ -350,6 +375,15 @@ public class Cache<K, V> {
     // lock protecting mutations to the LRU list
     private final ReleasableLock lruLock = new ReleasableLock(new ReentrantLock());
 
+    private ReleasableLock acquireLruLock() {
+        ReleasableLock locked = lruLock.tryAcquire();
+        if (locked == null) {
+            lruLockContentions.increment();
+            locked = lruLock.acquire();
+        }
+        return locked;
+    }
+
     /**
      * Returns the value to which the specified key is mapped, or null if this map contains no mapping for the key.
      *
@@ -366,11 +400,51 @@ public class Cache<K, V> {
         if (entry == null) {
             return null;
         } else {
-            promote(entry, now);
+            if (readBuffers == null) {
+                promote(entry, now);
+            } else {
+                bufferPromotion(entry, now);
+            }
             return entry.value;
         }
     }
 
+    private void bufferPromotion(Entry<K, V> entry, long now) {
+        final ReadBuffer<K, V> buffer = readBuffers[readBufferIndex()];
+        final int pending = buffer.offer(entry);
+        if (pending == -1) {
+            droppedPromotions.increment();
+        }
+        if (pending == -1 || pending >= ReadBuffer.DRAIN_THRESHOLD) {
+            // another thread holding the lock is going to drain the buffers anyway
+            final ReleasableLock locked = lruLock.tryAcquire();
+            if (locked != null) {
+                try (ReleasableLock ignored = locked) {
+                    drainReadBuffers();
+                    evict(now);
+                }
+            }
+        }
+    }
+
+    private int readBufferIndex() {
+        return Long.hashCode(Thread.currentThread().getId() * 0x9E3779B97F4A7C15L) & (readBuffers.length - 1);
+    }
+
+    private void drainReadBuffers() {
+        assert lruLock.isHeldByCurrentThread();
+        if (readBuffers != null) {
+            for (ReadBuffer<K, V> buffer : readBuffers) {
+                buffer.drain(entry -> {
+                    // new entries are linked by their writer and deleted entries must not be linked again
+                    if (entry.state == State.EXISTING) {
+                        relinkAtHead(entry);
+                    }
+                });
+            }
+        }
+    }
+
     /**
      * If the specified key is not already associated with a value (or is mapped to null), attempts to compute its
      * value using the given mapping function and enters it into this map unless null. The load method for a given key
@@ -389,7 +463,7 @@ public class Cache<K, V> {
         long now = now();
         // we have to eagerly evict expired entries or our putIfAbsent call below will fail
         V value = get(key, now, e -> {
-            try (ReleasableLock ignored = lruLock.acquire()) {
+            try (ReleasableLock ignored = acquireLruLock()) {
                 evictEntry(e);
             }
         });
@@ -409,7 +483,7 @@ public class Cache<K, V> {
 
             BiFunction<? super Entry<K, V>, Throwable, ? extends V> handler = (ok, ex) -> {
                 if (ok != null) {
-                    try (ReleasableLock ignored = lruLock.acquire()) {
+                    try (ReleasableLock ignored = acquireLruLock()) {
                         promote(ok, now);
                     }
                     return ok.value;
@@ -476,7 +550,7 @@ public class Cache<K, V> {
         CacheSegment<K, V> segment = getCacheSegment(key);
         Tuple<Entry<K, V>, Entry<K, V>> tuple = segment.put(key, value, now);
         boolean replaced = false;
-        try (ReleasableLock ignored = lruLock.acquire()) {
+        try (ReleasableLock ignored = acquireLruLock()) {
             if (tuple.v2() != null && tuple.v2().state == State.EXISTING) {
                 if (unlink(tuple.v2())) {
                     replaced = true;
@@ -493,7 +567,7 @@ public class Cache<K, V> {
     private final Consumer<CompletableFuture<Entry<K, V>>> invalidationConsumer = f -> {
         try {
             Entry<K, V> entry = f.get();
-            try (ReleasableLock ignored = lruLock.acquire()) {
+            try (ReleasableLock ignored = acquireLruLock()) {
                 delete(entry, RemovalNotification.RemovalReason.INVALIDATED);
             }
         } catch (ExecutionException e) {
@@ -540,9 +614,9 @@ public class Cache<K, V> {
                 segments[i].segmentLock.writeLock().lock();
                 haveSegmentLock[i] = true;
             }
-            try (ReleasableLock ignored = lruLock.acquire()) {
+            try (ReleasableLock ignored = acquireLruLock()) {
                 h = head;
-                Arrays.stream(segments).forEach(segment -> segment.map = new HashMap<>());
+                Arrays.stream(segments).forEach(segment -> segment.map = new ConcurrentHashMap<>());
                 Entry<K, V> current = head;
                 while (current != null) {
                     current.state = State.DELETED;
@@ -570,7 +644,8 @@ public class Cache<K, V> {
      */
     public void refresh() {
         long now = now();
-        try (ReleasableLock ignored = lruLock.acquire()) {
+        try (ReleasableLock ignored = acquireLruLock()) {
+            drainReadBuffers();
             evict(now);
         }
     }
@@ -676,7 +751,7 @@ public class Cache<K, V> {
             if (entry != null) {
                 CacheSegment<K, V> segment = getCacheSegment(entry.key);
                 segment.remove(entry.key, entry.value, f -> {});
-                try (ReleasableLock ignored = lruLock.acquire()) {
+                try (ReleasableLock ignored = acquireLruLock()) {
                     current = null;
                     delete(entry, RemovalNotification.RemovalReason.INVALIDATED);
                 }
@@ -699,18 +774,26 @@ public class Cache<K, V> {
             misses += segments[i].segmentStats.misses.longValue();
             evictions += segments[i].segmentStats.evictions.longValue();
         }
-        return new CacheStats(hits, misses, evictions);
+        return new CacheStats(hits, misses, evictions, lruLockContentions.sum(), droppedPromotions.sum());
     }
 
     public static class CacheStats {
         private long hits;
         private long misses;
         private long evictions;
+        private long lruLockContentions;
+        private long droppedPromotions;
 
         public CacheStats(long hits, long misses, long evictions) {
+            this(hits, misses, evictions, 0, 0);
+        }
+
+        public CacheStats(long hits, long misses, long evictions, long lruLockContentions, long droppedPromotions) {
             this.hits = hits;
             this.misses = misses;
             this.evictions = evictions;
+            this.lruLockContentions = lruLockContentions;
+            this.droppedPromotions = droppedPromotions;
         }
 
         public long getHits() {
@@ -724,11 +807,27 @@ public class Cache<K, V> {
         public long getEvictions() {
             return evictions;
         }
+
+        /**
+         * The number of times a thread had to wait for another thread to release the lock protecting the LRU list.
+         */
+        public long getLruLockContentions() {
+            return lruLockContentions;
+        }
+
+        /**
+         * The number of promotions that were dropped because the read buffers were full, always 0 unless promotions are
+         * buffered.
+         */
+        public long getDroppedPromotions() {
+            return droppedPromotions;
+        }
     }
 
     private boolean promote(Entry<K, V> entry, long now) {
         boolean promoted = true;
-        try (ReleasableLock ignored = lruLock.acquire()) {
+        try (ReleasableLock ignored = acquireLruLock()) {
+            drainReadBuffers();
             switch (entry.state) {
                 case DELETED:
                     promoted = false;
@@ -858,4 +957,59 @@ public class Cache<K, V> {
     private CacheSegment<K, V> getCacheSegment(K key) {
         return segments[key.hashCode() & 0xff];
     }
+
+    // the maximum number of read buffers, which are picked by the reading thread
+    static final int MAX_READ_BUFFERS = 64;
+
+    /**
+     * A bounded buffer of entries whose promotion is pending. Any thread may offer entries, offers fail rather than wait if
+     * the buffer is full or if another thread is offering concurrently. The buffer is only drained by the thread holding
+     * the LRU lock.
+     */
+    static final class ReadBuffer<K, V> {
+
+        static final int SIZE = 16;
+        static final int DRAIN_THRESHOLD = SIZE / 2;
+
+        private final AtomicReferenceArray<Entry<K, V>> buffer = new AtomicReferenceArray<>(SIZE);
+        private final AtomicLong writeCounter = new AtomicLong();
+        // only written by the thread draining the buffer
+        private volatile long readCounter;
+
+        /**
+         * Records the given entry.
+         *
+         * @return the number of pending entries including the given one, or -1 if the entry was dropped
+         */
+        int offer(Entry<K, V> entry) {
+            final long head = readCounter;
+            final long tail = writeCounter.get();
+            final long pending = tail - head;
+            if (pending >= SIZE || writeCounter.compareAndSet(tail, tail + 1) == false) {
+                return -1;
+            }
+            // the slot was cleared by the drainer before it moved the read counter past it
+            buffer.lazySet((int) (tail & (SIZE - 1)), entry);
+            return (int) pending + 1;
+        }
+
+        /**
+         * Passes all pending entries to the given consumer, stopping at the first entry that was claimed but not yet published.
+         */
+        void drain(Consumer<Entry<K, V>> consumer) {
+            long head = readCounter;
+            final long tail = writeCounter.get();
+            while (head < tail) {
+                final int index = (int) (head & (SIZE - 1));
+                final Entry<K, V> entry = buffer.get(index);
+                if (entry == null) {
+                    break;
+                }
+                buffer.lazySet(index, null);
+                consumer.accept(entry);
+                head++;
+            }
+            readCounter = head;
+        }
+    }
 }
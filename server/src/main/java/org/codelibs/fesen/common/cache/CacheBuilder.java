@@ -30,6 +30,7 @@ public class CacheBuilder<K, V> {
     private long expireAfterWriteNanos = -1;
     private ToLongBiFunction<K, V> weigher;
     private RemovalListener<K, V> removalListener;
+    private boolean bufferedPromotion;
 
     public static <K, V> CacheBuilder<K, V> builder() {
         return new CacheBuilder<>();
@@ -90,6 +91,18 @@ public class CacheBuilder<K, V> {
         return this;
     }
 
+    /**
+     * Sets whether reads buffer the promotion of their entry in the LRU list instead of applying it immediately. Buffered
+     * promotions are applied in batches by whichever thread next acquires the LRU lock, so reads never block on that lock,
+     * which lets caches with many concurrent readers scale with the number of cores. The price is an approximate LRU order.
+     *
+     * @param bufferedPromotion {@code true} to buffer promotions, defaults to {@code false}
+     */
+    public CacheBuilder<K, V> setBufferedPromotion(boolean bufferedPromotion) {
+        this.bufferedPromotion = bufferedPromotion;
+        return this;
+    }
+
     public Cache<K, V> build() {
         Cache<K, V> cache = new Cache<>();
         if (maximumWeight != -1) {
@@ -107,6 +120,9 @@ public class CacheBuilder<K, V> {
         if (removalListener != null) {
             cache.setRemovalListener(removalListener);
         }
+        if (bufferedPromotion) {
+            cache.setBufferedPromotion(true);
+        }
         return cache;
     }
 }
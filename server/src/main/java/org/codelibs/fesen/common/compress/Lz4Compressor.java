@@ -0,0 +1,369 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.codelibs.fesen.common.compress;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.apache.lucene.store.ByteArrayDataInput;
+import org.apache.lucene.store.ByteArrayDataOutput;
+import org.apache.lucene.util.compress.LZ4;
+import org.codelibs.fesen.common.bytes.BytesReference;
+import org.codelibs.fesen.common.io.stream.BytesStreamOutput;
+
+/**
+ * {@link Compressor} implementation based on the LZ4 compression algorithm. It trades compression ratio for speed and is
+ * meant for transport messages rather than for data at rest.
+ *
+ * The stream starts with a header followed by a sequence of independent blocks of at most {@link #BLOCK_SIZE} bytes. Each
+ * block is encoded as its decompressed length, its stored length and the stored bytes. Blocks that do not shrink when
+ * compressed are stored as-is, which is signalled by equal lengths. A decompressed length of {@code 0} marks the end of the
+ * stream.
+ */
+public class Lz4Compressor implements Compressor {
+
+    // An arbitrary header that we use to identify compressed streams, see DeflateCompressor
+    private static final byte[] HEADER = new byte[]{'L', 'Z', '4', '\0'};
+
+    /** Maximum number of decompressed bytes in a single block, which is also the LZ4 window size. */
+    public static final int BLOCK_SIZE = 64 * 1024;
+
+    /** Number of bytes of the header that precedes each block: the decompressed and the stored lengths. */
+    public static final int BLOCK_HEADER_LENGTH = 2 * Integer.BYTES;
+
+    // LZ4 decompression copies matches 8 bytes at a time when the destination has room for it
+    private static final int DECOMPRESSION_SLACK = 7;
+
+    @Override
+    public boolean isCompressed(BytesReference bytes) {
+        if (bytes.length() < HEADER.length) {
+            return false;
+        }
+        for (int i = 0; i < HEADER.length; ++i) {
+            if (bytes.get(i) != HEADER[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int headerLength() {
+        return HEADER.length;
+    }
+
+    /**
+     * Returns the maximum number of bytes that compressing {@code length} bytes may produce.
+     */
+    static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * Returns a buffer that is large enough to hold a decompressed block.
+     */
+    public static byte[] newDecompressionBuffer() {
+        return new byte[BLOCK_SIZE + DECOMPRESSION_SLACK];
+    }
+
+    /**
+     * Decompresses a single block into {@code dest}, which must have been created with {@link #newDecompressionBuffer()}.
+     *
+     * @param src             the array holding the stored bytes of the block
+     * @param offset          the offset of the stored bytes in {@code src}
+     * @param storedLength    the number of stored bytes
+     * @param dest            the destination buffer
+     * @param length          the decompressed length of the block
+     */
+    public static void decompressBlock(byte[] src, int offset, int storedLength, byte[] dest, int length) throws IOException {
+        if (length <= 0 || length > BLOCK_SIZE || storedLength <= 0 || storedLength > length) {
+            throw new IOException("Invalid LZ4 block, decompressed length [" + length + "], stored length [" + storedLength + "]");
+        }
+        if (storedLength == length) {
+            System.arraycopy(src, offset, dest, 0, length);
+        } else {
+            final ByteArrayDataInput in = new ByteArrayDataInput(src, offset, storedLength);
+            LZ4.decompress(in, length, dest, 0);
+            if (in.eof() == false) {
+                throw new IOException("Invalid LZ4 block, [" + (offset + storedLength - in.getPosition()) + "] trailing bytes");
+            }
+        }
+    }
+
+    // Reusable buffers for streaming compression
+    private static final ThreadLocal<CompressionBuffers> compressionBuffersRef = ThreadLocal.withInitial(CompressionBuffers::new);
+
+    private static final class CompressionBuffers {
+
+        final byte[] block = new byte[BLOCK_SIZE];
+        final byte[] compressed = new byte[BLOCK_HEADER_LENGTH + maxCompressedLength(BLOCK_SIZE)];
+        final LZ4.FastCompressionHashTable hashTable = new LZ4.FastCompressionHashTable();
+
+        // true if these buffers are currently in use and are not available for re-use
+        boolean inUse;
+    }
+
+    @Override
+    public InputStream threadLocalInputStream(InputStream in) throws IOException {
+        final byte[] headerBytes = new byte[HEADER.length];
+        int len = 0;
+        while (len < headerBytes.length) {
+            final int read = in.read(headerBytes, len, headerBytes.length - len);
+            if (read == -1) {
+                break;
+            }
+            len += read;
+        }
+        if (len != HEADER.length || Arrays.equals(headerBytes, HEADER) == false) {
+            throw new IllegalArgumentException("Input stream is not compressed with LZ4!");
+        }
+        return new Lz4BlockInputStream(in);
+    }
+
+    @Override
+    public OutputStream threadLocalOutputStream(OutputStream out) throws IOException {
+        out.write(HEADER);
+        final CompressionBuffers current = compressionBuffersRef.get();
+        final CompressionBuffers buffers;
+        if (current.inUse) {
+            // Nested compression streams should not happen but we still handle them safely by using fresh buffers
+            buffers = new CompressionBuffers();
+        } else {
+            buffers = current;
+        }
+        buffers.inUse = true;
+        return new Lz4BlockOutputStream(out, buffers);
+    }
+
+    @Override
+    public BytesReference uncompress(BytesReference bytesReference) throws IOException {
+        try (BytesStreamOutput buffer = new BytesStreamOutput(Math.max(BLOCK_SIZE, bytesReference.length()));
+             InputStream in = threadLocalInputStream(bytesReference.streamInput())) {
+            final byte[] copyBuffer = new byte[8192];
+            int read;
+            while ((read = in.read(copyBuffer)) != -1) {
+                buffer.write(copyBuffer, 0, read);
+            }
+            return buffer.copyBytes();
+        }
+    }
+
+    @Override
+    public BytesReference compress(BytesReference bytesReference) throws IOException {
+        try (BytesStreamOutput buffer = new BytesStreamOutput(bytesReference.length())) {
+            try (OutputStream out = threadLocalOutputStream(buffer)) {
+                bytesReference.writeTo(out);
+            }
+            return buffer.copyBytes();
+        }
+    }
+
+    private static final class Lz4BlockOutputStream extends OutputStream {
+
+        private final OutputStream out;
+        private final CompressionBuffers buffers;
+        private int blockLength;
+        private boolean closed;
+
+        Lz4BlockOutputStream(OutputStream out, CompressionBuffers buffers) {
+            this.out = out;
+            this.buffers = buffers;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            ensureOpen();
+            if (blockLength == BLOCK_SIZE) {
+                writeBlock();
+            }
+            buffers.block[blockLength++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ensureOpen();
+            while (len > 0) {
+                if (blockLength == BLOCK_SIZE) {
+                    writeBlock();
+                }
+                final int toCopy = Math.min(len, BLOCK_SIZE - blockLength);
+                System.arraycopy(b, off, buffers.block, blockLength, toCopy);
+                blockLength += toCopy;
+                off += toCopy;
+                len -= toCopy;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            ensureOpen();
+            writeBlock();
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                writeBlock();
+                // end of stream marker
+                writeInt(buffers.compressed, 0, 0);
+                out.write(buffers.compressed, 0, Integer.BYTES);
+                out.close();
+            } finally {
+                buffers.inUse = false;
+            }
+        }
+
+        private void writeBlock() throws IOException {
+            if (blockLength == 0) {
+                return;
+            }
+            final byte[] compressed = buffers.compressed;
+            final ByteArrayDataOutput dataOutput = new ByteArrayDataOutput(compressed, BLOCK_HEADER_LENGTH,
+                compressed.length - BLOCK_HEADER_LENGTH);
+            LZ4.compress(buffers.block, 0, blockLength, dataOutput, buffers.hashTable);
+            final int compressedLength = dataOutput.getPosition() - BLOCK_HEADER_LENGTH;
+            writeInt(compressed, 0, blockLength);
+            if (compressedLength < blockLength) {
+                writeInt(compressed, Integer.BYTES, compressedLength);
+                out.write(compressed, 0, BLOCK_HEADER_LENGTH + compressedLength);
+            } else {
+                writeInt(compressed, Integer.BYTES, blockLength);
+                out.write(compressed, 0, BLOCK_HEADER_LENGTH);
+                out.write(buffers.block, 0, blockLength);
+            }
+            blockLength = 0;
+        }
+
+        private void ensureOpen() throws IOException {
+            if (closed) {
+                throw new IOException("Stream is already closed");
+            }
+        }
+    }
+
+    private static final class Lz4BlockInputStream extends InputStream {
+
+        private final InputStream in;
+        private final byte[] block = newDecompressionBuffer();
+        private final byte[] compressed = new byte[maxCompressedLength(BLOCK_SIZE)];
+        private int blockLength;
+        private int position;
+        private boolean eos;
+
+        Lz4BlockInputStream(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (ensureAvailable() == false) {
+                return -1;
+            }
+            return block[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (ensureAvailable() == false) {
+                return -1;
+            }
+            final int toCopy = Math.min(len, blockLength - position);
+            System.arraycopy(block, position, b, off, toCopy);
+            position += toCopy;
+            return toCopy;
+        }
+
+        @Override
+        public int available() {
+            return blockLength - position;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private boolean ensureAvailable() throws IOException {
+            while (position == blockLength) {
+                if (eos) {
+                    return false;
+                }
+                readBlock();
+            }
+            return true;
+        }
+
+        private void readBlock() throws IOException {
+            readFully(compressed, Integer.BYTES);
+            final int length = readInt(compressed, 0);
+            position = 0;
+            if (length == 0) {
+                eos = true;
+                blockLength = 0;
+                return;
+            }
+            readFully(compressed, Integer.BYTES);
+            final int storedLength = readInt(compressed, 0);
+            if (storedLength <= 0 || storedLength > compressed.length) {
+                throw new IOException("Invalid LZ4 block, decompressed length [" + length + "], stored length [" + storedLength + "]");
+            }
+            readFully(compressed, storedLength);
+            decompressBlock(compressed, 0, storedLength, block, length);
+            blockLength = length;
+        }
+
+        private void readFully(byte[] buffer, int length) throws IOException {
+            int read = 0;
+            while (read < length) {
+                final int r = in.read(buffer, read, length - read);
+                if (r == -1) {
+                    throw new EOFException("Unexpected end of LZ4 input stream");
+                }
+                read += r;
+            }
+        }
+    }
+
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >> 24);
+        bytes[offset + 1] = (byte) (value >> 16);
+        bytes[offset + 2] = (byte) (value >> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    /**
+     * Reads a big-endian int as written in the block headers.
+     */
+    public static int readInt(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16)
+            | ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+    }
+}
@@ -19,6 +19,8 @@
 
 package org.codelibs.fesen.common.io.stream;
 
+import org.codelibs.fesen.common.bytes.BytesReference;
+
 import java.io.IOException;
 
 /**
@@ -53,6 +55,12 @@ public class NamedWriteableAwareStreamInput extends FilterStreamInput {
         return c;
     }
 
+    @Override
+    public BytesReference readBytesReference(int length) throws IOException {
+        // the delegate may be able to slice its own bytes rather than copying them
+        return delegate.readBytesReference(length);
+    }
+
     @Override
     public NamedWriteableRegistry namedWriteableRegistry() {
         return namedWriteableRegistry;
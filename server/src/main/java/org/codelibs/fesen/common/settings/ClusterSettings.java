@@ -116,6 +116,7 @@ import org.codelibs.fesen.search.SearchModule;
 import org.codelibs.fesen.search.SearchService;
 import org.codelibs.fesen.search.aggregations.MultiBucketConsumerService;
 import org.codelibs.fesen.search.fetch.subphase.highlight.FastVectorHighlighter;
+import org.codelibs.fesen.search.fetch.subphase.highlight.HighlightAnalysisCache;
 import org.codelibs.fesen.snapshots.InternalSnapshotsInfoService;
 import org.codelibs.fesen.snapshots.SnapshotsService;
 import org.codelibs.fesen.threadpool.ThreadPool;
@@ -225,6 +226,7 @@ public final class ClusterSettings extends AbstractScopedSettings {
             IndicesQueryCache.INDICES_CACHE_QUERY_SIZE_SETTING,
             IndicesQueryCache.INDICES_CACHE_QUERY_COUNT_SETTING,
             IndicesQueryCache.INDICES_QUERIES_CACHE_ALL_SEGMENTS_SETTING,
+            IndicesQueryCache.INDICES_QUERIES_CACHE_COST_AWARE_SETTING,
             IndicesService.INDICES_ID_FIELD_DATA_ENABLED_SETTING,
             IndicesService.WRITE_DANGLING_INDICES_INFO_SETTING,
             MappingUpdatedAction.INDICES_MAPPING_DYNAMIC_TIMEOUT_SETTING,
@@ -328,6 +330,7 @@ public final class ClusterSettings extends AbstractScopedSettings {
             SearchService.DEFAULT_ALLOW_PARTIAL_SEARCH_RESULTS,
             ElectMasterService.DISCOVERY_ZEN_MINIMUM_MASTER_NODES_SETTING,
             TransportSearchAction.SHARD_COUNT_LIMIT_SETTING,
+            TransportSearchAction.SERIALIZE_PARTIAL_REDUCE_SETTING,
             RemoteClusterService.REMOTE_CLUSTER_SKIP_UNAVAILABLE,
             RemoteClusterService.SEARCH_REMOTE_CLUSTER_SKIP_UNAVAILABLE,
             SniffConnectionStrategy.REMOTE_CONNECTIONS_PER_CLUSTER,
@@ -369,6 +372,7 @@ public final class ClusterSettings extends AbstractScopedSettings {
             TransportSettings.PUBLISH_PORT_PROFILE,
             TransportSettings.OLD_TRANSPORT_COMPRESS,
             TransportSettings.TRANSPORT_COMPRESS,
+            TransportSettings.TRANSPORT_COMPRESSION_SCHEME,
             TransportSettings.PING_SCHEDULE,
             TransportSettings.TCP_CONNECT_TIMEOUT,
             TransportSettings.CONNECT_TIMEOUT,
@@ -432,6 +436,7 @@ public final class ClusterSettings extends AbstractScopedSettings {
             IndicesFieldDataCache.INDICES_FIELDDATA_CACHE_SIZE_KEY,
             IndicesRequestCache.INDICES_CACHE_QUERY_SIZE,
             IndicesRequestCache.INDICES_CACHE_QUERY_EXPIRE,
+            IndicesRequestCache.INDICES_CACHE_QUERY_DISK_SIZE,
             HunspellService.HUNSPELL_LAZY_LOAD,
             HunspellService.HUNSPELL_IGNORE_CASE,
             HunspellService.HUNSPELL_DICTIONARY_OPTIONS,
@@ -475,6 +480,7 @@ public final class ClusterSettings extends AbstractScopedSettings {
             SearchService.ALLOW_EXPENSIVE_QUERIES,
             MultiBucketConsumerService.MAX_BUCKET_SETTING,
             SearchService.LOW_LEVEL_CANCELLATION_SETTING,
+            SearchService.CONCURRENT_SEGMENT_SEARCH_SETTING,
             SearchService.MAX_OPEN_SCROLL_CONTEXT,
             Node.WRITE_PORTS_FILE_SETTING,
             Node.NODE_NAME_SETTING,
@@ -527,6 +533,8 @@ public final class ClusterSettings extends AbstractScopedSettings {
             SearchModule.INDICES_MAX_CLAUSE_COUNT_SETTING,
             ThreadPool.ESTIMATED_TIME_INTERVAL_SETTING,
             FastVectorHighlighter.SETTING_TV_HIGHLIGHT_MULTI_VALUE,
+            HighlightAnalysisCache.CACHE_SIZE_SETTING,
+            HighlightAnalysisCache.MAX_CONTENT_LENGTH_SETTING,
             Node.BREAKER_TYPE_KEY,
             OperationRouting.USE_ADAPTIVE_REPLICA_SELECTION_SETTING,
             IndexGraveyard.SETTING_MAX_TOMBSTONES,
@@ -124,6 +124,11 @@ public final class IndexScopedSettings extends AbstractScopedSettings {
         IndexSettings.MAX_RESCORE_WINDOW_SETTING,
         IndexSettings.MAX_ADJACENCY_MATRIX_FILTERS_SETTING,
         IndexSettings.MAX_ANALYZED_OFFSET_SETTING,
+        IndexSettings.HIGHLIGHT_ANALYSIS_CACHE_ENABLED_SETTING,
+        IndexSettings.COMPLETION_FST_OFF_HEAP_SETTING,
+        IndexSettings.COMPLETION_FST_EAGER_LOAD_SETTING,
+        IndexSettings.GLOBAL_ORDINALS_WARMER_MAX_IDLE_SETTING,
+        IndexSettings.ID_BLOOM_FILTER_ENABLED_SETTING,
         IndexSettings.MAX_TERMS_COUNT_SETTING,
         IndexSettings.INDEX_TRANSLOG_SYNC_INTERVAL_SETTING,
         IndexSettings.DEFAULT_FIELD_SETTING,
@@ -149,6 +154,7 @@ public final class IndexScopedSettings extends AbstractScopedSettings {
         IndexSettings.INDEX_TRANSLOG_RETENTION_SIZE_SETTING,
         IndexSettings.INDEX_SEARCH_IDLE_AFTER,
         IndexSettings.INDEX_SEARCH_THROTTLED,
+        IndexSettings.INDEX_CONCURRENT_SEGMENT_SEARCH_SETTING,
         IndexFieldDataService.INDEX_FIELDDATA_CACHE_KEY,
         FieldMapper.IGNORE_MALFORMED_SETTING,
         FieldMapper.COERCE_SETTING,
@@ -168,6 +174,7 @@ public final class IndexScopedSettings extends AbstractScopedSettings {
         Store.FORCE_RAM_TERM_DICT,
         EngineConfig.INDEX_CODEC_SETTING,
         EngineConfig.INDEX_OPTIMIZE_AUTO_GENERATED_IDS,
+        EngineConfig.INDEX_PACKED_VERSION_MAP,
         IndexMetadata.SETTING_WAIT_FOR_ACTIVE_SHARDS,
         IndexSettings.DEFAULT_PIPELINE,
         IndexSettings.FINAL_PIPELINE,
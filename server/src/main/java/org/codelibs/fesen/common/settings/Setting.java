@@ -1316,6 +1316,30 @@ public class Setting<T> implements ToXContentObject {
         return new Setting<>(key, defaultValueFn, b -> parseBoolean(b, key, isFiltered(properties)), properties);
     }
 
+    public static <T extends Enum<T>> Setting<T> enumSetting(Class<T> clazz, String key, T defaultValue, Property... properties) {
+        return new Setting<>(key, defaultValue.name().toLowerCase(Locale.ROOT), e -> parseEnum(clazz, e, key), properties);
+    }
+
+    public static <T extends Enum<T>> Setting<T> enumSetting(Class<T> clazz, String key, Setting<T> fallbackSetting,
+                                                             Property... properties) {
+        return new Setting<>(key, fallbackSetting, e -> parseEnum(clazz, e, key), properties);
+    }
+
+    public static <T extends Enum<T>> Setting<T> enumSetting(Class<T> clazz, String key, Setting<T> fallbackSetting,
+                                                             Validator<T> validator, Property... properties) {
+        return new Setting<>(new SimpleKey(key), fallbackSetting, fallbackSetting::getRaw, e -> parseEnum(clazz, e, key), validator,
+            properties);
+    }
+
+    static <T extends Enum<T>> T parseEnum(Class<T> clazz, String value, String key) {
+        try {
+            return Enum.valueOf(clazz, value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Failed to parse value [" + value + "] for setting [" + key + "], must be one of "
+                + Arrays.stream(clazz.getEnumConstants()).map(c -> c.name().toLowerCase(Locale.ROOT)).collect(Collectors.toList()), e);
+        }
+    }
+
     static boolean parseBoolean(String b, String key, boolean isFiltered) {
         try {
             return Booleans.parseBoolean(b);
@@ -44,6 +44,7 @@ import org.apache.lucene.search.Weight;
 import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.SimpleFSDirectory;
+import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefIterator;
@@ -63,10 +64,13 @@ import org.codelibs.fesen.common.logging.Loggers;
 import org.codelibs.fesen.common.lucene.Lucene;
 import org.codelibs.fesen.common.settings.ClusterSettings;
 import org.codelibs.fesen.common.settings.Setting;
+import org.codelibs.fesen.common.unit.ByteSizeUnit;
+import org.codelibs.fesen.common.unit.ByteSizeValue;
 import org.codelibs.fesen.common.unit.TimeValue;
 import org.codelibs.fesen.common.util.BigArrays;
 import org.codelibs.fesen.common.util.ByteArray;
 import org.codelibs.fesen.common.util.PageCacheRecycler;
+import org.codelibs.fesen.common.util.concurrent.EsExecutors;
 import org.codelibs.fesen.common.xcontent.LoggingDeprecationHandler;
 import org.codelibs.fesen.common.xcontent.NamedXContentRegistry;
 import org.codelibs.fesen.common.xcontent.ToXContent;
@@ -84,12 +88,19 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.function.IntPredicate;
 import java.util.function.LongSupplier;
 import java.util.function.Supplier;
@@ -134,6 +145,17 @@ public class PersistedClusterStateService {
 
     public static final String METADATA_DIRECTORY_NAME = MetadataStateFormat.STATE_DIR_NAME;
 
+    /**
+     * The maximum number of threads, including the calling one, that serialize index metadata documents in parallel.
+     */
+    public static final int MAX_SERIALIZATION_PARALLELISM = 4;
+
+    // serializing fewer index metadata documents than this is not worth forking
+    private static final int MIN_DOCUMENTS_FOR_PARALLEL_SERIALIZATION = 16;
+
+    // the total size of the serialized index metadata that a writer retains for later writes
+    static final long MAX_RETAINED_SERIALIZED_BYTES = new ByteSizeValue(16, ByteSizeUnit.MB).getBytes();
+
     public static final Setting<TimeValue> SLOW_WRITE_LOGGING_THRESHOLD = Setting.timeSetting("gateway.slow_write_logging_threshold",
         TimeValue.timeValueSeconds(10), TimeValue.ZERO, Setting.Property.NodeScope, Setting.Property.Dynamic);
 
@@ -142,22 +164,47 @@ public class PersistedClusterStateService {
     private final NamedXContentRegistry namedXContentRegistry;
     private final BigArrays bigArrays;
     private final LongSupplier relativeTimeMillisSupplier;
+    private final Executor serializationExecutor;
+    private final int serializationParallelism;
 
     private volatile TimeValue slowWriteLoggingThreshold;
 
     public PersistedClusterStateService(NodeEnvironment nodeEnvironment, NamedXContentRegistry namedXContentRegistry, BigArrays bigArrays,
                                         ClusterSettings clusterSettings, LongSupplier relativeTimeMillisSupplier) {
+        this(nodeEnvironment, namedXContentRegistry, bigArrays, clusterSettings, relativeTimeMillisSupplier,
+            EsExecutors.newDirectExecutorService(), 1);
+    }
+
+    /**
+     * @param serializationExecutor    the executor on which changed index metadata documents are serialized in parallel
+     * @param serializationParallelism the maximum number of threads, including the writing one, that serialize documents
+     */
+    public PersistedClusterStateService(NodeEnvironment nodeEnvironment, NamedXContentRegistry namedXContentRegistry, BigArrays bigArrays,
+                                        ClusterSettings clusterSettings, LongSupplier relativeTimeMillisSupplier,
+                                        Executor serializationExecutor, int serializationParallelism) {
         this(nodeEnvironment.nodeDataPaths(), nodeEnvironment.nodeId(), namedXContentRegistry, bigArrays, clusterSettings,
-            relativeTimeMillisSupplier);
+            relativeTimeMillisSupplier, serializationExecutor, serializationParallelism);
     }
 
     public PersistedClusterStateService(Path[] dataPaths, String nodeId, NamedXContentRegistry namedXContentRegistry, BigArrays bigArrays,
                                         ClusterSettings clusterSettings, LongSupplier relativeTimeMillisSupplier) {
+        this(dataPaths, nodeId, namedXContentRegistry, bigArrays, clusterSettings, relativeTimeMillisSupplier,
+            EsExecutors.newDirectExecutorService(), 1);
+    }
+
+    public PersistedClusterStateService(Path[] dataPaths, String nodeId, NamedXContentRegistry namedXContentRegistry, BigArrays bigArrays,
+                                        ClusterSettings clusterSettings, LongSupplier relativeTimeMillisSupplier,
+                                        Executor serializationExecutor, int serializationParallelism) {
+        if (serializationParallelism < 1) {
+            throw new IllegalArgumentException("serializationParallelism must be >= 1 but was [" + serializationParallelism + "]");
+        }
         this.dataPaths = dataPaths;
         this.nodeId = nodeId;
         this.namedXContentRegistry = namedXContentRegistry;
         this.bigArrays = bigArrays;
         this.relativeTimeMillisSupplier = relativeTimeMillisSupplier;
+        this.serializationExecutor = serializationExecutor;
+        this.serializationParallelism = serializationParallelism;
         this.slowWriteLoggingThreshold = clusterSettings.get(SLOW_WRITE_LOGGING_THRESHOLD);
         clusterSettings.addSettingsUpdateConsumer(SLOW_WRITE_LOGGING_THRESHOLD, this::setSlowWriteLoggingThreshold);
     }
@@ -192,7 +239,8 @@ public class PersistedClusterStateService {
                 IOUtils.closeWhileHandlingException(closeables);
             }
         }
-        return new Writer(metadataIndexWriters, nodeId, bigArrays, relativeTimeMillisSupplier, () -> slowWriteLoggingThreshold);
+        return new Writer(metadataIndexWriters, nodeId, bigArrays, relativeTimeMillisSupplier, () -> slowWriteLoggingThreshold,
+            serializationExecutor, serializationParallelism);
     }
 
     private static IndexWriter createIndexWriter(Directory directory, boolean openExisting) throws IOException {
@@ -525,21 +573,33 @@ public class PersistedClusterStateService {
         private final BigArrays bigArrays;
         private final LongSupplier relativeTimeMillisSupplier;
         private final Supplier<TimeValue> slowWriteLoggingThresholdSupplier;
+        private final Executor serializationExecutor;
+        private final int serializationParallelism;
 
         boolean fullStateWritten = false;
         private final AtomicBoolean closed = new AtomicBoolean();
 
         // The size of the document buffer that was used for the last write operation, used as a hint for allocating the buffer for the
         // next one.
-        private int documentBufferUsed;
+        private volatile int documentBufferUsed;
+
+        // The serialized metadata of some of the indices that were last written, by index UUID, mostly so that a full write after a
+        // term change does not need to serialize indices that did not change. An entry is only reused for the very same IndexMetadata
+        // instance since the metadata of an index may change without a version bump across terms. Holds at most
+        // maxRetainedSerializedBytes, preferring the indices that did not change in the last write.
+        private Map<String, SerializedIndexMetadata> serializedIndexMetadata = Collections.emptyMap();
+        long maxRetainedSerializedBytes = MAX_RETAINED_SERIALIZED_BYTES;
 
         private Writer(List<MetadataIndexWriter> metadataIndexWriters, String nodeId, BigArrays bigArrays,
-                       LongSupplier relativeTimeMillisSupplier, Supplier<TimeValue> slowWriteLoggingThresholdSupplier) {
+                       LongSupplier relativeTimeMillisSupplier, Supplier<TimeValue> slowWriteLoggingThresholdSupplier,
+                       Executor serializationExecutor, int serializationParallelism) {
             this.metadataIndexWriters = metadataIndexWriters;
             this.nodeId = nodeId;
             this.bigArrays = bigArrays;
             this.relativeTimeMillisSupplier = relativeTimeMillisSupplier;
             this.slowWriteLoggingThresholdSupplier = slowWriteLoggingThresholdSupplier;
+            this.serializationExecutor = serializationExecutor;
+            this.serializationParallelism = serializationParallelism;
         }
 
         private void ensureOpen() {
@@ -654,26 +714,31 @@ public class PersistedClusterStateService {
                     assert previousValue == null : indexMetadata.getIndexUUID() + " already mapped to " + previousValue;
                 }
 
-                int numIndicesUpdated = 0;
                 int numIndicesUnchanged = 0;
+                final List<IndexMetadata> updatedIndices = new ArrayList<>();
+                final List<IndexMetadata> unchangedIndices = new ArrayList<>();
                 for (ObjectCursor<IndexMetadata> cursor : metadata.indices().values()) {
                     final IndexMetadata indexMetadata = cursor.value;
                     final Long previousVersion = indexMetadataVersionByUUID.get(indexMetadata.getIndexUUID());
                     if (previousVersion == null || indexMetadata.getVersion() != previousVersion) {
                         logger.trace("updating metadata for [{}], changing version from [{}] to [{}]",
                                 indexMetadata.getIndex(), previousVersion, indexMetadata.getVersion());
-                        numIndicesUpdated++;
-                        final Document indexMetadataDocument = makeIndexMetadataDocument(indexMetadata, documentBuffer);
-                        for (MetadataIndexWriter metadataIndexWriter : metadataIndexWriters) {
-                            metadataIndexWriter.updateIndexMetadataDocument(indexMetadataDocument, indexMetadata.getIndex());
-                        }
+                        updatedIndices.add(indexMetadata);
                     } else {
                         numIndicesUnchanged++;
+                        unchangedIndices.add(indexMetadata);
                         logger.trace("no action required for [{}]", indexMetadata.getIndex());
                     }
                     indexMetadataVersionByUUID.remove(indexMetadata.getIndexUUID());
                 }
 
+                final List<Document> indexMetadataDocuments = makeIndexMetadataDocuments(updatedIndices, unchangedIndices, documentBuffer);
+                for (int i = 0; i < updatedIndices.size(); i++) {
+                    for (MetadataIndexWriter metadataIndexWriter : metadataIndexWriters) {
+                        metadataIndexWriter.updateIndexMetadataDocument(indexMetadataDocuments.get(i), updatedIndices.get(i).getIndex());
+                    }
+                }
+
                 documentBufferUsed = documentBuffer.getMaxUsed();
 
                 for (String removedIndexUUID : indexMetadataVersionByUUID.keySet()) {
@@ -688,7 +753,7 @@ public class PersistedClusterStateService {
                     metadataIndexWriter.flush();
                 }
 
-                return new WriterStats(updateGlobalMeta, numIndicesUpdated, numIndicesUnchanged);
+                return new WriterStats(updateGlobalMeta, updatedIndices.size(), numIndicesUnchanged);
             }
         }
 
@@ -713,11 +778,14 @@ public class PersistedClusterStateService {
                     metadataIndexWriter.updateGlobalMetadata(globalMetadataDocument);
                 }
 
+                final List<IndexMetadata> indices = new ArrayList<>(metadata.indices().size());
                 for (ObjectCursor<IndexMetadata> cursor : metadata.indices().values()) {
-                    final IndexMetadata indexMetadata = cursor.value;
-                    final Document indexMetadataDocument = makeIndexMetadataDocument(indexMetadata, documentBuffer);
+                    indices.add(cursor.value);
+                }
+                final List<Document> indexMetadataDocuments = makeIndexMetadataDocuments(indices, Collections.emptyList(), documentBuffer);
+                for (int i = 0; i < indices.size(); i++) {
                     for (MetadataIndexWriter metadataIndexWriter : metadataIndexWriters) {
-                        metadataIndexWriter.updateIndexMetadataDocument(indexMetadataDocument, indexMetadata.getIndex());
+                        metadataIndexWriter.updateIndexMetadataDocument(indexMetadataDocuments.get(i), indices.get(i).getIndex());
                     }
                 }
 
@@ -803,22 +871,169 @@ public class PersistedClusterStateService {
             }
         }
 
-        private Document makeIndexMetadataDocument(IndexMetadata indexMetadata, DocumentBuffer documentBuffer) throws IOException {
-            final Document indexMetadataDocument = makeDocument(INDEX_TYPE_NAME, indexMetadata, documentBuffer);
-            final String indexUUID = indexMetadata.getIndexUUID();
-            assert indexUUID.equals(IndexMetadata.INDEX_UUID_NA_VALUE) == false;
-            indexMetadataDocument.add(new StringField(INDEX_UUID_FIELD_NAME, indexUUID, Field.Store.NO));
-            return indexMetadataDocument;
+        /**
+         * Makes the documents of the given updated indices, in order. The metadata of the indices that were serialized for a previous
+         * write is reused, and the others are serialized in parallel if there are enough of them, the calling thread using the given
+         * buffer. Also retains the serialized metadata of the given indices for later writes, as far as
+         * {@link #maxRetainedSerializedBytes} allows, and drops that of any other index.
+         */
+        private List<Document> makeIndexMetadataDocuments(List<IndexMetadata> updatedIndices, List<IndexMetadata> unchangedIndices,
+                                                          DocumentBuffer documentBuffer) throws IOException {
+            final Map<String, SerializedIndexMetadata> previouslySerialized = serializedIndexMetadata;
+            final Map<String, SerializedIndexMetadata> serialized = new HashMap<>(updatedIndices.size() + unchangedIndices.size());
+            final List<IndexMetadata> toSerialize = new ArrayList<>();
+            for (IndexMetadata indexMetadata : updatedIndices) {
+                final SerializedIndexMetadata serializedIndexMetadata = previouslySerialized.get(indexMetadata.getIndexUUID());
+                if (serializedIndexMetadata != null && serializedIndexMetadata.indexMetadata == indexMetadata) {
+                    serialized.put(indexMetadata.getIndexUUID(), serializedIndexMetadata);
+                } else {
+                    toSerialize.add(indexMetadata);
+                }
+            }
+            for (IndexMetadata indexMetadata : unchangedIndices) {
+                final SerializedIndexMetadata serializedIndexMetadata = previouslySerialized.get(indexMetadata.getIndexUUID());
+                if (serializedIndexMetadata != null && serializedIndexMetadata.indexMetadata == indexMetadata) {
+                    serialized.put(indexMetadata.getIndexUUID(), serializedIndexMetadata);
+                }
+            }
+            logger.trace("serializing metadata of [{}] indices and reusing that of [{}] indices",
+                toSerialize.size(), updatedIndices.size() - toSerialize.size());
+
+            final byte[][] serializedBytes = serializeIndexMetadata(toSerialize, documentBuffer);
+            for (int i = 0; i < toSerialize.size(); i++) {
+                final IndexMetadata indexMetadata = toSerialize.get(i);
+                serialized.put(indexMetadata.getIndexUUID(), new SerializedIndexMetadata(indexMetadata, serializedBytes[i]));
+            }
+            serializedIndexMetadata = retain(serialized, unchangedIndices, updatedIndices);
+
+            final List<Document> documents = new ArrayList<>(updatedIndices.size());
+            for (IndexMetadata indexMetadata : updatedIndices) {
+                final byte[] bytes = serialized.get(indexMetadata.getIndexUUID()).bytes;
+                final Document indexMetadataDocument = makeDocument(INDEX_TYPE_NAME, new BytesRef(bytes));
+                final String indexUUID = indexMetadata.getIndexUUID();
+                assert indexUUID.equals(IndexMetadata.INDEX_UUID_NA_VALUE) == false;
+                indexMetadataDocument.add(new StringField(INDEX_UUID_FIELD_NAME, indexUUID, Field.Store.NO));
+                documents.add(indexMetadataDocument);
+            }
+            return documents;
+        }
+
+        private Map<String, SerializedIndexMetadata> retain(Map<String, SerializedIndexMetadata> serialized,
+                                                           List<IndexMetadata> unchangedIndices, List<IndexMetadata> updatedIndices) {
+            final Map<String, SerializedIndexMetadata> retained = new HashMap<>();
+            long retainedBytes = 0;
+            for (List<IndexMetadata> indices : Arrays.asList(unchangedIndices, updatedIndices)) {
+                for (IndexMetadata indexMetadata : indices) {
+                    final SerializedIndexMetadata serializedIndexMetadata = serialized.get(indexMetadata.getIndexUUID());
+                    if (serializedIndexMetadata != null
+                        && retainedBytes + serializedIndexMetadata.bytes.length <= maxRetainedSerializedBytes) {
+                        retained.put(indexMetadata.getIndexUUID(), serializedIndexMetadata);
+                        retainedBytes += serializedIndexMetadata.bytes.length;
+                    }
+                }
+            }
+            return retained;
+        }
+
+        /**
+         * The number of indices whose serialized metadata is retained for later writes.
+         */
+        int retainedSerializedIndices() {
+            return serializedIndexMetadata.size();
+        }
+
+        /**
+         * The size of the document buffer that the calling thread used for the last write.
+         */
+        int documentBufferUsed() {
+            return documentBufferUsed;
+        }
+
+        /**
+         * Serializes the given index metadata. The calling thread serializes documents into the given buffer until there are none left,
+         * helped by up to {@code serializationParallelism - 1} tasks on the serialization executor if there are enough documents, so
+         * that this completes even if the executor does not run the tasks in a timely fashion.
+         */
+        private byte[][] serializeIndexMetadata(List<IndexMetadata> indices, DocumentBuffer callerBuffer) throws IOException {
+            final byte[][] serialized = new byte[indices.size()][];
+            final AtomicInteger nextIndex = new AtomicInteger();
+            final AtomicReference<Exception> failure = new AtomicReference<>();
+            final Consumer<DocumentBuffer> serializeRemaining = documentBuffer -> {
+                try {
+                    int index;
+                    while (failure.get() == null && (index = nextIndex.getAndIncrement()) < serialized.length) {
+                        final BytesRef bytesRef = serialize(indices.get(index), documentBuffer);
+                        serialized[index] = ArrayUtil.copyOfSubArray(bytesRef.bytes, bytesRef.offset, bytesRef.offset + bytesRef.length);
+                    }
+                } catch (Exception e) {
+                    if (failure.compareAndSet(null, e) == false) {
+                        failure.get().addSuppressed(e);
+                    }
+                }
+            };
+
+            final int numForkedTasks = indices.size() < MIN_DOCUMENTS_FOR_PARALLEL_SERIALIZATION ? 0
+                : Math.min(serializationParallelism, indices.size() / MIN_DOCUMENTS_FOR_PARALLEL_SERIALIZATION) - 1;
+            final CountDownLatch forkedTasksDone = new CountDownLatch(numForkedTasks);
+            final List<AtomicBoolean> forkedTasksStarted = new ArrayList<>(numForkedTasks);
+            for (int i = 0; i < numForkedTasks; i++) {
+                final AtomicBoolean started = new AtomicBoolean();
+                forkedTasksStarted.add(started);
+                try {
+                    serializationExecutor.execute(() -> {
+                        if (started.compareAndSet(false, true)) {
+                            // the buffer of the calling thread is the one that sizes the buffers of later writes
+                            try (DocumentBuffer documentBuffer = allocateBuffer()) {
+                                serializeRemaining.accept(documentBuffer);
+                            } finally {
+                                forkedTasksDone.countDown();
+                            }
+                        }
+                    });
+                } catch (Exception e) {
+                    logger.debug("failed to fork serialization of index metadata", e);
+                }
+            }
+            serializeRemaining.accept(callerBuffer);
+            // the tasks that did not start yet have nothing left to do, and those that did will finish their current document
+            for (AtomicBoolean started : forkedTasksStarted) {
+                if (started.compareAndSet(false, true)) {
+                    forkedTasksDone.countDown();
+                }
+            }
+            try {
+                forkedTasksDone.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted while serializing index metadata", e);
+            }
+
+            final Exception e = failure.get();
+            if (e != null) {
+                if (e instanceof IOException) {
+                    throw (IOException) e;
+                }
+                throw new IOException("failed to serialize index metadata", e);
+            }
+            return serialized;
         }
 
         private Document makeGlobalMetadataDocument(Metadata metadata, DocumentBuffer documentBuffer) throws IOException {
-            return makeDocument(GLOBAL_TYPE_NAME, metadata, documentBuffer);
+            return makeDocument(GLOBAL_TYPE_NAME, serialize(metadata, documentBuffer));
         }
 
-        private Document makeDocument(String typeName, ToXContent metadata, DocumentBuffer documentBuffer) throws IOException {
+        private Document makeDocument(String typeName, BytesRef data) {
             final Document document = new Document();
             document.add(new StringField(TYPE_FIELD_NAME, typeName, Field.Store.NO));
+            document.add(new StoredField(DATA_FIELD_NAME, data));
+            return document;
+        }
 
+        /**
+         * Serializes the given metadata into the given buffer, returning a reference to the buffer which is only valid until the buffer
+         * is used again.
+         */
+        private static BytesRef serialize(ToXContent metadata, DocumentBuffer documentBuffer) throws IOException {
             try (RecyclingBytesStreamOutput streamOutput = documentBuffer.streamOutput()) {
                 try (XContentBuilder xContentBuilder = XContentFactory.contentBuilder(XContentType.SMILE,
                         Streams.flushOnCloseStream(streamOutput))) {
@@ -826,10 +1041,18 @@ public class PersistedClusterStateService {
                     metadata.toXContent(xContentBuilder, FORMAT_PARAMS);
                     xContentBuilder.endObject();
                 }
-                document.add(new StoredField(DATA_FIELD_NAME, streamOutput.toBytesRef()));
+                return streamOutput.toBytesRef();
             }
+        }
+    }
 
-            return document;
+    private static class SerializedIndexMetadata {
+        private final IndexMetadata indexMetadata;
+        private final byte[] bytes;
+
+        SerializedIndexMetadata(IndexMetadata indexMetadata, byte[] bytes) {
+            this.indexMetadata = indexMetadata;
+            this.bytes = bytes;
         }
     }
 
@@ -33,6 +33,7 @@ import org.codelibs.fesen.client.Client;
 import org.codelibs.fesen.cluster.metadata.IndexNameExpressionResolver;
 import org.codelibs.fesen.cluster.service.ClusterService;
 import org.codelibs.fesen.common.CheckedFunction;
+import org.codelibs.fesen.common.Nullable;
 import org.codelibs.fesen.common.TriFunction;
 import org.codelibs.fesen.common.io.stream.NamedWriteableRegistry;
 import org.codelibs.fesen.common.settings.Setting;
@@ -55,6 +56,7 @@ import org.codelibs.fesen.index.shard.IndexingOperationListener;
 import org.codelibs.fesen.index.shard.SearchOperationListener;
 import org.codelibs.fesen.index.similarity.SimilarityService;
 import org.codelibs.fesen.index.store.FsDirectoryFactory;
+import org.codelibs.fesen.index.translog.TranslogSyncTracker;
 import org.codelibs.fesen.indices.IndicesQueryCache;
 import org.codelibs.fesen.indices.breaker.CircuitBreakerService;
 import org.codelibs.fesen.indices.fielddata.cache.IndicesFieldDataCache;
@@ -413,7 +415,8 @@ public final class IndexModule {
                                         IndicesFieldDataCache indicesFieldDataCache,
                                         NamedWriteableRegistry namedWriteableRegistry,
                                         BooleanSupplier idFieldDataEnabled,
-                                        ValuesSourceRegistry valuesSourceRegistry) throws IOException {
+                                        ValuesSourceRegistry valuesSourceRegistry,
+                                        @Nullable TranslogSyncTracker translogSyncTracker) throws IOException {
         final IndexEventListener eventListener = freeze();
         Function<IndexService, CheckedFunction<DirectoryReader, DirectoryReader, IOException>> readerWrapperFactory =
             indexReaderWrapper.get() == null ? (shard) -> null : indexReaderWrapper.get();
@@ -442,7 +445,7 @@ public final class IndexModule {
                 engineFactory, circuitBreakerService, bigArrays, threadPool, scriptService, clusterService, client, queryCache,
                 directoryFactory, eventListener, readerWrapperFactory, mapperRegistry, indicesFieldDataCache, searchOperationListeners,
                 indexOperationListeners, namedWriteableRegistry, idFieldDataEnabled, allowExpensiveQueries, expressionResolver,
-                valuesSourceRegistry, recoveryStateFactory);
+                valuesSourceRegistry, recoveryStateFactory, translogSyncTracker);
             success = true;
             return indexService;
         } finally {
@@ -76,6 +76,7 @@ import org.codelibs.fesen.index.shard.ShardPath;
 import org.codelibs.fesen.index.similarity.SimilarityService;
 import org.codelibs.fesen.index.store.Store;
 import org.codelibs.fesen.index.translog.Translog;
+import org.codelibs.fesen.index.translog.TranslogSyncTracker;
 import org.codelibs.fesen.indices.breaker.CircuitBreakerService;
 import org.codelibs.fesen.indices.cluster.IndicesClusterStateService;
 import org.codelibs.fesen.indices.fielddata.cache.IndicesFieldDataCache;
@@ -148,6 +149,7 @@ public class IndexService extends AbstractIndexComponent implements IndicesClust
     private final ClusterService clusterService;
     private final Client client;
     private final CircuitBreakerService circuitBreakerService;
+    private final TranslogSyncTracker translogSyncTracker;
     private final IndexNameExpressionResolver expressionResolver;
     private final Supplier<Sort> indexSortSupplier;
     private final ValuesSourceRegistry valuesSourceRegistry;
@@ -179,8 +181,10 @@ public class IndexService extends AbstractIndexComponent implements IndicesClust
             BooleanSupplier allowExpensiveQueries,
             IndexNameExpressionResolver expressionResolver,
             ValuesSourceRegistry valuesSourceRegistry,
-            IndexStorePlugin.RecoveryStateFactory recoveryStateFactory) {
+            IndexStorePlugin.RecoveryStateFactory recoveryStateFactory,
+            @Nullable TranslogSyncTracker translogSyncTracker) {
         super(indexSettings);
+        this.translogSyncTracker = translogSyncTracker;
         this.allowExpensiveQueries = allowExpensiveQueries;
         this.indexSettings = indexSettings;
         this.xContentRegistry = xContentRegistry;
@@ -480,7 +484,8 @@ public class IndexService extends AbstractIndexComponent implements IndicesClust
                     indexingOperationListeners,
                     () -> globalCheckpointSyncer.accept(shardId),
                     retentionLeaseSyncer,
-                    circuitBreakerService);
+                    circuitBreakerService,
+                    translogSyncTracker);
             eventListener.indexShardStateChanged(indexShard, null, indexShard.state(), "shard created");
             eventListener.afterIndexShardCreated(indexShard);
             shards = newMapBuilder(shards).put(shardId.id(), indexShard).immutableMap();
@@ -137,6 +137,42 @@ public final class IndexSettings {
         Setting.intSetting("index.highlight.max_analyzed_offset", 1000000, 1,
             Property.Dynamic, Property.IndexScope);
 
+    /**
+     * Whether the unified highlighter caches the analyzed text of fields that it highlights by re-analyzing their content,
+     * i.e. fields that are indexed without offsets or term vectors. The size of the cache is bounded per node.
+     */
+    public static final Setting<Boolean> HIGHLIGHT_ANALYSIS_CACHE_ENABLED_SETTING =
+        Setting.boolSetting("index.highlight.analysis_cache.enabled", false, Property.Dynamic, Property.IndexScope);
+
+    /**
+     * Whether new segments of the index write the FSTs of completion fields in a format that loads them off-heap if their
+     * file is memory-mapped. Existing segments keep loading their FSTs the way they were written until they are merged.
+     */
+    public static final Setting<Boolean> COMPLETION_FST_OFF_HEAP_SETTING =
+        Setting.boolSetting("index.completion.fst.off_heap", false, Property.IndexScope);
+
+    /**
+     * Whether the FSTs of completion fields are loaded by the warmer before new segments become searchable rather than by
+     * the first suggest request that hits them.
+     */
+    public static final Setting<Boolean> COMPLETION_FST_EAGER_LOAD_SETTING =
+        Setting.boolSetting("index.completion.fst.eager_load", false, Property.Dynamic, Property.IndexScope);
+
+    /**
+     * How long the warmer keeps rebuilding the global ordinals of a field that is not eagerly loaded, once searches stopped
+     * using them. A zero value only warms the global ordinals of fields that load them eagerly.
+     */
+    public static final Setting<TimeValue> GLOBAL_ORDINALS_WARMER_MAX_IDLE_SETTING =
+        Setting.timeSetting("index.warmer.global_ordinals.max_idle", TimeValue.timeValueMinutes(5), TimeValue.ZERO,
+            Property.Dynamic, Property.IndexScope);
+
+    /**
+     * Whether new segments of the index write a bloom filter of the <code>_id</code> field, which lets the lookups of the ids of
+     * new documents skip the segments that do not contain them without seeking their terms dictionary.
+     */
+    public static final Setting<Boolean> ID_BLOOM_FILTER_ENABLED_SETTING =
+        Setting.boolSetting("index.id_bloom_filter.enabled", false, Property.IndexScope);
+
 
     /**
      * Index setting describing the maximum number of terms that can be used in Terms Query.
@@ -334,6 +370,14 @@ public final class IndexSettings {
     public static final Setting<Boolean> INDEX_SEARCH_THROTTLED = Setting.boolSetting("index.search.throttled", false,
         Property.IndexScope, Property.PrivateIndex, Property.Dynamic);
 
+    /**
+     * Enables concurrent search of the segments of a shard. When enabled the leaves of a shard are split into slices that are
+     * collected in parallel on the {@link org.codelibs.fesen.threadpool.ThreadPool.Names#INDEX_SEARCHER} thread-pool, which
+     * only exists on nodes that enable {@link org.codelibs.fesen.search.SearchService#CONCURRENT_SEGMENT_SEARCH_SETTING}.
+     */
+    public static final Setting<Boolean> INDEX_CONCURRENT_SEGMENT_SEARCH_SETTING =
+        Setting.boolSetting("index.search.concurrent_segment_search.enabled", false, Property.IndexScope, Property.Dynamic);
+
     /**
      * Determines a balance between file-based and operations-based peer recoveries. The number of operations that will be used in an
      * operations-based peer recovery is limited to this proportion of the total number of documents in the shard (including deleted
@@ -404,10 +448,16 @@ public final class IndexSettings {
     private volatile int maxShingleDiff;
     private volatile TimeValue searchIdleAfter;
     private volatile int maxAnalyzedOffset;
+    private volatile boolean highlightAnalysisCacheEnabled;
+    private final boolean completionFstOffHeap;
+    private volatile boolean completionFstEagerLoad;
+    private volatile TimeValue globalOrdinalsWarmerMaxIdle;
+    private final boolean idBloomFilterEnabled;
     private volatile int maxTermsCount;
     private volatile String defaultPipeline;
     private volatile String requiredPipeline;
     private volatile boolean searchThrottled;
+    private volatile boolean concurrentSegmentSearchEnabled;
     private volatile long mappingNestedFieldsLimit;
     private volatile long mappingNestedDocsLimit;
     private volatile long mappingTotalFieldsLimit;
@@ -497,6 +547,7 @@ public final class IndexSettings {
         numberOfShards = settings.getAsInt(IndexMetadata.SETTING_NUMBER_OF_SHARDS, null);
 
         this.searchThrottled = INDEX_SEARCH_THROTTLED.get(settings);
+        this.concurrentSegmentSearchEnabled = INDEX_CONCURRENT_SEGMENT_SEARCH_SETTING.get(settings);
         this.queryStringLenient = QUERY_STRING_LENIENT_SETTING.get(settings);
         this.queryStringAnalyzeWildcard = QUERY_STRING_ANALYZE_WILDCARD.get(nodeSettings);
         this.queryStringAllowLeadingWildcard = QUERY_STRING_ALLOW_LEADING_WILDCARD.get(nodeSettings);
@@ -526,6 +577,11 @@ public final class IndexSettings {
         maxRefreshListeners = scopedSettings.get(MAX_REFRESH_LISTENERS_PER_SHARD);
         maxSlicesPerScroll = scopedSettings.get(MAX_SLICES_PER_SCROLL);
         maxAnalyzedOffset = scopedSettings.get(MAX_ANALYZED_OFFSET_SETTING);
+        highlightAnalysisCacheEnabled = scopedSettings.get(HIGHLIGHT_ANALYSIS_CACHE_ENABLED_SETTING);
+        completionFstOffHeap = scopedSettings.get(COMPLETION_FST_OFF_HEAP_SETTING);
+        completionFstEagerLoad = scopedSettings.get(COMPLETION_FST_EAGER_LOAD_SETTING);
+        globalOrdinalsWarmerMaxIdle = scopedSettings.get(GLOBAL_ORDINALS_WARMER_MAX_IDLE_SETTING);
+        idBloomFilterEnabled = scopedSettings.get(ID_BLOOM_FILTER_ENABLED_SETTING);
         maxTermsCount = scopedSettings.get(MAX_TERMS_COUNT_SETTING);
         maxRegexLength = scopedSettings.get(MAX_REGEX_LENGTH_SETTING);
         this.mergePolicyConfig = new MergePolicyConfig(logger, this);
@@ -582,6 +638,9 @@ public final class IndexSettings {
         scopedSettings.addSettingsUpdateConsumer(INDEX_REFRESH_INTERVAL_SETTING, this::setRefreshInterval);
         scopedSettings.addSettingsUpdateConsumer(MAX_REFRESH_LISTENERS_PER_SHARD, this::setMaxRefreshListeners);
         scopedSettings.addSettingsUpdateConsumer(MAX_ANALYZED_OFFSET_SETTING, this::setHighlightMaxAnalyzedOffset);
+        scopedSettings.addSettingsUpdateConsumer(HIGHLIGHT_ANALYSIS_CACHE_ENABLED_SETTING, this::setHighlightAnalysisCacheEnabled);
+        scopedSettings.addSettingsUpdateConsumer(COMPLETION_FST_EAGER_LOAD_SETTING, this::setCompletionFstEagerLoad);
+        scopedSettings.addSettingsUpdateConsumer(GLOBAL_ORDINALS_WARMER_MAX_IDLE_SETTING, this::setGlobalOrdinalsWarmerMaxIdle);
         scopedSettings.addSettingsUpdateConsumer(MAX_TERMS_COUNT_SETTING, this::setMaxTermsCount);
         scopedSettings.addSettingsUpdateConsumer(MAX_SLICES_PER_SCROLL, this::setMaxSlicesPerScroll);
         scopedSettings.addSettingsUpdateConsumer(DEFAULT_FIELD_SETTING, this::setDefaultFields);
@@ -591,6 +650,7 @@ public final class IndexSettings {
         scopedSettings.addSettingsUpdateConsumer(FINAL_PIPELINE, this::setRequiredPipeline);
         scopedSettings.addSettingsUpdateConsumer(INDEX_SOFT_DELETES_RETENTION_OPERATIONS_SETTING, this::setSoftDeleteRetentionOperations);
         scopedSettings.addSettingsUpdateConsumer(INDEX_SEARCH_THROTTLED, this::setSearchThrottled);
+        scopedSettings.addSettingsUpdateConsumer(INDEX_CONCURRENT_SEGMENT_SEARCH_SETTING, this::setConcurrentSegmentSearchEnabled);
         scopedSettings.addSettingsUpdateConsumer(INDEX_SOFT_DELETES_RETENTION_LEASE_PERIOD_SETTING, this::setRetentionLeaseMillis);
         scopedSettings.addSettingsUpdateConsumer(INDEX_MAPPING_NESTED_FIELDS_LIMIT_SETTING, this::setMappingNestedFieldsLimit);
         scopedSettings.addSettingsUpdateConsumer(INDEX_MAPPING_NESTED_DOCS_LIMIT_SETTING, this::setMappingNestedDocsLimit);
@@ -951,6 +1011,37 @@ public final class IndexSettings {
 
     private void setHighlightMaxAnalyzedOffset(int maxAnalyzedOffset) { this.maxAnalyzedOffset = maxAnalyzedOffset; }
 
+    /**
+     *  Returns whether the unified highlighter caches the analyzed text of fields that have no offsets
+     */
+    public boolean isHighlightAnalysisCacheEnabled() { return this.highlightAnalysisCacheEnabled; }
+
+    private void setHighlightAnalysisCacheEnabled(boolean enabled) { this.highlightAnalysisCacheEnabled = enabled; }
+
+    /**
+     * Returns whether new segments load the FSTs of completion fields off-heap
+     */
+    public boolean isCompletionFstOffHeap() { return this.completionFstOffHeap; }
+
+    /**
+     * Returns whether the warmer loads the FSTs of completion fields of new segments
+     */
+    public boolean isCompletionFstEagerLoad() { return this.completionFstEagerLoad; }
+
+    private void setCompletionFstEagerLoad(boolean eagerLoad) { this.completionFstEagerLoad = eagerLoad; }
+
+    /**
+     * Returns how long the warmer keeps rebuilding the global ordinals of lazily loaded fields that searches no longer use
+     */
+    public TimeValue getGlobalOrdinalsWarmerMaxIdle() { return this.globalOrdinalsWarmerMaxIdle; }
+
+    private void setGlobalOrdinalsWarmerMaxIdle(TimeValue maxIdle) { this.globalOrdinalsWarmerMaxIdle = maxIdle; }
+
+    /**
+     * Returns whether new segments write a bloom filter of the <code>_id</code> field
+     */
+    public boolean isIdBloomFilterEnabled() { return this.idBloomFilterEnabled; }
+
     /**
      *  Returns the maximum number of terms that can be used in a Terms Query request
      */
@@ -1087,6 +1178,18 @@ public final class IndexSettings {
         this.searchThrottled = searchThrottled;
     }
 
+    /**
+     * Returns true if the segments of this index's shards should be searched concurrently using the
+     * {@link org.codelibs.fesen.threadpool.ThreadPool.Names#INDEX_SEARCHER} thread-pool
+     */
+    public boolean isConcurrentSegmentSearchEnabled() {
+        return concurrentSegmentSearchEnabled;
+    }
+
+    private void setConcurrentSegmentSearchEnabled(boolean concurrentSegmentSearchEnabled) {
+        this.concurrentSegmentSearchEnabled = concurrentSegmentSearchEnabled;
+    }
+
     public long getMappingNestedFieldsLimit() {
         return mappingNestedFieldsLimit;
     }
@@ -22,10 +22,14 @@ package org.codelibs.fesen.index;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.search.suggest.document.CompletionTerms;
 import org.codelibs.fesen.common.lucene.index.FesenDirectoryReader;
 import org.codelibs.fesen.common.unit.TimeValue;
 import org.codelibs.fesen.index.fielddata.IndexFieldData;
 import org.codelibs.fesen.index.fielddata.IndexFieldDataService;
+import org.codelibs.fesen.index.mapper.CompletionFieldMapper;
 import org.codelibs.fesen.index.mapper.MappedFieldType;
 import org.codelibs.fesen.index.mapper.MapperService;
 import org.codelibs.fesen.index.shard.IndexShard;
@@ -52,6 +56,7 @@ public final class IndexWarmer {
         ArrayList<Listener> list = new ArrayList<>();
         final Executor executor = threadPool.executor(ThreadPool.Names.WARMER);
         list.add(new FieldDataWarmer(executor, indexFieldDataService));
+        list.add(new CompletionFstWarmer(executor));
 
         Collections.addAll(list, listeners);
         this.listeners = Collections.unmodifiableList(list);
@@ -118,10 +123,15 @@ public final class IndexWarmer {
         @Override
         public TerminationHandle warmReader(final IndexShard indexShard, final FesenDirectoryReader reader) {
             final MapperService mapperService = indexShard.mapperService();
+            final TimeValue maxIdle = indexShard.indexSettings().getGlobalOrdinalsWarmerMaxIdle();
             final Map<String, MappedFieldType> warmUpGlobalOrdinals = new HashMap<>();
             for (MappedFieldType fieldType : mapperService.fieldTypes()) {
                 final String indexName = fieldType.name();
-                if (fieldType.eagerGlobalOrdinals() == false) {
+                // global ordinals that searches recently used on the previous reader are maintained as well, so that they are
+                // built incrementally here rather than from scratch by the first search on the new reader
+                if (fieldType.eagerGlobalOrdinals() == false
+                    && (maxIdle.nanos() == 0
+                        || indexFieldDataService.hasRecentlyUsedGlobalForField(indexShard.shardId(), indexName, maxIdle) == false)) {
                     continue;
                 }
                 warmUpGlobalOrdinals.put(indexName, fieldType);
@@ -161,4 +171,57 @@ public final class IndexWarmer {
         }
     }
 
+    /**
+     * Loads the FSTs of the completion fields of the segments of the reader, which are otherwise loaded by the first suggest
+     * request that hits a segment. FSTs that are already loaded are shared with the previous reader and are not loaded again.
+     */
+    private static class CompletionFstWarmer implements IndexWarmer.Listener {
+
+        private final Executor executor;
+
+        CompletionFstWarmer(Executor executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public TerminationHandle warmReader(final IndexShard indexShard, final FesenDirectoryReader reader) {
+            if (indexShard.indexSettings().isCompletionFstEagerLoad() == false) {
+                return TerminationHandle.NO_WAIT;
+            }
+            final List<String> completionFields = new ArrayList<>();
+            for (MappedFieldType fieldType : indexShard.mapperService().fieldTypes()) {
+                if (fieldType instanceof CompletionFieldMapper.CompletionFieldType) {
+                    completionFields.add(fieldType.name());
+                }
+            }
+            final CountDownLatch latch = new CountDownLatch(completionFields.size());
+            for (final String field : completionFields) {
+                executor.execute(() -> {
+                    try {
+                        final long start = System.nanoTime();
+                        for (LeafReaderContext context : reader.leaves()) {
+                            final Terms terms = context.reader().terms(field);
+                            if (terms instanceof CompletionTerms) {
+                                ((CompletionTerms) terms).suggester();
+                            }
+                        }
+                        if (indexShard.warmerService().logger().isTraceEnabled()) {
+                            indexShard.warmerService().logger().trace(
+                                "warmed completion fst for [{}], took [{}]",
+                                field,
+                                TimeValue.timeValueNanos(System.nanoTime() - start));
+                        }
+                    } catch (Exception e) {
+                        indexShard
+                            .warmerService()
+                            .logger()
+                            .warn(() -> new ParameterizedMessage("failed to warm-up completion fst for [{}]", field), e);
+                    } finally {
+                        latch.countDown();
+                    }
+                });
+            }
+            return () -> latch.await();
+        }
+    }
 }
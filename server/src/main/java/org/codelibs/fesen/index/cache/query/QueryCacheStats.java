@@ -20,41 +20,76 @@
 package org.codelibs.fesen.index.cache.query;
 
 import org.apache.lucene.search.DocIdSet;
+import org.codelibs.fesen.Version;
 import org.codelibs.fesen.common.io.stream.StreamInput;
 import org.codelibs.fesen.common.io.stream.StreamOutput;
 import org.codelibs.fesen.common.io.stream.Writeable;
 import org.codelibs.fesen.common.unit.ByteSizeValue;
+import org.codelibs.fesen.common.unit.TimeValue;
 import org.codelibs.fesen.common.xcontent.ToXContent;
 import org.codelibs.fesen.common.xcontent.ToXContentFragment;
 import org.codelibs.fesen.common.xcontent.XContentBuilder;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
 
 public class QueryCacheStats implements Writeable, ToXContentFragment {
 
+    /**
+     * Query types include the field they target, so the number of types that are tracked is bounded: the ones beyond this
+     * many are counted under {@link #OTHER_QUERY_TYPE}.
+     */
+    public static final int MAX_QUERY_TYPES = 100;
+    public static final String OTHER_QUERY_TYPE = "other";
+
     private long ramBytesUsed;
     private long hitCount;
     private long missCount;
     private long cacheCount;
     private long cacheSize;
+    private Map<String, QueryTypeStats> queryTypes = Collections.emptyMap();
 
     public QueryCacheStats() {
     }
 
+    /**
+     * Returns the key that the statistics of the given query type are counted under in the given statistics per query type.
+     */
+    public static String queryTypeKey(Map<String, ?> queryTypes, String queryType) {
+        if (queryType.equals(OTHER_QUERY_TYPE) || queryTypes.containsKey(queryType)) {
+            return queryType;
+        }
+        final int numQueryTypes = queryTypes.size() - (queryTypes.containsKey(OTHER_QUERY_TYPE) ? 1 : 0);
+        return numQueryTypes < MAX_QUERY_TYPES ? queryType : OTHER_QUERY_TYPE;
+    }
+
     public QueryCacheStats(StreamInput in) throws IOException {
         ramBytesUsed = in.readLong();
         hitCount = in.readLong();
         missCount = in.readLong();
         cacheCount = in.readLong();
         cacheSize = in.readLong();
+        if (in.getVersion().onOrAfter(Version.V_0_13_1)) {
+            queryTypes = in.readMap(StreamInput::readString, QueryTypeStats::new);
+        }
     }
 
     public QueryCacheStats(long ramBytesUsed, long hitCount, long missCount, long cacheCount, long cacheSize) {
+        this(ramBytesUsed, hitCount, missCount, cacheCount, cacheSize, Collections.emptyMap());
+    }
+
+    public QueryCacheStats(long ramBytesUsed, long hitCount, long missCount, long cacheCount, long cacheSize,
+                           Map<String, QueryTypeStats> queryTypes) {
         this.ramBytesUsed = ramBytesUsed;
         this.hitCount = hitCount;
         this.missCount = missCount;
         this.cacheCount = cacheCount;
         this.cacheSize = cacheSize;
+        this.queryTypes = queryTypes;
     }
 
     public void add(QueryCacheStats stats) {
@@ -63,6 +98,13 @@ public class QueryCacheStats implements Writeable, ToXContentFragment {
         missCount += stats.missCount;
         cacheCount += stats.cacheCount;
         cacheSize += stats.cacheSize;
+        if (stats.queryTypes.isEmpty() == false) {
+            final Map<String, QueryTypeStats> merged = new TreeMap<>(queryTypes);
+            for (Map.Entry<String, QueryTypeStats> entry : stats.queryTypes.entrySet()) {
+                merged.merge(queryTypeKey(merged, entry.getKey()), entry.getValue(), QueryTypeStats::merge);
+            }
+            queryTypes = merged;
+        }
     }
 
     public long getMemorySizeInBytes() {
@@ -115,6 +157,15 @@ public class QueryCacheStats implements Writeable, ToXContentFragment {
         return cacheCount - cacheSize;
     }
 
+    /**
+     * Usage statistics per type of cached query, keyed by the simple name of the query class followed by the field the
+     * query targets, if it targets a single one, e.g. {@code TermQuery[user]}. The types beyond the first
+     * {@link #MAX_QUERY_TYPES} that were seen are counted under {@link #OTHER_QUERY_TYPE}.
+     */
+    public Map<String, QueryTypeStats> getQueryTypes() {
+        return queryTypes;
+    }
+
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         out.writeLong(ramBytesUsed);
@@ -122,6 +173,9 @@ public class QueryCacheStats implements Writeable, ToXContentFragment {
         out.writeLong(missCount);
         out.writeLong(cacheCount);
         out.writeLong(cacheSize);
+        if (out.getVersion().onOrAfter(Version.V_0_13_1)) {
+            out.writeMap(queryTypes, StreamOutput::writeString, (o, stats) -> stats.writeTo(o));
+        }
     }
 
     @Override
@@ -134,10 +188,149 @@ public class QueryCacheStats implements Writeable, ToXContentFragment {
         builder.field(Fields.CACHE_SIZE, getCacheSize());
         builder.field(Fields.CACHE_COUNT, getCacheCount());
         builder.field(Fields.EVICTIONS, getEvictions());
+        if (queryTypes.isEmpty() == false) {
+            builder.startObject(Fields.QUERY_TYPES);
+            for (Map.Entry<String, QueryTypeStats> entry : new TreeMap<>(queryTypes).entrySet()) {
+                builder.startObject(entry.getKey());
+                entry.getValue().toXContent(builder, params);
+                builder.endObject();
+            }
+            builder.endObject();
+        }
         builder.endObject();
         return builder;
     }
 
+    /**
+     * Usage statistics of the cache entries of one type of query. Cache entries are not evicted per query type, so the
+     * sizes and times are totals over all entries that were ever cached, not over the entries that are currently cached.
+     */
+    public static final class QueryTypeStats implements Writeable, ToXContentFragment {
+
+        private final long hitCount;
+        private final long missCount;
+        private final long cacheCount;
+        private final long cachedBytes;
+        private final long buildTimeInNanos;
+        private final long savedTimeInNanos;
+
+        public QueryTypeStats(long hitCount, long missCount, long cacheCount, long cachedBytes, long buildTimeInNanos,
+                              long savedTimeInNanos) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.cacheCount = cacheCount;
+            this.cachedBytes = cachedBytes;
+            this.buildTimeInNanos = buildTimeInNanos;
+            this.savedTimeInNanos = savedTimeInNanos;
+        }
+
+        public QueryTypeStats(StreamInput in) throws IOException {
+            hitCount = in.readVLong();
+            missCount = in.readVLong();
+            cacheCount = in.readVLong();
+            cachedBytes = in.readVLong();
+            buildTimeInNanos = in.readVLong();
+            savedTimeInNanos = in.readVLong();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeVLong(hitCount);
+            out.writeVLong(missCount);
+            out.writeVLong(cacheCount);
+            out.writeVLong(cachedBytes);
+            out.writeVLong(buildTimeInNanos);
+            out.writeVLong(savedTimeInNanos);
+        }
+
+        static QueryTypeStats merge(QueryTypeStats a, QueryTypeStats b) {
+            return new QueryTypeStats(a.hitCount + b.hitCount, a.missCount + b.missCount, a.cacheCount + b.cacheCount,
+                a.cachedBytes + b.cachedBytes, a.buildTimeInNanos + b.buildTimeInNanos, a.savedTimeInNanos + b.savedTimeInNanos);
+        }
+
+        /**
+         * The number of successful lookups in the cache.
+         */
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        /**
+         * The number of lookups in the cache that failed to retrieve a {@link DocIdSet}.
+         */
+        public long getMissCount() {
+            return missCount;
+        }
+
+        /**
+         * The ratio of lookups that were successful, or {@code 0} if there were no lookups.
+         */
+        public double getHitRatio() {
+            final long totalCount = hitCount + missCount;
+            return totalCount == 0 ? 0 : (double) hitCount / totalCount;
+        }
+
+        /**
+         * The number of {@link DocIdSet}s that have been cached.
+         */
+        public long getCacheCount() {
+            return cacheCount;
+        }
+
+        /**
+         * The total size of the {@link DocIdSet}s that have been cached.
+         */
+        public long getCachedBytes() {
+            return cachedBytes;
+        }
+
+        /**
+         * The total time spent building the {@link DocIdSet}s that have been cached.
+         */
+        public long getBuildTimeInNanos() {
+            return buildTimeInNanos;
+        }
+
+        /**
+         * The time that successful lookups saved, estimated from the time it took to build the entries of this query type.
+         */
+        public long getSavedTimeInNanos() {
+            return savedTimeInNanos;
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, ToXContent.Params params) throws IOException {
+            builder.field(Fields.HIT_COUNT, hitCount);
+            builder.field(Fields.MISS_COUNT, missCount);
+            builder.field(Fields.HIT_RATIO, getHitRatio());
+            builder.field(Fields.CACHE_COUNT, cacheCount);
+            builder.humanReadableField(Fields.CACHED_SIZE_IN_BYTES, Fields.CACHED_SIZE, new ByteSizeValue(cachedBytes));
+            builder.humanReadableField(Fields.BUILD_TIME_IN_MILLIS, Fields.BUILD_TIME,
+                new TimeValue(buildTimeInNanos, TimeUnit.NANOSECONDS));
+            builder.humanReadableField(Fields.SAVED_TIME_IN_MILLIS, Fields.SAVED_TIME,
+                new TimeValue(savedTimeInNanos, TimeUnit.NANOSECONDS));
+            return builder;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            QueryTypeStats that = (QueryTypeStats) o;
+            return hitCount == that.hitCount &&
+                missCount == that.missCount &&
+                cacheCount == that.cacheCount &&
+                cachedBytes == that.cachedBytes &&
+                buildTimeInNanos == that.buildTimeInNanos &&
+                savedTimeInNanos == that.savedTimeInNanos;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(hitCount, missCount, cacheCount, cachedBytes, buildTimeInNanos, savedTimeInNanos);
+        }
+    }
+
     static final class Fields {
         static final String QUERY_CACHE = "query_cache";
         static final String MEMORY_SIZE = "memory_size";
@@ -148,6 +341,14 @@ public class QueryCacheStats implements Writeable, ToXContentFragment {
         static final String CACHE_SIZE = "cache_size";
         static final String CACHE_COUNT = "cache_count";
         static final String EVICTIONS = "evictions";
+        static final String QUERY_TYPES = "query_types";
+        static final String HIT_RATIO = "hit_ratio";
+        static final String CACHED_SIZE = "cached_size";
+        static final String CACHED_SIZE_IN_BYTES = "cached_size_in_bytes";
+        static final String BUILD_TIME = "build_time";
+        static final String BUILD_TIME_IN_MILLIS = "build_time_in_millis";
+        static final String SAVED_TIME = "saved_time";
+        static final String SAVED_TIME_IN_MILLIS = "saved_time_in_millis";
     }
 
 }
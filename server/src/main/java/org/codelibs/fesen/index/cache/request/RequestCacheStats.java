@@ -19,6 +19,7 @@
 
 package org.codelibs.fesen.index.cache.request;
 
+import org.codelibs.fesen.Version;
 import org.codelibs.fesen.common.io.stream.StreamInput;
 import org.codelibs.fesen.common.io.stream.StreamOutput;
 import org.codelibs.fesen.common.io.stream.Writeable;
@@ -28,12 +29,22 @@ import org.codelibs.fesen.common.xcontent.XContentBuilder;
 
 import java.io.IOException;
 
+/**
+ * Statistics of the shard request cache. The memory size, evictions, hits and misses are those of the on-heap cache. The disk
+ * statistics are those of the optional disk tier, which is only looked up on misses of the on-heap cache, and are only rendered
+ * if the disk tier is enabled.
+ */
 public class RequestCacheStats implements Writeable, ToXContentFragment {
 
     private long memorySize;
     private long evictions;
     private long hitCount;
     private long missCount;
+    private long diskSize;
+    private long diskEvictions;
+    private long diskHitCount;
+    private long diskMissCount;
+    private boolean diskTierEnabled;
 
     public RequestCacheStats() {
     }
@@ -43,6 +54,13 @@ public class RequestCacheStats implements Writeable, ToXContentFragment {
         evictions = in.readVLong();
         hitCount = in.readVLong();
         missCount = in.readVLong();
+        if (in.getVersion().onOrAfter(Version.V_0_13_1)) {
+            diskSize = in.readVLong();
+            diskEvictions = in.readVLong();
+            diskHitCount = in.readVLong();
+            diskMissCount = in.readVLong();
+            diskTierEnabled = in.readBoolean();
+        }
     }
 
     public RequestCacheStats(long memorySize, long evictions, long hitCount, long missCount) {
@@ -52,11 +70,32 @@ public class RequestCacheStats implements Writeable, ToXContentFragment {
         this.missCount = missCount;
     }
 
+    /**
+     * Creates the statistics of a cache that has the disk tier enabled.
+     */
+    public RequestCacheStats(long memorySize, long evictions, long hitCount, long missCount,
+                             long diskSize, long diskEvictions, long diskHitCount, long diskMissCount) {
+        this.memorySize = memorySize;
+        this.evictions = evictions;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.diskSize = diskSize;
+        this.diskEvictions = diskEvictions;
+        this.diskHitCount = diskHitCount;
+        this.diskMissCount = diskMissCount;
+        this.diskTierEnabled = true;
+    }
+
     public void add(RequestCacheStats stats) {
         this.memorySize += stats.memorySize;
         this.evictions += stats.evictions;
         this.hitCount += stats.hitCount;
         this.missCount += stats.missCount;
+        this.diskSize += stats.diskSize;
+        this.diskEvictions += stats.diskEvictions;
+        this.diskHitCount += stats.diskHitCount;
+        this.diskMissCount += stats.diskMissCount;
+        this.diskTierEnabled |= stats.diskTierEnabled;
     }
 
     public long getMemorySizeInBytes() {
@@ -79,12 +118,43 @@ public class RequestCacheStats implements Writeable, ToXContentFragment {
         return this.missCount;
     }
 
+    public boolean isDiskTierEnabled() {
+        return this.diskTierEnabled;
+    }
+
+    public long getDiskSizeInBytes() {
+        return this.diskSize;
+    }
+
+    public ByteSizeValue getDiskSize() {
+        return new ByteSizeValue(diskSize);
+    }
+
+    public long getDiskEvictions() {
+        return this.diskEvictions;
+    }
+
+    public long getDiskHitCount() {
+        return this.diskHitCount;
+    }
+
+    public long getDiskMissCount() {
+        return this.diskMissCount;
+    }
+
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         out.writeVLong(memorySize);
         out.writeVLong(evictions);
         out.writeVLong(hitCount);
         out.writeVLong(missCount);
+        if (out.getVersion().onOrAfter(Version.V_0_13_1)) {
+            out.writeVLong(diskSize);
+            out.writeVLong(diskEvictions);
+            out.writeVLong(diskHitCount);
+            out.writeVLong(diskMissCount);
+            out.writeBoolean(diskTierEnabled);
+        }
     }
 
     @Override
@@ -94,6 +164,14 @@ public class RequestCacheStats implements Writeable, ToXContentFragment {
         builder.field(Fields.EVICTIONS, getEvictions());
         builder.field(Fields.HIT_COUNT, getHitCount());
         builder.field(Fields.MISS_COUNT, getMissCount());
+        if (diskTierEnabled) {
+            builder.startObject(Fields.DISK);
+            builder.humanReadableField(Fields.SIZE_IN_BYTES, Fields.SIZE, getDiskSize());
+            builder.field(Fields.EVICTIONS, getDiskEvictions());
+            builder.field(Fields.HIT_COUNT, getDiskHitCount());
+            builder.field(Fields.MISS_COUNT, getDiskMissCount());
+            builder.endObject();
+        }
         builder.endObject();
         return builder;
     }
@@ -105,5 +183,8 @@ public class RequestCacheStats implements Writeable, ToXContentFragment {
         static final String EVICTIONS = "evictions";
         static final String HIT_COUNT = "hit_count";
         static final String MISS_COUNT = "miss_count";
+        static final String DISK = "disk";
+        static final String SIZE = "size";
+        static final String SIZE_IN_BYTES = "size_in_bytes";
     }
 }
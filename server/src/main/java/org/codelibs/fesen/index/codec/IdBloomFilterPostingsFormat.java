@@ -0,0 +1,204 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.codelibs.fesen.index.codec;
+
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.codecs.FieldsConsumer;
+import org.apache.lucene.codecs.FieldsProducer;
+import org.apache.lucene.codecs.PostingsFormat;
+import org.apache.lucene.codecs.bloom.BloomFilteringPostingsFormat;
+import org.apache.lucene.codecs.bloom.FuzzySet;
+import org.apache.lucene.index.FilterLeafReader;
+import org.apache.lucene.index.IndexFileNames;
+import org.apache.lucene.index.SegmentReadState;
+import org.apache.lucene.index.SegmentWriteState;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.store.ChecksumIndexInput;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.Accountables;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.lucene.util.automaton.CompiledAutomaton;
+import org.codelibs.fesen.core.internal.io.IOUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A postings format that writes a bloom filter of each field next to the postings of {@link #DELEGATE_NAME}, so that exact
+ * seeks for terms that a segment does not contain return without touching its terms dictionary. The files are written by
+ * {@link BloomFilteringPostingsFormat}, but they are read by this format so that the terms of the fields expose the memory
+ * used by their filter as {@link BloomFilteredTerms}, which the per-field postings reader would otherwise hide.
+ */
+public class IdBloomFilterPostingsFormat extends PostingsFormat {
+
+    public static final String NAME = "FesenIdBloomFilter";
+    static final String DELEGATE_NAME = "Lucene84";
+    // the extension of the files written by BloomFilteringPostingsFormat
+    static final String BLOOM_EXTENSION = "blm";
+
+    public IdBloomFilterPostingsFormat() {
+        super(NAME);
+    }
+
+    @Override
+    public FieldsConsumer fieldsConsumer(SegmentWriteState state) throws IOException {
+        return new BloomFilteringPostingsFormat(PostingsFormat.forName(DELEGATE_NAME)).fieldsConsumer(state);
+    }
+
+    @Override
+    public FieldsProducer fieldsProducer(SegmentReadState state) throws IOException {
+        return new BloomFilteredFieldsProducer(state);
+    }
+
+    private static final class BloomFilteredFieldsProducer extends FieldsProducer {
+
+        private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(BloomFilteredFieldsProducer.class);
+
+        private final FieldsProducer delegate;
+        private final Map<String, FuzzySet> blooms = new HashMap<>();
+
+        BloomFilteredFieldsProducer(SegmentReadState state) throws IOException {
+            final String fileName = IndexFileNames.segmentFileName(state.segmentInfo.name, state.segmentSuffix, BLOOM_EXTENSION);
+            FieldsProducer delegate = null;
+            boolean success = false;
+            try (ChecksumIndexInput in = state.directory.openChecksumInput(fileName, state.context)) {
+                CodecUtil.checkIndexHeader(in, BloomFilteringPostingsFormat.BLOOM_CODEC_NAME, BloomFilteringPostingsFormat.VERSION_START,
+                    BloomFilteringPostingsFormat.VERSION_CURRENT, state.segmentInfo.getId(), state.segmentSuffix);
+                delegate = PostingsFormat.forName(in.readString()).fieldsProducer(state);
+                final int numBlooms = in.readInt();
+                for (int i = 0; i < numBlooms; i++) {
+                    final int fieldNumber = in.readInt();
+                    blooms.put(state.fieldInfos.fieldInfo(fieldNumber).name, FuzzySet.deserialize(in));
+                }
+                CodecUtil.checkFooter(in);
+                this.delegate = delegate;
+                success = true;
+            } finally {
+                if (success == false) {
+                    IOUtils.closeWhileHandlingException(delegate);
+                }
+            }
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return delegate.iterator();
+        }
+
+        @Override
+        public Terms terms(String field) throws IOException {
+            final Terms terms = delegate.terms(field);
+            final FuzzySet bloom = blooms.get(field);
+            return terms == null || bloom == null ? terms : new BloomFilteredTerms(terms, bloom);
+        }
+
+        @Override
+        public int size() {
+            return delegate.size();
+        }
+
+        @Override
+        public void checkIntegrity() throws IOException {
+            delegate.checkIntegrity();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public long ramBytesUsed() {
+            long bytes = BASE_RAM_BYTES_USED + delegate.ramBytesUsed();
+            for (FuzzySet bloom : blooms.values()) {
+                bytes += bloom.ramBytesUsed();
+            }
+            return bytes;
+        }
+
+        @Override
+        public Collection<Accountable> getChildResources() {
+            final List<Accountable> resources = new ArrayList<>(Accountables.namedAccountables("field", blooms));
+            resources.add(Accountables.namedAccountable("delegate", delegate));
+            return Collections.unmodifiableList(resources);
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getSimpleName() + "(fields=" + blooms.size() + ",delegate=" + delegate + ")";
+        }
+    }
+
+    /**
+     * The terms of a field that has a bloom filter.
+     */
+    public static final class BloomFilteredTerms extends FilterLeafReader.FilterTerms {
+
+        private final FuzzySet bloom;
+
+        BloomFilteredTerms(Terms in, FuzzySet bloom) {
+            super(in);
+            this.bloom = bloom;
+        }
+
+        /**
+         * Returns the memory used by the bloom filter of the field. It is part of the memory of the postings reader.
+         */
+        public long bloomFilterRamBytesUsed() {
+            return bloom.ramBytesUsed();
+        }
+
+        @Override
+        public TermsEnum iterator() throws IOException {
+            return new FilterLeafReader.FilterTermsEnum(in.iterator()) {
+                @Override
+                public boolean seekExact(BytesRef text) throws IOException {
+                    if (bloom.contains(text) == FuzzySet.ContainsResult.NO) {
+                        return false;
+                    }
+                    return in.seekExact(text);
+                }
+            };
+        }
+
+        @Override
+        public TermsEnum intersect(CompiledAutomaton compiled, BytesRef startTerm) throws IOException {
+            return in.intersect(compiled, startTerm);
+        }
+
+        @Override
+        public BytesRef getMin() throws IOException {
+            return in.getMin();
+        }
+
+        @Override
+        public BytesRef getMax() throws IOException {
+            return in.getMax();
+        }
+    }
+}
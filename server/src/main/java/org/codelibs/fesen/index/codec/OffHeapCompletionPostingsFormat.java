@@ -0,0 +1,43 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.codelibs.fesen.index.codec;
+
+import org.apache.lucene.codecs.PostingsFormat;
+import org.apache.lucene.search.suggest.document.Completion84PostingsFormat;
+import org.apache.lucene.search.suggest.document.CompletionPostingsFormat;
+
+/**
+ * A {@link CompletionPostingsFormat} that is equivalent to {@link Completion84PostingsFormat} but loads the FSTs of the
+ * completion suggester off-heap when their file is memory-mapped. Since the format that reads a segment is looked up
+ * by the name that it was written with, segments that were written with this format always load their FSTs this way.
+ */
+public class OffHeapCompletionPostingsFormat extends CompletionPostingsFormat {
+
+    public static final String NAME = "FesenOffHeapCompletion84";
+
+    public OffHeapCompletionPostingsFormat() {
+        super(NAME, FSTLoadMode.AUTO);
+    }
+
+    @Override
+    protected PostingsFormat delegatePostingsFormat() {
+        return PostingsFormat.forName("Lucene84");
+    }
+}
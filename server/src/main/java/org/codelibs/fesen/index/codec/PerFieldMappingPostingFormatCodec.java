@@ -24,6 +24,7 @@ import org.apache.lucene.codecs.Codec;
 import org.apache.lucene.codecs.PostingsFormat;
 import org.codelibs.fesen.common.lucene.Lucene;
 import org.codelibs.fesen.index.mapper.CompletionFieldMapper;
+import org.codelibs.fesen.index.mapper.IdFieldMapper;
 import org.codelibs.fesen.index.mapper.MappedFieldType;
 import org.codelibs.fesen.index.mapper.MapperService;
 import org.apache.lucene.codecs.lucene87.Lucene87Codec;
@@ -39,25 +40,37 @@ import org.apache.lucene.codecs.lucene87.Lucene87Codec;
 public class PerFieldMappingPostingFormatCodec extends Lucene87Codec {
     private final Logger logger;
     private final MapperService mapperService;
+    private final PostingsFormat completionPostingsFormat;
+    private final PostingsFormat idPostingsFormat;
 
     static {
         assert Codec.forName(Lucene.LATEST_CODEC).getClass().isAssignableFrom(PerFieldMappingPostingFormatCodec.class) :
             "PerFieldMappingPostingFormatCodec must subclass the latest " + "lucene codec: " + Lucene.LATEST_CODEC;
     }
 
+    private static final PostingsFormat OFF_HEAP_COMPLETION_POSTINGS_FORMAT = new OffHeapCompletionPostingsFormat();
+    private static final PostingsFormat ID_BLOOM_FILTER_POSTINGS_FORMAT = new IdBloomFilterPostingsFormat();
+
     public PerFieldMappingPostingFormatCodec(Mode compressionMode, MapperService mapperService, Logger logger) {
         super(compressionMode);
         this.mapperService = mapperService;
         this.logger = logger;
+        this.completionPostingsFormat = mapperService.getIndexSettings().isCompletionFstOffHeap()
+            ? OFF_HEAP_COMPLETION_POSTINGS_FORMAT : CompletionFieldMapper.CompletionFieldType.postingsFormat();
+        this.idPostingsFormat = mapperService.getIndexSettings().isIdBloomFilterEnabled()
+            ? ID_BLOOM_FILTER_POSTINGS_FORMAT : super.getPostingsFormatForField(IdFieldMapper.NAME);
     }
 
     @Override
     public PostingsFormat getPostingsFormatForField(String field) {
+        if (IdFieldMapper.NAME.equals(field)) {
+            return idPostingsFormat;
+        }
         final MappedFieldType fieldType = mapperService.fieldType(field);
         if (fieldType == null) {
             logger.warn("no index mapper found for field: [{}] returning default postings format", field);
         } else if (fieldType instanceof CompletionFieldMapper.CompletionFieldType) {
-            return CompletionFieldMapper.CompletionFieldType.postingsFormat();
+            return completionPostingsFormat;
         }
         return super.getPostingsFormatForField(field);
     }
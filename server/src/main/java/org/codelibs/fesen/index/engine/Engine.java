@@ -21,6 +21,7 @@ package org.codelibs.fesen.index.engine;
 
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.apache.lucene.codecs.FieldsProducer;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexCommit;
 import org.apache.lucene.index.IndexFileNames;
@@ -30,6 +31,7 @@ import org.apache.lucene.index.SegmentCommitInfo;
 import org.apache.lucene.index.SegmentInfos;
 import org.apache.lucene.index.SegmentReader;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.QueryCache;
 import org.apache.lucene.search.QueryCachingPolicy;
@@ -63,6 +65,8 @@ import org.codelibs.fesen.common.unit.ByteSizeValue;
 import org.codelibs.fesen.common.unit.TimeValue;
 import org.codelibs.fesen.common.util.concurrent.ReleasableLock;
 import org.codelibs.fesen.index.VersionType;
+import org.codelibs.fesen.index.codec.IdBloomFilterPostingsFormat;
+import org.codelibs.fesen.index.mapper.IdFieldMapper;
 import org.codelibs.fesen.index.mapper.MapperService;
 import org.codelibs.fesen.index.mapper.Mapping;
 import org.codelibs.fesen.index.mapper.ParsedDocument;
@@ -161,6 +165,21 @@ public abstract class Engine implements Closeable {
         return a.ramBytesUsed();
     }
 
+    /**
+     * Returns the memory used by the bloom filter of the <code>_id</code> field of the given postings reader, which is only
+     * written by the {@link IdBloomFilterPostingsFormat}.
+     */
+    static long bloomFilterRamBytesUsed(FieldsProducer postingsReader) throws IOException {
+        if (postingsReader == null) {
+            return 0;
+        }
+        final Terms terms = postingsReader.terms(IdFieldMapper.NAME);
+        if (terms instanceof IdBloomFilterPostingsFormat.BloomFilteredTerms) {
+            return ((IdBloomFilterPostingsFormat.BloomFilteredTerms) terms).bloomFilterRamBytesUsed();
+        }
+        return 0;
+    }
+
     public final EngineConfig config() {
         return engineConfig;
     }
@@ -171,6 +190,13 @@ public abstract class Engine implements Closeable {
         return new MergeStats();
     }
 
+    /**
+     * Returns whether the segment with the given name is currently being merged away.
+     */
+    public boolean isMergingSegment(String segmentName) {
+        return false;
+    }
+
     /** returns the history uuid for the engine */
     public abstract String getHistoryUUID();
 
@@ -825,12 +851,20 @@ public abstract class Engine implements Closeable {
 
     protected void fillSegmentStats(SegmentReader segmentReader, boolean includeSegmentFileSizes, SegmentsStats stats) {
         stats.add(1, segmentReader.ramBytesUsed());
-        stats.addTermsMemoryInBytes(guardedRamBytesUsed(segmentReader.getPostingsReader()));
+        long bloomFilterBytes = 0;
+        try {
+            bloomFilterBytes = bloomFilterRamBytesUsed(segmentReader.getPostingsReader());
+        } catch (IOException e) {
+            logger.warn(() -> new ParameterizedMessage("failed to get the bloom filter memory of [{}]", segmentReader.getSegmentName()), e);
+        }
+        // the bloom filters are held by the postings reader but reported on their own
+        stats.addTermsMemoryInBytes(guardedRamBytesUsed(segmentReader.getPostingsReader()) - bloomFilterBytes);
         stats.addStoredFieldsMemoryInBytes(guardedRamBytesUsed(segmentReader.getFieldsReader()));
         stats.addTermVectorsMemoryInBytes(guardedRamBytesUsed(segmentReader.getTermVectorsReader()));
         stats.addNormsMemoryInBytes(guardedRamBytesUsed(segmentReader.getNormsReader()));
         stats.addPointsMemoryInBytes(guardedRamBytesUsed(segmentReader.getPointsReader()));
         stats.addDocValuesMemoryInBytes(guardedRamBytesUsed(segmentReader.getDocValuesReader()));
+        stats.addBloomFilterMemoryInBytes(bloomFilterBytes);
 
         if (includeSegmentFileSizes) {
             // TODO: consider moving this to StoreStats
@@ -125,6 +125,15 @@ public final class EngineConfig {
     public static final Setting<Boolean> INDEX_OPTIMIZE_AUTO_GENERATED_IDS = Setting.boolSetting("index.optimize_auto_generated_id", true,
         Property.IndexScope, Property.Dynamic);
 
+    /**
+     * Configures whether the version map stores the versions of the documents that were indexed since the last refresh in paged
+     * primitive arrays rather than in one object per document. This reduces the heap usage and the garbage collection pressure of
+     * update-heavy workloads but makes lookups slightly more expensive. The version map is created with the engine, so this setting can
+     * only be set when the index is created or while it is closed. The default is <code>false</code>
+     */
+    public static final Setting<Boolean> INDEX_PACKED_VERSION_MAP = Setting.boolSetting("index.packed_version_map", false,
+        Property.IndexScope);
+
     private final TranslogConfig translogConfig;
 
     /**
@@ -346,6 +355,13 @@ public final class EngineConfig {
         return indexSettings.getValue(INDEX_OPTIMIZE_AUTO_GENERATED_IDS);
     }
 
+    /**
+     * returns true if the version map should store its entries in paged primitive arrays
+     */
+    public boolean isPackedVersionMapEnabled() {
+        return indexSettings.getValue(INDEX_PACKED_VERSION_MAP);
+    }
+
     /**
      * Return the sort order of this index, or null if the index has no sort.
      */
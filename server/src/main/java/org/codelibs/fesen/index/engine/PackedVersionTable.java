@@ -0,0 +1,227 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.codelibs.fesen.index.engine;
+
+import com.carrotsearch.hppc.BitMixer;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.BytesRef;
+import org.codelibs.fesen.common.util.BigArrays;
+import org.codelibs.fesen.common.util.BytesRefHash;
+import org.codelibs.fesen.common.util.IntArray;
+import org.codelibs.fesen.common.util.LongArray;
+import org.codelibs.fesen.index.translog.Translog;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A map from _uid to {@link IndexVersionValue} that stores its entries in flat, paged {@link BigArrays} columns instead of one
+ * {@link BytesRef} and one {@link IndexVersionValue} object per document. The _uid bytes are kept in an open-addressed
+ * {@link BytesRefHash} whose ids index the version, seq# and term columns as well as the columns of the translog location.
+ *
+ * The table is split into segments that are each guarded by their own monitor so that concurrent indexing of different
+ * documents rarely contends. Entries cannot be removed from a {@link BytesRefHash}, so removed entries are only marked as such
+ * and their _uid is kept until the table is dropped, which happens on every refresh in {@link LiveVersionMap}.
+ *
+ * Values are materialized on read, so callers must not rely on the identity of the returned objects.
+ */
+final class PackedVersionTable implements Accountable {
+
+    private static final int NUM_SEGMENTS = 16;
+    private static final int SEGMENT_SHIFT = Integer.SIZE - Integer.numberOfTrailingZeros(NUM_SEGMENTS);
+    private static final int INITIAL_SEGMENT_CAPACITY = 16;
+
+    // the translog generation of entries without a translog location and of removed entries, translog generations are positive
+    private static final long NO_LOCATION = -1;
+    private static final long REMOVED = -2;
+
+    /*
+     * Pages are not recycled: a concurrent reader may still look up the table of the previous refresh cycle after the
+     * table has been dropped, so the pages are left to the garbage collector.
+     */
+    private static final BigArrays BIG_ARRAYS = BigArrays.NON_RECYCLING_INSTANCE;
+
+    private final Segment[] segments = new Segment[NUM_SEGMENTS];
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong ramBytesUsed = new AtomicLong();
+
+    PackedVersionTable() {
+        long ramBytesUsed = 0;
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment(INITIAL_SEGMENT_CAPACITY);
+            ramBytesUsed += segments[i].ramBytesUsed();
+        }
+        this.ramBytesUsed.set(ramBytesUsed);
+    }
+
+    private Segment segment(BytesRef uid) {
+        // the hash table picks slots with the low bits of the mixed hash, use the high bits to pick segments
+        return segments[BitMixer.mix32(uid.hashCode()) >>> SEGMENT_SHIFT];
+    }
+
+    IndexVersionValue get(BytesRef uid) {
+        final Segment segment = segment(uid);
+        synchronized (segment) {
+            return segment.get(segment.ids.find(uid));
+        }
+    }
+
+    /**
+     * Associates the given value with the uid and returns the previous value or {@code null} if there was none.
+     */
+    IndexVersionValue put(BytesRef uid, IndexVersionValue value) {
+        final Segment segment = segment(uid);
+        synchronized (segment) {
+            final long ramBytesUsedBefore = segment.ramBytesUsed();
+            long id = segment.ids.add(uid);
+            final IndexVersionValue previous;
+            if (id < 0) {
+                id = -1 - id;
+                previous = segment.get(id);
+            } else {
+                segment.grow(id + 1);
+                previous = null;
+            }
+            segment.set(id, value);
+            if (previous == null) {
+                size.incrementAndGet();
+            }
+            ramBytesUsed.addAndGet(segment.ramBytesUsed() - ramBytesUsedBefore);
+            return previous;
+        }
+    }
+
+    /**
+     * Removes the value of the given uid and returns it or {@code null} if there was none.
+     */
+    IndexVersionValue remove(BytesRef uid) {
+        final Segment segment = segment(uid);
+        synchronized (segment) {
+            final long id = segment.ids.find(uid);
+            final IndexVersionValue previous = segment.get(id);
+            if (previous != null) {
+                segment.locationGenerations.set(id, REMOVED);
+                size.decrementAndGet();
+            }
+            return previous;
+        }
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    /**
+     * Returns a copy of the entries of this table.
+     */
+    Map<BytesRef, VersionValue> toMap() {
+        final Map<BytesRef, VersionValue> map = new HashMap<>();
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                final BytesRef spare = new BytesRef();
+                for (long id = 0; id < segment.ids.size(); id++) {
+                    final IndexVersionValue value = segment.get(id);
+                    if (value != null) {
+                        map.put(BytesRef.deepCopyOf(segment.ids.get(id, spare)), value);
+                    }
+                }
+            }
+        }
+        return map;
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return ramBytesUsed.get();
+    }
+
+    @Override
+    public Collection<Accountable> getChildResources() {
+        return Collections.emptyList();
+    }
+
+    private static final class Segment {
+
+        final BytesRefHash ids;
+        LongArray versions;
+        LongArray seqNos;
+        LongArray terms;
+        // also tells whether the entry has a location or was removed
+        LongArray locationGenerations;
+        LongArray locationOffsets;
+        IntArray locationSizes;
+
+        Segment(int capacity) {
+            ids = new BytesRefHash(capacity, BIG_ARRAYS);
+            versions = BIG_ARRAYS.newLongArray(capacity, false);
+            seqNos = BIG_ARRAYS.newLongArray(capacity, false);
+            terms = BIG_ARRAYS.newLongArray(capacity, false);
+            locationGenerations = BIG_ARRAYS.newLongArray(capacity, false);
+            locationOffsets = BIG_ARRAYS.newLongArray(capacity, false);
+            locationSizes = BIG_ARRAYS.newIntArray(capacity, false);
+        }
+
+        void grow(long minSize) {
+            versions = BIG_ARRAYS.grow(versions, minSize);
+            seqNos = BIG_ARRAYS.grow(seqNos, minSize);
+            terms = BIG_ARRAYS.grow(terms, minSize);
+            locationGenerations = BIG_ARRAYS.grow(locationGenerations, minSize);
+            locationOffsets = BIG_ARRAYS.grow(locationOffsets, minSize);
+            locationSizes = BIG_ARRAYS.grow(locationSizes, minSize);
+        }
+
+        IndexVersionValue get(long id) {
+            if (id < 0) {
+                return null;
+            }
+            final long locationGeneration = locationGenerations.get(id);
+            if (locationGeneration == REMOVED) {
+                return null;
+            }
+            final Translog.Location location = locationGeneration == NO_LOCATION ? null
+                : new Translog.Location(locationGeneration, locationOffsets.get(id), locationSizes.get(id));
+            return new IndexVersionValue(location, versions.get(id), seqNos.get(id), terms.get(id));
+        }
+
+        void set(long id, IndexVersionValue value) {
+            versions.set(id, value.version);
+            seqNos.set(id, value.seqNo);
+            terms.set(id, value.term);
+            final Translog.Location location = value.getLocation();
+            if (location == null) {
+                locationGenerations.set(id, NO_LOCATION);
+            } else {
+                assert location.generation >= 0 : "invalid translog generation " + location.generation;
+                locationGenerations.set(id, location.generation);
+                locationOffsets.set(id, location.translogLocation);
+                locationSizes.set(id, location.size);
+            }
+        }
+
+        long ramBytesUsed() {
+            return ids.ramBytesUsed() + versions.ramBytesUsed() + seqNos.ramBytesUsed() + terms.ramBytesUsed()
+                + locationGenerations.ramBytesUsed() + locationOffsets.ramBytesUsed() + locationSizes.ramBytesUsed();
+        }
+    }
+}
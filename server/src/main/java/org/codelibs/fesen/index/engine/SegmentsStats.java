@@ -21,6 +21,7 @@ package org.codelibs.fesen.index.engine;
 
 import com.carrotsearch.hppc.cursors.ObjectObjectCursor;
 
+import org.codelibs.fesen.Version;
 import org.codelibs.fesen.common.collect.ImmutableOpenMap;
 import org.codelibs.fesen.common.io.stream.StreamInput;
 import org.codelibs.fesen.common.io.stream.StreamOutput;
@@ -45,6 +46,7 @@ public class SegmentsStats implements Writeable, ToXContentFragment {
     private long versionMapMemoryInBytes;
     private long maxUnsafeAutoIdTimestamp = Long.MIN_VALUE;
     private long bitsetMemoryInBytes;
+    private long bloomFilterMemoryInBytes;
     private ImmutableOpenMap<String, Long> fileSizes = ImmutableOpenMap.of();
 
     /*
@@ -73,6 +75,7 @@ public class SegmentsStats implements Writeable, ToXContentFragment {
             .fPut("tvd", "Term Vector Documents")
             .fPut("tvf", "Term Vector Fields")
             .fPut("liv", "Live Documents")
+            .fPut("blm", "Bloom Filter")
             .build();
 
     public SegmentsStats() {}
@@ -90,6 +93,9 @@ public class SegmentsStats implements Writeable, ToXContentFragment {
         versionMapMemoryInBytes = in.readLong();
         bitsetMemoryInBytes = in.readLong();
         maxUnsafeAutoIdTimestamp = in.readLong();
+        if (in.getVersion().onOrAfter(Version.V_0_13_1)) {
+            bloomFilterMemoryInBytes = in.readLong();
+        }
 
         int size = in.readVInt();
         ImmutableOpenMap.Builder<String, Long> map = ImmutableOpenMap.builder(size);
@@ -146,6 +152,10 @@ public class SegmentsStats implements Writeable, ToXContentFragment {
         this.bitsetMemoryInBytes += bitsetMemoryInBytes;
     }
 
+    public void addBloomFilterMemoryInBytes(long bloomFilterMemoryInBytes) {
+        this.bloomFilterMemoryInBytes += bloomFilterMemoryInBytes;
+    }
+
     public void addFileSizes(ImmutableOpenMap<String, Long> fileSizes) {
         ImmutableOpenMap.Builder<String, Long> map = ImmutableOpenMap.builder(this.fileSizes);
 
@@ -176,6 +186,7 @@ public class SegmentsStats implements Writeable, ToXContentFragment {
         addIndexWriterMemoryInBytes(mergeStats.indexWriterMemoryInBytes);
         addVersionMapMemoryInBytes(mergeStats.versionMapMemoryInBytes);
         addBitsetMemoryInBytes(mergeStats.bitsetMemoryInBytes);
+        addBloomFilterMemoryInBytes(mergeStats.bloomFilterMemoryInBytes);
         addFileSizes(mergeStats.fileSizes);
     }
 
@@ -296,6 +307,18 @@ public class SegmentsStats implements Writeable, ToXContentFragment {
         return new ByteSizeValue(bitsetMemoryInBytes);
     }
 
+    /**
+     * Estimation of the memory usage of the bloom filters of the <code>_id</code> field. It is not part of the
+     * {@link #getTermsMemoryInBytes() terms memory}.
+     */
+    public long getBloomFilterMemoryInBytes() {
+        return bloomFilterMemoryInBytes;
+    }
+
+    public ByteSizeValue getBloomFilterMemory() {
+        return new ByteSizeValue(bloomFilterMemoryInBytes);
+    }
+
     public ImmutableOpenMap<String, Long> getFileSizes() {
         return fileSizes;
     }
@@ -322,6 +345,7 @@ public class SegmentsStats implements Writeable, ToXContentFragment {
         builder.humanReadableField(Fields.INDEX_WRITER_MEMORY_IN_BYTES, Fields.INDEX_WRITER_MEMORY, getIndexWriterMemory());
         builder.humanReadableField(Fields.VERSION_MAP_MEMORY_IN_BYTES, Fields.VERSION_MAP_MEMORY, getVersionMapMemory());
         builder.humanReadableField(Fields.FIXED_BIT_SET_MEMORY_IN_BYTES, Fields.FIXED_BIT_SET, getBitsetMemory());
+        builder.humanReadableField(Fields.BLOOM_FILTER_MEMORY_IN_BYTES, Fields.BLOOM_FILTER_MEMORY, getBloomFilterMemory());
         builder.field(Fields.MAX_UNSAFE_AUTO_ID_TIMESTAMP, maxUnsafeAutoIdTimestamp);
         builder.startObject(Fields.FILE_SIZES);
         for (ObjectObjectCursor<String, Long> entry : fileSizes) {
@@ -359,6 +383,8 @@ public class SegmentsStats implements Writeable, ToXContentFragment {
         static final String MAX_UNSAFE_AUTO_ID_TIMESTAMP = "max_unsafe_auto_id_timestamp";
         static final String FIXED_BIT_SET = "fixed_bit_set";
         static final String FIXED_BIT_SET_MEMORY_IN_BYTES = "fixed_bit_set_memory_in_bytes";
+        static final String BLOOM_FILTER_MEMORY = "bloom_filter_memory";
+        static final String BLOOM_FILTER_MEMORY_IN_BYTES = "bloom_filter_memory_in_bytes";
         static final String FILE_SIZES = "file_sizes";
         static final String SIZE = "size";
         static final String SIZE_IN_BYTES = "size_in_bytes";
@@ -379,6 +405,9 @@ public class SegmentsStats implements Writeable, ToXContentFragment {
         out.writeLong(versionMapMemoryInBytes);
         out.writeLong(bitsetMemoryInBytes);
         out.writeLong(maxUnsafeAutoIdTimestamp);
+        if (out.getVersion().onOrAfter(Version.V_0_13_1)) {
+            out.writeLong(bloomFilterMemoryInBytes);
+        }
 
         out.writeVInt(fileSizes.size());
         for (ObjectObjectCursor<String, Long> entry : fileSizes) {
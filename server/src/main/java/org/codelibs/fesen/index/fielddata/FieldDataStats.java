@@ -19,12 +19,14 @@
 
 package org.codelibs.fesen.index.fielddata;
 
+import org.codelibs.fesen.Version;
 import org.codelibs.fesen.common.FieldMemoryStats;
 import org.codelibs.fesen.common.Nullable;
 import org.codelibs.fesen.common.io.stream.StreamInput;
 import org.codelibs.fesen.common.io.stream.StreamOutput;
 import org.codelibs.fesen.common.io.stream.Writeable;
 import org.codelibs.fesen.common.unit.ByteSizeValue;
+import org.codelibs.fesen.common.unit.TimeValue;
 import org.codelibs.fesen.common.xcontent.ToXContentFragment;
 import org.codelibs.fesen.common.xcontent.XContentBuilder;
 
@@ -38,10 +40,18 @@ public class FieldDataStats implements Writeable, ToXContentFragment {
     private static final String MEMORY_SIZE_IN_BYTES = "memory_size_in_bytes";
     private static final String EVICTIONS = "evictions";
     private static final String FIELDS = "fields";
+    private static final String GLOBAL_ORDINALS = "global_ordinals";
+    private static final String BUILD_COUNT = "build_count";
+    private static final String INCREMENTAL_BUILD_COUNT = "incremental_build_count";
+    private static final String BUILD_TIME = "build_time";
+    private static final String BUILD_TIME_IN_MILLIS = "build_time_in_millis";
     private long memorySize;
     private long evictions;
     @Nullable
     private FieldMemoryStats fields;
+    private long globalOrdinalsBuildCount;
+    private long globalOrdinalsIncrementalBuildCount;
+    private long globalOrdinalsBuildTimeInMillis;
 
     public FieldDataStats() {
 
@@ -51,17 +61,33 @@ public class FieldDataStats implements Writeable, ToXContentFragment {
         memorySize = in.readVLong();
         evictions = in.readVLong();
         fields = in.readOptionalWriteable(FieldMemoryStats::new);
+        if (in.getVersion().onOrAfter(Version.V_0_13_1)) {
+            globalOrdinalsBuildCount = in.readVLong();
+            globalOrdinalsIncrementalBuildCount = in.readVLong();
+            globalOrdinalsBuildTimeInMillis = in.readVLong();
+        }
     }
 
     public FieldDataStats(long memorySize, long evictions, @Nullable FieldMemoryStats fields) {
+        this(memorySize, evictions, fields, 0, 0, 0);
+    }
+
+    public FieldDataStats(long memorySize, long evictions, @Nullable FieldMemoryStats fields, long globalOrdinalsBuildCount,
+                          long globalOrdinalsIncrementalBuildCount, long globalOrdinalsBuildTimeInMillis) {
         this.memorySize = memorySize;
         this.evictions = evictions;
         this.fields = fields;
+        this.globalOrdinalsBuildCount = globalOrdinalsBuildCount;
+        this.globalOrdinalsIncrementalBuildCount = globalOrdinalsIncrementalBuildCount;
+        this.globalOrdinalsBuildTimeInMillis = globalOrdinalsBuildTimeInMillis;
     }
 
     public void add(FieldDataStats stats) {
         this.memorySize += stats.memorySize;
         this.evictions += stats.evictions;
+        this.globalOrdinalsBuildCount += stats.globalOrdinalsBuildCount;
+        this.globalOrdinalsIncrementalBuildCount += stats.globalOrdinalsIncrementalBuildCount;
+        this.globalOrdinalsBuildTimeInMillis += stats.globalOrdinalsBuildTimeInMillis;
         if (stats.fields != null) {
             if (fields == null) {
                 fields = stats.fields.copy();
@@ -88,11 +114,31 @@ public class FieldDataStats implements Writeable, ToXContentFragment {
         return fields;
     }
 
+    /** the number of times global ordinals were built */
+    public long getGlobalOrdinalsBuildCount() {
+        return globalOrdinalsBuildCount;
+    }
+
+    /** the number of times global ordinals were built incrementally from the global ordinals of a previous reader */
+    public long getGlobalOrdinalsIncrementalBuildCount() {
+        return globalOrdinalsIncrementalBuildCount;
+    }
+
+    /** the total time spent building global ordinals */
+    public long getGlobalOrdinalsBuildTimeInMillis() {
+        return globalOrdinalsBuildTimeInMillis;
+    }
+
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         out.writeVLong(memorySize);
         out.writeVLong(evictions);
         out.writeOptionalWriteable(fields);
+        if (out.getVersion().onOrAfter(Version.V_0_13_1)) {
+            out.writeVLong(globalOrdinalsBuildCount);
+            out.writeVLong(globalOrdinalsIncrementalBuildCount);
+            out.writeVLong(globalOrdinalsBuildTimeInMillis);
+        }
     }
 
     @Override
@@ -100,6 +146,11 @@ public class FieldDataStats implements Writeable, ToXContentFragment {
         builder.startObject(FIELDDATA);
         builder.humanReadableField(MEMORY_SIZE_IN_BYTES, MEMORY_SIZE, getMemorySize());
         builder.field(EVICTIONS, getEvictions());
+        builder.startObject(GLOBAL_ORDINALS);
+        builder.field(BUILD_COUNT, globalOrdinalsBuildCount);
+        builder.field(INCREMENTAL_BUILD_COUNT, globalOrdinalsIncrementalBuildCount);
+        builder.humanReadableField(BUILD_TIME_IN_MILLIS, BUILD_TIME, new TimeValue(globalOrdinalsBuildTimeInMillis));
+        builder.endObject();
         if (fields != null) {
             fields.toXContent(builder, FIELDS, MEMORY_SIZE_IN_BYTES, MEMORY_SIZE);
         }
@@ -114,11 +165,15 @@ public class FieldDataStats implements Writeable, ToXContentFragment {
         FieldDataStats that = (FieldDataStats) o;
         return memorySize == that.memorySize &&
             evictions == that.evictions &&
-            Objects.equals(fields, that.fields);
+            Objects.equals(fields, that.fields) &&
+            globalOrdinalsBuildCount == that.globalOrdinalsBuildCount &&
+            globalOrdinalsIncrementalBuildCount == that.globalOrdinalsIncrementalBuildCount &&
+            globalOrdinalsBuildTimeInMillis == that.globalOrdinalsBuildTimeInMillis;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(memorySize, evictions, fields);
+        return Objects.hash(memorySize, evictions, fields, globalOrdinalsBuildCount, globalOrdinalsIncrementalBuildCount,
+            globalOrdinalsBuildTimeInMillis);
     }
 }
@@ -254,5 +254,13 @@ public interface IndexFieldData<FD extends LeafFieldData> {
 
         IndexFieldData<FD> loadGlobalDirect(DirectoryReader indexReader) throws Exception;
 
+        /**
+         * Like {@link #loadGlobalDirect(DirectoryReader)}, but may reuse what was loaded for a previous, still open reader
+         * of the same shard to load the global field data of this reader incrementally.
+         */
+        default IndexFieldData<FD> loadGlobalDirect(DirectoryReader indexReader, @Nullable IndexFieldData<?> previous) throws Exception {
+            return loadGlobalDirect(indexReader);
+        }
+
     }
 }
@@ -44,6 +44,15 @@ public interface IndexFieldDataCache {
      */
     void clear(String fieldName);
 
+    /**
+     * Returns whether global field data is currently cached for a reader of the given shard and was looked up in the cache
+     * within the last {@code maxIdleNanos}, loads that built it don't count. Such field data is maintained across refreshes
+     * by the warmer, see {@link IndexFieldData.Global#loadGlobalDirect(DirectoryReader, IndexFieldData)}.
+     */
+    default boolean hasRecentlyUsedGlobal(ShardId shardId, long maxIdleNanos) {
+        return false;
+    }
+
     interface Listener {
 
         /**
@@ -23,6 +23,7 @@ import org.apache.lucene.util.Accountable;
 import org.codelibs.fesen.ExceptionsHelper;
 import org.codelibs.fesen.common.settings.Setting;
 import org.codelibs.fesen.common.settings.Setting.Property;
+import org.codelibs.fesen.common.unit.TimeValue;
 import org.codelibs.fesen.index.AbstractIndexComponent;
 import org.codelibs.fesen.index.IndexSettings;
 import org.codelibs.fesen.index.mapper.MappedFieldType;
@@ -138,6 +139,15 @@ public class IndexFieldDataService extends AbstractIndexComponent implements Clo
         return (IFD) builder.build(cache, circuitBreakerService);
     }
 
+    /**
+     * Returns whether global field data of the given field is currently cached for a reader of the given shard and was
+     * used within the given time.
+     */
+    public synchronized boolean hasRecentlyUsedGlobalForField(ShardId shardId, String fieldName, TimeValue maxIdle) {
+        final IndexFieldDataCache cache = fieldDataCaches.get(fieldName);
+        return cache != null && cache.hasRecentlyUsedGlobal(shardId, maxIdle.nanos());
+    }
+
     /**
      * Sets a {@link org.codelibs.fesen.index.fielddata.IndexFieldDataCache.Listener} passed to each {@link IndexFieldData}
      * creation to capture onCache and onRemoval events. Setting a listener on this method will override any previously
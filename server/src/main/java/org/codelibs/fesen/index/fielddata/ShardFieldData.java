@@ -26,15 +26,20 @@ import org.codelibs.fesen.common.metrics.CounterMetric;
 import org.codelibs.fesen.common.regex.Regex;
 import org.codelibs.fesen.common.util.CollectionUtils;
 import org.codelibs.fesen.common.util.concurrent.ConcurrentCollections;
+import org.codelibs.fesen.index.fielddata.ordinals.GlobalOrdinalsIndexFieldData;
 import org.codelibs.fesen.index.shard.ShardId;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 public class ShardFieldData implements IndexFieldDataCache.Listener {
 
     private final CounterMetric evictionsMetric = new CounterMetric();
     private final CounterMetric totalMetric = new CounterMetric();
+    private final CounterMetric globalOrdinalsBuildMetric = new CounterMetric();
+    private final CounterMetric globalOrdinalsIncrementalBuildMetric = new CounterMetric();
+    private final CounterMetric globalOrdinalsBuildTimeInNanosMetric = new CounterMetric();
     private final ConcurrentMap<String, CounterMetric> perFieldTotals = ConcurrentCollections.newConcurrentMap();
 
     public FieldDataStats stats(String... fields) {
@@ -48,12 +53,21 @@ public class ShardFieldData implements IndexFieldDataCache.Listener {
             }
         }
         return new FieldDataStats(totalMetric.count(), evictionsMetric.count(), fieldTotals == null ? null :
-            new FieldMemoryStats(fieldTotals));
+            new FieldMemoryStats(fieldTotals), globalOrdinalsBuildMetric.count(), globalOrdinalsIncrementalBuildMetric.count(),
+            TimeUnit.NANOSECONDS.toMillis(globalOrdinalsBuildTimeInNanosMetric.count()));
     }
 
     @Override
     public void onCache(ShardId shardId, String fieldName, Accountable ramUsage) {
         totalMetric.inc(ramUsage.ramBytesUsed());
+        if (ramUsage instanceof GlobalOrdinalsIndexFieldData) {
+            final GlobalOrdinalsIndexFieldData globalOrdinals = (GlobalOrdinalsIndexFieldData) ramUsage;
+            globalOrdinalsBuildMetric.inc();
+            if (globalOrdinals.isIncrementalBuild()) {
+                globalOrdinalsIncrementalBuildMetric.inc();
+            }
+            globalOrdinalsBuildTimeInNanosMetric.inc(globalOrdinals.getBuildTimeInNanos());
+        }
         CounterMetric total = perFieldTotals.get(fieldName);
         if (total != null) {
             total.inc(ramUsage.ramBytesUsed());
@@ -20,12 +20,22 @@
 package org.codelibs.fesen.index.fielddata.ordinals;
 
 import org.apache.logging.log4j.Logger;
+import org.apache.lucene.index.BaseTermsEnum;
 import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.ImpactsEnum;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.OrdinalMap;
+import org.apache.lucene.index.PostingsEnum;
 import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
+import org.apache.lucene.util.LongValues;
 import org.apache.lucene.util.packed.PackedInts;
+import org.codelibs.fesen.common.Nullable;
 import org.codelibs.fesen.common.breaker.CircuitBreaker;
 import org.codelibs.fesen.common.unit.TimeValue;
 import org.codelibs.fesen.index.fielddata.IndexOrdinalsFieldData;
@@ -37,6 +47,8 @@ import org.codelibs.fesen.indices.breaker.CircuitBreakerService;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
@@ -46,38 +58,305 @@ import java.util.function.Function;
 public enum GlobalOrdinalsBuilder {
     ;
 
+    /**
+     * The incremental build is only used when the segments that are new since the previous global ordinals hold at most
+     * {@code 1 / MAX_ADDED_VALUES_RATIO} as many values as the previous global ordinals. Larger additions, typically the
+     * result of merges, are cheaper to build from scratch than to position against the previous terms one by one.
+     */
+    static final int MAX_ADDED_VALUES_RATIO = 4;
+
     /**
      * Build global ordinals for the provided {@link IndexReader}.
      */
     public static IndexOrdinalsFieldData build(final IndexReader indexReader, IndexOrdinalsFieldData indexFieldData,
             CircuitBreakerService breakerService, Logger logger,
             Function<SortedSetDocValues, ScriptDocValues<?>> scriptFunction) throws IOException {
+        return build(indexReader, indexFieldData, null, breakerService, logger, scriptFunction);
+    }
+
+    /**
+     * Build global ordinals for the provided {@link IndexReader}, reusing the global ordinals that were built for a
+     * previous reader of the same shard when possible. The previous reader must still be open.
+     */
+    public static IndexOrdinalsFieldData build(final IndexReader indexReader, IndexOrdinalsFieldData indexFieldData,
+            @Nullable GlobalOrdinalsIndexFieldData previous, CircuitBreakerService breakerService, Logger logger,
+            Function<SortedSetDocValues, ScriptDocValues<?>> scriptFunction) throws IOException {
         assert indexReader.leaves().size() > 1;
         long startTimeNS = System.nanoTime();
 
         final LeafOrdinalsFieldData[] atomicFD = new LeafOrdinalsFieldData[indexReader.leaves().size()];
         final SortedSetDocValues[] subs = new SortedSetDocValues[indexReader.leaves().size()];
+        final IndexReader.CacheKey[] segmentKeys = new IndexReader.CacheKey[indexReader.leaves().size()];
         for (int i = 0; i < indexReader.leaves().size(); ++i) {
-            atomicFD[i] = indexFieldData.load(indexReader.leaves().get(i));
+            final LeafReaderContext context = indexReader.leaves().get(i);
+            atomicFD[i] = indexFieldData.load(context);
             subs[i] = atomicFD[i].getOrdinalsValues();
+            final IndexReader.CacheHelper cacheHelper = context.reader().getCoreCacheHelper();
+            segmentKeys[i] = cacheHelper == null ? null : cacheHelper.getKey();
+        }
+        OrdinalMap ordinalMap = null;
+        if (previous != null) {
+            try {
+                ordinalMap = buildIncrementally(previous, segmentKeys, subs);
+            } catch (AlreadyClosedException | IOException e) {
+                // the previous reader was closed concurrently, which some directories report as an IOException such as a
+                // ClosedChannelException, fall back to a full build that also surfaces genuine read failures of this reader
+                logger.trace("previous global ordinals are no longer readable, building from scratch", e);
+            }
+        }
+        final boolean incremental = ordinalMap != null;
+        if (ordinalMap == null) {
+            ordinalMap = OrdinalMap.build(null, subs, PackedInts.DEFAULT);
         }
-        final OrdinalMap ordinalMap = OrdinalMap.build(null, subs, PackedInts.DEFAULT);
         final long memorySizeInBytes = ordinalMap.ramBytesUsed();
         breakerService.getBreaker(CircuitBreaker.FIELDDATA).addWithoutBreaking(memorySizeInBytes);
 
+        final long buildTimeInNanos = System.nanoTime() - startTimeNS;
         if (logger.isDebugEnabled()) {
             logger.debug(
-                    "global-ordinals [{}][{}] took [{}]",
+                    "global-ordinals [{}][{}] took [{}] (incremental [{}])",
                     indexFieldData.getFieldName(),
                     ordinalMap.getValueCount(),
-                    new TimeValue(System.nanoTime() - startTimeNS, TimeUnit.NANOSECONDS)
+                    new TimeValue(buildTimeInNanos, TimeUnit.NANOSECONDS),
+                    incremental
             );
         }
         return new GlobalOrdinalsIndexFieldData(indexFieldData.getFieldName(), indexFieldData.getValuesSourceType(),
-                atomicFD, ordinalMap, memorySizeInBytes, scriptFunction
+                atomicFD, segmentKeys, ordinalMap, memorySizeInBytes, scriptFunction, buildTimeInNanos, incremental
         );
     }
 
+    /**
+     * Builds the {@link OrdinalMap} of the provided segments from the global ordinals of a previous reader, or returns
+     * {@code null} if the segments don't share enough with the previous reader for this to pay off.
+     * <p>
+     * Instead of merging the terms of all segments, the segments are merged on sort keys that order exactly like their
+     * terms. A segment that was already part of the previous reader uses the key {@code 2g+1} for a term whose previous
+     * global ordinal is {@code g}, which doesn't require reading its terms at all. The terms of a new segment are
+     * positioned against the previous global terms: a term that was already known gets the same key, and an unknown
+     * term whose insertion point is {@code p} gets the key {@code 2p} followed by the term itself. The resulting map is
+     * the same as the one that {@link OrdinalMap#build} creates from the actual terms.
+     */
+    static OrdinalMap buildIncrementally(GlobalOrdinalsIndexFieldData previous, IndexReader.CacheKey[] segmentKeys,
+            SortedSetDocValues[] subs) throws IOException {
+        final OrdinalMap previousMap = previous.getOrdinalMap();
+        final IndexReader.CacheKey[] previousKeys = previous.getSegmentKeys();
+        final Map<IndexReader.CacheKey, Integer> previousSegments = new HashMap<>();
+        for (int i = 0; i < previousKeys.length; i++) {
+            if (previousKeys[i] == null) {
+                return null;
+            }
+            previousSegments.put(previousKeys[i], i);
+        }
+        final int[] previousSegment = new int[subs.length];
+        boolean reused = false;
+        long addedValueCount = 0;
+        for (int i = 0; i < subs.length; i++) {
+            final Integer segment = segmentKeys[i] == null ? null : previousSegments.get(segmentKeys[i]);
+            if (segment == null) {
+                previousSegment[i] = -1;
+                addedValueCount += subs[i].getValueCount();
+            } else {
+                previousSegment[i] = segment;
+                reused = true;
+            }
+        }
+        if (reused == false || addedValueCount > previousMap.getValueCount() / MAX_ADDED_VALUES_RATIO) {
+            return null;
+        }
+
+        final PreviousTerms previousTerms = new PreviousTerms(previous);
+        final TermsEnum[] enums = new TermsEnum[subs.length];
+        final long[] weights = new long[subs.length];
+        for (int i = 0; i < subs.length; i++) {
+            weights[i] = subs[i].getValueCount();
+            if (previousSegment[i] >= 0) {
+                enums[i] = new ReusedSegmentTermsEnum(previousMap.getGlobalOrds(previousSegment[i]), subs[i].getValueCount());
+            } else {
+                enums[i] = new AddedSegmentTermsEnum(subs[i].termsEnum(), previousTerms);
+            }
+        }
+        return OrdinalMap.build(null, enums, weights, PackedInts.DEFAULT);
+    }
+
+    /**
+     * Random access to the terms of previous global ordinals.
+     */
+    private static final class PreviousTerms {
+        private final OrdinalMap ordinalMap;
+        private final LeafOrdinalsFieldData[] segmentAfd;
+        private final SortedSetDocValues[] lookups;
+
+        PreviousTerms(GlobalOrdinalsIndexFieldData previous) {
+            this.ordinalMap = previous.getOrdinalMap();
+            this.segmentAfd = previous.getSegmentFieldData();
+            this.lookups = new SortedSetDocValues[segmentAfd.length];
+        }
+
+        long valueCount() {
+            return ordinalMap.getValueCount();
+        }
+
+        BytesRef lookupOrd(long globalOrd) throws IOException {
+            final int segment = ordinalMap.getFirstSegmentNumber(globalOrd);
+            if (lookups[segment] == null) {
+                lookups[segment] = segmentAfd[segment].getOrdinalsValues();
+            }
+            return lookups[segment].lookupOrd(ordinalMap.getFirstSegmentOrd(globalOrd));
+        }
+
+        /**
+         * Returns the first global ordinal greater than or equal to {@code from} whose term is greater than or equal to
+         * {@code target}, or {@link #valueCount()} if there is none. Gallops from {@code from} so that walking sorted
+         * targets only costs a logarithmic number of lookups per target.
+         */
+        long ceiling(BytesRef target, long from) throws IOException {
+            final long valueCount = valueCount();
+            long low = from;
+            long high;
+            long bound = 1;
+            while (true) {
+                final long probe = from + bound - 1;
+                if (probe >= valueCount) {
+                    high = valueCount;
+                    break;
+                }
+                if (lookupOrd(probe).compareTo(target) >= 0) {
+                    high = probe;
+                    break;
+                }
+                low = probe + 1;
+                bound <<= 1;
+            }
+            while (low < high) {
+                final long mid = (low + high) >>> 1;
+                if (lookupOrd(mid).compareTo(target) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * A {@link TermsEnum} over the sort keys of a segment, only supports what {@link OrdinalMap#build} needs.
+     */
+    private abstract static class SortKeyTermsEnum extends BaseTermsEnum {
+        protected final BytesRefBuilder key = new BytesRefBuilder();
+
+        /**
+         * Sets the key to the big-endian encoding of {@code prefix}.
+         */
+        protected final void setKey(long prefix) {
+            key.grow(Long.BYTES);
+            key.setLength(Long.BYTES);
+            for (int i = 0; i < Long.BYTES; i++) {
+                key.setByteAt(i, (byte) (prefix >>> (56 - 8 * i)));
+            }
+        }
+
+        @Override
+        public BytesRef term() {
+            return key.get();
+        }
+
+        @Override
+        public SeekStatus seekCeil(BytesRef text) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void seekExact(long ord) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int docFreq() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long totalTermFreq() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public PostingsEnum postings(PostingsEnum reuse, int flags) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ImpactsEnum impacts(int flags) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Sort keys of a segment that was part of the previous reader, derived from its previous global ordinals.
+     */
+    private static final class ReusedSegmentTermsEnum extends SortKeyTermsEnum {
+        private final LongValues globalOrds;
+        private final long valueCount;
+        private long ord = -1;
+
+        ReusedSegmentTermsEnum(LongValues globalOrds, long valueCount) {
+            this.globalOrds = globalOrds;
+            this.valueCount = valueCount;
+        }
+
+        @Override
+        public BytesRef next() {
+            if (++ord >= valueCount) {
+                return null;
+            }
+            setKey(2 * globalOrds.get(ord) + 1);
+            return key.get();
+        }
+
+        @Override
+        public long ord() {
+            return ord;
+        }
+    }
+
+    /**
+     * Sort keys of a segment that is new since the previous reader, derived from its terms.
+     */
+    private static final class AddedSegmentTermsEnum extends SortKeyTermsEnum {
+        private final TermsEnum in;
+        private final PreviousTerms previousTerms;
+        private long position = 0;
+
+        AddedSegmentTermsEnum(TermsEnum in, PreviousTerms previousTerms) {
+            this.in = in;
+            this.previousTerms = previousTerms;
+        }
+
+        @Override
+        public BytesRef next() throws IOException {
+            final BytesRef term = in.next();
+            if (term == null) {
+                return null;
+            }
+            // terms come in order, so the insertion point of the next term is never before this one
+            position = previousTerms.ceiling(term, position);
+            if (position < previousTerms.valueCount() && previousTerms.lookupOrd(position).bytesEquals(term)) {
+                setKey(2 * position + 1);
+            } else {
+                setKey(2 * position);
+                key.append(term);
+            }
+            return key.get();
+        }
+
+        @Override
+        public long ord() throws IOException {
+            return in.ord();
+        }
+    }
+
     public static IndexOrdinalsFieldData buildEmpty(IndexReader indexReader, IndexOrdinalsFieldData indexFieldData) throws IOException {
         assert indexReader.leaves().size() > 1;
 
@@ -108,7 +387,8 @@ public enum GlobalOrdinalsBuilder {
         }
         final OrdinalMap ordinalMap = OrdinalMap.build(null, subs, PackedInts.DEFAULT);
         return new GlobalOrdinalsIndexFieldData(indexFieldData.getFieldName(), indexFieldData.getValuesSourceType(),
-                atomicFD, ordinalMap, 0, AbstractLeafOrdinalsFieldData.DEFAULT_SCRIPT_FUNCTION
+                atomicFD, new IndexReader.CacheKey[atomicFD.length], ordinalMap, 0, AbstractLeafOrdinalsFieldData.DEFAULT_SCRIPT_FUNCTION,
+                0, false
         );
     }
 
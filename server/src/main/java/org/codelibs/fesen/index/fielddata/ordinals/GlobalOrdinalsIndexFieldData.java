@@ -19,6 +19,7 @@
 package org.codelibs.fesen.index.fielddata.ordinals;
 
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.OrdinalMap;
 import org.apache.lucene.index.SortedSetDocValues;
@@ -61,20 +62,30 @@ public final class GlobalOrdinalsIndexFieldData implements IndexOrdinalsFieldDat
 
     private final OrdinalMap ordinalMap;
     private final LeafOrdinalsFieldData[] segmentAfd;
+    private final IndexReader.CacheKey[] segmentKeys;
     private final Function<SortedSetDocValues, ScriptDocValues<?>> scriptFunction;
+    private final long buildTimeInNanos;
+    private final boolean incrementalBuild;
 
     protected GlobalOrdinalsIndexFieldData(String fieldName,
                                            ValuesSourceType valuesSourceType,
                                            LeafOrdinalsFieldData[] segmentAfd,
+                                           IndexReader.CacheKey[] segmentKeys,
                                            OrdinalMap ordinalMap,
                                            long memorySizeInBytes,
-                                           Function<SortedSetDocValues, ScriptDocValues<?>> scriptFunction) {
+                                           Function<SortedSetDocValues, ScriptDocValues<?>> scriptFunction,
+                                           long buildTimeInNanos,
+                                           boolean incrementalBuild) {
+        assert segmentAfd.length == segmentKeys.length;
         this.fieldName = fieldName;
         this.valuesSourceType = valuesSourceType;
         this.memorySizeInBytes = memorySizeInBytes;
         this.ordinalMap = ordinalMap;
         this.segmentAfd = segmentAfd;
+        this.segmentKeys = segmentKeys;
         this.scriptFunction = scriptFunction;
+        this.buildTimeInNanos = buildTimeInNanos;
+        this.incrementalBuild = incrementalBuild;
     }
 
     public IndexOrdinalsFieldData newConsumer(DirectoryReader source) {
@@ -143,6 +154,35 @@ public final class GlobalOrdinalsIndexFieldData implements IndexOrdinalsFieldDat
         return true;
     }
 
+    /**
+     * The time it took to build these global ordinals.
+     */
+    public long getBuildTimeInNanos() {
+        return buildTimeInNanos;
+    }
+
+    /**
+     * Whether these global ordinals were built incrementally from the global ordinals of a previous reader.
+     */
+    public boolean isIncrementalBuild() {
+        return incrementalBuild;
+    }
+
+    /**
+     * The per-segment field data these global ordinals were built from, in the order of the reader's leaves.
+     */
+    LeafOrdinalsFieldData[] getSegmentFieldData() {
+        return segmentAfd;
+    }
+
+    /**
+     * The core cache keys of the segments these global ordinals were built from, or {@code null} for a segment that
+     * doesn't support caching.
+     */
+    IndexReader.CacheKey[] getSegmentKeys() {
+        return segmentKeys;
+    }
+
     /**
      * A non-thread safe {@link IndexOrdinalsFieldData} for global ordinals that creates the {@link TermsEnum} of each
      * segment once and use them to provide a single lookup per segment.
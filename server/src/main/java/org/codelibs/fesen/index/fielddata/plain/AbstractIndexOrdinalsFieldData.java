@@ -28,6 +28,8 @@ import org.apache.lucene.index.Terms;
 import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.util.BytesRef;
 import org.codelibs.fesen.FesenException;
+import org.codelibs.fesen.common.Nullable;
+import org.codelibs.fesen.index.fielddata.IndexFieldData;
 import org.codelibs.fesen.index.fielddata.IndexFieldDataCache;
 import org.codelibs.fesen.index.fielddata.IndexOrdinalsFieldData;
 import org.codelibs.fesen.index.fielddata.LeafOrdinalsFieldData;
@@ -148,9 +150,15 @@ public abstract class AbstractIndexOrdinalsFieldData implements IndexOrdinalsFie
 
     @Override
     public IndexOrdinalsFieldData loadGlobalDirect(DirectoryReader indexReader) throws Exception {
+        return loadGlobalDirect(indexReader, null);
+    }
+
+    @Override
+    public IndexOrdinalsFieldData loadGlobalDirect(DirectoryReader indexReader, @Nullable IndexFieldData<?> previous) throws Exception {
         return GlobalOrdinalsBuilder.build(
             indexReader,
             this,
+            previous instanceof GlobalOrdinalsIndexFieldData ? (GlobalOrdinalsIndexFieldData) previous : null,
             breakerService,
             logger,
             scriptFunction
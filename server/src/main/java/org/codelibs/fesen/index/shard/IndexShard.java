@@ -28,6 +28,7 @@ import org.apache.lucene.index.FilterDirectoryReader;
 import org.apache.lucene.index.IndexCommit;
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.SegmentReader;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.QueryCachingPolicy;
@@ -135,9 +136,11 @@ import org.codelibs.fesen.index.store.Store.MetadataSnapshot;
 import org.codelibs.fesen.index.translog.Translog;
 import org.codelibs.fesen.index.translog.TranslogConfig;
 import org.codelibs.fesen.index.translog.TranslogStats;
+import org.codelibs.fesen.index.translog.TranslogSyncTracker;
 import org.codelibs.fesen.index.warmer.ShardIndexWarmerService;
 import org.codelibs.fesen.index.warmer.WarmerStats;
 import org.codelibs.fesen.indices.IndexingMemoryController;
+import org.codelibs.fesen.indices.IndicesRequestCache;
 import org.codelibs.fesen.indices.IndicesService;
 import org.codelibs.fesen.indices.TypeMissingException;
 import org.codelibs.fesen.indices.breaker.CircuitBreakerService;
@@ -160,6 +163,7 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.nio.channels.ClosedByInterruptException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -296,7 +300,8 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
             final List<IndexingOperationListener> listeners,
             final Runnable globalCheckpointSyncer,
             final RetentionLeaseSyncer retentionLeaseSyncer,
-            final CircuitBreakerService circuitBreakerService) throws IOException {
+            final CircuitBreakerService circuitBreakerService,
+            final @Nullable TranslogSyncTracker translogSyncTracker) throws IOException {
         super(shardRouting.shardId(), indexSettings);
         assert shardRouting.initializing();
         this.shardRouting = shardRouting;
@@ -324,7 +329,7 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         this.searchOperationListener = new SearchOperationListener.CompositeListener(searchListenersList, logger);
         this.getService = new ShardGetService(indexSettings, this, mapperService);
         this.shardWarmerService = new ShardIndexWarmerService(shardId, indexSettings);
-        this.requestCacheStats = new ShardRequestCache();
+        this.requestCacheStats = new ShardRequestCache(IndicesRequestCache.isDiskTierEnabled(indexSettings.getNodeSettings()));
         this.shardFieldData = new ShardFieldData();
         this.shardBitsetFilterCache = new ShardBitsetFilterCache(shardId, indexSettings);
         state = IndexShardState.CREATED;
@@ -334,7 +339,9 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         logger.debug("state: [CREATED]");
 
         this.checkIndexOnStartup = indexSettings.getValue(IndexSettings.INDEX_CHECK_ON_STARTUP);
-        this.translogConfig = new TranslogConfig(shardId, shardPath().resolveTranslog(), indexSettings, bigArrays);
+        final Path translogPath = shardPath().resolveTranslog();
+        this.translogConfig = new TranslogConfig(shardId, translogPath, indexSettings, bigArrays,
+            translogSyncTracker == null ? null : translogSyncTracker.metricFor(translogPath));
         final String aId = shardRouting.allocationId().getId();
         final long primaryTerm = indexSettings.getIndexMetadata().primaryTerm(shardId.id());
         this.pendingPrimaryTerm = primaryTerm;
@@ -1054,6 +1061,23 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         return engine.getMergeStats();
     }
 
+    /**
+     * Returns whether the given segment of this shard is currently being merged away.
+     */
+    public boolean isMergingSegment(LeafReader reader) {
+        final Engine engine = getEngineOrNull();
+        if (engine == null) {
+            return false;
+        }
+        final SegmentReader segmentReader;
+        try {
+            segmentReader = Lucene.segmentReader(reader);
+        } catch (IllegalStateException e) {
+            return false;
+        }
+        return engine.isMergingSegment(segmentReader.getSegmentName());
+    }
+
     public SegmentsStats segmentStats(boolean includeSegmentFileSizes, boolean includeUnloadedSegments) {
         SegmentsStats segmentsStats = getEngine().segmentsStats(includeSegmentFileSizes, includeUnloadedSegments);
         segmentsStats.addBitsetMemoryInBytes(shardBitsetFilterCache.getMemorySizeInBytes());
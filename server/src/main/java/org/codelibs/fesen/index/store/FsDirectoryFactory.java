@@ -167,6 +167,8 @@ public class FsDirectoryFactory implements IndexStorePlugin.DirectoryFactory {
                 // Compound files are tricky because they store all the information for the segment. Benchmarks
                 // suggested that not mapping them hurts performance.
                 case "cfs":
+                // The FSTs of completion fields can only be loaded off-heap if they are memory-mapped.
+                case "lkp":
                 // MMapDirectory has special logic to read long[] arrays in little-endian order that helps speed
                 // up the decoding of postings. The same logic applies to positions (.pos) of offsets (.pay) but we
                 // are not mmaping them as queries that leverage positions are more costly and the decoding of postings
@@ -63,6 +63,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -131,6 +132,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
     private final String translogUUID;
     private final TranslogDeletionPolicy deletionPolicy;
     private final LongConsumer persistedSequenceNumberConsumer;
+    private final TranslogSyncMetric syncMetric = new TranslogSyncMetric();
 
     /**
      * Creates a new Translog instance. This method will create a new transaction log unless the given {@link TranslogGeneration} is
@@ -711,7 +713,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
     public void sync() throws IOException {
         try (ReleasableLock lock = readLock.acquire()) {
             if (closed.get() == false) {
-                current.sync();
+                syncCurrentUpTo(Long.MAX_VALUE);
             }
         } catch (final Exception ex) {
             closeOnTragicEvent(ex);
@@ -719,6 +721,23 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         }
     }
 
+    /**
+     * Syncs the current writer up to the given offset and records the time it took if this caused an actual sync.
+     */
+    private boolean syncCurrentUpTo(long offset) throws IOException {
+        assert readLock.isHeldByCurrentThread() || writeLock.isHeldByCurrentThread();
+        final long startTimeNanos = System.nanoTime();
+        final boolean synced = current.syncUpTo(offset);
+        if (synced) {
+            final long tookInMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTimeNanos);
+            syncMetric.onSync(tookInMillis);
+            if (config.getDeviceSyncMetric() != null) {
+                config.getDeviceSyncMetric().onSync(tookInMillis);
+            }
+        }
+        return synced;
+    }
+
     /**
      *  Returns <code>true</code> if an fsync is required to ensure durability of the translogs operations or it's metadata.
      */
@@ -783,7 +802,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         try (ReleasableLock lock = readLock.acquire()) {
             if (location.generation == current.getGeneration()) { // if we have a new one it's already synced
                 ensureOpen();
-                return current.syncUpTo(location.translogLocation + location.size);
+                return syncCurrentUpTo(location.translogLocation + location.size);
             }
         } catch (final Exception ex) {
             closeOnTragicEvent(ex);
@@ -845,7 +864,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         try (ReleasableLock lock = readLock.acquire()) {
             long uncommittedGen = getMinGenerationForSeqNo(deletionPolicy.getLocalCheckpointOfSafeCommit() + 1).translogFileGeneration;
             return new TranslogStats(totalOperations(), sizeInBytes(), totalOperationsByMinGen(uncommittedGen),
-                sizeInBytesByMinGen(uncommittedGen), earliestLastModifiedAge());
+                sizeInBytesByMinGen(uncommittedGen), earliestLastModifiedAge(), syncMetric.stats());
         }
     }
 
@@ -21,6 +21,7 @@ package org.codelibs.fesen.index.translog;
 
 import java.nio.file.Path;
 
+import org.codelibs.fesen.common.Nullable;
 import org.codelibs.fesen.common.unit.ByteSizeUnit;
 import org.codelibs.fesen.common.unit.ByteSizeValue;
 import org.codelibs.fesen.common.util.BigArrays;
@@ -41,6 +42,8 @@ public final class TranslogConfig {
     private final ShardId shardId;
     private final Path translogPath;
     private final ByteSizeValue bufferSize;
+    @Nullable
+    private final TranslogSyncMetric deviceSyncMetric;
 
     /**
      * Creates a new TranslogConfig instance
@@ -50,11 +53,30 @@ public final class TranslogConfig {
      * @param bigArrays a bigArrays instance used for temporarily allocating write operations
      */
     public TranslogConfig(ShardId shardId, Path translogPath, IndexSettings indexSettings, BigArrays bigArrays) {
-        this(shardId, translogPath, indexSettings, bigArrays, DEFAULT_BUFFER_SIZE);
+        this(shardId, translogPath, indexSettings, bigArrays, DEFAULT_BUFFER_SIZE, null);
+    }
+
+    /**
+     * Creates a new TranslogConfig instance
+     * @param shardId the shard ID this translog belongs to
+     * @param translogPath the path to use for the transaction log files
+     * @param indexSettings the index settings used to set internal variables
+     * @param bigArrays a bigArrays instance used for temporarily allocating write operations
+     * @param deviceSyncMetric records the syncs of the translog along with those of the other translogs on its device, if not null
+     */
+    public TranslogConfig(ShardId shardId, Path translogPath, IndexSettings indexSettings, BigArrays bigArrays,
+                          @Nullable TranslogSyncMetric deviceSyncMetric) {
+        this(shardId, translogPath, indexSettings, bigArrays, DEFAULT_BUFFER_SIZE, deviceSyncMetric);
     }
 
     TranslogConfig(ShardId shardId, Path translogPath, IndexSettings indexSettings, BigArrays bigArrays, ByteSizeValue bufferSize) {
+        this(shardId, translogPath, indexSettings, bigArrays, bufferSize, null);
+    }
+
+    TranslogConfig(ShardId shardId, Path translogPath, IndexSettings indexSettings, BigArrays bigArrays, ByteSizeValue bufferSize,
+                   @Nullable TranslogSyncMetric deviceSyncMetric) {
         this.bufferSize = bufferSize;
+        this.deviceSyncMetric = deviceSyncMetric;
         this.indexSettings = indexSettings;
         this.shardId = shardId;
         this.translogPath = translogPath;
@@ -95,4 +117,12 @@ public final class TranslogConfig {
     public ByteSizeValue getBufferSize() {
         return bufferSize;
     }
+
+    /**
+     * Records the syncs of the translogs on the device of this translog, or {@code null} if they are not tracked per device
+     */
+    @Nullable
+    public TranslogSyncMetric getDeviceSyncMetric() {
+        return deviceSyncMetric;
+    }
 }
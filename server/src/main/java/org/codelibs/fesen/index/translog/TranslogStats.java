@@ -28,6 +28,9 @@ import org.codelibs.fesen.common.xcontent.ToXContentFragment;
 import org.codelibs.fesen.common.xcontent.XContentBuilder;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 public class TranslogStats implements Writeable, ToXContentFragment {
 
@@ -36,6 +39,9 @@ public class TranslogStats implements Writeable, ToXContentFragment {
     private long uncommittedSizeInBytes;
     private int  uncommittedOperations;
     private long earliestLastModifiedAge;
+    private TranslogSyncStats syncStats = new TranslogSyncStats();
+    // only set on the node level, see TranslogSyncTracker
+    private Map<String, TranslogSyncStats> syncStatsByDevice = new HashMap<>();
 
     public TranslogStats() {
     }
@@ -53,10 +59,20 @@ public class TranslogStats implements Writeable, ToXContentFragment {
         if (in.getVersion().onOrAfter(Version.V_6_3_0)) {
             earliestLastModifiedAge = in.readVLong();
         }
+        if (in.getVersion().onOrAfter(Version.V_0_13_1)) {
+            syncStats = new TranslogSyncStats(in);
+            syncStatsByDevice = in.readMap(StreamInput::readString, TranslogSyncStats::new);
+        }
     }
 
     public TranslogStats(int numberOfOperations, long translogSizeInBytes, int uncommittedOperations, long uncommittedSizeInBytes,
                          long earliestLastModifiedAge) {
+        this(numberOfOperations, translogSizeInBytes, uncommittedOperations, uncommittedSizeInBytes, earliestLastModifiedAge,
+            new TranslogSyncStats());
+    }
+
+    public TranslogStats(int numberOfOperations, long translogSizeInBytes, int uncommittedOperations, long uncommittedSizeInBytes,
+                         long earliestLastModifiedAge, TranslogSyncStats syncStats) {
         if (numberOfOperations < 0) {
             throw new IllegalArgumentException("numberOfOperations must be >= 0");
         }
@@ -77,6 +93,7 @@ public class TranslogStats implements Writeable, ToXContentFragment {
         this.uncommittedSizeInBytes = uncommittedSizeInBytes;
         this.uncommittedOperations = uncommittedOperations;
         this.earliestLastModifiedAge = earliestLastModifiedAge;
+        this.syncStats = syncStats;
     }
 
     public void add(TranslogStats translogStats) {
@@ -94,6 +111,9 @@ public class TranslogStats implements Writeable, ToXContentFragment {
             this.earliestLastModifiedAge =
                 Math.min(this.earliestLastModifiedAge, translogStats.earliestLastModifiedAge);
         }
+        this.syncStats.add(translogStats.syncStats);
+        translogStats.syncStatsByDevice.forEach((device, stats) ->
+            this.syncStatsByDevice.computeIfAbsent(device, k -> new TranslogSyncStats()).add(stats));
     }
 
     public long getTranslogSizeInBytes() {
@@ -116,6 +136,33 @@ public class TranslogStats implements Writeable, ToXContentFragment {
 
     public long getEarliestLastModifiedAge() { return earliestLastModifiedAge; }
 
+    /** the number of syncs that wrote and fsynced operations to the translog */
+    public long getSyncCount() {
+        return syncStats.getCount();
+    }
+
+    /** the total time spent in syncs that wrote and fsynced operations to the translog */
+    public long getSyncTimeInMillis() {
+        return syncStats.getTimeInMillis();
+    }
+
+    /** the number of syncs per latency bucket, see {@link TranslogSyncStats#LATENCY_BUCKETS_MILLIS} */
+    public long[] getSyncLatencyHistogram() {
+        return syncStats.getLatencyHistogram();
+    }
+
+    /**
+     * The sync stats of each device of the node by the name of its file store. Unlike the other sync stats, they cover the
+     * translogs that were reopened or removed from the node since it started. Empty unless these are the stats of a node.
+     */
+    public Map<String, TranslogSyncStats> getSyncStatsByDevice() {
+        return Collections.unmodifiableMap(syncStatsByDevice);
+    }
+
+    public void setSyncStatsByDevice(Map<String, TranslogSyncStats> syncStatsByDevice) {
+        this.syncStatsByDevice = new HashMap<>(syncStatsByDevice);
+    }
+
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject("translog");
@@ -124,6 +171,18 @@ public class TranslogStats implements Writeable, ToXContentFragment {
         builder.field("uncommitted_operations", uncommittedOperations);
         builder.humanReadableField("uncommitted_size_in_bytes", "uncommitted_size", new ByteSizeValue(uncommittedSizeInBytes));
         builder.field("earliest_last_modified_age", earliestLastModifiedAge);
+        builder.startObject("sync");
+        syncStats.toXContent(builder, params);
+        if (syncStatsByDevice.isEmpty() == false) {
+            builder.startObject("devices");
+            for (Map.Entry<String, TranslogSyncStats> entry : syncStatsByDevice.entrySet()) {
+                builder.startObject(entry.getKey());
+                entry.getValue().toXContent(builder, params);
+                builder.endObject();
+            }
+            builder.endObject();
+        }
+        builder.endObject();
         builder.endObject();
         return builder;
     }
@@ -144,5 +203,9 @@ public class TranslogStats implements Writeable, ToXContentFragment {
         if (out.getVersion().onOrAfter(Version.V_6_3_0)) {
             out.writeVLong(earliestLastModifiedAge);
         }
+        if (out.getVersion().onOrAfter(Version.V_0_13_1)) {
+            syncStats.writeTo(out);
+            out.writeMap(syncStatsByDevice, StreamOutput::writeString, (o, stats) -> stats.writeTo(o));
+        }
     }
 }
@@ -0,0 +1,58 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.codelibs.fesen.index.translog;
+
+import org.codelibs.fesen.common.metrics.CounterMetric;
+import org.codelibs.fesen.common.metrics.MeanMetric;
+
+import java.util.Arrays;
+
+/**
+ * Records the syncs that wrote and fsynced operations to one or more translogs.
+ */
+public final class TranslogSyncMetric {
+
+    private final MeanMetric syncTime = new MeanMetric();
+    private final CounterMetric[] latencyHistogram = new CounterMetric[TranslogSyncStats.LATENCY_BUCKETS_MILLIS.length + 1];
+
+    public TranslogSyncMetric() {
+        for (int i = 0; i < latencyHistogram.length; i++) {
+            latencyHistogram[i] = new CounterMetric();
+        }
+    }
+
+    /**
+     * Records a sync that took the given time.
+     */
+    public void onSync(long tookInMillis) {
+        syncTime.inc(tookInMillis);
+        int bucket = Arrays.binarySearch(TranslogSyncStats.LATENCY_BUCKETS_MILLIS, tookInMillis);
+        // the bounds of the buckets are exclusive
+        bucket = bucket >= 0 ? bucket + 1 : -1 - bucket;
+        latencyHistogram[bucket].inc();
+    }
+
+    public TranslogSyncStats stats() {
+        final long[] latencies = new long[latencyHistogram.length];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = latencyHistogram[i].count();
+        }
+        return new TranslogSyncStats(syncTime.count(), syncTime.sum(), latencies);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.codelibs.fesen.index.translog;
+
+import org.codelibs.fesen.common.io.stream.StreamInput;
+import org.codelibs.fesen.common.io.stream.StreamOutput;
+import org.codelibs.fesen.common.io.stream.Writeable;
+import org.codelibs.fesen.common.unit.TimeValue;
+import org.codelibs.fesen.common.xcontent.ToXContentFragment;
+import org.codelibs.fesen.common.xcontent.XContentBuilder;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The number, total time and latency histogram of the syncs that wrote and fsynced operations to a translog.
+ */
+public class TranslogSyncStats implements Writeable, ToXContentFragment {
+
+    /**
+     * The exclusive upper bounds, in milliseconds, of the buckets of the sync latency histogram. The last bucket of the histogram
+     * counts the syncs that took longer than the last bound.
+     */
+    public static final long[] LATENCY_BUCKETS_MILLIS = new long[] { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000 };
+
+    private long count;
+    private long timeInMillis;
+    private long[] latencyHistogram;
+
+    public TranslogSyncStats() {
+        this(0, 0, new long[LATENCY_BUCKETS_MILLIS.length + 1]);
+    }
+
+    public TranslogSyncStats(StreamInput in) throws IOException {
+        count = in.readVLong();
+        timeInMillis = in.readVLong();
+        latencyHistogram = in.readVLongArray();
+    }
+
+    public TranslogSyncStats(long count, long timeInMillis, long[] latencyHistogram) {
+        if (latencyHistogram.length != LATENCY_BUCKETS_MILLIS.length + 1) {
+            throw new IllegalArgumentException("latencyHistogram must have [" + (LATENCY_BUCKETS_MILLIS.length + 1) + "] buckets");
+        }
+        this.count = count;
+        this.timeInMillis = timeInMillis;
+        this.latencyHistogram = latencyHistogram;
+    }
+
+    public void add(TranslogSyncStats stats) {
+        if (stats == null) {
+            return;
+        }
+        this.count += stats.count;
+        this.timeInMillis += stats.timeInMillis;
+        for (int i = 0; i < latencyHistogram.length; i++) {
+            this.latencyHistogram[i] += stats.latencyHistogram[i];
+        }
+    }
+
+    /** the number of syncs that wrote and fsynced operations to the translog */
+    public long getCount() {
+        return count;
+    }
+
+    /** the total time spent in syncs that wrote and fsynced operations to the translog */
+    public long getTimeInMillis() {
+        return timeInMillis;
+    }
+
+    /** the number of syncs per latency bucket, see {@link #LATENCY_BUCKETS_MILLIS} */
+    public long[] getLatencyHistogram() {
+        return Arrays.copyOf(latencyHistogram, latencyHistogram.length);
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.field("total", count);
+        builder.humanReadableField("total_time_in_millis", "total_time", new TimeValue(timeInMillis));
+        builder.startArray("latency_histogram");
+        for (int i = 0; i < latencyHistogram.length; i++) {
+            builder.startObject();
+            if (i > 0) {
+                builder.field("ge_millis", LATENCY_BUCKETS_MILLIS[i - 1]);
+            }
+            if (i < LATENCY_BUCKETS_MILLIS.length) {
+                builder.field("lt_millis", LATENCY_BUCKETS_MILLIS[i]);
+            }
+            builder.field("count", latencyHistogram[i]);
+            builder.endObject();
+        }
+        builder.endArray();
+        return builder;
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVLong(count);
+        out.writeVLong(timeInMillis);
+        out.writeVLongArray(latencyHistogram);
+    }
+}
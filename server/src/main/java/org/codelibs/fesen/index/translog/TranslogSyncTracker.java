@@ -0,0 +1,79 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.codelibs.fesen.index.translog;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.codelibs.fesen.common.util.concurrent.ConcurrentCollections;
+import org.codelibs.fesen.env.Environment;
+import org.codelibs.fesen.env.NodeEnvironment;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Records the translog syncs of all shards of a node per device, that is per file store of the translog paths. Unlike the sync
+ * stats of a {@link Translog}, which start over whenever the translog is reopened and go away with the shard, these are kept for the
+ * lifetime of the node and show how the devices of the node cope with the fsyncs of all of its shards.
+ */
+public class TranslogSyncTracker {
+
+    private static final Logger logger = LogManager.getLogger(TranslogSyncTracker.class);
+
+    private final NodeEnvironment.NodePath[] nodePaths;
+    private final ConcurrentMap<String, TranslogSyncMetric> devices = ConcurrentCollections.newConcurrentMap();
+
+    public TranslogSyncTracker(NodeEnvironment nodeEnv) {
+        this.nodePaths = nodeEnv.hasNodeFile() ? nodeEnv.nodePaths() : new NodeEnvironment.NodePath[0];
+    }
+
+    /**
+     * Returns the metric of the device of the given translog path.
+     */
+    public TranslogSyncMetric metricFor(Path translogPath) {
+        return devices.computeIfAbsent(device(translogPath), k -> new TranslogSyncMetric());
+    }
+
+    private String device(Path translogPath) {
+        for (NodeEnvironment.NodePath nodePath : nodePaths) {
+            if (translogPath.startsWith(nodePath.path)) {
+                return nodePath.fileStore.toString();
+            }
+        }
+        // custom data paths are not node paths
+        try {
+            return Environment.getFileStore(translogPath).toString();
+        } catch (IOException e) {
+            logger.debug(() -> "failed to resolve the file store of [" + translogPath + "], tracking its syncs on their own", e);
+            return translogPath.toAbsolutePath().toString();
+        }
+    }
+
+    /**
+     * Returns the sync stats of each device that had translogs on this node, by the name of its file store.
+     */
+    public Map<String, TranslogSyncStats> stats() {
+        final Map<String, TranslogSyncStats> stats = new HashMap<>();
+        devices.forEach((device, metric) -> stats.put(device, metric.stats()));
+        return stats;
+    }
+}
@@ -21,17 +21,23 @@ package org.codelibs.fesen.indices;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.lucene.index.IndexReaderContext;
+import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.ReaderUtil;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.BulkScorer;
+import org.apache.lucene.search.DocIdSet;
 import org.apache.lucene.search.Explanation;
 import org.apache.lucene.search.LRUQueryCache;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.QueryCache;
 import org.apache.lucene.search.QueryCachingPolicy;
+import org.apache.lucene.search.QueryVisitor;
 import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.ScorerSupplier;
 import org.apache.lucene.search.Weight;
+import org.codelibs.fesen.common.CheckedSupplier;
 import org.codelibs.fesen.common.lucene.ShardCoreKeyMap;
 import org.codelibs.fesen.common.settings.Setting;
 import org.codelibs.fesen.common.settings.Settings;
@@ -44,10 +50,12 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Predicate;
 
 public class IndicesQueryCache implements QueryCache, Closeable {
@@ -63,10 +71,30 @@ public class IndicesQueryCache implements QueryCache, Closeable {
     // enables caching on all segments instead of only the larger ones, for testing only
     public static final Setting<Boolean> INDICES_QUERIES_CACHE_ALL_SEGMENTS_SETTING = 
             Setting.boolSetting("indices.queries.cache.all_segments", false, Property.NodeScope);
+    // stops caching query types whose cache entries saved less time than it took to build them, opt-in
+    public static final Setting<Boolean> INDICES_QUERIES_CACHE_COST_AWARE_SETTING =
+            Setting.boolSetting("indices.queries.cache.cost_aware", false, Property.NodeScope);
+
+    // the same segment size requirements as the default ones of LRUQueryCache
+    private static final int MIN_SEGMENT_SIZE = 10000;
+    private static final float MIN_SEGMENT_SIZE_RATIO = .03f;
+    private static final float SKIP_CACHE_FACTOR = 250;
+
+    // the number of entries of a query type that need to be cached before the cost-aware policy judges the type
+    static final long MIN_CACHE_COUNT_FOR_ADMISSION = 32;
+    // the cost-aware policy still admits one out of this many entries of a rejected query type, so that its statistics
+    // can tell when caching the type pays off again
+    static final long ADMISSION_SAMPLING_INTERVAL = 16;
 
     private final LRUQueryCache cache;
+    private final boolean costAware;
     private final ShardCoreKeyMap shardKeyMap = new ShardCoreKeyMap();
     private final Map<ShardId, Stats> shardStats = new ConcurrentHashMap<>();
+    private final Map<String, QueryTypeStats> queryTypeStats = new ConcurrentHashMap<>();
+    // how long it took to build each cached entry, per segment core key and query: this is what a hit on the entry saves
+    private final Map<Object, Map<Query, Long>> entryBuildTimes = new ConcurrentHashMap<>();
+    // the query whose weight is currently used on this thread, its type, and how long it took to build its last cache entry
+    private final ThreadLocal<CacheBuild> currentBuild = ThreadLocal.withInitial(CacheBuild::new);
     private volatile long sharedRamBytesUsed;
 
     // This is a hack for the fact that the close listener for the
@@ -75,18 +103,91 @@ public class IndicesQueryCache implements QueryCache, Closeable {
     private final Map<Object, StatsAndCount> stats2 = Collections.synchronizedMap(new IdentityHashMap<>());
 
     public IndicesQueryCache(Settings settings) {
+        this(settings, reader -> false);
+    }
+
+    /**
+     * @param mergingSegments tells whether a segment is currently being merged away, such segments are not cached by a cost
+     *                        aware cache since their entries would be dropped as soon as the merge completes. It is tested
+     *                        for every cacheable query on every leaf that is large enough to be cached, so it must be cheap.
+     */
+    public IndicesQueryCache(Settings settings, Predicate<LeafReader> mergingSegments) {
         final ByteSizeValue size = INDICES_CACHE_QUERY_SIZE_SETTING.get(settings);
         final int count = INDICES_CACHE_QUERY_COUNT_SETTING.get(settings);
-        logger.debug("using [node] query cache with size [{}] max filter count [{}]",
-                size, count);
+        costAware = INDICES_QUERIES_CACHE_COST_AWARE_SETTING.get(settings);
+        logger.debug("using [node] query cache with size [{}] max filter count [{}] cost aware [{}]",
+                size, count, costAware);
         if (INDICES_QUERIES_CACHE_ALL_SEGMENTS_SETTING.get(settings)) {
             cache = new FesenLRUQueryCache(count, size.getBytes(), context -> true, 1f);
+        } else if (costAware) {
+            cache = new FesenLRUQueryCache(count, size.getBytes(),
+                context -> isLargeEnough(context) && mergingSegments.test(context.reader()) == false, SKIP_CACHE_FACTOR);
         } else {
-            cache = new FesenLRUQueryCache(count, size.getBytes());
+            cache = new FesenLRUQueryCache(count, size.getBytes(), IndicesQueryCache::isLargeEnough, SKIP_CACHE_FACTOR);
         }
         sharedRamBytesUsed = 0;
     }
 
+    private static boolean isLargeEnough(LeafReaderContext context) {
+        final int maxDoc = context.reader().maxDoc();
+        if (maxDoc < MIN_SEGMENT_SIZE) {
+            return false;
+        }
+        final IndexReaderContext topLevelContext = ReaderUtil.getTopLevelContext(context);
+        return (float) maxDoc / topLevelContext.reader().maxDoc() >= MIN_SEGMENT_SIZE_RATIO;
+    }
+
+    /**
+     * The type of a query that statistics are grouped by: the simple name of its class, or of the class it extends for
+     * anonymous classes, followed by the field it targets if it targets a single field. Queries of the same class can
+     * have very different costs on different fields, e.g. a range on a timestamp and on a small numeric field.
+     */
+    static String queryType(Query query) {
+        Class<?> clazz = query.getClass();
+        while (clazz.isAnonymousClass()) {
+            clazz = clazz.getSuperclass();
+        }
+        final Set<String> fields = new HashSet<>();
+        query.visit(new QueryVisitor() {
+            @Override
+            public boolean acceptField(String field) {
+                fields.add(field);
+                return false;
+            }
+        });
+        if (fields.size() == 1) {
+            return clazz.getSimpleName() + "[" + fields.iterator().next() + "]";
+        }
+        return clazz.getSimpleName();
+    }
+
+    /**
+     * Returns the statistics that the given query type is counted in, or {@code null} if there are none yet.
+     */
+    private static QueryTypeStats getQueryTypeStats(Map<String, QueryTypeStats> queryTypes, String queryType) {
+        return queryTypes.get(QueryCacheStats.queryTypeKey(queryTypes, queryType));
+    }
+
+    private static QueryTypeStats getOrCreateQueryTypeStats(Map<String, QueryTypeStats> queryTypes, String queryType) {
+        final QueryTypeStats stats = queryTypes.get(queryType);
+        if (stats != null) {
+            return stats;
+        }
+        return queryTypes.computeIfAbsent(QueryCacheStats.queryTypeKey(queryTypes, queryType), type -> new QueryTypeStats());
+    }
+
+    /**
+     * Returns the type of the given query, which is usually the one of the weight that is currently used on this thread.
+     */
+    private String currentQueryType(Query query) {
+        final CacheBuild build = currentBuild.get();
+        // the cache may report hits on an equal instance of the query of the weight
+        if (build.queryType != null && (build.query == query || build.query.equals(query))) {
+            return build.queryType;
+        }
+        return queryType(query);
+    }
+
     /** Get usage statistics for the given shard. */
     public QueryCacheStats getStats(ShardId shard) {
         final Map<ShardId, QueryCacheStats> stats = new HashMap<>();
@@ -119,19 +220,66 @@ public class IndicesQueryCache implements QueryCache, Closeable {
         while (weight instanceof CachingWeightWrapper) {
             weight = ((CachingWeightWrapper) weight).in;
         }
-        final Weight in = cache.doCache(weight, policy);
+        final Weight in = cache.doCache(weight, costAware ? new CostAwareCachingPolicy(policy) : policy);
         // We wrap the weight to track the readers it sees and map them with
         // the shards they belong to
         return new CachingWeightWrapper(in);
     }
 
+    /**
+     * Only lets the given policy cache a query if caching its type paid off so far.
+     */
+    private class CostAwareCachingPolicy implements QueryCachingPolicy {
+
+        private final QueryCachingPolicy in;
+
+        CostAwareCachingPolicy(QueryCachingPolicy in) {
+            this.in = in;
+        }
+
+        @Override
+        public void onUse(Query query) {
+            in.onUse(query);
+        }
+
+        @Override
+        public boolean shouldCache(Query query) throws IOException {
+            if (in.shouldCache(query) == false) {
+                return false;
+            }
+            final QueryTypeStats stats = getQueryTypeStats(queryTypeStats, currentQueryType(query));
+            return stats == null || stats.admit();
+        }
+    }
+
     private class CachingWeightWrapper extends Weight {
 
         private final Weight in;
+        private final Query query;
+        private final String queryType;
 
         protected CachingWeightWrapper(Weight in) {
             super(in.getQuery());
             this.in = in;
+            this.query = in.getQuery();
+            this.queryType = queryType(query);
+        }
+
+        /**
+         * Makes the query of this weight and its type known to the cache while the given call looks up or builds cache entries.
+         */
+        private <T> T withQueryType(CheckedSupplier<T, IOException> call) throws IOException {
+            final CacheBuild build = currentBuild.get();
+            final Query previousQuery = build.query;
+            final String previousQueryType = build.queryType;
+            build.query = query;
+            build.queryType = queryType;
+            try {
+                return call.get();
+            } finally {
+                build.query = previousQuery;
+                build.queryType = previousQueryType;
+            }
         }
 
         @Override
@@ -148,19 +296,34 @@ public class IndicesQueryCache implements QueryCache, Closeable {
         @Override
         public Scorer scorer(LeafReaderContext context) throws IOException {
             shardKeyMap.add(context.reader());
-            return in.scorer(context);
+            return withQueryType(() -> in.scorer(context));
         }
 
         @Override
         public ScorerSupplier scorerSupplier(LeafReaderContext context) throws IOException {
             shardKeyMap.add(context.reader());
-            return in.scorerSupplier(context);
+            final ScorerSupplier supplier = withQueryType(() -> in.scorerSupplier(context));
+            if (supplier == null) {
+                return null;
+            }
+            // the cache entry may only be built when the scorer is pulled
+            return new ScorerSupplier() {
+                @Override
+                public Scorer get(long leadCost) throws IOException {
+                    return withQueryType(() -> supplier.get(leadCost));
+                }
+
+                @Override
+                public long cost() {
+                    return supplier.cost();
+                }
+            };
         }
 
         @Override
         public BulkScorer bulkScorer(LeafReaderContext context) throws IOException {
             shardKeyMap.add(context.reader());
-            return in.bulkScorer(context);
+            return withQueryType(() -> in.bulkScorer(context));
         }
 
         @Override
@@ -205,13 +368,18 @@ public class IndicesQueryCache implements QueryCache, Closeable {
         volatile long missCount;
         volatile long cacheCount;
         volatile long cacheSize;
+        final Map<String, QueryTypeStats> queryTypes = new ConcurrentHashMap<>();
 
         Stats(ShardId shardId) {
             this.shardId = shardId;
         }
 
         QueryCacheStats toQueryCacheStats() {
-            return new QueryCacheStats(ramBytesUsed, hitCount, missCount, cacheCount, cacheSize);
+            final Map<String, QueryCacheStats.QueryTypeStats> queryTypeStats = new HashMap<>();
+            for (Map.Entry<String, QueryTypeStats> entry : queryTypes.entrySet()) {
+                queryTypeStats.put(entry.getKey(), entry.getValue().toQueryTypeStats());
+            }
+            return new QueryCacheStats(ramBytesUsed, hitCount, missCount, cacheCount, cacheSize, queryTypeStats);
         }
 
         @Override
@@ -221,6 +389,59 @@ public class IndicesQueryCache implements QueryCache, Closeable {
         }
     }
 
+    /**
+     * Statistics of one type of query, either on a shard or on the whole node.
+     */
+    private static class QueryTypeStats {
+        final AtomicLong hitCount = new AtomicLong();
+        final AtomicLong missCount = new AtomicLong();
+        final AtomicLong cacheCount = new AtomicLong();
+        final AtomicLong cachedBytes = new AtomicLong();
+        final AtomicLong buildTimeInNanos = new AtomicLong();
+        final AtomicLong savedTimeInNanos = new AtomicLong();
+        final AtomicLong rejections = new AtomicLong();
+
+        /**
+         * @param savedTimeInNanos how long it took to build the entry that was hit, which the hit saved doing again
+         */
+        void onHit(long savedTimeInNanos) {
+            hitCount.incrementAndGet();
+            this.savedTimeInNanos.addAndGet(savedTimeInNanos);
+        }
+
+        void onMiss() {
+            missCount.incrementAndGet();
+        }
+
+        void onCache(long ramBytesUsed, long buildTimeInNanos) {
+            cacheCount.incrementAndGet();
+            cachedBytes.addAndGet(ramBytesUsed);
+            this.buildTimeInNanos.addAndGet(buildTimeInNanos);
+        }
+
+        /**
+         * Whether to cache another entry of this query type: once enough entries were cached, the time that hits saved
+         * needs to at least make up for the time it took to build the entries.
+         */
+        boolean admit() {
+            if (cacheCount.get() < MIN_CACHE_COUNT_FOR_ADMISSION || savedTimeInNanos.get() >= buildTimeInNanos.get()) {
+                return true;
+            }
+            return rejections.incrementAndGet() % ADMISSION_SAMPLING_INTERVAL == 0;
+        }
+
+        QueryCacheStats.QueryTypeStats toQueryTypeStats() {
+            return new QueryCacheStats.QueryTypeStats(hitCount.get(), missCount.get(), cacheCount.get(), cachedBytes.get(),
+                buildTimeInNanos.get(), savedTimeInNanos.get());
+        }
+    }
+
+    private static class CacheBuild {
+        Query query;
+        String queryType;
+        long buildTimeInNanos;
+    }
+
     private static class StatsAndCount {
         volatile int count;
         final Stats stats;
@@ -254,10 +475,6 @@ public class IndicesQueryCache implements QueryCache, Closeable {
             super(maxSize, maxRamBytesUsed, leavesToCache, skipFactor);
         }
 
-        FesenLRUQueryCache(int maxSize, long maxRamBytesUsed) {
-            super(maxSize, maxRamBytesUsed);
-        }
-
         private Stats getStats(Object coreKey) {
             final ShardId shardId = shardKeyMap.getShardId(coreKey);
             if (shardId == null) {
@@ -276,6 +493,14 @@ public class IndicesQueryCache implements QueryCache, Closeable {
             return stats;
         }
 
+        @Override
+        protected DocIdSet cacheImpl(BulkScorer scorer, int maxDoc) throws IOException {
+            final long startTimeNS = System.nanoTime();
+            final DocIdSet docIdSet = super.cacheImpl(scorer, maxDoc);
+            currentBuild.get().buildTimeInNanos = System.nanoTime() - startTimeNS;
+            return docIdSet;
+        }
+
         // It's ok to not protect these callbacks by a lock since it is
         // done in LRUQueryCache
         @Override
@@ -287,6 +512,7 @@ public class IndicesQueryCache implements QueryCache, Closeable {
                 stats.ramBytesUsed = 0;
             }
             stats2.clear();
+            entryBuildTimes.clear();
             sharedRamBytesUsed = 0;
         }
 
@@ -300,6 +526,15 @@ public class IndicesQueryCache implements QueryCache, Closeable {
         protected void onQueryEviction(Query filter, long ramBytesUsed) {
             super.onQueryEviction(filter, ramBytesUsed);
             sharedRamBytesUsed -= ramBytesUsed;
+            for (Map<Query, Long> buildTimes : entryBuildTimes.values()) {
+                buildTimes.remove(filter);
+            }
+        }
+
+        @Override
+        public void clearCoreCacheKey(Object coreKey) {
+            super.clearCoreCacheKey(coreKey);
+            entryBuildTimes.remove(coreKey);
         }
 
         @Override
@@ -316,6 +551,14 @@ public class IndicesQueryCache implements QueryCache, Closeable {
                 stats2.put(readerCoreKey, statsAndCount);
             }
             statsAndCount.count += 1;
+
+            final CacheBuild build = currentBuild.get();
+            if (build.queryType != null) {
+                getOrCreateQueryTypeStats(queryTypeStats, build.queryType).onCache(ramBytesUsed, build.buildTimeInNanos);
+                getOrCreateQueryTypeStats(shardStats.queryTypes, build.queryType).onCache(ramBytesUsed, build.buildTimeInNanos);
+                entryBuildTimes.computeIfAbsent(readerCoreKey, key -> new HashMap<>()).put(build.query, build.buildTimeInNanos);
+            }
+            build.buildTimeInNanos = 0;
         }
 
         @Override
@@ -346,6 +589,14 @@ public class IndicesQueryCache implements QueryCache, Closeable {
             super.onHit(readerCoreKey, filter);
             final Stats shardStats = getStats(readerCoreKey);
             shardStats.hitCount += 1;
+
+            final String queryType = currentQueryType(filter);
+            // a hit saves building the entry again
+            final Map<Query, Long> buildTimes = entryBuildTimes.get(readerCoreKey);
+            final Long buildTimeInNanos = buildTimes == null ? null : buildTimes.get(filter);
+            final long savedTimeInNanos = buildTimeInNanos == null ? 0 : buildTimeInNanos;
+            getOrCreateQueryTypeStats(queryTypeStats, queryType).onHit(savedTimeInNanos);
+            getOrCreateQueryTypeStats(shardStats.queryTypes, queryType).onHit(savedTimeInNanos);
         }
 
         @Override
@@ -353,6 +604,10 @@ public class IndicesQueryCache implements QueryCache, Closeable {
             super.onMiss(readerCoreKey, filter);
             final Stats shardStats = getOrCreateStats(readerCoreKey);
             shardStats.missCount += 1;
+
+            final String queryType = currentQueryType(filter);
+            getOrCreateQueryTypeStats(queryTypeStats, queryType).onMiss();
+            getOrCreateQueryTypeStats(shardStats.queryTypes, queryType).onMiss();
         }
     }
 }
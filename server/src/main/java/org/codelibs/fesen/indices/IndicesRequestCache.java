@@ -27,7 +27,9 @@ import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.RamUsageEstimator;
+import org.codelibs.fesen.common.CheckedFunction;
 import org.codelibs.fesen.common.CheckedSupplier;
+import org.codelibs.fesen.common.Nullable;
 import org.codelibs.fesen.common.bytes.BytesReference;
 import org.codelibs.fesen.common.cache.Cache;
 import org.codelibs.fesen.common.cache.CacheBuilder;
@@ -41,15 +43,24 @@ import org.codelibs.fesen.common.settings.Setting.Property;
 import org.codelibs.fesen.common.unit.ByteSizeValue;
 import org.codelibs.fesen.common.unit.TimeValue;
 import org.codelibs.fesen.common.util.concurrent.ConcurrentCollections;
+import org.codelibs.fesen.common.util.concurrent.EsExecutors;
+import org.codelibs.fesen.common.util.concurrent.EsRejectedExecutionException;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.Collection;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * The indices request cache allows to cache a shard level request stage responses, helping with improving
@@ -61,6 +72,12 @@ import java.util.concurrent.ConcurrentMap;
  * Currently, the cache is only enabled for count requests, and can only be opted in on an index
  * level setting that can be dynamically changed and defaults to false.
  * <p>
+ * If {@link #INDICES_CACHE_QUERY_DISK_SIZE} is set, entries evicted from the on-heap cache are spilled to a second
+ * {@link RequestCacheTier} backed by memory-mapped files striped across the node data paths. Spilling happens on a background
+ * executor so that evictions never do file I/O on the thread that triggered them, entries waiting to be spilled are dropped if
+ * they would hold more than a tenth of the on-heap cache size. Misses on the on-heap cache are looked up in the pending spills and
+ * in that tier before computing the response, and entries found there are promoted back to the on-heap cache.
+ * <p>
  * There are still several TODOs left in this class, some easily addressable, some more complex, but the support
  * is functional.
  */
@@ -78,28 +95,76 @@ public final class IndicesRequestCache implements RemovalListener<IndicesRequest
         Setting.memorySizeSetting("indices.requests.cache.size", "1%", Property.NodeScope);
     public static final Setting<TimeValue> INDICES_CACHE_QUERY_EXPIRE =
         Setting.positiveTimeSetting("indices.requests.cache.expire", new TimeValue(0), Property.NodeScope);
+    public static final Setting<ByteSizeValue> INDICES_CACHE_QUERY_DISK_SIZE =
+        Setting.byteSizeSetting("indices.requests.cache.disk.size", new ByteSizeValue(0), Property.NodeScope);
+
+    /**
+     * The folder of the node data path that holds the disk tier.
+     */
+    static final String DISK_TIER_FOLDER = "request_cache";
 
     private final ConcurrentMap<CleanupKey, Boolean> registeredClosedListeners = ConcurrentCollections.newConcurrentMap();
     private final Set<CleanupKey> keysToClean = ConcurrentCollections.newConcurrentSet();
     private final ByteSizeValue size;
     private final TimeValue expire;
     private final Cache<Key, BytesReference> cache;
+    @Nullable
+    private final RequestCacheTier<Key> diskTier;
+    private final Executor spillExecutor;
+    private final long maxPendingSpillBytes;
+    private final ConcurrentMap<Key, BytesReference> pendingSpills = ConcurrentCollections.newConcurrentMap();
+    private final AtomicLong pendingSpillBytes = new AtomicLong();
+    private final AtomicBoolean spilling = new AtomicBoolean();
 
     IndicesRequestCache(Settings settings) {
+        this(settings, null, EsExecutors.newDirectExecutorService());
+    }
+
+    /**
+     * @param diskTierPaths the directories to stripe the disk tier across, the disk tier is only enabled if this is not
+     *                      {@code null} and {@link #INDICES_CACHE_QUERY_DISK_SIZE} is set
+     * @param spillExecutor the executor that writes evicted entries to the disk tier
+     */
+    IndicesRequestCache(Settings settings, @Nullable Path[] diskTierPaths, Executor spillExecutor) {
         this.size = INDICES_CACHE_QUERY_SIZE.get(settings);
         this.expire = INDICES_CACHE_QUERY_EXPIRE.exists(settings) ? INDICES_CACHE_QUERY_EXPIRE.get(settings) : null;
         long sizeInBytes = size.getBytes();
         CacheBuilder<Key, BytesReference> cacheBuilder = CacheBuilder.<Key, BytesReference>builder()
-            .setMaximumWeight(sizeInBytes).weigher((k, v) -> k.ramBytesUsed() + v.ramBytesUsed()).removalListener(this);
+            .setMaximumWeight(sizeInBytes).weigher((k, v) -> k.ramBytesUsed() + v.ramBytesUsed()).removalListener(this)
+            .setBufferedPromotion(true);
         if (expire != null) {
             cacheBuilder.setExpireAfterAccess(expire);
         }
         cache = cacheBuilder.build();
+        this.spillExecutor = spillExecutor;
+        this.maxPendingSpillBytes = sizeInBytes / 10;
+        if (diskTierPaths != null && isDiskTierEnabled(settings)) {
+            try {
+                diskTier = new MMapRequestCacheTier<>(diskTierPaths, INDICES_CACHE_QUERY_DISK_SIZE.get(settings).getBytes(),
+                    (key, valueSize, evicted) -> key.entity.onDiskRemoval(valueSize, evicted));
+            } catch (IOException e) {
+                throw new UncheckedIOException("failed to create the request cache disk tier under "
+                    + Arrays.toString(diskTierPaths), e);
+            }
+        } else {
+            diskTier = null;
+        }
+    }
+
+    /**
+     * Returns whether the given node settings enable the disk tier.
+     */
+    public static boolean isDiskTierEnabled(Settings settings) {
+        return INDICES_CACHE_QUERY_DISK_SIZE.get(settings).getBytes() > 0;
     }
 
     @Override
     public void close() {
         cache.invalidateAll();
+        pendingSpills.clear();
+        if (diskTier != null) {
+            diskTier.close();
+        }
     }
 
     void clear(CacheEntity entity) {
@@ -109,14 +174,86 @@ public final class IndicesRequestCache implements RemovalListener<IndicesRequest
 
     @Override
     public void onRemoval(RemovalNotification<Key, BytesReference> notification) {
-        notification.getKey().entity.onRemoval(notification);
+        final Key key = notification.getKey();
+        key.entity.onRemoval(notification);
+        if (diskTier != null && notification.getRemovalReason() == RemovalNotification.RemovalReason.EVICTED
+            && isSpillable(key)) {
+            final BytesReference value = notification.getValue();
+            if (pendingSpillBytes.addAndGet(value.length()) > maxPendingSpillBytes) {
+                // the disk tier does not keep up, dropping the entry is cheaper than holding it on heap
+                pendingSpillBytes.addAndGet(-value.length());
+                return;
+            }
+            final BytesReference previous = pendingSpills.put(key, value);
+            if (previous != null) {
+                pendingSpillBytes.addAndGet(-previous.length());
+            }
+            maybeSpill();
+        }
+    }
+
+    private boolean isSpillable(Key key) {
+        // only spill entries whose reader is still open, the others would never be hit again
+        return key.entity.isOpen() && registeredClosedListeners.containsKey(new CleanupKey(key.entity, key.readerCacheKey));
+    }
+
+    private void maybeSpill() {
+        if (pendingSpills.isEmpty() == false && spilling.compareAndSet(false, true)) {
+            try {
+                spillExecutor.execute(this::spill);
+            } catch (EsRejectedExecutionException e) {
+                // the pending entries are picked up by the next eviction
+                spilling.set(false);
+            }
+        }
+    }
+
+    private void spill() {
+        try {
+            for (Map.Entry<Key, BytesReference> entry : pendingSpills.entrySet()) {
+                final Key key = entry.getKey();
+                final BytesReference value = entry.getValue();
+                boolean spilled = false;
+                if (isSpillable(key)) {
+                    try {
+                        spilled = diskTier.put(key, value);
+                    } catch (IOException e) {
+                        logger.warn("failed to spill request cache entry to disk", e);
+                    }
+                }
+                if (spilled) {
+                    key.entity.onDiskCached(value.length());
+                }
+                if (pendingSpills.remove(key, value)) {
+                    pendingSpillBytes.addAndGet(-value.length());
+                } else if (spilled) {
+                    // the entry was promoted, invalidated or replaced while being written
+                    diskTier.invalidate(key);
+                }
+            }
+        } finally {
+            spilling.set(false);
+        }
+        maybeSpill();
+    }
+
+    /**
+     * Removes the given key from the entries waiting to be spilled and returns its value, if any.
+     */
+    @Nullable
+    private BytesReference removePendingSpill(Key key) {
+        final BytesReference value = pendingSpills.remove(key);
+        if (value != null) {
+            pendingSpillBytes.addAndGet(-value.length());
+        }
+        return value;
     }
 
     BytesReference getOrCompute(CacheEntity cacheEntity, CheckedSupplier<BytesReference, IOException> loader,
                                 DirectoryReader reader, BytesReference cacheKey) throws Exception {
         assert reader.getReaderCacheHelper() != null;
         final Key key =  new Key(cacheEntity, reader.getReaderCacheHelper().getKey(), cacheKey);
-        Loader cacheLoader = new Loader(cacheEntity, loader);
+        Loader cacheLoader = new Loader(cacheEntity, loader, diskTier == null ? null : this::promote);
         BytesReference value = cache.computeIfAbsent(key, cacheLoader);
         if (cacheLoader.isLoaded()) {
             key.entity.onMiss();
@@ -142,18 +279,43 @@ public final class IndicesRequestCache implements RemovalListener<IndicesRequest
      */
     void invalidate(CacheEntity cacheEntity, DirectoryReader reader, BytesReference cacheKey) {
         assert reader.getReaderCacheHelper() != null;
-        cache.invalidate(new Key(cacheEntity, reader.getReaderCacheHelper().getKey(), cacheKey));
+        final Key key = new Key(cacheEntity, reader.getReaderCacheHelper().getKey(), cacheKey);
+        cache.invalidate(key);
+        if (diskTier != null) {
+            removePendingSpill(key);
+            diskTier.invalidate(key);
+        }
+    }
+
+    /**
+     * Looks the given key up in the entries waiting to be spilled and in the disk tier, and removes it from both.
+     */
+    @Nullable
+    private BytesReference promote(Key key) throws IOException {
+        final BytesReference pending = removePendingSpill(key);
+        if (pending != null) {
+            return pending;
+        }
+        final BytesReference value = diskTier.get(key);
+        if (value != null) {
+            diskTier.invalidate(key);
+        }
+        return value;
     }
 
     private static class Loader implements CacheLoader<Key, BytesReference> {
 
         private final CacheEntity entity;
         private final CheckedSupplier<BytesReference, IOException> loader;
+        @Nullable
+        private final CheckedFunction<Key, BytesReference, IOException> diskTier;
         private boolean loaded;
 
-        Loader(CacheEntity entity, CheckedSupplier<BytesReference, IOException> loader) {
+        Loader(CacheEntity entity, CheckedSupplier<BytesReference, IOException> loader,
+               @Nullable CheckedFunction<Key, BytesReference, IOException> diskTier) {
             this.entity = entity;
             this.loader = loader;
+            this.diskTier = diskTier;
         }
 
         public boolean isLoaded() {
@@ -162,7 +324,19 @@ public final class IndicesRequestCache implements RemovalListener<IndicesRequest
 
         @Override
         public BytesReference load(Key key) throws Exception {
-            BytesReference value = loader.get();
+            BytesReference value = null;
+            if (diskTier != null) {
+                // promote the entry back to the on-heap cache
+                value = diskTier.apply(key);
+                if (value != null) {
+                    entity.onDiskHit();
+                } else {
+                    entity.onDiskMiss();
+                }
+            }
+            if (value == null) {
+                value = loader.get();
+            }
             entity.onCached(key, value);
             loaded = true;
             return value;
@@ -205,6 +379,26 @@ public final class IndicesRequestCache implements RemovalListener<IndicesRequest
          * Called when this entity instance is removed
          */
         void onRemoval(RemovalNotification<Key, BytesReference> notification);
+
+        /**
+         * Called each time an on-heap miss of this entity is found in the disk tier.
+         */
+        void onDiskHit();
+
+        /**
+         * Called each time an on-heap miss of this entity is not found in the disk tier either.
+         */
+        void onDiskMiss();
+
+        /**
+         * Called after a value of this entity was spilled to the disk tier.
+         */
+        void onDiskCached(long sizeInBytes);
+
+        /**
+         * Called when a value of this entity is removed from the disk tier.
+         */
+        void onDiskRemoval(long sizeInBytes, boolean evicted);
     }
 
     static class Key implements Accountable {
@@ -306,21 +500,34 @@ public final class IndicesRequestCache implements RemovalListener<IndicesRequest
             }
         }
         if (!currentKeysToClean.isEmpty() || !currentFullClean.isEmpty()) {
-            for (Iterator<Key> iterator = cache.keys().iterator(); iterator.hasNext(); ) {
-                Key key = iterator.next();
-                if (currentFullClean.contains(key.entity.getCacheIdentity())) {
-                    iterator.remove();
-                } else {
-                    if (currentKeysToClean.contains(new CleanupKey(key.entity, key.readerCacheKey))) {
-                        iterator.remove();
+            cleanKeys(cache.keys(), currentKeysToClean, currentFullClean);
+            if (diskTier != null) {
+                for (Key key : pendingSpills.keySet()) {
+                    if (isCleaned(key, currentKeysToClean, currentFullClean)) {
+                        removePendingSpill(key);
                     }
                 }
+                cleanKeys(diskTier.keys(), currentKeysToClean, currentFullClean);
             }
         }
 
         cache.refresh();
     }
 
+    private void cleanKeys(Iterable<Key> keys, ObjectSet<CleanupKey> currentKeysToClean, ObjectSet<Object> currentFullClean) {
+        for (Iterator<Key> iterator = keys.iterator(); iterator.hasNext(); ) {
+            Key key = iterator.next();
+            if (isCleaned(key, currentKeysToClean, currentFullClean)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private boolean isCleaned(Key key, ObjectSet<CleanupKey> currentKeysToClean, ObjectSet<Object> currentFullClean) {
+        return currentFullClean.contains(key.entity.getCacheIdentity())
+            || currentKeysToClean.contains(new CleanupKey(key.entity, key.readerCacheKey));
+    }
+
 
     /**
      * Returns the current size of the cache
@@ -329,6 +536,13 @@ public final class IndicesRequestCache implements RemovalListener<IndicesRequest
         return cache.count();
     }
 
+    /**
+     * Returns the current size of the disk tier
+     */
+    int diskCount() {
+        return diskTier == null ? 0 : diskTier.count();
+    }
+
     int numRegisteredCloseListeners() { // for testing
         return registeredClosedListeners.size();
     }
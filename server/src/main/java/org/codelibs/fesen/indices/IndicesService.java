@@ -24,6 +24,7 @@ import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.message.ParameterizedMessage;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader.CacheHelper;
+import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.util.CollectionUtil;
 import org.apache.lucene.util.RamUsageEstimator;
@@ -116,6 +117,8 @@ import org.codelibs.fesen.index.shard.IndexShardState;
 import org.codelibs.fesen.index.shard.IndexingOperationListener;
 import org.codelibs.fesen.index.shard.IndexingStats;
 import org.codelibs.fesen.index.shard.ShardId;
+import org.codelibs.fesen.index.shard.ShardUtils;
+import org.codelibs.fesen.index.translog.TranslogSyncTracker;
 import org.codelibs.fesen.indices.breaker.CircuitBreakerService;
 import org.codelibs.fesen.indices.cluster.IndicesClusterStateService;
 import org.codelibs.fesen.indices.fielddata.cache.IndicesFieldDataCache;
@@ -128,6 +131,8 @@ import org.codelibs.fesen.plugins.PluginsService;
 import org.codelibs.fesen.repositories.RepositoriesService;
 import org.codelibs.fesen.script.ScriptService;
 import org.codelibs.fesen.search.aggregations.support.ValuesSourceRegistry;
+import org.codelibs.fesen.search.fetch.subphase.highlight.HighlightAnalysisCache;
+import org.codelibs.fesen.search.fetch.subphase.highlight.HighlightAnalysisCacheStats;
 import org.codelibs.fesen.search.internal.AliasFilter;
 import org.codelibs.fesen.search.internal.SearchContext;
 import org.codelibs.fesen.search.internal.ShardSearchRequest;
@@ -140,7 +145,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -205,6 +212,7 @@ public class IndicesService extends AbstractLifecycleComponent
     private final CacheCleaner cacheCleaner;
     private final ThreadPool threadPool;
     private final CircuitBreakerService circuitBreakerService;
+    private final TranslogSyncTracker translogSyncTracker;
     private final BigArrays bigArrays;
     private final ScriptService scriptService;
     private final ClusterService clusterService;
@@ -233,6 +241,8 @@ public class IndicesService extends AbstractLifecycleComponent
     private final Set<Index> danglingIndicesToWrite = Sets.newConcurrentHashSet();
     private final boolean nodeWriteDanglingIndicesInfo;
     private final ValuesSourceRegistry valuesSourceRegistry;
+    @Nullable
+    private final HighlightAnalysisCache highlightAnalysisCache;
 
     @Override
     protected void doStart() {
@@ -247,18 +257,22 @@ public class IndicesService extends AbstractLifecycleComponent
                           ScriptService scriptService, ClusterService clusterService, Client client, MetaStateService metaStateService,
                           Collection<Function<IndexSettings, Optional<EngineFactory>>> engineFactoryProviders,
                           Map<String, IndexStorePlugin.DirectoryFactory> directoryFactories, ValuesSourceRegistry valuesSourceRegistry,
-                          Map<String, IndexStorePlugin.RecoveryStateFactory> recoveryStateFactories) {
+                          Map<String, IndexStorePlugin.RecoveryStateFactory> recoveryStateFactories,
+                          @Nullable HighlightAnalysisCache highlightAnalysisCache) {
         this.settings = settings;
         this.threadPool = threadPool;
         this.pluginsService = pluginsService;
         this.nodeEnv = nodeEnv;
         this.xContentRegistry = xContentRegistry;
         this.valuesSourceRegistry = valuesSourceRegistry;
+        this.highlightAnalysisCache = highlightAnalysisCache;
         this.shardsClosedTimeout = settings.getAsTime(INDICES_SHARDS_CLOSED_TIMEOUT, new TimeValue(1, TimeUnit.DAYS));
         this.analysisRegistry = analysisRegistry;
         this.indexNameExpressionResolver = indexNameExpressionResolver;
-        this.indicesRequestCache = new IndicesRequestCache(settings);
-        this.indicesQueryCache = new IndicesQueryCache(settings);
+        this.indicesRequestCache = new IndicesRequestCache(settings, nodeEnv.hasNodeFile()
+            ? Arrays.stream(nodeEnv.nodeDataPaths()).map(path -> path.resolve(IndicesRequestCache.DISK_TIER_FOLDER)).toArray(Path[]::new)
+            : null, threadPool.generic());
+        this.indicesQueryCache = new IndicesQueryCache(settings, this::isMergingSegment);
         this.mapperRegistry = mapperRegistry;
         this.namedWriteableRegistry = namedWriteableRegistry;
         indexingMemoryController = new IndexingMemoryController(settings, threadPool,
@@ -266,6 +280,7 @@ public class IndicesService extends AbstractLifecycleComponent
                                                                 () -> Iterables.flatten(this).iterator());
         this.indexScopedSettings = indexScopedSettings;
         this.circuitBreakerService = circuitBreakerService;
+        this.translogSyncTracker = new TranslogSyncTracker(nodeEnv);
         this.bigArrays = bigArrays;
         this.scriptService = scriptService;
         this.clusterService = clusterService;
@@ -410,10 +425,15 @@ public class IndicesService extends AbstractLifecycleComponent
                 case Flush:
                     commonStats.flush.add(oldShardsStats.flushStats);
                     break;
+                case Translog:
+                    commonStats.translog.setSyncStatsByDevice(translogSyncTracker.stats());
+                    break;
             }
         }
 
-        return new NodeIndicesStats(commonStats, statsByShard(this, flags));
+        final HighlightAnalysisCacheStats highlightAnalysisCacheStats =
+            highlightAnalysisCache != null && flags.isSet(Flag.Search) ? highlightAnalysisCache.stats() : null;
+        return new NodeIndicesStats(commonStats, statsByShard(this, flags), highlightAnalysisCacheStats);
     }
 
     Map<Index, List<IndexShardStats>> statsByShard(final IndicesService indicesService, final CommonStatsFlags flags) {
@@ -504,6 +524,19 @@ public class IndicesService extends AbstractLifecycleComponent
         return indices.get(index.getUUID());
     }
 
+    /**
+     * Returns whether the given segment belongs to a shard of this node and is currently being merged away.
+     */
+    private boolean isMergingSegment(LeafReader reader) {
+        final ShardId shardId = ShardUtils.extractShardId(reader);
+        if (shardId == null) {
+            return false;
+        }
+        final IndexService indexService = indexService(shardId.getIndex());
+        final IndexShard indexShard = indexService == null ? null : indexService.getShardOrNull(shardId.id());
+        return indexShard != null && indexShard.isMergingSegment(reader);
+    }
+
     /**
      * Returns an IndexService for the specified index if exists otherwise a {@link IndexNotFoundException} is thrown.
      */
@@ -668,7 +701,8 @@ public class IndicesService extends AbstractLifecycleComponent
                 indicesFieldDataCache,
                 namedWriteableRegistry,
                 this::isIdFieldDataEnabled,
-                valuesSourceRegistry
+                valuesSourceRegistry,
+                translogSyncTracker
         );
     }
 
@@ -1523,6 +1557,11 @@ public class IndicesService extends AbstractLifecycleComponent
             if ((requestCache || (clearedAtLeastOne == false && fields.length == 0)) && shard != null) {
                 indicesRequestCache.clear(new IndexShardCacheEntity(shard));
             }
+            // the highlight analysis cache has no flag of its own, it is only cleared along with all other caches
+            if (highlightAnalysisCache != null && queryCache == false && fieldDataCache == false && requestCache == false
+                    && fields.length == 0) {
+                highlightAnalysisCache.clear(shardId);
+            }
         }
     }
 
@@ -0,0 +1,274 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.codelibs.fesen.indices;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefIterator;
+import org.codelibs.fesen.common.bytes.BytesArray;
+import org.codelibs.fesen.common.bytes.BytesReference;
+import org.codelibs.fesen.common.util.concurrent.ConcurrentCollections;
+import org.codelibs.fesen.core.internal.io.IOUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A {@link RequestCacheTier} that stores values in memory-mapped files, so that they live in the file system cache rather than
+ * on the Java heap.
+ * <p>
+ * The space is split into a fixed number of equally sized segment files that are used as a ring: values are appended to the
+ * current segment and, once it is full, the oldest segment is recycled. Recycling a segment evicts all of its entries at once,
+ * which bounds the disk usage without having to deal with fragmentation. Invalidated entries only give back their space when
+ * their segment gets recycled. The keys and the locations of the values are kept on heap. If several directories are given,
+ * the segment files are striped across them.
+ */
+final class MMapRequestCacheTier<K> implements RequestCacheTier<K> {
+
+    private static final Logger logger = LogManager.getLogger(MMapRequestCacheTier.class);
+
+    static final int DEFAULT_SEGMENT_COUNT = 8;
+    // a single mapping cannot exceed 2GB, so large tiers use more segments
+    static final int MAX_SEGMENT_SIZE = 1 << 30;
+
+    private final Path[] directories;
+    private final RemovalListener<K> removalListener;
+    private final int segmentSize;
+    private final Segment[] segments;
+    private final ConcurrentMap<K, Entry> entries = ConcurrentCollections.newConcurrentMap();
+    private final AtomicLong sizeInBytes = new AtomicLong();
+
+    // guarded by this
+    private int currentSegment = -1;
+    private boolean closed;
+
+    MMapRequestCacheTier(Path directory, long maxSizeInBytes, RemovalListener<K> removalListener) throws IOException {
+        this(new Path[] { directory }, maxSizeInBytes, removalListener);
+    }
+
+    /**
+     * @param directories     the directories to stripe the segment files across, their current content is deleted
+     * @param maxSizeInBytes  the maximum number of bytes used by the segment files
+     * @param removalListener notified whenever an entry is evicted or invalidated
+     */
+    MMapRequestCacheTier(Path[] directories, long maxSizeInBytes, RemovalListener<K> removalListener) throws IOException {
+        if (maxSizeInBytes <= 0) {
+            throw new IllegalArgumentException("the size of the tier must be positive but was [" + maxSizeInBytes + "]");
+        }
+        if (directories.length == 0) {
+            throw new IllegalArgumentException("the tier needs at least one directory");
+        }
+        this.directories = directories.clone();
+        this.removalListener = removalListener;
+        this.segmentSize = (int) Math.min(MAX_SEGMENT_SIZE, Math.max(1, maxSizeInBytes / DEFAULT_SEGMENT_COUNT));
+        this.segments = new Segment[(int) Math.max(1, maxSizeInBytes / segmentSize)];
+        // files left behind by a previous run reference readers that do not exist anymore
+        IOUtils.rm(this.directories);
+        for (Path directory : this.directories) {
+            Files.createDirectories(directory);
+        }
+    }
+
+    @Override
+    public BytesReference get(K key) {
+        final Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        final Lock lock = entry.segment.lock.readLock();
+        lock.lock();
+        try {
+            if (entries.get(key) != entry) {
+                // the entry was invalidated or its segment recycled in the meantime
+                return null;
+            }
+            final byte[] bytes = new byte[entry.length];
+            final ByteBuffer source = entry.segment.buffer.duplicate();
+            source.position(entry.offset);
+            source.get(bytes);
+            return new BytesArray(bytes);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public synchronized boolean put(K key, BytesReference value) throws IOException {
+        final int length = value.length();
+        if (closed || length > segmentSize) {
+            return false;
+        }
+        invalidate(key);
+        Segment segment = currentSegment == -1 ? null : segments[currentSegment];
+        if (segment == null || segment.position + length > segmentSize) {
+            segment = nextSegment();
+        }
+        final int offset = segment.position;
+        final ByteBuffer target = segment.buffer.duplicate();
+        target.position(offset);
+        final BytesRefIterator iterator = value.iterator();
+        for (BytesRef ref = iterator.next(); ref != null; ref = iterator.next()) {
+            target.put(ref.bytes, ref.offset, ref.length);
+        }
+        segment.position = offset + length;
+        // publishing the entry makes the bytes written above visible to readers
+        entries.put(key, new Entry(segment, offset, length));
+        sizeInBytes.addAndGet(length);
+        return true;
+    }
+
+    private Segment nextSegment() throws IOException {
+        assert Thread.holdsLock(this);
+        currentSegment = (currentSegment + 1) % segments.length;
+        Segment segment = segments[currentSegment];
+        if (segment == null) {
+            final Path directory = directories[currentSegment % directories.length];
+            segment = new Segment(directory.resolve("segment_" + currentSegment), segmentSize);
+            segments[currentSegment] = segment;
+        } else {
+            // no reader may copy from the segment while it gets recycled
+            segment.lock.writeLock().lock();
+            try {
+                for (Map.Entry<K, Entry> entry : entries.entrySet()) {
+                    if (entry.getValue().segment == segment) {
+                        remove(entry.getKey(), entry.getValue(), true);
+                    }
+                }
+                segment.position = 0;
+            } finally {
+                segment.lock.writeLock().unlock();
+            }
+        }
+        return segment;
+    }
+
+    @Override
+    public void invalidate(K key) {
+        final Entry entry = entries.get(key);
+        if (entry != null) {
+            remove(key, entry, false);
+        }
+    }
+
+    private void remove(K key, Entry entry, boolean evicted) {
+        if (entries.remove(key, entry)) {
+            sizeInBytes.addAndGet(-entry.length);
+            removalListener.onRemoval(key, entry.length, evicted);
+        }
+    }
+
+    @Override
+    public Iterable<K> keys() {
+        return () -> new Iterator<K>() {
+            private final Iterator<K> delegate = entries.keySet().iterator();
+            private K current;
+
+            @Override
+            public boolean hasNext() {
+                return delegate.hasNext();
+            }
+
+            @Override
+            public K next() {
+                current = delegate.next();
+                return current;
+            }
+
+            @Override
+            public void remove() {
+                if (current == null) {
+                    throw new IllegalStateException("next() has not been called");
+                }
+                invalidate(current);
+                current = null;
+            }
+        };
+    }
+
+    @Override
+    public int count() {
+        return entries.size();
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return sizeInBytes.get();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (K key : entries.keySet()) {
+            invalidate(key);
+        }
+        // the mappings themselves are released once the buffers get garbage collected
+        try {
+            IOUtils.rm(directories);
+        } catch (IOException e) {
+            logger.warn(() -> new ParameterizedMessage("failed to delete request cache files under {}", Arrays.toString(directories)), e);
+        }
+    }
+
+    private static final class Segment {
+
+        private final MappedByteBuffer buffer;
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        // guarded by the tier
+        private int position;
+
+        Segment(Path path, int size) throws IOException {
+            try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        private final Segment segment;
+        private final int offset;
+        private final int length;
+
+        Entry(Segment segment, int offset, int length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
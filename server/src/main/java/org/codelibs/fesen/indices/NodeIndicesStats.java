@@ -19,6 +19,7 @@
 
 package org.codelibs.fesen.indices;
 
+import org.codelibs.fesen.Version;
 import org.codelibs.fesen.action.admin.indices.stats.CommonStats;
 import org.codelibs.fesen.action.admin.indices.stats.IndexShardStats;
 import org.codelibs.fesen.action.admin.indices.stats.ShardStats;
@@ -44,6 +45,7 @@ import org.codelibs.fesen.index.shard.IndexingStats;
 import org.codelibs.fesen.index.store.StoreStats;
 import org.codelibs.fesen.index.translog.TranslogStats;
 import org.codelibs.fesen.index.warmer.WarmerStats;
+import org.codelibs.fesen.search.fetch.subphase.highlight.HighlightAnalysisCacheStats;
 import org.codelibs.fesen.search.suggest.completion.CompletionStats;
 
 import java.io.IOException;
@@ -59,6 +61,8 @@ public class NodeIndicesStats implements Writeable, ToXContentFragment {
 
     private CommonStats stats;
     private Map<Index, List<IndexShardStats>> statsByShard;
+    @Nullable
+    private HighlightAnalysisCacheStats highlightAnalysisCacheStats;
 
     public NodeIndicesStats(StreamInput in) throws IOException {
         stats = new CommonStats(in);
@@ -75,9 +79,18 @@ public class NodeIndicesStats implements Writeable, ToXContentFragment {
                 statsByShard.put(index, indexShardStats);
             }
         }
+        if (in.getVersion().onOrAfter(Version.V_0_13_1)) {
+            highlightAnalysisCacheStats = in.readOptionalWriteable(HighlightAnalysisCacheStats::new);
+        }
     }
 
     public NodeIndicesStats(CommonStats oldStats, Map<Index, List<IndexShardStats>> statsByShard) {
+        this(oldStats, statsByShard, null);
+    }
+
+    public NodeIndicesStats(CommonStats oldStats, Map<Index, List<IndexShardStats>> statsByShard,
+                            @Nullable HighlightAnalysisCacheStats highlightAnalysisCacheStats) {
+        this.highlightAnalysisCacheStats = highlightAnalysisCacheStats;
         //this.stats = stats;
         this.statsByShard = statsByShard;
 
@@ -172,6 +185,14 @@ public class NodeIndicesStats implements Writeable, ToXContentFragment {
         return stats.getRecoveryStats();
     }
 
+    /**
+     * The stats of the node level cache of the unified highlighter, or {@code null} if it is disabled or search stats were not requested
+     */
+    @Nullable
+    public HighlightAnalysisCacheStats getHighlightAnalysisCacheStats() {
+        return highlightAnalysisCacheStats;
+    }
+
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         stats.writeTo(out);
@@ -186,6 +207,9 @@ public class NodeIndicesStats implements Writeable, ToXContentFragment {
                 }
             }
         }
+        if (out.getVersion().onOrAfter(Version.V_0_13_1)) {
+            out.writeOptionalWriteable(highlightAnalysisCacheStats);
+        }
     }
 
     @Override
@@ -200,6 +224,9 @@ public class NodeIndicesStats implements Writeable, ToXContentFragment {
         // "node" level
         builder.startObject(Fields.INDICES);
         stats.toXContent(builder, params);
+        if (highlightAnalysisCacheStats != null) {
+            highlightAnalysisCacheStats.toXContent(builder, params);
+        }
 
         if ("indices".equals(level)) {
             Map<Index, CommonStats> indexStats = createStatsByIndex();
@@ -0,0 +1,88 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.codelibs.fesen.indices;
+
+import org.codelibs.fesen.common.Nullable;
+import org.codelibs.fesen.common.bytes.BytesReference;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A second level of the {@link IndicesRequestCache} that receives the entries evicted from the on-heap cache. Tiers keep their
+ * values outside of the Java heap so that the request cache can grow larger than what the heap could afford. Implementations
+ * must be thread-safe.
+ */
+interface RequestCacheTier<K> extends Closeable {
+
+    /**
+     * Returns a copy of the value cached for the given key or {@code null} if the key is not cached in this tier.
+     */
+    @Nullable
+    BytesReference get(K key) throws IOException;
+
+    /**
+     * Caches the given value, possibly evicting older entries to make room for it.
+     *
+     * @return {@code false} if the value was not cached, for instance because it does not fit into this tier
+     */
+    boolean put(K key, BytesReference value) throws IOException;
+
+    /**
+     * Removes the entry for the given key from this tier, if any.
+     */
+    void invalidate(K key);
+
+    /**
+     * Returns the keys cached in this tier. Removing a key through the iterator invalidates its entry.
+     */
+    Iterable<K> keys();
+
+    /**
+     * Returns the number of entries cached in this tier.
+     */
+    int count();
+
+    /**
+     * Returns the number of bytes used by the values cached in this tier.
+     */
+    long sizeInBytes();
+
+    /**
+     * Invalidates all entries and releases the resources held by this tier.
+     */
+    @Override
+    void close();
+
+    /**
+     * Notified whenever an entry leaves a tier.
+     */
+    @FunctionalInterface
+    interface RemovalListener<K> {
+
+        /**
+         * @param key         the key of the removed entry
+         * @param sizeInBytes the size of the value of the removed entry
+         * @param evicted     {@code true} if the entry was evicted to make room for other entries, {@code false} if it was
+         *                    invalidated
+         */
+        void onRemoval(K key, long sizeInBytes, boolean evicted);
+    }
+}
@@ -39,6 +39,7 @@ import org.codelibs.fesen.common.settings.Setting;
 import org.codelibs.fesen.common.settings.Settings;
 import org.codelibs.fesen.common.settings.Setting.Property;
 import org.codelibs.fesen.common.unit.ByteSizeValue;
+import org.codelibs.fesen.common.util.concurrent.ConcurrentCollections;
 import org.codelibs.fesen.index.Index;
 import org.codelibs.fesen.index.fielddata.IndexFieldData;
 import org.codelibs.fesen.index.fielddata.IndexFieldDataCache;
@@ -49,6 +50,7 @@ import org.codelibs.fesen.index.shard.ShardUtils;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.ToLongBiFunction;
 
 public class IndicesFieldDataCache implements RemovalListener<IndicesFieldDataCache.Key, Accountable>, Releasable{
@@ -64,7 +66,7 @@ public class IndicesFieldDataCache implements RemovalListener<IndicesFieldDataCa
         this.indicesFieldDataCacheListener = indicesFieldDataCacheListener;
         final long sizeInBytes = INDICES_FIELDDATA_CACHE_SIZE_KEY.get(settings).getBytes();
         CacheBuilder<Key, Accountable> cacheBuilder = CacheBuilder.<Key, Accountable>builder()
-                .removalListener(this);
+                .removalListener(this).setBufferedPromotion(true);
         if (sizeInBytes > 0) {
             cacheBuilder.setMaximumWeight(sizeInBytes).weigher(new FieldDataWeigher());
         }
@@ -90,6 +92,7 @@ public class IndicesFieldDataCache implements RemovalListener<IndicesFieldDataCa
         assert key != null && key.listeners != null;
         IndexFieldCache indexCache = key.indexCache;
         final Accountable value = notification.getValue();
+        indexCache.onRemoval(key, value);
         for (IndexFieldDataCache.Listener listener : key.listeners) {
             try {
                 listener.onRemoval(
@@ -120,6 +123,10 @@ public class IndicesFieldDataCache implements RemovalListener<IndicesFieldDataCa
         final String fieldName;
         private final Cache<Key, Accountable> cache;
         private final Listener[] listeners;
+        // the most recently loaded global field data per shard, reused to load the global field data of the next reader
+        private final ConcurrentMap<ShardId, IndexFieldData<?>> latestGlobals = ConcurrentCollections.newConcurrentMap();
+        // when the global field data of each shard was last found in the cache, in nanoseconds
+        private final ConcurrentMap<ShardId, Long> lastGlobalUses = ConcurrentCollections.newConcurrentMap();
 
         IndexFieldCache(Logger logger,final Cache<Key, Accountable> cache, Index index, String fieldName, Listener... listeners) {
             this.logger = logger;
@@ -167,11 +174,14 @@ public class IndicesFieldDataCache implements RemovalListener<IndicesFieldDataCa
                 throw new IllegalArgumentException("Reader " + indexReader + " does not support caching");
             }
             final Key key = new Key(this, cacheHelper.getKey(), shardId);
+            final boolean[] loaded = new boolean[1];
             //noinspection unchecked
             final Accountable accountable = cache.computeIfAbsent(key, k -> {
+                loaded[0] = true;
                 FesenDirectoryReader.addReaderCloseListener(indexReader, IndexFieldCache.this);
                 Collections.addAll(k.listeners, this.listeners);
-                final Accountable ifd = (Accountable) indexFieldData.loadGlobalDirect(indexReader);
+                final IndexFieldData<?> previous = shardId == null ? null : latestGlobals.get(shardId);
+                final Accountable ifd = (Accountable) indexFieldData.loadGlobalDirect(indexReader, previous);
                 for (Listener listener : k.listeners) {
                     try {
                         listener.onCache(shardId, fieldName, ifd);
@@ -180,11 +190,37 @@ public class IndicesFieldDataCache implements RemovalListener<IndicesFieldDataCa
                         logger.error("Failed to call listener on global ordinals loading", e);
                     }
                 }
+                if (shardId != null) {
+                    latestGlobals.put(shardId, (IndexFieldData<?>) ifd);
+                }
                 return ifd;
             });
+            // only lookups of field data that is already loaded count as uses, so that the loads of the warmer don't keep
+            // the field warm forever
+            if (loaded[0] == false && shardId != null) {
+                lastGlobalUses.put(shardId, System.nanoTime());
+            }
             return (IFD) accountable;
         }
 
+        @Override
+        public boolean hasRecentlyUsedGlobal(ShardId shardId, long maxIdleNanos) {
+            final Long lastUse = lastGlobalUses.get(shardId);
+            return lastUse != null && System.nanoTime() - lastUse <= maxIdleNanos && latestGlobals.containsKey(shardId);
+        }
+
+        /**
+         * Forgets about global field data once it is removed from the cache, typically because its reader was closed.
+         */
+        void onRemoval(Key key, Accountable value) {
+            if (key.shardId != null) {
+                latestGlobals.computeIfPresent(key.shardId, (shardId, latest) -> latest == value ? null : latest);
+                if (latestGlobals.containsKey(key.shardId) == false) {
+                    lastGlobalUses.remove(key.shardId);
+                }
+            }
+        }
+
         @Override
         public void onClose(CacheKey key) throws IOException {
             cache.invalidate(new Key(this, key, null));
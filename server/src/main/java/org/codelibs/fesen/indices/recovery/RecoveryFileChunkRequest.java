@@ -26,10 +26,11 @@ import org.codelibs.fesen.common.io.stream.StreamOutput;
 import org.codelibs.fesen.common.lucene.Lucene;
 import org.codelibs.fesen.index.shard.ShardId;
 import org.codelibs.fesen.index.store.StoreFileMetadata;
+import org.codelibs.fesen.transport.RawIndexingDataTransportRequest;
 
 import java.io.IOException;
 
-public final class RecoveryFileChunkRequest extends RecoveryTransportRequest {
+public final class RecoveryFileChunkRequest extends RecoveryTransportRequest implements RawIndexingDataTransportRequest {
     private final boolean lastChunk;
     private final long recoveryId;
     private final ShardId shardId;
@@ -30,8 +30,9 @@ import org.codelibs.fesen.index.seqno.RetentionLeases;
 import org.codelibs.fesen.index.seqno.SequenceNumbers;
 import org.codelibs.fesen.index.shard.ShardId;
 import org.codelibs.fesen.index.translog.Translog;
+import org.codelibs.fesen.transport.RawIndexingDataTransportRequest;
 
-public class RecoveryTranslogOperationsRequest extends RecoveryTransportRequest {
+public class RecoveryTranslogOperationsRequest extends RecoveryTransportRequest implements RawIndexingDataTransportRequest {
 
     private final long recoveryId;
     private final ShardId shardId;
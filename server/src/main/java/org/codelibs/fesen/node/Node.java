@@ -90,6 +90,7 @@ import org.codelibs.fesen.common.transport.TransportAddress;
 import org.codelibs.fesen.common.unit.TimeValue;
 import org.codelibs.fesen.common.util.BigArrays;
 import org.codelibs.fesen.common.util.PageCacheRecycler;
+import org.codelibs.fesen.common.util.concurrent.EsExecutors;
 import org.codelibs.fesen.common.xcontent.NamedXContentRegistry;
 import org.codelibs.fesen.core.internal.io.IOUtils;
 import org.codelibs.fesen.discovery.Discovery;
@@ -481,7 +482,8 @@ public class Node implements Closeable {
             final MetaStateService metaStateService = new MetaStateService(nodeEnvironment, xContentRegistry);
             final PersistedClusterStateService lucenePersistedStateFactory
                 = new PersistedClusterStateService(nodeEnvironment, xContentRegistry, bigArrays, clusterService.getClusterSettings(),
-                threadPool::relativeTimeInMillis);
+                threadPool::relativeTimeInMillis, threadPool.generic(),
+                Math.min(PersistedClusterStateService.MAX_SERIALIZATION_PARALLELISM, EsExecutors.allocatedProcessors(settings)));
 
             // collect engine factory providers from plugins
             final Collection<EnginePlugin> enginePlugins = pluginsService.filterPlugins(EnginePlugin.class);
@@ -522,7 +524,7 @@ public class Node implements Closeable {
                     clusterModule.getIndexNameExpressionResolver(), indicesModule.getMapperRegistry(), namedWriteableRegistry,
                     threadPool, settingsModule.getIndexScopedSettings(), circuitBreakerService, bigArrays, scriptService,
                     clusterService, client, metaStateService, engineFactoryProviders, indexStoreFactories,
-                    searchModule.getValuesSourceRegistry(), recoveryStateFactories);
+                    searchModule.getValuesSourceRegistry(), recoveryStateFactories, searchModule.getHighlightAnalysisCache());
 
             final AliasValidator aliasValidator = new AliasValidator();
 
@@ -664,6 +666,7 @@ public class Node implements Closeable {
                     b.bind(MetadataCreateIndexService.class).toInstance(metadataCreateIndexService);
                     b.bind(MetadataCreateDataStreamService.class).toInstance(metadataCreateDataStreamService);
                     b.bind(SearchService.class).toInstance(searchService);
+                    b.bind(ResponseCollectorService.class).toInstance(responseCollectorService);
                     b.bind(SearchTransportService.class).toInstance(searchTransportService);
                     b.bind(SearchPhaseController.class).toInstance(new SearchPhaseController(
                         namedWriteableRegistry, searchService::aggReduceContextBuilder));
@@ -75,6 +75,7 @@ public class RestPendingClusterTasksAction extends AbstractCatAction {
         t.addCell("timeInQueue", "alias:t;text-align:right;desc:how long task has been in queue");
         t.addCell("priority", "alias:p;desc:task priority");
         t.addCell("source", "alias:s;desc:task source");
+        t.addCell("executionTime", "alias:et;default:false;text-align:right;desc:how long the executing task has been running");
         t.endHeaders();
         return t;
     }
@@ -88,6 +89,7 @@ public class RestPendingClusterTasksAction extends AbstractCatAction {
             t.addCell(task.getTimeInQueue());
             t.addCell(task.getPriority());
             t.addCell(task.getSource());
+            t.addCell(task.getExecutionTime());
             t.endRow();
         }
 
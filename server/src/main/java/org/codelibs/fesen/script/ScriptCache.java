@@ -65,7 +65,7 @@ public class ScriptCache {
         this.cacheExpire = cacheExpire;
         this.contextRateSetting = contextRateSetting;
 
-        CacheBuilder<CacheKey, Object> cacheBuilder = CacheBuilder.builder();
+        CacheBuilder<CacheKey, Object> cacheBuilder = CacheBuilder.<CacheKey, Object>builder().setBufferedPromotion(true);
         if (this.cacheSize >= 0) {
             cacheBuilder.setMaximumWeight(this.cacheSize);
         }
@@ -21,6 +21,7 @@ package org.codelibs.fesen.search;
 
 import org.apache.lucene.search.BooleanQuery;
 import org.codelibs.fesen.common.NamedRegistry;
+import org.codelibs.fesen.common.Nullable;
 import org.codelibs.fesen.common.ParseField;
 import org.codelibs.fesen.common.geo.GeoShapeType;
 import org.codelibs.fesen.common.geo.ShapesAvailability;
@@ -256,6 +257,7 @@ import org.codelibs.fesen.search.fetch.subphase.MatchedQueriesPhase;
 import org.codelibs.fesen.search.fetch.subphase.ScriptFieldsPhase;
 import org.codelibs.fesen.search.fetch.subphase.SeqNoPrimaryTermPhase;
 import org.codelibs.fesen.search.fetch.subphase.highlight.FastVectorHighlighter;
+import org.codelibs.fesen.search.fetch.subphase.highlight.HighlightAnalysisCache;
 import org.codelibs.fesen.search.fetch.subphase.highlight.HighlightPhase;
 import org.codelibs.fesen.search.fetch.subphase.highlight.Highlighter;
 import org.codelibs.fesen.search.fetch.subphase.highlight.PlainHighlighter;
@@ -301,6 +303,8 @@ public class SearchModule {
             1024, 1, Integer.MAX_VALUE, Setting.Property.NodeScope);
 
     private final boolean transportClient;
+    @Nullable
+    private final HighlightAnalysisCache highlightAnalysisCache;
     private final Map<String, Highlighter> highlighters;
     private final ParseFieldRegistry<MovAvgModel.AbstractModelParser> movingAverageModelParserRegistry = new ParseFieldRegistry<>(
             "moving_avg_model");
@@ -325,6 +329,8 @@ public class SearchModule {
         this.settings = settings;
         this.transportClient = transportClient;
         registerSuggesters(plugins);
+        highlightAnalysisCache = HighlightAnalysisCache.CACHE_SIZE_SETTING.get(settings).getBytes() > 0
+            ? new HighlightAnalysisCache(settings) : null;
         highlighters = setupHighlighters(settings, plugins);
         registerScoreFunctions(plugins);
         registerQueryParsers(plugins);
@@ -361,6 +367,14 @@ public class SearchModule {
         return highlighters;
     }
 
+    /**
+     * Returns the cache of the unified highlighter, or {@code null} if it is disabled
+     */
+    @Nullable
+    public HighlightAnalysisCache getHighlightAnalysisCache() {
+        return highlightAnalysisCache;
+    }
+
     /**
      * The registry of {@link MovAvgModel}s.
      */
@@ -728,7 +742,7 @@ public class SearchModule {
         NamedRegistry<Highlighter> highlighters = new NamedRegistry<>("highlighter");
         highlighters.register("fvh",  new FastVectorHighlighter(settings));
         highlighters.register("plain", new PlainHighlighter());
-        highlighters.register("unified", new UnifiedHighlighter());
+        highlighters.register("unified", new UnifiedHighlighter(highlightAnalysisCache));
         highlighters.extractAndRegister(plugins, SearchPlugin::getHighlighters);
 
         return unmodifiableMap(highlighters.getRegistry());
@@ -159,6 +159,14 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
     public static final Setting<Boolean> LOW_LEVEL_CANCELLATION_SETTING =
         Setting.boolSetting("search.low_level_cancellation", true, Property.Dynamic, Property.NodeScope);
 
+    /**
+     * Enables the {@link ThreadPool.Names#INDEX_SEARCHER} thread-pool that collects the segments of a shard concurrently.
+     * Indices opt in with {@link IndexSettings#INDEX_CONCURRENT_SEGMENT_SEARCH_SETTING}, which is ignored on nodes where
+     * this setting is disabled.
+     */
+    public static final Setting<Boolean> CONCURRENT_SEGMENT_SEARCH_SETTING =
+        Setting.boolSetting("search.concurrent_segment_search.enabled", false, Property.NodeScope);
+
     public static final TimeValue NO_TIMEOUT = timeValueMillis(-1);
     public static final Setting<TimeValue> DEFAULT_SEARCH_TIMEOUT_SETTING =
         Setting.timeSetting("search.default_search_timeout", NO_TIMEOUT, Property.Dynamic, Property.NodeScope);
@@ -933,7 +941,8 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         if (source.aggregations() != null && includeAggregations) {
             try {
                 AggregatorFactories factories = source.aggregations().build(queryShardContext, null);
-                context.aggregations(new SearchContextAggregations(factories, multiBucketConsumerService.create()));
+                context.aggregations(new SearchContextAggregations(factories, multiBucketConsumerService.create(),
+                    () -> ReduceContext.forPartialReduction(bigArrays, scriptService, source.aggregations()::buildPipelineTree)));
             } catch (IOException e) {
                 throw new AggregationInitializationException("Failed to create aggregators", e);
             }
@@ -23,6 +23,7 @@ import org.apache.lucene.search.Query;
 import org.codelibs.fesen.common.inject.Inject;
 import org.codelibs.fesen.common.lucene.search.Queries;
 import org.codelibs.fesen.search.aggregations.bucket.global.GlobalAggregator;
+import org.codelibs.fesen.search.aggregations.pipeline.PipelineAggregator.PipelineTree;
 import org.codelibs.fesen.search.internal.SearchContext;
 import org.codelibs.fesen.search.profile.query.CollectorResult;
 import org.codelibs.fesen.search.profile.query.InternalProfileCollector;
@@ -32,6 +33,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * Aggregation phase of a search request, used to collect aggregations
@@ -71,6 +73,30 @@ public class AggregationPhase {
         }
     }
 
+    /**
+     * Creates a new set of top level aggregators that collects one additional slice of a concurrent shard search.
+     * The results of these aggregators are merged with the ones of the main aggregators when the aggregation phase is
+     * executed. Global aggregators are only collected by the main aggregators, this method returns <code>null</code>
+     * if all top level aggregators are global.
+     */
+    public static Collector createSliceCollector(SearchContext context) throws IOException {
+        assert context.aggregations() != null && context.aggregations().supportsConcurrentSegmentSearch();
+        assert context.getProfilers() == null : "profiled searches cannot collect slices concurrently";
+        List<Aggregator> collectors = new ArrayList<>();
+        for (Aggregator aggregator : context.aggregations().factories().createTopLevelAggregators(context)) {
+            if (aggregator instanceof GlobalAggregator == false) {
+                collectors.add(aggregator);
+            }
+        }
+        if (collectors.isEmpty()) {
+            return null;
+        }
+        context.aggregations().addSliceAggregators(collectors.toArray(new Aggregator[0]));
+        BucketCollector collector = MultiBucketCollector.wrap(collectors);
+        collector.preCollection();
+        return collector;
+    }
+
     public void execute(SearchContext context) {
         if (context.aggregations() == null) {
             context.queryResult().aggregations(null);
@@ -115,9 +141,30 @@ public class AggregationPhase {
             }
         }
 
+        Supplier<PipelineTree> pipelineTreeSupplier = context.request().source().aggregations()::buildPipelineTree;
+        InternalAggregations shardAggregations = new InternalAggregations(buildTopLevel(context, aggregators), pipelineTreeSupplier);
+        List<Aggregator[]> sliceAggregators = context.aggregations().sliceAggregators();
+        if (sliceAggregators.isEmpty() == false) {
+            // merge the results of the slices that were collected concurrently
+            List<InternalAggregations> slices = new ArrayList<>(sliceAggregators.size() + 1);
+            slices.add(shardAggregations);
+            for (Aggregator[] slice : sliceAggregators) {
+                slices.add(new InternalAggregations(buildTopLevel(context, slice), pipelineTreeSupplier));
+            }
+            shardAggregations = InternalAggregations.reduce(slices, context.aggregations().partialReduceContext(),
+                reduced -> new InternalAggregations(reduced, pipelineTreeSupplier));
+        }
+        context.queryResult().aggregations(shardAggregations);
+
+        // disable aggregations so that they don't run on next pages in case of scrolling
+        context.aggregations(null);
+        context.queryCollectors().remove(AggregationPhase.class);
+    }
+
+    private static List<InternalAggregation> buildTopLevel(SearchContext context, Aggregator[] aggregators) {
         List<InternalAggregation> aggregations = new ArrayList<>(aggregators.length);
         context.aggregations().resetBucketMultiConsumer();
-        for (Aggregator aggregator : context.aggregations().aggregators()) {
+        for (Aggregator aggregator : aggregators) {
             try {
                 aggregator.postCollection();
                 aggregations.add(aggregator.buildTopLevel());
@@ -125,11 +172,6 @@ public class AggregationPhase {
                 throw new AggregationExecutionException("Failed to build aggregation [" + aggregator.name() + "]", e);
             }
         }
-        context.queryResult().aggregations(new InternalAggregations(aggregations,
-                context.request().source().aggregations()::buildPipelineTree));
-
-        // disable aggregations so that they don't run on next pages in case of scrolling
-        context.aggregations(null);
-        context.queryCollectors().remove(AggregationPhase.class);
+        return aggregations;
     }
 }
@@ -220,6 +220,19 @@ public class AggregatorFactories {
         return aggregators;
     }
 
+    /**
+     * Returns true if all factories, and their sub-factories, support collecting slices of a shard concurrently.
+     * @see AggregatorFactory#supportsConcurrentSegmentSearch()
+     */
+    public boolean supportsConcurrentSegmentSearch() {
+        for (AggregatorFactory factory : factories) {
+            if (factory.supportsConcurrentSegmentSearch() == false) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * @return the number of sub-aggregator factories
      */
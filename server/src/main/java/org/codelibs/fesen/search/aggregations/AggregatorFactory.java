@@ -81,6 +81,16 @@ public abstract class AggregatorFactory {
         return parent;
     }
 
+    /**
+     * Returns true if the aggregators created by this factory can collect disjoint slices of a shard concurrently,
+     * the shard level result being the partial reduction of the results of every slice. Aggregations whose shard
+     * level result depends on the whole shard (e.g. shard_size trimming, background frequencies or shard level sampling)
+     * must return false.
+     */
+    public boolean supportsConcurrentSegmentSearch() {
+        return factories.supportsConcurrentSegmentSearch();
+    }
+
     /**
      * Returns the aggregation subtype for nodes usage stats.
      * <p>
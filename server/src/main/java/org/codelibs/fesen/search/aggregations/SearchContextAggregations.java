@@ -18,6 +18,14 @@
  */
 package org.codelibs.fesen.search.aggregations;
 
+import org.codelibs.fesen.common.Nullable;
+import org.codelibs.fesen.search.aggregations.InternalAggregation.ReduceContext;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
 import static org.codelibs.fesen.search.aggregations.MultiBucketConsumerService.MultiBucketConsumer;
 
 /**
@@ -27,14 +35,26 @@ public class SearchContextAggregations {
 
     private final AggregatorFactories factories;
     private final MultiBucketConsumer multiBucketConsumer;
+    private final Supplier<ReduceContext> partialReduceContextSupplier;
     private Aggregator[] aggregators;
+    private List<Aggregator[]> sliceAggregators = Collections.emptyList();
 
     /**
      * Creates a new aggregation context with the parsed aggregator factories
      */
     public SearchContextAggregations(AggregatorFactories factories, MultiBucketConsumer multiBucketConsumer) {
+        this(factories, multiBucketConsumer, null);
+    }
+
+    /**
+     * Creates a new aggregation context with the parsed aggregator factories and a supplier of the
+     * {@link ReduceContext} used to merge the results of the slices of a concurrent shard search.
+     */
+    public SearchContextAggregations(AggregatorFactories factories, MultiBucketConsumer multiBucketConsumer,
+                                     @Nullable Supplier<ReduceContext> partialReduceContextSupplier) {
         this.factories = factories;
         this.multiBucketConsumer = multiBucketConsumer;
+        this.partialReduceContextSupplier = partialReduceContextSupplier;
     }
 
     public AggregatorFactories factories() {
@@ -54,6 +74,40 @@ public class SearchContextAggregations {
         this.aggregators = aggregators;
     }
 
+    /**
+     * Returns true if the aggregators can collect the slices of a shard concurrently,
+     * see {@link AggregatorFactory#supportsConcurrentSegmentSearch()}.
+     */
+    public boolean supportsConcurrentSegmentSearch() {
+        return partialReduceContextSupplier != null && factories.supportsConcurrentSegmentSearch();
+    }
+
+    /**
+     * The top level aggregators that collect the additional slices of a concurrent shard search.
+     */
+    public List<Aggregator[]> sliceAggregators() {
+        return sliceAggregators;
+    }
+
+    /**
+     * Registers the top level aggregators created for an additional slice of a concurrent shard search.
+     */
+    void addSliceAggregators(Aggregator[] aggregators) {
+        assert supportsConcurrentSegmentSearch();
+        if (sliceAggregators.isEmpty()) {
+            sliceAggregators = new ArrayList<>();
+        }
+        sliceAggregators.add(aggregators);
+    }
+
+    /**
+     * Builds the {@link ReduceContext} that merges the results of the slices of a concurrent shard search.
+     */
+    ReduceContext partialReduceContext() {
+        assert partialReduceContextSupplier != null;
+        return partialReduceContextSupplier.get();
+    }
+
     /**
      * Returns a consumer for multi bucket aggregation that checks the total number of buckets
      * created in the response
@@ -31,6 +31,7 @@ import java.util.function.IntConsumer;
 import java.util.function.LongUnaryOperator;
 import java.util.function.ToLongFunction;
 
+import org.apache.lucene.search.MatchAllDocsQuery;
 import org.codelibs.fesen.common.lease.Releasable;
 import org.codelibs.fesen.common.util.BigArrays;
 import org.codelibs.fesen.common.util.IntArray;
@@ -152,6 +153,22 @@ public abstract class BucketsAggregator extends AggregatorBase {
         docCounts.increment(bucketOrd, inc);
     }
 
+    /**
+     * Returns true if the doc counts of this aggregation may be read from the index, like the points or the postings of
+     * the field, instead of collecting every matching document. This is only the case if the aggregation is top level,
+     * has no sub-aggregations and the query matches all documents. Callers still need to check that the segment has no
+     * deleted documents.
+     */
+    protected final boolean canCountFromIndex() {
+        if (parent != null || subAggregators.length > 0) {
+            return false;
+        }
+        if (context.query() != null && context.query().getClass() != MatchAllDocsQuery.class) {
+            return false;
+        }
+        return context.minimumScore() == null && context.terminateAfter() == SearchContext.DEFAULT_TERMINATE_AFTER;
+    }
+
     /**
      * Utility method to return the number of documents that fell in the given bucket (identified by the bucket ordinal)
      */
@@ -0,0 +1,137 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.codelibs.fesen.search.aggregations.bucket;
+
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.PointValues;
+import org.apache.lucene.util.NumericUtils;
+import org.codelibs.fesen.index.fielddata.IndexNumericFieldData;
+import org.codelibs.fesen.index.mapper.DateFieldMapper;
+import org.codelibs.fesen.index.mapper.MappedFieldType;
+import org.codelibs.fesen.index.mapper.NumberFieldMapper;
+import org.codelibs.fesen.search.aggregations.support.ValuesSource;
+import org.codelibs.fesen.search.internal.SearchContext;
+
+import java.io.IOException;
+
+/**
+ * Counts the documents of a segment whose value falls within a range using the points of a {@code long} or
+ * millisecond {@code date} field, without reading doc values. Bucket aggregations use it to compute the counts
+ * of their buckets one range at a time when {@link BucketsAggregator#canCountFromIndex()} allows it.
+ */
+public final class PointRangeCounter {
+
+    private final PointValues values;
+    private final long minValue;
+    private final long maxValue;
+
+    private PointRangeCounter(PointValues values) throws IOException {
+        this.values = values;
+        this.minValue = LongPoint.decodeDimension(values.getMinPackedValue(), 0);
+        this.maxValue = LongPoint.decodeDimension(values.getMaxPackedValue(), 0);
+    }
+
+    /**
+     * Returns a counter for the points of the field read by the values source in the given segment, or {@code null}
+     * if the values source isn't a plain {@code long} or millisecond {@code date} field, if the field has no points
+     * in this segment or if some documents have more than one value, since a document must only be counted once
+     * per bucket.
+     */
+    public static PointRangeCounter build(SearchContext context, ValuesSource valuesSource, LeafReader reader) throws IOException {
+        if (valuesSource instanceof ValuesSource.Numeric.FieldData == false) {
+            // scripts and missing values wrap the field data
+            return null;
+        }
+        final IndexNumericFieldData fieldData = ((ValuesSource.Numeric.FieldData) valuesSource).indexFieldData();
+        final IndexNumericFieldData.NumericType numericType = fieldData.getNumericType();
+        if (numericType != IndexNumericFieldData.NumericType.LONG && numericType != IndexNumericFieldData.NumericType.DATE) {
+            return null;
+        }
+        final MappedFieldType fieldType = context.fieldType(fieldData.getFieldName());
+        if (fieldType instanceof NumberFieldMapper.NumberFieldType == false
+                && fieldType instanceof DateFieldMapper.DateFieldType == false) {
+            return null;
+        }
+        final PointValues values = reader.getPointValues(fieldData.getFieldName());
+        if (values == null || values.getNumIndexDimensions() != 1 || values.getBytesPerDimension() != Long.BYTES) {
+            return null;
+        }
+        if (values.getDocCount() != values.size()) {
+            return null;
+        }
+        return new PointRangeCounter(values);
+    }
+
+    /**
+     * The minimum value of the field in the segment.
+     */
+    public long minValue() {
+        return minValue;
+    }
+
+    /**
+     * The maximum value of the field in the segment.
+     */
+    public long maxValue() {
+        return maxValue;
+    }
+
+    /**
+     * Counts the documents whose value is between {@code from} and {@code to}, both inclusive.
+     */
+    public int count(long from, long to) throws IOException {
+        if (from > maxValue || to < minValue || from > to) {
+            return 0;
+        }
+        if (from <= minValue && to >= maxValue) {
+            return values.getDocCount();
+        }
+        final int[] count = new int[1];
+        values.intersect(new PointValues.IntersectVisitor() {
+            @Override
+            public void visit(int docID) {
+                count[0]++;
+            }
+
+            @Override
+            public void visit(int docID, byte[] packedValue) {
+                final long value = NumericUtils.sortableBytesToLong(packedValue, 0);
+                if (value >= from && value <= to) {
+                    count[0]++;
+                }
+            }
+
+            @Override
+            public PointValues.Relation compare(byte[] minPackedValue, byte[] maxPackedValue) {
+                final long min = NumericUtils.sortableBytesToLong(minPackedValue, 0);
+                final long max = NumericUtils.sortableBytesToLong(maxPackedValue, 0);
+                if (max < from || min > to) {
+                    return PointValues.Relation.CELL_OUTSIDE_QUERY;
+                }
+                if (min >= from && max <= to) {
+                    return PointValues.Relation.CELL_INSIDE_QUERY;
+                }
+                return PointValues.Relation.CELL_CROSSES_QUERY;
+            }
+        });
+        return count[0];
+    }
+}
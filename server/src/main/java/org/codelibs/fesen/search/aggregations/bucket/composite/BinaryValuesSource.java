@@ -21,6 +21,7 @@ package org.codelibs.fesen.search.aggregations.bucket.composite;
 
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.Terms;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.util.BytesRef;
@@ -51,7 +52,13 @@ class BinaryValuesSource extends SingleDimensionValuesSource<BytesRef> {
     BinaryValuesSource(BigArrays bigArrays, LongConsumer breakerConsumer,
                        MappedFieldType fieldType, CheckedFunction<LeafReaderContext, SortedBinaryDocValues, IOException> docValuesFunc,
                        DocValueFormat format, boolean missingBucket, int size, int reverseMul) {
-        super(bigArrays, format, fieldType, missingBucket, size, reverseMul);
+        this(bigArrays, breakerConsumer, fieldType, docValuesFunc, format, missingBucket, false, size, reverseMul);
+    }
+
+    BinaryValuesSource(BigArrays bigArrays, LongConsumer breakerConsumer,
+                       MappedFieldType fieldType, CheckedFunction<LeafReaderContext, SortedBinaryDocValues, IOException> docValuesFunc,
+                       DocValueFormat format, boolean missingBucket, boolean hasScript, int size, int reverseMul) {
+        super(bigArrays, format, fieldType, missingBucket, hasScript, size, reverseMul);
         this.breakerConsumer = breakerConsumer;
         this.docValuesFunc = docValuesFunc;
         this.values = bigArrays.newObjectArray(Math.min(size, 100));
@@ -196,6 +203,21 @@ class BinaryValuesSource extends SingleDimensionValuesSource<BytesRef> {
         return new TermsSortedDocsProducer(fieldType.name());
     }
 
+    @Override
+    boolean canSkipLeaf(LeafReaderContext context, Comparable lowerValue, Comparable upperValue) throws IOException {
+        if (missingBucket || hasScript || fieldType instanceof StringFieldType == false || fieldType.isSearchable() == false) {
+            return false;
+        }
+        final Terms terms = context.reader().terms(fieldType.name());
+        if (terms == null) {
+            // the field may have doc values without being indexed in this segment
+            return false;
+        }
+        final BytesRef min = terms.getMin();
+        final BytesRef max = terms.getMax();
+        return min != null && isLeafOutOfBounds(min, max, lowerValue, upperValue);
+    }
+
     @Override
     public void close() {
         Releasables.close(values, valueBuilders);
@@ -383,6 +383,13 @@ final class CompositeAggregator extends BucketsAggregator {
 
         boolean fillDocIdSet = deferredCollectors != NO_OP_COLLECTOR;
 
+        if (sources[0].canSkipLeaf(ctx, queue.getLowerValueLeadSource(), queue.getUpperValueLeadSource())) {
+            // The values of the leading source in this segment are all before the after key or after
+            // the lowest composite bucket in the full queue so no document can produce a competitive bucket.
+            earlyTerminated = true;
+            throw new CollectionTerminatedException();
+        }
+
         Sort indexSortPrefix = buildIndexSortPrefix(ctx);
         int sortPrefixLen = computeSortPrefixLen(indexSortPrefix);
 
@@ -304,6 +304,7 @@ public class DateHistogramValuesSourceBuilder
                             roundingValuesSource::round,
                             compositeValuesSourceConfig.format(),
                             compositeValuesSourceConfig.missingBucket(),
+                            compositeValuesSourceConfig.hasScript(),
                             size,
                             compositeValuesSourceConfig.reverseMul()
                         );
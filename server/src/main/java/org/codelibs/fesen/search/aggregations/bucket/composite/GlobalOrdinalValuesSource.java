@@ -22,6 +22,7 @@ package org.codelibs.fesen.search.aggregations.bucket.composite;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.index.Terms;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.util.BytesRef;
@@ -55,7 +56,13 @@ class GlobalOrdinalValuesSource extends SingleDimensionValuesSource<BytesRef> {
     GlobalOrdinalValuesSource(BigArrays bigArrays, MappedFieldType type,
                               CheckedFunction<LeafReaderContext, SortedSetDocValues, IOException> docValuesFunc,
                               DocValueFormat format, boolean missingBucket, int size, int reverseMul) {
-        super(bigArrays, format, type, missingBucket, size, reverseMul);
+        this(bigArrays, type, docValuesFunc, format, missingBucket, false, size, reverseMul);
+    }
+
+    GlobalOrdinalValuesSource(BigArrays bigArrays, MappedFieldType type,
+                              CheckedFunction<LeafReaderContext, SortedSetDocValues, IOException> docValuesFunc,
+                              DocValueFormat format, boolean missingBucket, boolean hasScript, int size, int reverseMul) {
+        super(bigArrays, format, type, missingBucket, hasScript, size, reverseMul);
         this.docValuesFunc = docValuesFunc;
         this.values = bigArrays.newLongArray(Math.min(size, 100), false);
     }
@@ -190,6 +197,21 @@ class GlobalOrdinalValuesSource extends SingleDimensionValuesSource<BytesRef> {
         return new TermsSortedDocsProducer(fieldType.name());
     }
 
+    @Override
+    boolean canSkipLeaf(LeafReaderContext context, Comparable lowerValue, Comparable upperValue) throws IOException {
+        if (missingBucket || hasScript || fieldType instanceof StringFieldType == false || fieldType.isSearchable() == false) {
+            return false;
+        }
+        final Terms terms = context.reader().terms(fieldType.name());
+        if (terms == null) {
+            // the field may have doc values without being indexed in this segment
+            return false;
+        }
+        final BytesRef min = terms.getMin();
+        final BytesRef max = terms.getMax();
+        return min != null && isLeafOutOfBounds(min, max, lowerValue, upperValue);
+    }
+
     @Override
     public void close() {
         Releasables.close(values);
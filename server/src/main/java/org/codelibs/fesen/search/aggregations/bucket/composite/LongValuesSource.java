@@ -23,6 +23,7 @@ import org.apache.lucene.document.IntPoint;
 import org.apache.lucene.document.LongPoint;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PointValues;
 import org.apache.lucene.index.SortedNumericDocValues;
 import org.apache.lucene.search.BoostQuery;
 import org.apache.lucene.search.ConstantScoreQuery;
@@ -62,7 +63,14 @@ class LongValuesSource extends SingleDimensionValuesSource<Long> {
     LongValuesSource(BigArrays bigArrays,
                      MappedFieldType fieldType, CheckedFunction<LeafReaderContext, SortedNumericDocValues, IOException> docValuesFunc,
                      LongUnaryOperator rounding, DocValueFormat format, boolean missingBucket, int size, int reverseMul) {
-        super(bigArrays, format, fieldType, missingBucket, size, reverseMul);
+        this(bigArrays, fieldType, docValuesFunc, rounding, format, missingBucket, false, size, reverseMul);
+    }
+
+    LongValuesSource(BigArrays bigArrays,
+                     MappedFieldType fieldType, CheckedFunction<LeafReaderContext, SortedNumericDocValues, IOException> docValuesFunc,
+                     LongUnaryOperator rounding, DocValueFormat format, boolean missingBucket, boolean hasScript,
+                     int size, int reverseMul) {
+        super(bigArrays, format, fieldType, missingBucket, hasScript, size, reverseMul);
         this.bigArrays = bigArrays;
         this.docValuesFunc = docValuesFunc;
         this.rounding = rounding;
@@ -246,29 +254,55 @@ class LongValuesSource extends SingleDimensionValuesSource<Long> {
             upperPoint = null;
         }
 
+        final ToLongFunction<byte[]> toBucketFunction = pointToBucketFunctionOrNull();
+        if (toBucketFunction == null) {
+            return null;
+        }
+        return new PointsSortedDocsProducer(fieldType.name(), toBucketFunction, lowerPoint, upperPoint);
+    }
+
+    @Override
+    boolean canSkipLeaf(LeafReaderContext context, Comparable lowerValue, Comparable upperValue) throws IOException {
+        if (missingBucket || hasScript || fieldType == null || fieldType.isSearchable() == false) {
+            return false;
+        }
+        final ToLongFunction<byte[]> toBucketFunction = pointToBucketFunctionOrNull();
+        if (toBucketFunction == null) {
+            return false;
+        }
+        final PointValues points = context.reader().getPointValues(fieldType.name());
+        if (points == null) {
+            // the field may have doc values without being indexed in this segment
+            return false;
+        }
+        // the rounding is monotonic so the buckets of the min and max points bound the buckets of the leaf
+        final long min = toBucketFunction.applyAsLong(points.getMinPackedValue());
+        final long max = toBucketFunction.applyAsLong(points.getMaxPackedValue());
+        return isLeafOutOfBounds(min, max, lowerValue, upperValue);
+    }
+
+    /**
+     * Returns a function that converts an indexed point of the field to its bucket, or null if the points of the field
+     * cannot be converted.
+     */
+    private ToLongFunction<byte[]> pointToBucketFunctionOrNull() {
         if (fieldType instanceof NumberFieldMapper.NumberFieldType) {
             NumberFieldMapper.NumberFieldType ft = (NumberFieldMapper.NumberFieldType) fieldType;
-            final ToLongFunction<byte[]> toBucketFunction;
-
             switch (ft.typeName()) {
                 case "long":
-                    toBucketFunction = (value) -> rounding.applyAsLong(LongPoint.decodeDimension(value, 0));
-                    break;
+                    return (value) -> rounding.applyAsLong(LongPoint.decodeDimension(value, 0));
 
                 case "int":
                 case "short":
                 case "byte":
-                    toBucketFunction = (value) -> rounding.applyAsLong(IntPoint.decodeDimension(value, 0));
-                    break;
+                    return (value) -> rounding.applyAsLong(IntPoint.decodeDimension(value, 0));
 
                 default:
                     return null;
             }
-            return new PointsSortedDocsProducer(fieldType.name(), toBucketFunction, lowerPoint, upperPoint);
         } else if (fieldType instanceof DateFieldMapper.DateFieldType) {
             ToLongFunction<byte[]> decode = ((DateFieldMapper.DateFieldType) fieldType).resolution()::parsePointAsMillis;
-            ToLongFunction<byte[]> toBucketFunction = value -> rounding.applyAsLong(decode.applyAsLong(value));
-            return new PointsSortedDocsProducer(fieldType.name(), toBucketFunction, lowerPoint, upperPoint);
+            return value -> rounding.applyAsLong(decode.applyAsLong(value));
         } else {
             return null;
         }
@@ -41,6 +41,7 @@ abstract class SingleDimensionValuesSource<T extends Comparable<T>> implements R
     @Nullable
     protected final MappedFieldType fieldType;
     protected final boolean missingBucket;
+    protected final boolean hasScript;
 
     protected final int size;
     protected final int reverseMul;
@@ -60,10 +61,28 @@ abstract class SingleDimensionValuesSource<T extends Comparable<T>> implements R
     SingleDimensionValuesSource(BigArrays bigArrays, DocValueFormat format,
                                 @Nullable MappedFieldType fieldType, boolean missingBucket,
                                 int size, int reverseMul) {
+        this(bigArrays, format, fieldType, missingBucket, false, size, reverseMul);
+    }
+
+    /**
+     * Creates a new {@link SingleDimensionValuesSource}.
+     *
+     * @param bigArrays The big arrays object.
+     * @param format The format of the source.
+     * @param fieldType The field type or null if the source is a script.
+     * @param missingBucket If true, an explicit `null bucket represents documents with missing values.
+     * @param hasScript If true, the values of the field are transformed by a script.
+     * @param size The number of values to record.
+     * @param reverseMul -1 if the natural order ({@link SortOrder#ASC} should be reversed.
+     */
+    SingleDimensionValuesSource(BigArrays bigArrays, DocValueFormat format,
+                                @Nullable MappedFieldType fieldType, boolean missingBucket, boolean hasScript,
+                                int size, int reverseMul) {
         this.bigArrays = bigArrays;
         this.format = format;
         this.fieldType = fieldType;
         this.missingBucket = missingBucket;
+        this.hasScript = hasScript;
         this.size = size;
         this.reverseMul = reverseMul;
         this.afterValue = null;
@@ -146,11 +165,35 @@ abstract class SingleDimensionValuesSource<T extends Comparable<T>> implements R
      */
     abstract SortedDocsProducer createSortedDocsProducerOrNull(IndexReader reader, Query query);
 
+    /**
+     * Returns true if no document in the provided leaf can produce a value that is between <code>lowerValue</code>
+     * and <code>upperValue</code> (both inclusive, in the order of this source), in which case the leaf can be skipped
+     * entirely. Null bounds are unbounded. Sources whose values are transformed by a script never skip leaves since the
+     * indexed values of the field do not bound them.
+     */
+    boolean canSkipLeaf(LeafReaderContext context, @Nullable Comparable lowerValue, @Nullable Comparable upperValue) throws IOException {
+        return false;
+    }
+
+    /**
+     * Returns true if the values of a leaf, which are all between <code>leafMin</code> and <code>leafMax</code> in natural order,
+     * are all outside of the provided bounds.
+     */
+    @SuppressWarnings("unchecked")
+    protected boolean isLeafOutOfBounds(T leafMin, T leafMax, @Nullable Comparable lowerValue, @Nullable Comparable upperValue) {
+        final T first = reverseMul == 1 ? leafMin : leafMax;
+        final T last = reverseMul == 1 ? leafMax : leafMin;
+        return (lowerValue != null && reverseMul * last.compareTo((T) lowerValue) < 0)
+            || (upperValue != null && reverseMul * first.compareTo((T) upperValue) > 0);
+    }
+
     /**
      * Returns true if a {@link SortedDocsProducer} should be used to optimize the execution.
      */
     protected boolean checkIfSortedDocsIsApplicable(IndexReader reader, MappedFieldType fieldType) {
         if (fieldType == null ||
+                // the values of a script are not sorted like the indexed values of the field
+                hasScript ||
                 (missingBucket && afterValue == null) ||
                 fieldType.isSearchable() == false ||
                 // inverse of the natural order
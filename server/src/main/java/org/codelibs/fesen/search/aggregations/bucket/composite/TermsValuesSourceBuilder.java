@@ -142,6 +142,7 @@ public class TermsValuesSourceBuilder extends CompositeValuesSourceBuilder<Terms
                                 rounding,
                                 compositeValuesSourceConfig.format(),
                                 compositeValuesSourceConfig.missingBucket(),
+                                compositeValuesSourceConfig.hasScript(),
                                 size,
                                 compositeValuesSourceConfig.reverseMul()
                             );
@@ -179,6 +180,7 @@ public class TermsValuesSourceBuilder extends CompositeValuesSourceBuilder<Terms
                             vs::globalOrdinalsValues,
                             compositeValuesSourceConfig.format(),
                             compositeValuesSourceConfig.missingBucket(),
+                            compositeValuesSourceConfig.hasScript(),
                             size,
                             compositeValuesSourceConfig.reverseMul()
                         );
@@ -191,6 +193,7 @@ public class TermsValuesSourceBuilder extends CompositeValuesSourceBuilder<Terms
                             vs::bytesValues,
                             compositeValuesSourceConfig.format(),
                             compositeValuesSourceConfig.missingBucket(),
+                            compositeValuesSourceConfig.hasScript(),
                             size,
                             compositeValuesSourceConfig.reverseMul()
                         );
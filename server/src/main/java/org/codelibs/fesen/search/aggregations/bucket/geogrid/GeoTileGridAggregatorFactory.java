@@ -69,6 +69,12 @@ public class GeoTileGridAggregatorFactory extends ValuesSourceAggregatorFactory
         };
     }
 
+    @Override
+    public boolean supportsConcurrentSegmentSearch() {
+        // each slice would keep the shard_size cells of its own partial counts
+        return false;
+    }
+
     @Override
     protected Aggregator doCreateInternal(SearchContext searchContext,
                                           Aggregator parent,
@@ -20,7 +20,9 @@ package org.codelibs.fesen.search.aggregations.bucket.histogram;
 
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.search.CollectionTerminatedException;
 import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.CollectionUtil;
 import org.codelibs.fesen.common.Nullable;
 import org.codelibs.fesen.common.Rounding;
@@ -34,6 +36,7 @@ import org.codelibs.fesen.search.aggregations.InternalAggregation;
 import org.codelibs.fesen.search.aggregations.LeafBucketCollector;
 import org.codelibs.fesen.search.aggregations.LeafBucketCollectorBase;
 import org.codelibs.fesen.search.aggregations.bucket.BucketsAggregator;
+import org.codelibs.fesen.search.aggregations.bucket.PointRangeCounter;
 import org.codelibs.fesen.search.aggregations.bucket.terms.LongKeyedBucketOrds;
 import org.codelibs.fesen.search.aggregations.support.ValuesSource;
 import org.codelibs.fesen.search.aggregations.support.ValuesSourceConfig;
@@ -52,6 +55,12 @@ import java.util.function.BiConsumer;
  */
 class DateHistogramAggregator extends BucketsAggregator implements SizedBucketAggregator {
 
+    /**
+     * The maximum number of buckets of a segment for which the doc counts are read from the points of the field.
+     * Above that, running one range query per bucket is not cheaper than collecting the matching documents.
+     */
+    static final int MAX_BUCKETS_COUNTED_FROM_INDEX = 1024;
+
     private final ValuesSource.Numeric valuesSource;
     private final DocValueFormat formatter;
     private final Rounding rounding;
@@ -68,6 +77,12 @@ class DateHistogramAggregator extends BucketsAggregator implements SizedBucketAg
 
     private final LongKeyedBucketOrds bucketOrds;
 
+    /**
+     * Whether the doc counts may be read from the points of the field.
+     */
+    private final boolean canCountFromIndex;
+    private int segmentsCountedFromIndex;
+
     DateHistogramAggregator(
         String name,
         AggregatorFactories factories,
@@ -99,6 +114,7 @@ class DateHistogramAggregator extends BucketsAggregator implements SizedBucketAg
         this.formatter = valuesSourceConfig.format();
 
         bucketOrds = LongKeyedBucketOrds.build(context.bigArrays(), cardinality);
+        canCountFromIndex = valuesSource != null && canCountFromIndex();
     }
 
     @Override
@@ -114,6 +130,10 @@ class DateHistogramAggregator extends BucketsAggregator implements SizedBucketAg
         if (valuesSource == null) {
             return LeafBucketCollector.NO_OP_COLLECTOR;
         }
+        if (canCountFromIndex && ctx.reader().hasDeletions() == false && countFromPoints(ctx)) {
+            segmentsCountedFromIndex++;
+            throw new CollectionTerminatedException();
+        }
         SortedNumericDocValues values = valuesSource.longValues(ctx);
         return new LeafBucketCollectorBase(sub, values) {
             @Override
@@ -145,6 +165,49 @@ class DateHistogramAggregator extends BucketsAggregator implements SizedBucketAg
         };
     }
 
+    /**
+     * Counts the documents of the segment per bucket from the points of the field, one range query per bucket.
+     * Returns false without counting anything if the points can't be used or the segment would need too many buckets.
+     */
+    private boolean countFromPoints(LeafReaderContext ctx) throws IOException {
+        PointRangeCounter counter = PointRangeCounter.build(context, valuesSource, ctx.reader());
+        if (counter == null) {
+            return false;
+        }
+        long[] keys = new long[16];
+        int numKeys = 0;
+        long key = preparedRounding.round(counter.minValue());
+        while (key <= counter.maxValue()) {
+            if (numKeys == MAX_BUCKETS_COUNTED_FROM_INDEX) {
+                return false;
+            }
+            long next = preparedRounding.nextRoundingValue(key);
+            // the rounding is only prepared for the range of values of the shard so we can't round past the maximum
+            if (next <= key || preparedRounding.round(Math.min(next - 1, counter.maxValue())) != key) {
+                // the values that round to this key aren't a single range, this happens around some time zone transitions
+                return false;
+            }
+            keys = ArrayUtil.grow(keys, numKeys + 2);
+            keys[numKeys++] = key;
+            key = next;
+        }
+        keys[numKeys] = key;
+        for (int i = 0; i < numKeys; i++) {
+            if (hardBounds != null && hardBounds.contain(keys[i]) == false) {
+                continue;
+            }
+            int docCount = counter.count(keys[i], keys[i + 1] - 1);
+            if (docCount > 0) {
+                long bucketOrd = bucketOrds.add(0, keys[i]);
+                if (bucketOrd < 0) {
+                    bucketOrd = -1 - bucketOrd;
+                }
+                incrementBucketDocCount(bucketOrd, docCount);
+            }
+        }
+        return true;
+    }
+
     @Override
     public InternalAggregation[] buildAggregations(long[] owningBucketOrds) throws IOException {
         return buildAggregationsForVariableBuckets(owningBucketOrds, bucketOrds,
@@ -181,6 +244,7 @@ class DateHistogramAggregator extends BucketsAggregator implements SizedBucketAg
     @Override
     public void collectDebugInfo(BiConsumer<String, Object> add) {
         add.accept("total_buckets", bucketOrds.size());
+        add.accept("segments_counted_from_index", segmentsCountedFromIndex);
     }
 
     /**
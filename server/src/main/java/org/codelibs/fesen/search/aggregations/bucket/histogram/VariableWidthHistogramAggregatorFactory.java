@@ -62,6 +62,12 @@ public class VariableWidthHistogramAggregatorFactory extends ValuesSourceAggrega
         this.initialBuffer = initialBuffer;
     }
 
+    @Override
+    public boolean supportsConcurrentSegmentSearch() {
+        // each slice would cluster its own documents into shard_size buckets
+        return false;
+    }
+
     @Override
     protected Aggregator doCreateInternal(SearchContext searchContext,
                                           Aggregator parent,
@@ -19,6 +19,7 @@
 package org.codelibs.fesen.search.aggregations.bucket.range;
 
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.CollectionTerminatedException;
 import org.apache.lucene.search.ScoreMode;
 import org.codelibs.fesen.common.ParseField;
 import org.codelibs.fesen.common.io.stream.StreamInput;
@@ -41,6 +42,7 @@ import org.codelibs.fesen.search.aggregations.LeafBucketCollector;
 import org.codelibs.fesen.search.aggregations.LeafBucketCollectorBase;
 import org.codelibs.fesen.search.aggregations.NonCollectingAggregator;
 import org.codelibs.fesen.search.aggregations.bucket.BucketsAggregator;
+import org.codelibs.fesen.search.aggregations.bucket.PointRangeCounter;
 import org.codelibs.fesen.search.aggregations.support.ValuesSource;
 import org.codelibs.fesen.search.internal.SearchContext;
 
@@ -51,9 +53,12 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.BiConsumer;
 
 public class RangeAggregator extends BucketsAggregator {
 
+    private static final long MAX_EXACT_LONG_AS_DOUBLE = 1L << 53;
+
     public static final ParseField RANGES_FIELD = new ParseField("ranges");
     public static final ParseField KEYED_FIELD = new ParseField("keyed");
 
@@ -223,6 +228,12 @@ public class RangeAggregator extends BucketsAggregator {
 
     final double[] maxTo;
 
+    /**
+     * Whether the doc counts may be read from the points of the field.
+     */
+    private final boolean canCountFromIndex;
+    private int segmentsCountedFromIndex;
+
     public RangeAggregator(String name, AggregatorFactories factories, ValuesSource.Numeric valuesSource, DocValueFormat format,
             InternalRange.Factory rangeFactory, Range[] ranges, boolean keyed, SearchContext context,
             Aggregator parent, CardinalityUpperBound cardinality, Map<String, Object> metadata) throws IOException {
@@ -241,6 +252,7 @@ public class RangeAggregator extends BucketsAggregator {
         for (int i = 1; i < this.ranges.length; ++i) {
             maxTo[i] = Math.max(this.ranges[i].to,maxTo[i-1]);
         }
+        canCountFromIndex = canCountFromIndex();
 
     }
 
@@ -255,6 +267,10 @@ public class RangeAggregator extends BucketsAggregator {
     @Override
     public LeafBucketCollector getLeafCollector(LeafReaderContext ctx,
             final LeafBucketCollector sub) throws IOException {
+        if (canCountFromIndex && ctx.reader().hasDeletions() == false && countFromPoints(ctx)) {
+            segmentsCountedFromIndex++;
+            throw new CollectionTerminatedException();
+        }
         final SortedNumericDoubleValues values = valuesSource.doubleValues(ctx);
         return new LeafBucketCollectorBase(sub, values) {
             @Override
@@ -319,6 +335,31 @@ public class RangeAggregator extends BucketsAggregator {
         };
     }
 
+    /**
+     * Counts the documents of the segment per range from the points of the field, one range query per range.
+     * Returns false without counting anything if the points can't be used.
+     */
+    private boolean countFromPoints(LeafReaderContext ctx) throws IOException {
+        PointRangeCounter counter = PointRangeCounter.build(context, valuesSource, ctx.reader());
+        if (counter == null) {
+            return false;
+        }
+        if (counter.minValue() < -MAX_EXACT_LONG_AS_DOUBLE || counter.maxValue() > MAX_EXACT_LONG_AS_DOUBLE) {
+            // the ranges match the values converted to doubles, which is only exact for these values
+            return false;
+        }
+        for (int i = 0; i < ranges.length; i++) {
+            // clamping the bounds to just outside of the values of the segment takes care of infinite bounds
+            double from = Math.max(Math.ceil(ranges[i].from), -MAX_EXACT_LONG_AS_DOUBLE - 1);
+            double to = Math.min(Math.ceil(ranges[i].to), MAX_EXACT_LONG_AS_DOUBLE + 1) - 1;
+            int docCount = counter.count((long) from, (long) to);
+            if (docCount > 0) {
+                incrementBucketDocCount(subBucketOrdinal(0, i), docCount);
+            }
+        }
+        return true;
+    }
+
     private long subBucketOrdinal(long owningBucketOrdinal, int rangeOrd) {
         return owningBucketOrdinal * ranges.length + rangeOrd;
     }
@@ -346,6 +387,12 @@ public class RangeAggregator extends BucketsAggregator {
         return rangeFactory.create(name, buckets, format, keyed, metadata());
     }
 
+    @Override
+    public void collectDebugInfo(BiConsumer<String, Object> add) {
+        super.collectDebugInfo(add);
+        add.accept("segments_counted_from_index", segmentsCountedFromIndex);
+    }
+
     public static class Unmapped<R extends RangeAggregator.Range> extends NonCollectingAggregator {
 
         private final R[] ranges;
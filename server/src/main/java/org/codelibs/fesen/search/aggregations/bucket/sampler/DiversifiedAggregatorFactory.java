@@ -109,6 +109,12 @@ public class DiversifiedAggregatorFactory extends ValuesSourceAggregatorFactory
         this.executionHint = executionHint;
     }
 
+    @Override
+    public boolean supportsConcurrentSegmentSearch() {
+        // the sample is taken from the best matching docs of the whole shard
+        return false;
+    }
+
     @Override
     protected Aggregator doCreateInternal(SearchContext searchContext,
                                           Aggregator parent,
@@ -24,6 +24,9 @@ import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.SortedDocValues;
 import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.CollectionTerminatedException;
 import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.PriorityQueue;
@@ -34,6 +37,7 @@ import org.codelibs.fesen.common.util.IntArray;
 import org.codelibs.fesen.common.util.LongArray;
 import org.codelibs.fesen.common.util.LongHash;
 import org.codelibs.fesen.common.xcontent.XContentBuilder;
+import org.codelibs.fesen.index.mapper.KeywordFieldMapper;
 import org.codelibs.fesen.search.DocValueFormat;
 import org.codelibs.fesen.search.aggregations.AggregationExecutionException;
 import org.codelibs.fesen.search.aggregations.Aggregator;
@@ -74,6 +78,11 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
     protected final CollectionStrategy collectionStrategy;
     protected int segmentsWithSingleValuedOrds = 0;
     protected int segmentsWithMultiValuedOrds = 0;
+    protected int segmentsCountedFromIndex = 0;
+    /**
+     * Whether the doc counts may be read from the postings of the field.
+     */
+    protected final boolean canCountFromIndex;
 
     public interface GlobalOrdLookupFunction {
         BytesRef apply(long ord) throws IOException;
@@ -115,6 +124,7 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
                 return new DenseGlobalOrds();
             });
         }
+        this.canCountFromIndex = this.resultStrategy instanceof StandardTermsResults && canCountFromIndex();
     }
 
     String descriptCollectionStrategy() {
@@ -125,6 +135,10 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
     public LeafBucketCollector getLeafCollector(LeafReaderContext ctx, LeafBucketCollector sub) throws IOException {
         SortedSetDocValues globalOrds = valuesSource.globalOrdinalsValues(ctx);
         collectionStrategy.globalOrdsReady(globalOrds);
+        if (canCountFromIndex && ctx.reader().hasDeletions() == false && countFromPostings(ctx)) {
+            segmentsCountedFromIndex++;
+            throw new CollectionTerminatedException();
+        }
         SortedDocValues singleValues = DocValues.unwrapSingleton(globalOrds);
         if (singleValues != null) {
             segmentsWithSingleValuedOrds++;
@@ -192,6 +206,47 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
         });
     }
 
+    /**
+     * Counts the documents of the segment per term from the document frequencies of the postings of the field, which
+     * are exact when the segment has no deleted documents. Returns false without counting anything if the postings
+     * don't hold the very same terms as the doc values.
+     */
+    protected final boolean countFromPostings(LeafReaderContext ctx) throws IOException {
+        if (valuesSource instanceof ValuesSource.Bytes.WithOrdinals.FieldData == false) {
+            // scripts and missing values wrap the field data
+            return false;
+        }
+        final String field = ((ValuesSource.Bytes.WithOrdinals.FieldData) valuesSource).indexFieldData().getFieldName();
+        if (context.fieldType(field) instanceof KeywordFieldMapper.KeywordFieldType == false) {
+            return false;
+        }
+        final Terms terms = ctx.reader().terms(field);
+        final SortedSetDocValues segmentOrds = valuesSource.ordinalsValues(ctx);
+        final long segmentValueCount = segmentOrds.getValueCount();
+        if (terms == null || terms.size() != segmentValueCount) {
+            return false;
+        }
+        try (IntArray docFreqs = context.bigArrays().newIntArray(segmentValueCount, false)) {
+            final TermsEnum postings = terms.iterator();
+            final TermsEnum docValues = segmentOrds.termsEnum();
+            for (long ord = 0; ord < segmentValueCount; ord++) {
+                final BytesRef term = postings.next();
+                if (term == null || term.equals(docValues.next()) == false) {
+                    return false;
+                }
+                docFreqs.set(ord, postings.docFreq());
+            }
+            final LongUnaryOperator mapping = valuesSource.globalOrdinalsMapping(ctx);
+            for (long ord = 0; ord < segmentValueCount; ord++) {
+                final long globalOrd = mapping.applyAsLong(ord);
+                if (acceptedGlobalOrdinals.test(globalOrd)) {
+                    incrementBucketDocCount(collectionStrategy.globalOrdToNewOrExistingBucketOrd(0, globalOrd), docFreqs.get(ord));
+                }
+            }
+        }
+        return true;
+    }
+
     @Override
     public InternalAggregation[] buildAggregations(long[] owningBucketOrds) throws IOException {
         return resultStrategy.buildAggregations(owningBucketOrds);
@@ -211,6 +266,7 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
         add.accept("segments_with_single_valued_ords", segmentsWithSingleValuedOrds);
         add.accept("segments_with_multi_valued_ords", segmentsWithMultiValuedOrds);
         add.accept("has_filter", acceptedGlobalOrdinals != ALWAYS_TRUE);
+        add.accept("segments_counted_from_index", segmentsCountedFromIndex);
     }
 
     /**
@@ -299,6 +355,11 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
         public LeafBucketCollector getLeafCollector(LeafReaderContext ctx, LeafBucketCollector sub) throws IOException {
             if (mapping != null) {
                 mapSegmentCountsToGlobalCounts(mapping);
+                mapping = null;
+            }
+            if (canCountFromIndex && ctx.reader().hasDeletions() == false && countFromPostings(ctx)) {
+                segmentsCountedFromIndex++;
+                throw new CollectionTerminatedException();
             }
             final SortedSetDocValues segmentOrds = valuesSource.ordinalsValues(ctx);
             segmentDocCounts = context.bigArrays().grow(segmentDocCounts, 1 + segmentOrds.getValueCount());
@@ -401,6 +462,11 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
          * Convert a global ordinal into a bucket ordinal.
          */
         abstract long globalOrdToBucketOrd(long owningBucketOrd, long globalOrd);
+        /**
+         * Convert a global ordinal into a bucket ordinal, allocating a new
+         * bucket ordinal if the global ordinal hasn't been collected yet.
+         */
+        abstract long globalOrdToNewOrExistingBucketOrd(long owningBucketOrd, long globalOrd);
         /**
          * Iterate all of the buckets. Implementations take into account
          * the {@link BucketCountThresholds}. In particular,
@@ -446,6 +512,11 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
             return globalOrd;
         }
 
+        @Override
+        long globalOrdToNewOrExistingBucketOrd(long owningBucketOrd, long globalOrd) {
+            return globalOrdToBucketOrd(owningBucketOrd, globalOrd);
+        }
+
         @Override
         void forEach(long owningBucketOrd, BucketInfoConsumer consumer) throws IOException {
             assert owningBucketOrd == 0;
@@ -506,6 +577,12 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
             return bucketOrds.find(owningBucketOrd, globalOrd);
         }
 
+        @Override
+        long globalOrdToNewOrExistingBucketOrd(long owningBucketOrd, long globalOrd) {
+            long bucketOrd = bucketOrds.add(owningBucketOrd, globalOrd);
+            return bucketOrd < 0 ? -1 - bucketOrd : bucketOrd;
+        }
+
         @Override
         void forEach(long owningBucketOrd, BucketInfoConsumer consumer) throws IOException {
             if (bucketCountThresholds.getMinDocCount() == 0) {
@@ -173,6 +173,12 @@ public class RareTermsAggregatorFactory extends ValuesSourceAggregatorFactory {
         };
     }
 
+    @Override
+    public boolean supportsConcurrentSegmentSearch() {
+        // each slice would apply max_doc_count to its own partial counts
+        return false;
+    }
+
     @Override
     protected Aggregator doCreateInternal(
         SearchContext searchContext,
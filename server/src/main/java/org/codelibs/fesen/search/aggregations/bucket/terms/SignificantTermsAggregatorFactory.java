@@ -194,6 +194,12 @@ public class SignificantTermsAggregatorFactory extends ValuesSourceAggregatorFac
         };
     }
 
+    @Override
+    public boolean supportsConcurrentSegmentSearch() {
+        // the shard level background frequencies would be accounted once per slice
+        return false;
+    }
+
     @Override
     protected Aggregator doCreateInternal(
         SearchContext searchContext,
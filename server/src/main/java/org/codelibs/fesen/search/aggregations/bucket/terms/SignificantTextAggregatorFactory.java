@@ -98,6 +98,12 @@ public class SignificantTextAggregatorFactory extends AggregatorFactory {
         this.significanceHeuristic = significanceHeuristic;
     }
 
+    @Override
+    public boolean supportsConcurrentSegmentSearch() {
+        // the shard level background frequencies would be accounted once per slice
+        return false;
+    }
+
     @Override
     protected Aggregator createInternal(SearchContext searchContext, Aggregator parent, CardinalityUpperBound cardinality,
                                         Map<String, Object> metadata) throws IOException {
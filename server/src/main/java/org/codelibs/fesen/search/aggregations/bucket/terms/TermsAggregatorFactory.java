@@ -222,6 +222,12 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory {
         }
     }
 
+    @Override
+    public boolean supportsConcurrentSegmentSearch() {
+        // each slice would apply shard_size and shard_min_doc_count to its own partial counts
+        return false;
+    }
+
     @Override
     protected Aggregator doCreateInternal(
         SearchContext searchContext,
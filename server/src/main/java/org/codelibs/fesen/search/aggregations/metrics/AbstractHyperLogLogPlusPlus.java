@@ -26,6 +26,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 
+import org.codelibs.fesen.Version;
 import org.codelibs.fesen.common.io.stream.StreamInput;
 import org.codelibs.fesen.common.io.stream.StreamOutput;
 import org.codelibs.fesen.common.lease.Releasable;
@@ -41,6 +42,11 @@ public abstract class AbstractHyperLogLogPlusPlus extends AbstractCardinalityAlg
     public static final boolean LINEAR_COUNTING = false;
     public static final boolean HYPERLOGLOG = true;
 
+    /** Registers are written as runs of equal run lengths */
+    static final byte RUN_LENGTH_ENCODING = 0;
+    /** Registers are written as 6 bits per run length, 4 registers per 3 bytes */
+    static final byte PACKED_ENCODING = 1;
+
     public AbstractHyperLogLogPlusPlus(int precision) {
         super(precision);
     }
@@ -114,10 +120,99 @@ public abstract class AbstractHyperLogLogPlusPlus extends AbstractCardinalityAlg
             }
         } else {
             out.writeBoolean(HYPERLOGLOG);
-            AbstractHyperLogLog.RunLenIterator iterator = getHyperLogLog(bucket);
-            while (iterator.next()){
-                out.writeByte(iterator.value());
+            if (out.getVersion().onOrAfter(Version.V_0_13_1)) {
+                writeRunLens(bucket, out);
+            } else {
+                AbstractHyperLogLog.RunLenIterator iterator = getHyperLogLog(bucket);
+                while (iterator.next()){
+                    out.writeByte(iterator.value());
+                }
+            }
+        }
+    }
+
+    private void writeRunLens(long bucket, StreamOutput out) throws IOException {
+        final int registers = 1 << precision();
+        int runs = 0;
+        byte previous = -1;
+        AbstractHyperLogLog.RunLenIterator iterator = getHyperLogLog(bucket);
+        while (iterator.next()) {
+            if (iterator.value() != previous) {
+                previous = iterator.value();
+                runs++;
+            }
+        }
+        // a run takes at least two bytes, packed registers take 3/4 of a byte each
+        if (runs * 2 < registers / 4 * 3) {
+            out.writeByte(RUN_LENGTH_ENCODING);
+            out.writeVInt(runs);
+            iterator = getHyperLogLog(bucket);
+            iterator.next();
+            byte runLen = iterator.value();
+            int count = 1;
+            while (iterator.next()) {
+                if (iterator.value() == runLen) {
+                    count++;
+                } else {
+                    out.writeByte(runLen);
+                    out.writeVInt(count);
+                    runLen = iterator.value();
+                    count = 1;
+                }
+            }
+            out.writeByte(runLen);
+            out.writeVInt(count);
+        } else {
+            out.writeByte(PACKED_ENCODING);
+            // run lengths are at most 64 - p + 1 so they fit in 6 bits, and there are always a multiple of 4 registers
+            iterator = getHyperLogLog(bucket);
+            while (iterator.next()) {
+                final int r0 = iterator.value();
+                iterator.next();
+                final int r1 = iterator.value();
+                iterator.next();
+                final int r2 = iterator.value();
+                iterator.next();
+                final int r3 = iterator.value();
+                out.writeByte((byte) (r0 << 2 | r1 >>> 4));
+                out.writeByte((byte) (r1 << 4 | r2 >>> 2));
+                out.writeByte((byte) (r2 << 6 | r3));
+            }
+        }
+    }
+
+    private static void readRunLens(HyperLogLogPlusPlus counts, StreamInput in) throws IOException {
+        final int registers = 1 << counts.precision();
+        final byte encoding = in.readByte();
+        if (encoding == RUN_LENGTH_ENCODING) {
+            final int runs = in.readVInt();
+            int register = 0;
+            for (int i = 0; i < runs; ++i) {
+                final byte runLen = in.readByte();
+                final int count = in.readVInt();
+                if (count > registers - register) {
+                    throw new IOException("run of [" + count + "] registers overflows [" + registers + "] registers");
+                }
+                if (runLen != 0) {
+                    counts.setRunLens(0, register, count, runLen);
+                }
+                register += count;
+            }
+            if (register != registers) {
+                throw new IOException("expected [" + registers + "] registers but got [" + register + "]");
             }
+        } else if (encoding == PACKED_ENCODING) {
+            for (int register = 0; register < registers; register += 4) {
+                final int b0 = in.readByte() & 0xFF;
+                final int b1 = in.readByte() & 0xFF;
+                final int b2 = in.readByte() & 0xFF;
+                counts.addRunLen(0, register, b0 >>> 2);
+                counts.addRunLen(0, register + 1, (b0 & 0x03) << 4 | b1 >>> 4);
+                counts.addRunLen(0, register + 2, (b1 & 0x0F) << 2 | b2 >>> 6);
+                counts.addRunLen(0, register + 3, b2 & 0x3F);
+            }
+        } else {
+            throw new IOException("unknown run lengths encoding [" + encoding + "]");
         }
     }
 
@@ -134,9 +229,14 @@ public abstract class AbstractHyperLogLogPlusPlus extends AbstractCardinalityAlg
             return counts;
         } else {
             HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(precision, bigArrays, 1);
-            final int registers = 1 << precision;
-            for (int i = 0; i < registers; ++i) {
-                counts.addRunLen(0, i, in.readByte());
+            if (in.getVersion().onOrAfter(Version.V_0_13_1)) {
+                counts.upgradeToHll(0);
+                readRunLens(counts, in);
+            } else {
+                final int registers = 1 << precision;
+                for (int i = 0; i < registers; ++i) {
+                    counts.addRunLen(0, i, in.readByte());
+                }
             }
             return counts;
         }
@@ -28,6 +28,7 @@ import org.codelibs.fesen.common.util.BitArray;
 import org.codelibs.fesen.common.util.ByteArray;
 import org.codelibs.fesen.common.util.ByteUtils;
 import org.codelibs.fesen.common.util.IntArray;
+import org.codelibs.fesen.common.util.PageCacheRecycler;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
@@ -151,6 +152,18 @@ public final class HyperLogLogPlusPlus extends AbstractHyperLogLogPlusPlus {
         hll.addRunLen(0, register, runLen);
     }
 
+    /**
+     * Set the run length of <code>count</code> consecutive registers of the given bucket, starting at <code>register</code>.
+     */
+    void setRunLens(long bucketOrd, int register, int count, byte runLen) {
+        hll.ensureCapacity(bucketOrd + 1);
+        if (algorithm.get(bucketOrd) == LINEAR_COUNTING) {
+            upgradeToHll(bucketOrd);
+        }
+        final long start = (bucketOrd << hll.p) + register;
+        hll.runLens.fill(start, start + count, runLen);
+    }
+
     void upgradeToHll(long bucketOrd) {
         hll.ensureCapacity(bucketOrd + 1);
         final AbstractLinearCounting.HashesIterator hashes = lc.values(bucketOrd);
@@ -181,6 +194,11 @@ public final class HyperLogLogPlusPlus extends AbstractHyperLogLogPlusPlus {
         hll.ensureCapacity(thisBucket + 1);
         if (other.getAlgorithm(otherBucket) == LINEAR_COUNTING) {
             merge(thisBucket, other.getLinearCounting(otherBucket));
+        } else if (other instanceof HyperLogLogPlusPlus) {
+            if (algorithm.get(thisBucket) != HYPERLOGLOG) {
+                upgradeToHll(thisBucket);
+            }
+            hll.merge(thisBucket, ((HyperLogLogPlusPlus) other).hll, otherBucket);
         } else {
             merge(thisBucket, other.getHyperLogLog(otherBucket));
         }
@@ -215,6 +233,9 @@ public final class HyperLogLogPlusPlus extends AbstractHyperLogLogPlusPlus {
         private final HyperLogLogIterator iterator;
         // array for holding the runlens.
         private ByteArray runLens;
+        // lazily allocated buffers for merging runlens a page at a time
+        private BytesRef mergeSpare, otherMergeSpare;
+        private byte[] mergeBuffer;
 
 
         HyperLogLog(BigArrays bigArrays, long initialBucketCount, int precision) {
@@ -240,6 +261,31 @@ public final class HyperLogLogPlusPlus extends AbstractHyperLogLogPlusPlus {
             return iterator;
         }
 
+        /**
+         * Merge the runlens of a bucket of another instance into a bucket of this instance. Runlens are compared a page at a time
+         * so that neither side needs to materialize a copy of its registers.
+         */
+        void merge(long bucketOrd, HyperLogLog other, long otherBucketOrd) {
+            if (mergeBuffer == null) {
+                mergeSpare = new BytesRef();
+                otherMergeSpare = new BytesRef();
+                // buckets start at a multiple of m so that slices of this length never cross a page
+                mergeBuffer = new byte[Math.min(m, PageCacheRecycler.BYTE_PAGE_SIZE)];
+            }
+            final long start = bucketOrd << p;
+            final long otherStart = otherBucketOrd << p;
+            for (int offset = 0; offset < m; offset += mergeBuffer.length) {
+                runLens.get(start + offset, mergeBuffer.length, mergeSpare);
+                other.runLens.get(otherStart + offset, mergeBuffer.length, otherMergeSpare);
+                final byte[] bytes = mergeSpare.bytes, otherBytes = otherMergeSpare.bytes;
+                final int from = mergeSpare.offset, otherFrom = otherMergeSpare.offset;
+                for (int i = 0; i < mergeBuffer.length; ++i) {
+                    mergeBuffer[i] = (byte) Math.max(bytes[from + i], otherBytes[otherFrom + i]);
+                }
+                runLens.set(start + offset, mergeBuffer, 0, mergeBuffer.length);
+            }
+        }
+
         protected void reset(long bucketOrd) {
             runLens.fill(bucketOrd << p, (bucketOrd << p) + m, (byte) 0);
         }
@@ -85,6 +85,7 @@ public final class InternalCardinality extends InternalNumericMetricsAggregation
     @Override
     public InternalAggregation reduce(List<InternalAggregation> aggregations, ReduceContext reduceContext) {
         HyperLogLogPlusPlus reduced = null;
+        boolean hyperLogLog = false;
         for (InternalAggregation aggregation : aggregations) {
             final InternalCardinality cardinality = (InternalCardinality) aggregation;
             if (cardinality.counts != null) {
@@ -92,7 +93,20 @@ public final class InternalCardinality extends InternalNumericMetricsAggregation
                     reduced = new HyperLogLogPlusPlus(cardinality.counts.precision(),
                         BigArrays.NON_RECYCLING_INSTANCE, 1);
                 }
-                reduced.merge(0, cardinality.counts, 0);
+                hyperLogLog |= cardinality.counts.getAlgorithm(0) == AbstractHyperLogLogPlusPlus.HYPERLOGLOG;
+            }
+        }
+        if (reduced != null) {
+            if (hyperLogLog) {
+                // the reduced counts will be upgraded to HyperLogLog anyway, so collect the hashes of the shards that are still
+                // using linear counting directly into the registers rather than inserting them into a set that is replayed later
+                reduced.upgradeToHll(0);
+            }
+            for (InternalAggregation aggregation : aggregations) {
+                final InternalCardinality cardinality = (InternalCardinality) aggregation;
+                if (cardinality.counts != null) {
+                    reduced.merge(0, cardinality.counts, 0);
+                }
             }
         }
 
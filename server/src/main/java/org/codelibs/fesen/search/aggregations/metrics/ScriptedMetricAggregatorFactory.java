@@ -78,6 +78,12 @@ class ScriptedMetricAggregatorFactory extends AggregatorFactory {
         this.aggParams = aggParams;
     }
 
+    @Override
+    public boolean supportsConcurrentSegmentSearch() {
+        // the combine and reduce scripts expect one state per shard
+        return false;
+    }
+
     @Override
     public Aggregator createInternal(SearchContext searchContext,
                                         Aggregator parent,
@@ -201,6 +201,13 @@ public abstract class ValuesSource {
                     this.indexFieldData = indexFieldData;
                 }
 
+                /**
+                 * The field data that the values are read from.
+                 */
+                public IndexOrdinalsFieldData indexFieldData() {
+                    return indexFieldData;
+                }
+
                 @Override
                 public SortedBinaryDocValues bytesValues(LeafReaderContext context) {
                     final LeafOrdinalsFieldData atomicFieldData = indexFieldData.load(context);
@@ -500,6 +507,13 @@ public abstract class ValuesSource {
                 this.indexFieldData = indexFieldData;
             }
 
+            /**
+             * The field data that the values are read from.
+             */
+            public IndexNumericFieldData indexFieldData() {
+                return indexFieldData;
+            }
+
             @Override
             public boolean isFloatingPoint() {
                 return indexFieldData.getNumericType().isFloatingPoint();
@@ -82,6 +82,17 @@ import static java.util.Collections.emptyMap;
 public class FetchPhase {
     private static final Logger LOGGER = LogManager.getLogger(FetchPhase.class);
 
+    /**
+     * The maximum difference between the ids of two documents to fetch for them to be considered nearby,
+     * and thus likely to be stored in the same compressed block of stored fields.
+     */
+    static final int NEARBY_DOCS_MAX_GAP = 32;
+
+    /**
+     * The minimum number of nearby documents to fetch in a segment to read them with a sequential stored fields reader.
+     */
+    static final int MIN_NEARBY_DOCS = 10;
+
     private final FetchSubPhase[] fetchSubPhases;
 
     public FetchPhase(List<FetchSubPhase> fetchSubPhases) {
@@ -123,8 +134,10 @@ public class FetchPhase {
 
         int currentReaderIndex = -1;
         LeafReaderContext currentReaderContext = null;
-        CheckedBiConsumer<Integer, FieldsVisitor, IOException> fieldReader = null;
-        boolean hasSequentialDocs = hasSequentialDocs(docs);
+        int currentReaderStart = -1;
+        int currentReaderEnd = -1;
+        CheckedBiConsumer<Integer, FieldsVisitor, IOException> randomFieldReader = null;
+        CheckedBiConsumer<Integer, FieldsVisitor, IOException> sequentialFieldReader = null;
         for (int index = 0; index < context.docIdsToLoadSize(); index++) {
             if (context.isCancelled()) {
                 throw new TaskCancelledException("cancelled");
@@ -135,22 +148,32 @@ public class FetchPhase {
                 if (currentReaderIndex != readerIndex) {
                     currentReaderContext = context.searcher().getIndexReader().leaves().get(readerIndex);
                     currentReaderIndex = readerIndex;
+                    currentReaderStart = index;
+                    currentReaderEnd = index;
+                    final int maxDocId = currentReaderContext.docBase + currentReaderContext.reader().maxDoc();
+                    while (currentReaderEnd < docs.length && docs[currentReaderEnd].docId < maxDocId) {
+                        currentReaderEnd++;
+                    }
+                    randomFieldReader = currentReaderContext.reader()::document;
                     if (currentReaderContext.reader() instanceof SequentialStoredFieldsLeafReader
-                            && hasSequentialDocs && docs.length >= 10) {
-                        // All the docs to fetch are adjacent but Lucene stored fields are optimized
-                        // for random access and don't optimize for sequential access - except for merging.
-                        // So we do a little hack here and pretend we're going to do merges in order to
-                        // get better sequential access.
+                            && countNearbyDocs(docs, currentReaderStart, currentReaderEnd) >= MIN_NEARBY_DOCS) {
+                        // Lucene stored fields are optimized for random access and decompress the block of a
+                        // document on every access - except for merging, which keeps the last decompressed block.
+                        // So we do a little hack here and pretend we're going to do merges in order to decompress
+                        // the blocks of nearby docs only once.
                         SequentialStoredFieldsLeafReader lf = (SequentialStoredFieldsLeafReader) currentReaderContext.reader();
-                        fieldReader = lf.getSequentialStoredFieldsReader()::visitDocument;
+                        sequentialFieldReader = lf.getSequentialStoredFieldsReader()::visitDocument;
                     } else {
-                        fieldReader = currentReaderContext.reader()::document;
+                        sequentialFieldReader = null;
                     }
                     for (FetchSubPhaseProcessor processor : processors) {
                         processor.setNextReader(currentReaderContext);
                     }
                 }
                 assert currentReaderContext != null;
+                final CheckedBiConsumer<Integer, FieldsVisitor, IOException> fieldReader =
+                    sequentialFieldReader != null && isNearbyDoc(docs, index, currentReaderStart, currentReaderEnd)
+                        ? sequentialFieldReader : randomFieldReader;
                 HitContext hit = prepareHitContext(
                     context,
                     fetchContext.searchLookup(),
@@ -572,10 +595,25 @@ public class FetchPhase {
     }
 
     /**
-     * Returns <code>true</code> if the provided <code>docs</code> are
-     * stored sequentially (Dn = Dn-1 + 1).
+     * Returns <code>true</code> if the doc at <code>index</code> in the provided <code>docs</code>, sorted by doc id,
+     * is nearby the previous or the next doc between <code>from</code> inclusive and <code>to</code> exclusive.
      */
-    static boolean hasSequentialDocs(DocIdToIndex[] docs) {
-        return docs.length > 0 && docs[docs.length-1].docId - docs[0].docId == docs.length - 1;
+    static boolean isNearbyDoc(DocIdToIndex[] docs, int index, int from, int to) {
+        return (index > from && docs[index].docId - docs[index - 1].docId <= NEARBY_DOCS_MAX_GAP)
+            || (index + 1 < to && docs[index + 1].docId - docs[index].docId <= NEARBY_DOCS_MAX_GAP);
+    }
+
+    /**
+     * Returns the number of nearby docs, see {@link #isNearbyDoc}, between <code>from</code> inclusive
+     * and <code>to</code> exclusive in the provided <code>docs</code>, sorted by doc id.
+     */
+    static int countNearbyDocs(DocIdToIndex[] docs, int from, int to) {
+        int count = 0;
+        for (int index = from; index < to; index++) {
+            if (isNearbyDoc(docs, index, from, to)) {
+                count++;
+            }
+        }
+        return count;
     }
 }
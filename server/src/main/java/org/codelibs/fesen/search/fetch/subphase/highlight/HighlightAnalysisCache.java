@@ -0,0 +1,193 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.codelibs.fesen.search.fetch.subphase.highlight;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.memory.MemoryIndex;
+import org.codelibs.fesen.common.CheckedSupplier;
+import org.codelibs.fesen.common.Nullable;
+import org.codelibs.fesen.common.cache.Cache;
+import org.codelibs.fesen.common.cache.CacheBuilder;
+import org.codelibs.fesen.common.settings.Setting;
+import org.codelibs.fesen.common.settings.Setting.Property;
+import org.codelibs.fesen.common.settings.Settings;
+import org.codelibs.fesen.common.unit.ByteSizeValue;
+import org.codelibs.fesen.common.util.concurrent.ConcurrentCollections;
+import org.codelibs.fesen.index.shard.ShardId;
+import org.codelibs.fesen.index.shard.ShardUtils;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A node level cache of the analyzed text of the fields that the unified highlighter highlights by re-analyzing
+ * their content, i.e. fields that are indexed without offsets or term vectors. Each entry holds an in-memory index of
+ * all the tokens of a field of a document, so that highlighting the same document again only needs to look up the
+ * terms of the query rather than to analyze the whole text.
+ *
+ * Entries are keyed by segment, document and field, and are invalidated when their segment is closed. Fields whose content
+ * is longer than {@link #MAX_CONTENT_LENGTH_SETTING} are analyzed every time, since a single one of them would take up a
+ * large part of the cache.
+ */
+public final class HighlightAnalysisCache {
+
+    public static final Setting<ByteSizeValue> CACHE_SIZE_SETTING =
+        Setting.memorySizeSetting("search.highlight.analysis_cache.size", "1%", Property.NodeScope);
+    public static final Setting<Integer> MAX_CONTENT_LENGTH_SETTING =
+        Setting.intSetting("search.highlight.analysis_cache.max_content_length", 100_000, 0, Property.NodeScope);
+
+    // the memory index doesn't report its size, these estimate the size of its terms, positions, offsets and buffers
+    static final long BYTES_PER_CHAR = 4;
+    static final long BASE_BYTES = 48 * 1024;
+
+    private final int maxContentLength;
+    private final Cache<Key, LeafReader> cache;
+    private final ConcurrentMap<IndexReader.CacheKey, Set<Key>> keysBySegment = ConcurrentCollections.newConcurrentMap();
+
+    public HighlightAnalysisCache(Settings settings) {
+        this.maxContentLength = MAX_CONTENT_LENGTH_SETTING.get(settings);
+        this.cache = CacheBuilder.<Key, LeafReader>builder()
+            .setMaximumWeight(CACHE_SIZE_SETTING.get(settings).getBytes())
+            .weigher((key, value) -> BASE_BYTES + BYTES_PER_CHAR * key.contentLength)
+            .removalListener(notification -> {
+                final Set<Key> keys = keysBySegment.get(notification.getKey().segment);
+                if (keys != null) {
+                    keys.remove(notification.getKey());
+                }
+            })
+            .build();
+    }
+
+    /**
+     * Returns a reader over a single document that holds the analyzed <code>content</code> of the field of the given
+     * document, with positions and offsets. The content is only analyzed if it is not cached yet.
+     */
+    public LeafReader getOrAnalyze(LeafReader reader, int docId, String field, String content,
+                                   CheckedSupplier<TokenStream, IOException> tokenStream) throws IOException {
+        final IndexReader.CacheHelper cacheHelper = reader.getCoreCacheHelper();
+        if (cacheHelper == null || content.length() > maxContentLength) {
+            return analyze(field, tokenStream);
+        }
+        final IndexReader.CacheKey segment = cacheHelper.getKey();
+        final Key key = new Key(segment, ShardUtils.extractShardId(reader), docId, field, content);
+        try {
+            return cache.computeIfAbsent(key, k -> {
+                final LeafReader analyzed = analyze(field, tokenStream);
+                keysBySegment.computeIfAbsent(segment, s -> {
+                    cacheHelper.addClosedListener(this::onClose);
+                    return ConcurrentCollections.newConcurrentSet();
+                }).add(k);
+                return analyzed;
+            });
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException("failed to analyze [" + field + "] for highlighting", e.getCause());
+        }
+    }
+
+    private static LeafReader analyze(String field, CheckedSupplier<TokenStream, IOException> tokenStream) throws IOException {
+        final MemoryIndex memoryIndex = new MemoryIndex(true, false);
+        memoryIndex.addField(field, tokenStream.get());
+        memoryIndex.freeze();
+        return (LeafReader) memoryIndex.createSearcher().getIndexReader();
+    }
+
+    private void onClose(IndexReader.CacheKey segment) {
+        final Set<Key> keys = keysBySegment.remove(segment);
+        if (keys != null) {
+            for (Key key : keys) {
+                cache.invalidate(key);
+            }
+        }
+    }
+
+    /**
+     * Invalidates the analyzed fields of the documents of the given shard.
+     */
+    public void clear(ShardId shardId) {
+        for (Iterator<Key> iterator = cache.keys().iterator(); iterator.hasNext(); ) {
+            if (shardId.equals(iterator.next().shardId)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * The number of analyzed fields in the cache.
+     */
+    public int count() {
+        return cache.count();
+    }
+
+    public HighlightAnalysisCacheStats stats() {
+        final Cache.CacheStats stats = cache.stats();
+        return new HighlightAnalysisCacheStats(cache.weight(), cache.count(), stats.getEvictions(), stats.getHits(), stats.getMisses());
+    }
+
+    private static final class Key {
+        final IndexReader.CacheKey segment;
+        // not part of the key since the segment is, only used to clear the entries of a shard
+        @Nullable
+        final ShardId shardId;
+        final int docId;
+        final String field;
+        // the content is part of the key since it may be loaded differently, e.g. from stored fields or from _source
+        final int contentLength;
+        final int contentHash;
+
+        Key(IndexReader.CacheKey segment, @Nullable ShardId shardId, int docId, String field, String content) {
+            this.segment = segment;
+            this.shardId = shardId;
+            this.docId = docId;
+            this.field = field;
+            this.contentLength = content.length();
+            this.contentHash = content.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return docId == key.docId
+                && contentLength == key.contentLength
+                && contentHash == key.contentHash
+                && segment == key.segment
+                && field.equals(key.field);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(segment, docId, field, contentLength, contentHash);
+        }
+    }
+}
@@ -32,6 +32,7 @@ import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.CollectionUtil;
 import org.codelibs.fesen.common.CheckedSupplier;
 import org.codelibs.fesen.common.Strings;
+import org.codelibs.fesen.common.Nullable;
 import org.codelibs.fesen.common.text.Text;
 import org.codelibs.fesen.index.mapper.DocumentMapper;
 import org.codelibs.fesen.index.mapper.IdFieldMapper;
@@ -54,6 +55,17 @@ import java.util.stream.Collectors;
 import static org.apache.lucene.search.uhighlight.CustomUnifiedHighlighter.MULTIVAL_SEP_CHAR;
 
 public class UnifiedHighlighter implements Highlighter {
+    @Nullable
+    private final HighlightAnalysisCache analysisCache;
+
+    public UnifiedHighlighter() {
+        this.analysisCache = null;
+    }
+
+    public UnifiedHighlighter(@Nullable HighlightAnalysisCache analysisCache) {
+        this.analysisCache = analysisCache;
+    }
+
     @Override
     public boolean canHighlight(MappedFieldType fieldType) {
         return true;
@@ -155,7 +167,8 @@ public class UnifiedHighlighter implements Highlighter {
             higlighterNumberOfFragments,
             fieldMatcher(fieldContext),
             keywordIgnoreAbove,
-            maxAnalyzedOffset
+            maxAnalyzedOffset,
+            fieldContext.context.getIndexSettings().isHighlightAnalysisCacheEnabled() ? analysisCache : null
         );
     }
 
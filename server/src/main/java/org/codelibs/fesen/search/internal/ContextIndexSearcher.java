@@ -49,6 +49,9 @@ import org.apache.lucene.util.BitSetIterator;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.CombinedBitSet;
 import org.apache.lucene.util.SparseFixedBitSet;
+import org.apache.lucene.util.ThreadInterruptedException;
+import org.codelibs.fesen.ExceptionsHelper;
+import org.codelibs.fesen.common.Nullable;
 import org.codelibs.fesen.common.lease.Releasable;
 import org.codelibs.fesen.common.lucene.search.TopDocsAndMaxScore;
 import org.codelibs.fesen.search.DocValueFormat;
@@ -67,6 +70,10 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Context-aware extension of {@link IndexSearcher}.
@@ -78,6 +85,13 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
      */
     private static int CHECK_CANCELLED_SCORER_INTERVAL = 1 << 11;
 
+    /**
+     * The maximum number of documents and segments that are grouped in a single slice when the segments are searched
+     * concurrently. These are the same thresholds that Lucene uses by default.
+     */
+    private static final int MAX_DOCS_PER_SLICE = 250_000;
+    private static final int MAX_SEGMENTS_PER_SLICE = 5;
+
     private AggregatedDfs aggregatedDfs;
     private QueryProfiler profiler;
     private MutableQueryTimeout cancellable;
@@ -85,14 +99,25 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
     public ContextIndexSearcher(IndexReader reader, Similarity similarity,
                                 QueryCache queryCache, QueryCachingPolicy queryCachingPolicy,
                                 boolean wrapWithExitableDirectoryReader) throws IOException {
-        this(reader, similarity, queryCache, queryCachingPolicy, new MutableQueryTimeout(), wrapWithExitableDirectoryReader);
+        this(reader, similarity, queryCache, queryCachingPolicy, wrapWithExitableDirectoryReader, null);
+    }
+
+    /**
+     * Creates a searcher that collects its leaf slices concurrently on the provided <code>executor</code>
+     * when searched through {@link #search(Query, List)}. A <code>null</code> executor disables concurrent search.
+     */
+    public ContextIndexSearcher(IndexReader reader, Similarity similarity,
+                                QueryCache queryCache, QueryCachingPolicy queryCachingPolicy,
+                                boolean wrapWithExitableDirectoryReader, @Nullable Executor executor) throws IOException {
+        this(reader, similarity, queryCache, queryCachingPolicy, new MutableQueryTimeout(), wrapWithExitableDirectoryReader, executor);
     }
 
     private ContextIndexSearcher(IndexReader reader, Similarity similarity,
                                  QueryCache queryCache, QueryCachingPolicy queryCachingPolicy,
                                  MutableQueryTimeout cancellable,
-                                 boolean wrapWithExitableDirectoryReader) throws IOException {
-        super(wrapWithExitableDirectoryReader ? new ExitableDirectoryReader((DirectoryReader) reader, cancellable) : reader);
+                                 boolean wrapWithExitableDirectoryReader,
+                                 @Nullable Executor executor) throws IOException {
+        super(wrapWithExitableDirectoryReader ? new ExitableDirectoryReader((DirectoryReader) reader, cancellable) : reader, executor);
         setSimilarity(similarity);
         setQueryCache(queryCache);
         setQueryCachingPolicy(queryCachingPolicy);
@@ -200,6 +225,96 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
         }
     }
 
+    /**
+     * Returns true if this searcher can collect more than one leaf slice at the same time with {@link #search(Query, List)}.
+     */
+    public boolean isConcurrentSearchEnabled() {
+        return getExecutor() != null && getSlices().length > 1;
+    }
+
+    /**
+     * Searches the provided <code>query</code> on all leaf slices at once, each slice being collected
+     * by the collector at the same position in <code>sliceCollectors</code>. All slices but the last one are
+     * forked to the executor of this searcher, the last one (or any slice that the executor rejects) is collected
+     * by the calling thread. This method returns once every slice is done, even if one of them failed.
+     */
+    public void search(Query query, List<? extends Collector> sliceCollectors) throws IOException {
+        final LeafSlice[] slices = getSlices();
+        if (slices == null || slices.length != sliceCollectors.size()) {
+            throw new IllegalArgumentException("expected one collector per leaf slice but got [" + sliceCollectors.size() + "]");
+        }
+        final Weight weight = createWeight(rewrite(query), sliceCollectors.get(0).scoreMode(), 1f);
+        final List<FutureTask<Void>> tasks = new ArrayList<>(slices.length);
+        for (int i = 0; i < slices.length; i++) {
+            final LeafReaderContext[] leaves = slices[i].leaves;
+            final Collector collector = sliceCollectors.get(i);
+            final FutureTask<Void> task = new FutureTask<>(() -> {
+                search(Arrays.asList(leaves), weight, collector);
+                return null;
+            });
+            tasks.add(task);
+            if (i == slices.length - 1) {
+                task.run();
+            } else {
+                try {
+                    getExecutor().execute(task);
+                } catch (RejectedExecutionException e) {
+                    task.run();
+                }
+            }
+        }
+        Throwable failure = null;
+        for (FutureTask<Void> task : tasks) {
+            try {
+                task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = ExceptionsHelper.useOrSuppress(failure, e);
+            } catch (ExecutionException e) {
+                failure = ExceptionsHelper.useOrSuppress(failure, e.getCause());
+            }
+        }
+        if (failure != null) {
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            } else if (failure instanceof InterruptedException) {
+                throw new ThreadInterruptedException((InterruptedException) failure);
+            } else if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            // rethrow runtime exceptions as is since timeouts, cancellations and early terminations are signaled this way
+            ExceptionsHelper.reThrowIfNotNull(failure);
+        }
+    }
+
+    /**
+     * Groups contiguous leaves into slices so that the order of the slices follows the order of the doc ids. This allows
+     * to tie-break the top docs of the different slices on their position when they are merged.
+     */
+    @Override
+    protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
+        return slices(leaves, MAX_DOCS_PER_SLICE, MAX_SEGMENTS_PER_SLICE);
+    }
+
+    static LeafSlice[] slices(List<LeafReaderContext> leaves, int maxDocsPerSlice, int maxSegmentsPerSlice) {
+        final List<LeafSlice> slices = new ArrayList<>();
+        List<LeafReaderContext> group = new ArrayList<>();
+        long docCount = 0;
+        for (LeafReaderContext ctx : leaves) {
+            group.add(ctx);
+            docCount += ctx.reader().maxDoc();
+            if (docCount >= maxDocsPerSlice || group.size() >= maxSegmentsPerSlice) {
+                slices.add(new LeafSlice(group.toArray(new LeafReaderContext[0])));
+                group = new ArrayList<>();
+                docCount = 0;
+            }
+        }
+        if (group.isEmpty() == false) {
+            slices.add(new LeafSlice(group.toArray(new LeafReaderContext[0])));
+        }
+        return slices.toArray(new LeafSlice[0]);
+    }
+
     /**
      * Lower-level search API.
      *
@@ -19,6 +19,7 @@
 
 package org.codelibs.fesen.search.internal;
 
+import org.apache.lucene.search.TotalHits;
 import org.codelibs.fesen.common.lease.Releasable;
 import org.codelibs.fesen.common.lease.Releasables;
 import org.codelibs.fesen.common.util.concurrent.AbstractRefCounted;
@@ -33,6 +34,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
@@ -63,6 +65,10 @@ public class ReaderContext implements Releasable {
 
     private Map<String, Object> context;
 
+    // the total hits of the sorted queries that were executed against this reader, see QueryPhase
+    private final Map<Object, TotalHits> totalHits = new ConcurrentHashMap<>();
+    private static final int MAX_TOTAL_HITS_ENTRIES = 16;
+
     public ReaderContext(ShardSearchContextId id,
                          IndexService indexService,
                          IndexShard indexShard,
@@ -205,4 +211,23 @@ public class ReaderContext implements Releasable {
     public long getStartTimeInNano() {
         return startTimeInNano;
     }
+
+    /**
+     * Returns the total hits that were counted for the given query key by a previous request against this reader or
+     * <code>null</code> if unknown. Since the reader of a point in time never changes, the count remains valid for its lifetime.
+     */
+    public TotalHits getTotalHits(Object queryKey) {
+        return totalHits.get(queryKey);
+    }
+
+    /**
+     * Remembers the total hits that were counted for the given query key, see {@link #getTotalHits(Object)}.
+     */
+    public void putTotalHits(Object queryKey, TotalHits hits) {
+        if (totalHits.size() >= MAX_TOTAL_HITS_ENTRIES) {
+            // a point in time is usually paged through with a single query, don't let other queries accumulate
+            totalHits.clear();
+        }
+        totalHits.put(queryKey, hits);
+    }
 }
@@ -211,6 +211,12 @@ public class QueryPhase {
                 }
             }
 
+            // skip the documents that sort before search_after and do not count hits again on the pages of a point in time
+            final SearchAfterPaging searchAfterPaging = SearchAfterPaging.create(searchContext, reader, query);
+            if (searchAfterPaging != null) {
+                query = searchAfterPaging.rewrite(query);
+            }
+
             final LinkedList<QueryCollectorContext> collectors = new LinkedList<>();
             // whether the chain contains a collector that filters documents
             boolean hasFilterCollector = false;
@@ -287,11 +293,18 @@ public class QueryPhase {
                 });
             }
 
+            final int trackTotalHitsUpTo = searchContext.trackTotalHitsUpTo();
             try {
+                if (searchAfterPaging != null && searchAfterPaging.skipsTotalHits()) {
+                    // lets the top docs collector terminate early on sorted segments
+                    searchContext.trackTotalHitsUpTo(SearchContext.TRACK_TOTAL_HITS_DISABLED);
+                }
                 boolean shouldRescore;
                 // if we are optimizing sort and there are no other collectors
                 if (sortAndFormatsForRewrittenNumericSort!=null && collectors.size()==0 && searchContext.getProfilers()==null) {
                     shouldRescore = searchWithCollectorManager(searchContext, searcher, query, leafSorter, timeoutSet);
+                } else if (canSearchConcurrently(searchContext, searcher)) {
+                    shouldRescore = searchWithSliceCollectors(searchContext, searcher, query, collectors, hasFilterCollector, timeoutSet);
                 } else {
                     shouldRescore = searchWithCollector(searchContext, searcher, query, collectors, hasFilterCollector, timeoutSet);
                 }
@@ -301,6 +314,9 @@ public class QueryPhase {
                     searchContext.sort(sortAndFormatsForRewrittenNumericSort); // restore SortAndFormats
                     restoreTopFieldDocs(queryResult, sortAndFormatsForRewrittenNumericSort);
                 }
+                if (searchAfterPaging != null) {
+                    searchAfterPaging.postProcess(queryResult);
+                }
 
                 ExecutorService executor = searchContext.indexShard().getThreadPool().executor(ThreadPool.Names.SEARCH);
                 if (executor instanceof QueueResizingEsThreadPoolExecutor) {
@@ -310,6 +326,7 @@ public class QueryPhase {
                 }
                 return shouldRescore;
             } finally {
+                searchContext.trackTotalHitsUpTo(trackTotalHitsUpTo);
                 // Search phase has finished, no longer need to check for timeout
                 // otherwise aggregation phase might get cancelled.
                 if (timeoutRunnable!=null) {
@@ -359,6 +376,79 @@ public class QueryPhase {
     }
 
 
+    /**
+     * Returns true if the leaf slices of the <code>searcher</code> can be collected concurrently. This is not possible
+     * when the collection must see all the documents of the shard in a single pass, as for scrolls, field collapsing,
+     * terminate_after or profiled searches, or when one of the aggregations needs a shard level view.
+     */
+    static boolean canSearchConcurrently(SearchContext searchContext, ContextIndexSearcher searcher) {
+        return searcher.isConcurrentSearchEnabled()
+            && searchContext.scrollContext() == null
+            && searchContext.collapse() == null
+            && searchContext.terminateAfter() == SearchContext.DEFAULT_TERMINATE_AFTER
+            && searchContext.getProfilers() == null
+            && (searchContext.aggregations() == null || searchContext.aggregations().supportsConcurrentSegmentSearch());
+    }
+
+    /*
+     * Collects each leaf slice of the searcher concurrently with its own collector chain. The first slice reuses the
+     * collectors of the search context while the other slices get their own aggregators, which are merged back by the
+     * aggregation phase. The top docs of the slices are merged here.
+     */
+    private static boolean searchWithSliceCollectors(SearchContext searchContext, ContextIndexSearcher searcher, Query query,
+            LinkedList<QueryCollectorContext> collectors, boolean hasFilterCollector, boolean timeoutSet) throws IOException {
+        final int numSlices = searcher.getSlices().length;
+        final List<TopDocsCollectorContext> topDocsFactories = new ArrayList<>(numSlices);
+        final List<Collector> sliceCollectors = new ArrayList<>(numSlices);
+        for (int i = 0; i < numSlices; i++) {
+            final LinkedList<QueryCollectorContext> sliceContexts =
+                i == 0 ? collectors : createSliceCollectorContexts(searchContext, searcher);
+            final TopDocsCollectorContext topDocsFactory = createTopDocsCollectorContext(searchContext, hasFilterCollector);
+            sliceContexts.addFirst(topDocsFactory);
+            topDocsFactories.add(topDocsFactory);
+            sliceCollectors.add(QueryCollectorContext.createQueryCollector(sliceContexts));
+        }
+        QuerySearchResult queryResult = searchContext.queryResult();
+        try {
+            searcher.search(query, sliceCollectors);
+        } catch (TimeExceededException e) {
+            assert timeoutSet : "TimeExceededException thrown even though timeout wasn't set";
+            if (searchContext.request().allowPartialSearchResults() == false) {
+                // Can't rethrow TimeExceededException because not serializable
+                throw new QueryPhaseExecutionException(searchContext.shardTarget(), "Time exceeded");
+            }
+            queryResult.searchTimedOut(true);
+        }
+        // every slice computes the implicit total hit count of the whole shard, so it must not be summed
+        int hitCount = hasFilterCollector || searchContext.trackTotalHitsUpTo() == SearchContext.TRACK_TOTAL_HITS_DISABLED ? -1 :
+            shortcutTotalHitCount(searcher.getIndexReader(), searchContext.query());
+        TopDocsCollectorContext.reduceSlices(topDocsFactories,
+            hitCount == -1 ? null : new TotalHits(hitCount, TotalHits.Relation.EQUAL_TO), queryResult);
+        return topDocsFactories.get(0).shouldRescore();
+    }
+
+    /**
+     * Creates the collector contexts of an additional slice of a concurrent search, in the same order as
+     * the ones that {@link #executeInternal(SearchContext)} creates for the search context.
+     */
+    private static LinkedList<QueryCollectorContext> createSliceCollectorContexts(SearchContext searchContext,
+                                                                                 ContextIndexSearcher searcher) throws IOException {
+        final LinkedList<QueryCollectorContext> collectors = new LinkedList<>();
+        if (searchContext.parsedPostFilter() != null) {
+            collectors.add(createFilteredCollectorContext(searcher, searchContext.parsedPostFilter().query()));
+        }
+        if (searchContext.aggregations() != null) {
+            final Collector aggsCollector = AggregationPhase.createSliceCollector(searchContext);
+            if (aggsCollector != null) {
+                collectors.add(createMultiCollectorContext(Collections.singletonList(aggsCollector)));
+            }
+        }
+        if (searchContext.minimumScore() != null) {
+            collectors.add(createMinScoreCollectorContext(searchContext.minimumScore()));
+        }
+        return collectors;
+    }
+
     /*
      * We use collectorManager during sort optimization, where
      * we have already checked that there are no other collectors, no filters,
@@ -551,7 +641,7 @@ public class QueryPhase {
      * Returns whether collection within the provided <code>reader</code> can be early-terminated if it sorts
      * with <code>sortAndFormats</code>.
      **/
-    private static boolean canEarlyTerminate(IndexReader reader, SortAndFormats sortAndFormats) {
+    static boolean canEarlyTerminate(IndexReader reader, SortAndFormats sortAndFormats) {
         if (sortAndFormats == null || sortAndFormats.sort == null) {
             return false;
         }
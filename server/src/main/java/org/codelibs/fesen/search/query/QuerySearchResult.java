@@ -29,6 +29,7 @@ import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.TotalHits;
 import org.codelibs.fesen.Version;
 import org.codelibs.fesen.common.io.stream.DelayableWriteable;
+import org.codelibs.fesen.common.io.stream.NamedWriteableRegistry;
 import org.codelibs.fesen.common.io.stream.StreamInput;
 import org.codelibs.fesen.common.io.stream.StreamOutput;
 import org.codelibs.fesen.common.lucene.search.TopDocsAndMaxScore;
@@ -221,6 +222,20 @@ public final class QuerySearchResult extends SearchPhaseResult {
         return aggregations;
     }
 
+    /**
+     * Replaces the aggregations of this result with their serialized form, which is much more compact to hold on the heap while the
+     * result waits to be reduced, and returns them.
+     * @throws IllegalStateException if the aggregations have already been consumed.
+     */
+    public DelayableWriteable.Serialized<InternalAggregations> serializeAggregations(NamedWriteableRegistry registry) {
+        if (aggregations == null) {
+            throw new IllegalStateException("aggs already consumed");
+        }
+        DelayableWriteable.Serialized<InternalAggregations> serialized = aggregations.asSerialized(InternalAggregations::readFrom, registry);
+        aggregations = serialized;
+        return serialized;
+    }
+
     /**
      * Returns and nulls out the profiled results for this search, or potentially null if result was empty.
      * This allows to free up memory once the profiled result is consumed.
@@ -0,0 +1,218 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.codelibs.fesen.search.query;
+
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.PointValues;
+import org.apache.lucene.queries.SearchAfterSortedDocQuery;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.SortedNumericSortField;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.TotalHits;
+import org.codelibs.fesen.common.lucene.search.TopDocsAndMaxScore;
+import org.codelibs.fesen.index.mapper.DateFieldMapper.DateFieldType;
+import org.codelibs.fesen.index.mapper.MappedFieldType;
+import org.codelibs.fesen.search.internal.ReaderContext;
+import org.codelibs.fesen.search.internal.SearchContext;
+import org.codelibs.fesen.search.sort.SortAndFormats;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Speeds up <code>search_after</code> pagination of sorted queries, in particular against a point in time.
+ *
+ * A page only needs the documents that sort after the <code>search_after</code> values, so the query is filtered
+ * to skip the others: with a {@link SearchAfterSortedDocQuery} if the index sort matches the search sort, which
+ * lets whole segments and everything before the first competitive document be skipped and the collection terminate
+ * early, or with a range on the points of a primary long or date sort field, which skips the segments and the blocks
+ * whose min and max values are already passed.
+ *
+ * Filtering must not change the total hits, so it is only applied if they are not tracked or if they are already known.
+ * Since the reader of a point in time never changes, the total hits that a query counted on its first page are kept
+ * in the {@link ReaderContext} and returned for the following pages without counting them again.
+ */
+final class SearchAfterPaging {
+
+    private final SearchContext searchContext;
+    private final ReaderContext readerContext;
+    private final TotalHitsKey totalHitsKey;
+    private final TotalHits totalHits;
+    private final Query filter;
+
+    private SearchAfterPaging(SearchContext searchContext, ReaderContext readerContext, TotalHitsKey totalHitsKey,
+                              TotalHits totalHits, Query filter) {
+        this.searchContext = searchContext;
+        this.readerContext = readerContext;
+        this.totalHitsKey = totalHitsKey;
+        this.totalHits = totalHits;
+        this.filter = filter;
+    }
+
+    /**
+     * Returns the paging optimization that applies to the provided search or <code>null</code> if there is none.
+     */
+    static SearchAfterPaging create(SearchContext searchContext, IndexReader reader, Query query) throws IOException {
+        final SortAndFormats sort = searchContext.sort();
+        if (sort == null || Sort.RELEVANCE.equals(sort.sort) || searchContext.size() <= 0) {
+            return null;
+        }
+        if (searchContext.scrollContext() != null
+                || searchContext.collapse() != null
+                || searchContext.trackScores()
+                || searchContext.aggregations() != null
+                || searchContext.queryCollectors().isEmpty() == false
+                || searchContext.parsedPostFilter() != null
+                || searchContext.minimumScore() != null
+                || searchContext.terminateAfter() != SearchContext.DEFAULT_TERMINATE_AFTER
+                || searchContext.rescore().isEmpty() == false) {
+            // these change which documents are counted or need to see all of them
+            return null;
+        }
+        final boolean trackTotalHits = searchContext.trackTotalHitsUpTo() != SearchContext.TRACK_TOTAL_HITS_DISABLED;
+        final ReaderContext readerContext = searchContext.readerContext();
+        final boolean pointInTime = readerContext != null && readerContext.singleSession() == false;
+        if (trackTotalHits && pointInTime == false) {
+            return null;
+        }
+        final TotalHitsKey totalHitsKey = trackTotalHits ? new TotalHitsKey(query, searchContext.trackTotalHitsUpTo()) : null;
+        final TotalHits totalHits = trackTotalHits ? readerContext.getTotalHits(totalHitsKey) : null;
+        final FieldDoc after = searchContext.searchAfter();
+        final Query filter = after != null && (trackTotalHits == false || totalHits != null)
+            ? buildFilter(searchContext, reader, sort, after) : null;
+        if (filter == null && totalHitsKey == null) {
+            // nothing to skip and nothing to count
+            return null;
+        }
+        return new SearchAfterPaging(searchContext, readerContext, totalHitsKey, totalHits, filter);
+    }
+
+    /**
+     * Returns a filter that matches at least all documents that sort after <code>after</code> or <code>null</code>
+     * if the sort does not allow to skip documents.
+     */
+    static Query buildFilter(SearchContext searchContext, IndexReader reader, SortAndFormats sort, FieldDoc after) throws IOException {
+        if (QueryPhase.canEarlyTerminate(reader, sort)) {
+            return new SearchAfterSortedDocQuery(sort.sort, after);
+        }
+        final SortField sortField = sort.sort.getSort()[0];
+        // custom comparators may cast or aggregate values, only native sorts on min or max values are comparable with points
+        if (sortField instanceof SortedNumericSortField == false
+                || ((SortedNumericSortField) sortField).getNumericType() != SortField.Type.LONG
+                || after.fields[0] instanceof Long == false
+                || searchContext.mapperService() == null) {
+            return null;
+        }
+        final String field = sortField.getField();
+        final MappedFieldType fieldType = searchContext.mapperService().fieldType(field);
+        if (fieldType == null
+                || (fieldType.typeName().equals("long") == false && fieldType instanceof DateFieldType == false)
+                || fieldType.isSearchable() == false
+                || fieldType.hasDocValues() == false) {
+            return null;
+        }
+        final long afterValue = (Long) after.fields[0];
+        final boolean reverse = sortField.getReverse();
+        if (PointValues.getDocCount(reader, field) < reader.maxDoc()) {
+            // documents without a value are not matched by the range and must sort before the after value
+            final Object missingValue = sortField.getMissingValue();
+            if (missingValue instanceof Long == false) {
+                return null;
+            }
+            final long missing = (Long) missingValue;
+            if (reverse ? missing <= afterValue : missing >= afterValue) {
+                return null;
+            }
+        }
+        // documents that are equal on the primary sort may still sort after, the collector takes care of the tie
+        return reverse
+            ? LongPoint.newRangeQuery(field, Long.MIN_VALUE, afterValue)
+            : LongPoint.newRangeQuery(field, afterValue, Long.MAX_VALUE);
+    }
+
+    /**
+     * Returns whether the total hits are either known or not tracked, in which case the query does not need to count them.
+     */
+    boolean skipsTotalHits() {
+        return totalHitsKey == null || totalHits != null;
+    }
+
+    Query rewrite(Query query) {
+        if (filter == null) {
+            return query;
+        }
+        return new BooleanQuery.Builder()
+            .add(query, BooleanClause.Occur.MUST)
+            .add(filter, BooleanClause.Occur.FILTER)
+            .build();
+    }
+
+    void postProcess(QuerySearchResult result) {
+        if (totalHitsKey == null || result.searchTimedOut()) {
+            return;
+        }
+        final TopDocsAndMaxScore topDocs = result.topDocs();
+        if (totalHits == null) {
+            readerContext.putTotalHits(totalHitsKey, topDocs.topDocs.totalHits);
+        } else {
+            final TopDocs newTopDocs;
+            if (topDocs.topDocs instanceof TopFieldDocs) {
+                newTopDocs = new TopFieldDocs(totalHits, topDocs.topDocs.scoreDocs, ((TopFieldDocs) topDocs.topDocs).fields);
+            } else {
+                newTopDocs = new TopDocs(totalHits, topDocs.topDocs.scoreDocs);
+            }
+            result.topDocs(new TopDocsAndMaxScore(newTopDocs, topDocs.maxScore), result.sortValueFormats());
+        }
+    }
+
+    private static final class TotalHitsKey {
+        private final Query query;
+        private final int trackTotalHitsUpTo;
+
+        private TotalHitsKey(Query query, int trackTotalHitsUpTo) {
+            this.query = query;
+            this.trackTotalHitsUpTo = trackTotalHitsUpTo;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            TotalHitsKey that = (TotalHitsKey) o;
+            return trackTotalHitsUpTo == that.trackTotalHitsUpTo && query.equals(that.query);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(query, trackTotalHitsUpTo);
+        }
+    }
+}
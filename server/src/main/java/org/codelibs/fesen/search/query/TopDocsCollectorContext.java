@@ -70,6 +70,7 @@ import static org.codelibs.fesen.search.profile.query.CollectorResult.REASON_SEA
 import static org.codelibs.fesen.search.profile.query.CollectorResult.REASON_SEARCH_TOP_HITS;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Objects;
 import java.util.function.Supplier;
 
@@ -98,6 +99,78 @@ abstract class TopDocsCollectorContext extends QueryCollectorContext {
         return false;
     }
 
+    /**
+     * Returns the top docs collected by this context when it collects a single slice of a concurrent shard search.
+     * @see #reduceSlices(List, TotalHits, QuerySearchResult)
+     */
+    abstract TopDocsAndMaxScore sliceTopDocs() throws IOException;
+
+    /**
+     * Returns the formats of the sort values of the top docs
+     */
+    DocValueFormat[] sortValueFormats() {
+        return null;
+    }
+
+    /**
+     * Merges the top docs of the slices of a concurrent shard search into <code>result</code>.
+     * @param slices The contexts that collected each slice, in slice order
+     * @param totalHits The total hits of the whole shard if they could be computed up-front,
+     *                  <code>null</code> if they must be summed from the slices
+     */
+    static void reduceSlices(List<TopDocsCollectorContext> slices, @Nullable TotalHits totalHits,
+                             QuerySearchResult result) throws IOException {
+        final TopDocsCollectorContext first = slices.get(0);
+        final TopDocs[] sliceTopDocs = new TopDocs[slices.size()];
+        long totalHitCount = 0;
+        TotalHits.Relation relation = TotalHits.Relation.EQUAL_TO;
+        float maxScore = Float.NaN;
+        for (int i = 0; i < sliceTopDocs.length; i++) {
+            final TopDocsAndMaxScore topDocs = slices.get(i).sliceTopDocs();
+            sliceTopDocs[i] = topDocs.topDocs;
+            totalHitCount += topDocs.topDocs.totalHits.value;
+            if (topDocs.topDocs.totalHits.relation == TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO) {
+                relation = TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO;
+            }
+            if (Float.isNaN(topDocs.maxScore) == false) {
+                maxScore = Float.isNaN(maxScore) ? topDocs.maxScore : Math.max(maxScore, topDocs.maxScore);
+            }
+        }
+        if (totalHits == null) {
+            totalHits = new TotalHits(totalHitCount, relation);
+        }
+        final TopDocs topDocs;
+        if (sliceTopDocs[0] instanceof CollapseTopFieldDocs) {
+            final CollapseTopFieldDocs firstCollapse = (CollapseTopFieldDocs) sliceTopDocs[0];
+            final CollapseTopFieldDocs[] sliceCollapseDocs = new CollapseTopFieldDocs[sliceTopDocs.length];
+            System.arraycopy(sliceTopDocs, 0, sliceCollapseDocs, 0, sliceTopDocs.length);
+            final CollapseTopFieldDocs merged =
+                CollapseTopFieldDocs.merge(new Sort(firstCollapse.fields), 0, first.numHits(), sliceCollapseDocs, true);
+            topDocs = new CollapseTopFieldDocs(merged.field, totalHits, merged.scoreDocs, merged.fields, merged.collapseValues);
+        } else if (sliceTopDocs[0] instanceof TopFieldDocs) {
+            final SortField[] sortFields = ((TopFieldDocs) sliceTopDocs[0]).fields;
+            final ScoreDoc[] scoreDocs;
+            if (first.numHits() == 0) {
+                scoreDocs = Lucene.EMPTY_SCORE_DOCS;
+            } else {
+                final TopFieldDocs[] sliceFieldDocs = new TopFieldDocs[sliceTopDocs.length];
+                System.arraycopy(sliceTopDocs, 0, sliceFieldDocs, 0, sliceTopDocs.length);
+                // slices hold contiguous leaves so tie-breaking on the slice index preserves the doc id order
+                scoreDocs = TopDocs.merge(new Sort(sortFields), 0, first.numHits(), sliceFieldDocs, true).scoreDocs;
+            }
+            topDocs = new TopFieldDocs(totalHits, scoreDocs, sortFields);
+        } else {
+            final ScoreDoc[] scoreDocs = first.numHits() == 0 ? Lucene.EMPTY_SCORE_DOCS :
+                TopDocs.merge(0, first.numHits(), sliceTopDocs, true).scoreDocs;
+            topDocs = new TopDocs(totalHits, scoreDocs);
+        }
+        // the shard index is set by the coordinating node when shard results are reduced
+        for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+            scoreDoc.shardIndex = -1;
+        }
+        result.topDocs(new TopDocsAndMaxScore(topDocs, maxScore), first.sortValueFormats());
+    }
+
     static class EmptyTopDocsCollectorContext extends TopDocsCollectorContext {
         private final Sort sort;
         private final Collector collector;
@@ -150,7 +223,7 @@ abstract class TopDocsCollectorContext extends QueryCollectorContext {
         }
 
         @Override
-        void postProcess(QuerySearchResult result) {
+        TopDocsAndMaxScore sliceTopDocs() {
             final TotalHits totalHitCount = hitCountSupplier.get();
             final TopDocs topDocs;
             if (sort != null) {
@@ -158,7 +231,12 @@ abstract class TopDocsCollectorContext extends QueryCollectorContext {
             } else {
                 topDocs = new TopDocs(totalHitCount, Lucene.EMPTY_SCORE_DOCS);
             }
-            result.topDocs(new TopDocsAndMaxScore(topDocs, Float.NaN), null);
+            return new TopDocsAndMaxScore(topDocs, Float.NaN);
+        }
+
+        @Override
+        void postProcess(QuerySearchResult result) {
+            result.topDocs(sliceTopDocs(), null);
         }
     }
 
@@ -200,10 +278,19 @@ abstract class TopDocsCollectorContext extends QueryCollectorContext {
             return topDocsCollector;
         }
 
+        @Override
+        TopDocsAndMaxScore sliceTopDocs() throws IOException {
+            return new TopDocsAndMaxScore(topDocsCollector.getTopDocs(), maxScoreSupplier.get());
+        }
+
+        @Override
+        DocValueFormat[] sortValueFormats() {
+            return sortFmt;
+        }
+
         @Override
         void postProcess(QuerySearchResult result) throws IOException {
-            CollapseTopFieldDocs topDocs = topDocsCollector.getTopDocs();
-            result.topDocs(new TopDocsAndMaxScore(topDocs, maxScoreSupplier.get()), sortFmt);
+            result.topDocs(sliceTopDocs(), sortFmt);
         }
     }
 
@@ -314,10 +401,20 @@ abstract class TopDocsCollectorContext extends QueryCollectorContext {
             return new TopDocsAndMaxScore(newTopDocs, maxScore);
         }
 
+        @Override
+        TopDocsAndMaxScore sliceTopDocs() {
+            return newTopDocs();
+        }
+
+        @Override
+        DocValueFormat[] sortValueFormats() {
+            return sortAndFormats == null ? null : sortAndFormats.formats;
+        }
+
         @Override
         void postProcess(QuerySearchResult result) throws IOException {
             final TopDocsAndMaxScore topDocs = newTopDocs();
-            result.topDocs(topDocs, sortAndFormats == null ? null : sortAndFormats.formats);
+            result.topDocs(topDocs, sortValueFormats());
         }
     }
 
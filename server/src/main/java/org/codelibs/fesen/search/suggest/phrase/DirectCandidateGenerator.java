@@ -25,6 +25,7 @@ import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
 import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
 import org.apache.lucene.codecs.TermStats;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.MultiTerms;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.index.Terms;
@@ -32,8 +33,10 @@ import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.search.spell.DirectSpellChecker;
 import org.apache.lucene.search.spell.SuggestMode;
 import org.apache.lucene.search.spell.SuggestWord;
+import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefBuilder;
+import org.apache.lucene.util.BytesRefHash;
 import org.apache.lucene.util.CharsRef;
 import org.apache.lucene.util.CharsRefBuilder;
 import org.codelibs.fesen.core.internal.io.IOUtils;
@@ -68,6 +71,10 @@ public final class DirectCandidateGenerator extends CandidateGenerator {
     private final CharsRefBuilder spare = new CharsRefBuilder();
     private final BytesRefBuilder byteSpare = new BytesRefBuilder();
     private final int numCandidates;
+    // the stats of the terms that were looked up already, candidates are often suggested for several tokens of the input
+    private final BytesRefHash cachedTerms = new BytesRefHash();
+    private int[] cachedDocFreqs = new int[16];
+    private long[] cachedTotalTermFreqs = new long[16];
 
     public DirectCandidateGenerator(DirectSpellChecker spellchecker, String field, SuggestMode suggestMode, IndexReader reader,
             double nonErrorLikelihood, int numCandidates) throws IOException {
@@ -113,6 +120,41 @@ public final class DirectCandidateGenerator extends CandidateGenerator {
 
 
     public TermStats internalTermStats(BytesRef term) throws IOException {
+        if (term.length > IndexWriter.MAX_TERM_LENGTH) {
+            // cannot be cached, nor indexed
+            return new TermStats(0, 0);
+        }
+        int id = cachedTerms.add(term);
+        if (id < 0) {
+            id = -1 - id;
+            return new TermStats(cachedDocFreqs[id], cachedTotalTermFreqs[id]);
+        }
+        final TermStats termStats = seekTermStats(term);
+        cachedDocFreqs = ArrayUtil.grow(cachedDocFreqs, id + 1);
+        cachedTotalTermFreqs = ArrayUtil.grow(cachedTotalTermFreqs, id + 1);
+        cachedDocFreqs[id] = termStats.docFreq;
+        cachedTotalTermFreqs[id] = termStats.totalTermFreq;
+        return termStats;
+    }
+
+    /**
+     * Returns the stats of the given terms. The terms are looked up in sorted order so that the terms enum of each segment
+     * only moves forward and can reuse the blocks that it already loaded.
+     */
+    TermStats[] internalTermStats(BytesRef[] terms) throws IOException {
+        final Integer[] order = new Integer[terms.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> terms[a].compareTo(terms[b]));
+        final TermStats[] termStats = new TermStats[terms.length];
+        for (int i : order) {
+            termStats[i] = internalTermStats(terms[i]);
+        }
+        return termStats;
+    }
+
+    private TermStats seekTermStats(BytesRef term) throws IOException {
         if (termsEnum.seekExact(term)) {
             return new TermStats(termsEnum.docFreq(),
                 /**
@@ -153,11 +195,16 @@ public final class DirectCandidateGenerator extends CandidateGenerator {
             }
 
             SuggestWord[] suggestSimilar = spellchecker.suggestSimilar(new Term(field, term), numCandidates, reader, this.suggestMode);
+            BytesRef[] candidateTerms = new BytesRef[suggestSimilar.length];
+            for (int i = 0; i < suggestSimilar.length; i++) {
+                candidateTerms[i] = new BytesRef(suggestSimilar[i].string);
+            }
+            TermStats[] candidateTermStats = internalTermStats(candidateTerms);
             List<Candidate> candidates = new ArrayList<>(suggestSimilar.length);
             for (int i = 0; i < suggestSimilar.length; i++) {
                 SuggestWord suggestWord = suggestSimilar[i];
-                BytesRef candidate = new BytesRef(suggestWord.string);
-                TermStats termStats = internalTermStats(candidate);
+                BytesRef candidate = candidateTerms[i];
+                TermStats termStats = candidateTermStats[i];
                 postFilter(new Candidate(candidate, termStats,
                     suggestWord.score, score(termStats, suggestWord.score, sumTotalTermFreq), false), spare, byteSpare, candidates);
             }
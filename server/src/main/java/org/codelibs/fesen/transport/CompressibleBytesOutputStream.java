@@ -20,7 +20,7 @@
 package org.codelibs.fesen.transport;
 
 import org.codelibs.fesen.common.bytes.BytesReference;
-import org.codelibs.fesen.common.compress.CompressorFactory;
+import org.codelibs.fesen.common.Nullable;
 import org.codelibs.fesen.common.io.Streams;
 import org.codelibs.fesen.common.io.stream.BytesStream;
 import org.codelibs.fesen.common.io.stream.StreamOutput;
@@ -49,11 +49,14 @@ final class CompressibleBytesOutputStream extends StreamOutput {
     private final BytesStream bytesStreamOutput;
     private final boolean shouldCompress;
 
-    CompressibleBytesOutputStream(BytesStream bytesStreamOutput, boolean shouldCompress) throws IOException {
+    /**
+     * @param compressionScheme the scheme to compress with or {@code null} to write the bytes uncompressed
+     */
+    CompressibleBytesOutputStream(BytesStream bytesStreamOutput, @Nullable Compression.Scheme compressionScheme) throws IOException {
         this.bytesStreamOutput = bytesStreamOutput;
-        this.shouldCompress = shouldCompress;
+        this.shouldCompress = compressionScheme != null;
         if (shouldCompress) {
-            this.stream = CompressorFactory.COMPRESSOR.threadLocalOutputStream(Streams.flushOnCloseStream(bytesStreamOutput));
+            this.stream = compressionScheme.compressor().threadLocalOutputStream(Streams.flushOnCloseStream(bytesStreamOutput));
         } else {
             this.stream = bytesStreamOutput;
         }
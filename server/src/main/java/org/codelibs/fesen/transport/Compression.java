@@ -0,0 +1,100 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.codelibs.fesen.transport;
+
+import org.codelibs.fesen.common.Nullable;
+import org.codelibs.fesen.common.bytes.BytesReference;
+import org.codelibs.fesen.common.compress.Compressor;
+import org.codelibs.fesen.common.compress.CompressorFactory;
+import org.codelibs.fesen.common.compress.Lz4Compressor;
+
+import java.util.Locale;
+
+public class Compression {
+
+    /**
+     * The algorithm used to compress transport messages. The scheme of an inbound message is detected from the header of its
+     * compressed payload, so a node can always read messages in any scheme it knows about.
+     */
+    public enum Scheme {
+        DEFLATE(CompressorFactory.COMPRESSOR),
+        LZ4(new Lz4Compressor());
+
+        /** The number of bytes needed to detect the scheme of a compressed payload. */
+        static final int HEADER_LENGTH = 4;
+
+        private final Compressor compressor;
+
+        Scheme(Compressor compressor) {
+            assert compressor.headerLength() == HEADER_LENGTH;
+            this.compressor = compressor;
+        }
+
+        public Compressor compressor() {
+            return compressor;
+        }
+
+        /**
+         * Returns the scheme the given payload was compressed with or {@code null} if it does not start with a known header.
+         */
+        @Nullable
+        static Scheme fromCompressedBytes(BytesReference bytes) {
+            for (Scheme scheme : values()) {
+                if (scheme.compressor.isCompressed(bytes)) {
+                    return scheme;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Returns the scheme with the given name or {@code null} if the name is unknown, e.g. because it was sent by a newer node.
+         */
+        @Nullable
+        static Scheme fromName(String name) {
+            for (Scheme scheme : values()) {
+                if (scheme.toString().equals(name)) {
+                    return scheme;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * Which outbound requests get compressed. {@link #INDEXING_DATA} only compresses requests that carry raw indexing data, such as
+     * bulk shard requests and recovery chunks, which are large and compress well.
+     */
+    public enum Enabled {
+        TRUE,
+        INDEXING_DATA,
+        FALSE;
+
+        @Override
+        public String toString() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+}
@@ -107,7 +107,7 @@ public final class ConnectionProfile {
      */
     public static ConnectionProfile buildSingleChannelProfile(TransportRequestOptions.Type channelType, @Nullable TimeValue connectTimeout,
                                                               @Nullable TimeValue handshakeTimeout, @Nullable TimeValue pingInterval,
-                                                              @Nullable Boolean compressionEnabled) {
+                                                              @Nullable Compression.Enabled compressionEnabled) {
         Builder builder = new Builder();
         builder.addConnections(1, channelType);
         final EnumSet<TransportRequestOptions.Type> otherTypes = EnumSet.allOf(TransportRequestOptions.Type.class);
@@ -133,10 +133,10 @@ public final class ConnectionProfile {
     private final TimeValue connectTimeout;
     private final TimeValue handshakeTimeout;
     private final TimeValue pingInterval;
-    private final Boolean compressionEnabled;
+    private final Compression.Enabled compressionEnabled;
 
     private ConnectionProfile(List<ConnectionTypeHandle> handles, int numConnections, TimeValue connectTimeout,
-                              TimeValue handshakeTimeout, TimeValue pingInterval, Boolean compressionEnabled) {
+                              TimeValue handshakeTimeout, TimeValue pingInterval, Compression.Enabled compressionEnabled) {
         this.handles = handles;
         this.numConnections = numConnections;
         this.connectTimeout = connectTimeout;
@@ -154,7 +154,7 @@ public final class ConnectionProfile {
         private int numConnections = 0;
         private TimeValue connectTimeout;
         private TimeValue handshakeTimeout;
-        private Boolean compressionEnabled;
+        private Compression.Enabled compressionEnabled;
         private TimeValue pingInterval;
 
         /** create an empty builder */
@@ -202,9 +202,9 @@ public final class ConnectionProfile {
         }
 
         /**
-         * Sets compression enabled for this connection profile
+         * Sets which requests are compressed on this connection profile
          */
-        public Builder setCompressionEnabled(boolean compressionEnabled) {
+        public Builder setCompressionEnabled(Compression.Enabled compressionEnabled) {
             this.compressionEnabled = compressionEnabled;
             return this;
         }
@@ -267,10 +267,10 @@ public final class ConnectionProfile {
     }
 
     /**
-     * Returns boolean indicating if compression is enabled or <code>null</code> if no explicit compression
+     * Returns which requests are compressed on this profile or <code>null</code> if no explicit compression
      * is set on this profile.
      */
-    public Boolean getCompressionEnabled() {
+    public Compression.Enabled getCompressionEnabled() {
         return compressionEnabled;
     }
 
@@ -20,6 +20,7 @@
 package org.codelibs.fesen.transport;
 
 import org.codelibs.fesen.Version;
+import org.codelibs.fesen.common.Nullable;
 import org.codelibs.fesen.common.collect.Tuple;
 import org.codelibs.fesen.common.io.stream.StreamInput;
 import org.codelibs.fesen.common.util.concurrent.ThreadContext;
@@ -43,6 +44,7 @@ public class Header {
     String actionName;
     Tuple<Map<String, String>, Map<String, Set<String>>> headers;
     Set<String> features;
+    private Compression.Scheme compressionScheme = null;
 
     Header(int networkMessageSize, long requestId, byte status, Version version) {
         this.networkMessageSize = networkMessageSize;
@@ -87,6 +89,20 @@ public class Header {
         return TransportStatus.isCompress(status);
     }
 
+    /**
+     * Returns the scheme the content of this message is compressed with, or {@code null} if it is not compressed or the scheme
+     * is not known yet because no content has been decoded.
+     */
+    @Nullable
+    Compression.Scheme getCompressionScheme() {
+        return compressionScheme;
+    }
+
+    void setCompressionScheme(Compression.Scheme compressionScheme) {
+        assert isCompressed();
+        this.compressionScheme = compressionScheme;
+    }
+
     public String getActionName() {
         return actionName;
     }
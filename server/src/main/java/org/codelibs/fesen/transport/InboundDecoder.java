@@ -38,6 +38,8 @@ public class InboundDecoder implements Releasable {
     private final Version version;
     private final PageCacheRecycler recycler;
     private TransportDecompressor decompressor;
+    // the header of a compressed message until its decompressor has been created
+    private Header compressedHeader;
     private int totalNetworkSize = -1;
     private int bytesConsumed = 0;
     private boolean isClosed = false;
@@ -75,7 +77,8 @@ public class InboundDecoder implements Releasable {
                     Header header = readHeader(version, messageLength, reference);
                     bytesConsumed += headerBytesToRead;
                     if (header.isCompressed()) {
-                        decompressor = new TransportDecompressor(recycler);
+                        // the compression scheme is only known once we have seen the first bytes of the content
+                        compressedHeader = header;
                     }
                     fragmentConsumer.accept(header);
 
@@ -87,7 +90,14 @@ public class InboundDecoder implements Releasable {
             }
         } else {
             // There are a minimum number of bytes required to start decompression
-            if (decompressor != null && decompressor.canDecompress(reference.length()) == false) {
+            if (compressedHeader != null) {
+                if (reference.length() < Compression.Scheme.HEADER_LENGTH) {
+                    return 0;
+                }
+                decompressor = TransportDecompressor.getDecompressor(recycler, reference);
+                compressedHeader.setCompressionScheme(Compression.Scheme.fromCompressedBytes(reference));
+                compressedHeader = null;
+            } else if (decompressor != null && decompressor.canDecompress(reference.length()) == false) {
                 return 0;
             }
             int bytesToConsume = Math.min(reference.length(), totalNetworkSize - bytesConsumed);
@@ -129,6 +139,7 @@ public class InboundDecoder implements Releasable {
     private void cleanDecodeState() {
         IOUtils.closeWhileHandlingException(decompressor);
         decompressor = null;
+        compressedHeader = null;
         totalNetworkSize = -1;
         bytesConsumed = 0;
     }
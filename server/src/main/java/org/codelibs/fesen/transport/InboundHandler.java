@@ -28,6 +28,8 @@ import org.codelibs.fesen.common.io.stream.ByteBufferStreamInput;
 import org.codelibs.fesen.common.io.stream.NamedWriteableAwareStreamInput;
 import org.codelibs.fesen.common.io.stream.NamedWriteableRegistry;
 import org.codelibs.fesen.common.io.stream.StreamInput;
+import org.codelibs.fesen.common.lease.Releasable;
+import org.codelibs.fesen.common.lease.Releasables;
 import org.codelibs.fesen.common.transport.TransportAddress;
 import org.codelibs.fesen.common.unit.TimeValue;
 import org.codelibs.fesen.common.util.concurrent.AbstractRunnable;
@@ -167,7 +169,7 @@ public class InboundHandler {
             final StreamInput stream = namedWriteableStream(message.openOrGetStreamInput());
             assertRemoteVersion(stream, header.getVersion());
             final TransportChannel transportChannel = new TcpTransportChannel(outboundHandler, channel, action, requestId, version,
-                header.getFeatures(), header.isCompressed(), header.isHandshake(), message.takeBreakerReleaseControl());
+                header.getFeatures(), header.getCompressionScheme(), header.isHandshake(), message.takeBreakerReleaseControl());
             try {
                 handshaker.handleHandshake(transportChannel, requestId, stream);
             } catch (Exception e) {
@@ -181,16 +183,25 @@ public class InboundHandler {
                 }
             }
         } else {
+            final RequestHandlerRegistry<T> reg = message.isShortCircuit() ? null : requestHandlers.getHandler(action);
+            final boolean unsafeBuffers = reg != null && reg.allowsUnsafeBuffers();
+            final Releasable release;
+            if (unsafeBuffers) {
+                // the request may reference the content of the message until the response is sent
+                release = Releasables.wrap(message.takeBreakerReleaseControl(), message.retainContent());
+            } else {
+                release = message.takeBreakerReleaseControl();
+            }
             final TransportChannel transportChannel = new TcpTransportChannel(outboundHandler, channel, action, requestId, version,
-                header.getFeatures(), header.isCompressed(), header.isHandshake(), message.takeBreakerReleaseControl());
+                header.getFeatures(), header.getCompressionScheme(), header.isHandshake(), release);
             try {
                 messageListener.onRequestReceived(requestId, action);
                 if (message.isShortCircuit()) {
                     sendErrorResponse(action, transportChannel, message.getException());
                 } else {
-                    final StreamInput stream = namedWriteableStream(message.openOrGetStreamInput());
+                    final StreamInput stream = namedWriteableStream(
+                        unsafeBuffers ? message.openOrGetUnsafeStreamInput() : message.openOrGetStreamInput());
                     assertRemoteVersion(stream, header.getVersion());
-                    final RequestHandlerRegistry<T> reg = requestHandlers.getHandler(action);
                     assert reg != null;
                     final T request = reg.newRequest(stream);
                     request.remoteAddress(new TransportAddress(channel.getRemoteAddress()));
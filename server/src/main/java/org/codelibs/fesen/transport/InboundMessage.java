@@ -35,6 +35,7 @@ public class InboundMessage implements Releasable {
     private final boolean isPing;
     private Releasable breakerRelease;
     private StreamInput streamInput;
+    private boolean unsafeStreamInput;
 
     public InboundMessage(Header header, ReleasableBytesReference content, Releasable breakerRelease) {
         this.header = header;
@@ -103,6 +104,36 @@ public class InboundMessage implements Releasable {
         return streamInput;
     }
 
+    /**
+     * Like {@link #openOrGetStreamInput()} but byte references read from the returned stream are slices of the content of this message
+     * rather than copies, see {@link ReleasableBytesReference#unsafeStreamInput()}. The stream continues from the position of the stream
+     * that was opened before, if any. Use {@link #retainContent()} to keep the content alive once this message is closed.
+     */
+    public StreamInput openOrGetUnsafeStreamInput() throws IOException {
+        assert isPing == false && content != null;
+        if (unsafeStreamInput == false) {
+            final StreamInput unsafe = content.unsafeStreamInput();
+            if (streamInput != null) {
+                final long position = content.length() - streamInput.available();
+                final long skipped = unsafe.skip(position);
+                assert skipped == position : skipped + " vs " + position;
+                streamInput.close();
+            }
+            unsafe.setVersion(header.getVersion());
+            streamInput = unsafe;
+            unsafeStreamInput = true;
+        }
+        return streamInput;
+    }
+
+    /**
+     * Keeps the content of this message alive until the returned releasable is closed, even if this message is closed before.
+     */
+    public Releasable retainContent() {
+        assert content != null;
+        return content.retain();
+    }
+
     @Override
     public void close() {
         IOUtils.closeWhileHandlingException(streamInput);
@@ -0,0 +1,181 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.codelibs.fesen.transport;
+
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefIterator;
+import org.codelibs.fesen.common.bytes.BytesArray;
+import org.codelibs.fesen.common.bytes.BytesReference;
+import org.codelibs.fesen.common.bytes.ReleasableBytesReference;
+import org.codelibs.fesen.common.compress.Lz4Compressor;
+import org.codelibs.fesen.common.recycler.Recycler;
+import org.codelibs.fesen.common.util.PageCacheRecycler;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+
+/**
+ * Decompresses messages written by {@link Lz4Compressor}. Bytes of a block are buffered until the whole block has been
+ * received and the block is then decompressed into recycled pages in one go.
+ */
+public class Lz4TransportDecompressor implements TransportDecompressor {
+
+    private final PageCacheRecycler recycler;
+    private final ArrayDeque<Recycler.V<byte[]>> pages;
+    private int pageOffset = PageCacheRecycler.BYTE_PAGE_SIZE;
+    private boolean hasReadHeader = false;
+    private boolean isEOS = false;
+
+    // the bytes of the current block, including its header, that have been received so far
+    private byte[] pending = BytesRef.EMPTY_BYTES;
+    private int pendingLength = 0;
+    private byte[] decompressed;
+
+    public Lz4TransportDecompressor(PageCacheRecycler recycler) {
+        this.recycler = recycler;
+        pages = new ArrayDeque<>(4);
+    }
+
+    @Override
+    public int decompress(BytesReference bytesReference) throws IOException {
+        int bytesConsumed = 0;
+        if (hasReadHeader == false) {
+            final Lz4Compressor compressor = (Lz4Compressor) Compression.Scheme.LZ4.compressor();
+            if (compressor.isCompressed(bytesReference) == false) {
+                throw new IllegalStateException("stream marked as compressed with lz4, but is missing the lz4 header");
+            }
+            hasReadHeader = true;
+            int headerLength = compressor.headerLength();
+            bytesReference = bytesReference.slice(headerLength, bytesReference.length() - headerLength);
+            bytesConsumed += headerLength;
+        }
+
+        BytesRefIterator refIterator = bytesReference.iterator();
+        BytesRef ref;
+        while (isEOS == false && (ref = refIterator.next()) != null) {
+            int offset = ref.offset;
+            final int end = ref.offset + ref.length;
+            while (isEOS == false && offset < end) {
+                final int required = requiredBytes();
+                final int toCopy = Math.min(required - pendingLength, end - offset);
+                if (pending.length < required) {
+                    pending = ArrayUtil.grow(pending, required);
+                }
+                System.arraycopy(ref.bytes, offset, pending, pendingLength, toCopy);
+                pendingLength += toCopy;
+                offset += toCopy;
+                bytesConsumed += toCopy;
+                if (pendingLength == required) {
+                    maybeDecompressBlock();
+                }
+            }
+        }
+
+        return bytesConsumed;
+    }
+
+    /**
+     * Returns the number of bytes of the current block that must be buffered before we can make progress.
+     */
+    private int requiredBytes() throws IOException {
+        if (pendingLength < Integer.BYTES) {
+            return Integer.BYTES;
+        }
+        final int length = Lz4Compressor.readInt(pending, 0);
+        if (length == 0) {
+            return Integer.BYTES;
+        }
+        if (pendingLength < Lz4Compressor.BLOCK_HEADER_LENGTH) {
+            return Lz4Compressor.BLOCK_HEADER_LENGTH;
+        }
+        final int storedLength = Lz4Compressor.readInt(pending, Integer.BYTES);
+        if (length < 0 || length > Lz4Compressor.BLOCK_SIZE || storedLength <= 0 || storedLength > length) {
+            throw new IOException("Invalid LZ4 block, decompressed length [" + length + "], stored length [" + storedLength + "]");
+        }
+        return Lz4Compressor.BLOCK_HEADER_LENGTH + storedLength;
+    }
+
+    private void maybeDecompressBlock() throws IOException {
+        final int length = Lz4Compressor.readInt(pending, 0);
+        if (length == 0) {
+            isEOS = true;
+            pendingLength = 0;
+        } else if (pendingLength > Lz4Compressor.BLOCK_HEADER_LENGTH) {
+            if (decompressed == null) {
+                decompressed = Lz4Compressor.newDecompressionBuffer();
+            }
+            final int storedLength = pendingLength - Lz4Compressor.BLOCK_HEADER_LENGTH;
+            Lz4Compressor.decompressBlock(pending, Lz4Compressor.BLOCK_HEADER_LENGTH, storedLength, decompressed, length);
+            copyToPages(decompressed, length);
+            pendingLength = 0;
+        }
+    }
+
+    private void copyToPages(byte[] bytes, int length) {
+        int offset = 0;
+        while (offset < length) {
+            if (pageOffset == PageCacheRecycler.BYTE_PAGE_SIZE) {
+                pages.add(recycler.bytePage(false));
+                pageOffset = 0;
+            }
+            final int toCopy = Math.min(PageCacheRecycler.BYTE_PAGE_SIZE - pageOffset, length - offset);
+            System.arraycopy(bytes, offset, pages.getLast().v(), pageOffset, toCopy);
+            pageOffset += toCopy;
+            offset += toCopy;
+        }
+    }
+
+    @Override
+    public boolean canDecompress(int bytesAvailable) {
+        return hasReadHeader || bytesAvailable >= Compression.Scheme.LZ4.compressor().headerLength();
+    }
+
+    @Override
+    public boolean isEOS() {
+        return isEOS;
+    }
+
+    @Override
+    public ReleasableBytesReference pollDecompressedPage() {
+        if (pages.isEmpty()) {
+            return null;
+        } else if (pages.size() == 1) {
+            if (isEOS()) {
+                Recycler.V<byte[]> page = pages.pollFirst();
+                ReleasableBytesReference reference = new ReleasableBytesReference(new BytesArray(page.v(), 0, pageOffset), page);
+                pageOffset = 0;
+                return reference;
+            } else {
+                return null;
+            }
+        } else {
+            Recycler.V<byte[]> page = pages.pollFirst();
+            return new ReleasableBytesReference(new BytesArray(page.v()), page);
+        }
+    }
+
+    @Override
+    public void close() {
+        for (Recycler.V<byte[]> page : pages) {
+            page.close();
+        }
+    }
+}
@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.util.Set;
 
 import org.codelibs.fesen.Version;
+import org.codelibs.fesen.common.Nullable;
 import org.codelibs.fesen.common.bytes.BytesArray;
 import org.codelibs.fesen.common.bytes.BytesReference;
 import org.codelibs.fesen.common.bytes.CompositeBytesReference;
@@ -33,9 +34,12 @@ import org.codelibs.fesen.common.util.concurrent.ThreadContext;
 abstract class OutboundMessage extends NetworkMessage {
 
     private final Writeable message;
+    private final Compression.Scheme compressionScheme;
 
-    OutboundMessage(ThreadContext threadContext, Version version, byte status, long requestId, Writeable message) {
+    OutboundMessage(ThreadContext threadContext, Version version, byte status, long requestId,
+                    @Nullable Compression.Scheme compressionScheme, Writeable message) {
         super(threadContext, version, status, requestId);
+        this.compressionScheme = TransportStatus.isCompress(status) ? compressionScheme : null;
         this.message = message;
     }
 
@@ -54,7 +58,7 @@ abstract class OutboundMessage extends NetworkMessage {
         }
 
         try (CompressibleBytesOutputStream stream =
-                 new CompressibleBytesOutputStream(bytesStream, TransportStatus.isCompress(status))) {
+                 new CompressibleBytesOutputStream(bytesStream, compressionScheme)) {
             stream.setVersion(version);
             stream.setFeatures(bytesStream.getFeatures());
 
@@ -106,8 +110,9 @@ abstract class OutboundMessage extends NetworkMessage {
         private final String action;
 
         Request(ThreadContext threadContext, String[] features, Writeable message, Version version, String action, long requestId,
-                boolean isHandshake, boolean compress) {
-            super(threadContext, version, setStatus(compress, isHandshake, message), requestId, message);
+                boolean isHandshake, @Nullable Compression.Scheme compressionScheme) {
+            super(threadContext, version, setStatus(compressionScheme != null, isHandshake, message), requestId, compressionScheme,
+                message);
             this.features = features;
             this.action = action;
         }
@@ -140,8 +145,9 @@ abstract class OutboundMessage extends NetworkMessage {
         private final Set<String> features;
 
         Response(ThreadContext threadContext, Set<String> features, Writeable message, Version version, long requestId,
-                 boolean isHandshake, boolean compress) {
-            super(threadContext, version, setStatus(compress, isHandshake, message), requestId, message);
+                 boolean isHandshake, @Nullable Compression.Scheme compressionScheme) {
+            super(threadContext, version, setStatus(compressionScheme != null, isHandshake, message), requestId, compressionScheme,
+                message);
             this.features = features;
         }
 
@@ -0,0 +1,35 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.codelibs.fesen.transport;
+
+/**
+ * Requests that implement this interface will be compressed when {@link TransportSettings#TRANSPORT_COMPRESS}
+ * is configured to {@link Compression.Enabled#INDEXING_DATA}. This is intended for requests that are mostly
+ * made of raw source data, such as bulk shard requests and recovery chunks.
+ */
+public interface RawIndexingDataTransportRequest {
+
+    /**
+     * Whether this request carries raw indexing data. Wrapping requests delegate to the request they wrap.
+     */
+    default boolean isRawIndexingData() {
+        return true;
+    }
+}
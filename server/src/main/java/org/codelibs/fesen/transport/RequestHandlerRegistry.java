@@ -35,6 +35,7 @@ public class RequestHandlerRegistry<Request extends TransportRequest> {
     private final TransportRequestHandler<Request> handler;
     private final boolean forceExecution;
     private final boolean canTripCircuitBreaker;
+    private final boolean allowsUnsafeBuffers;
     private final String executor;
     private final TaskManager taskManager;
     private final Writeable.Reader<Request> requestReader;
@@ -42,11 +43,18 @@ public class RequestHandlerRegistry<Request extends TransportRequest> {
     public RequestHandlerRegistry(String action, Writeable.Reader<Request> requestReader, TaskManager taskManager,
                                   TransportRequestHandler<Request> handler, String executor, boolean forceExecution,
                                   boolean canTripCircuitBreaker) {
+        this(action, requestReader, taskManager, handler, executor, forceExecution, canTripCircuitBreaker, false);
+    }
+
+    public RequestHandlerRegistry(String action, Writeable.Reader<Request> requestReader, TaskManager taskManager,
+                                  TransportRequestHandler<Request> handler, String executor, boolean forceExecution,
+                                  boolean canTripCircuitBreaker, boolean allowsUnsafeBuffers) {
         this.action = action;
         this.requestReader = requestReader;
         this.handler = handler;
         this.forceExecution = forceExecution;
         this.canTripCircuitBreaker = canTripCircuitBreaker;
+        this.allowsUnsafeBuffers = allowsUnsafeBuffers;
         this.executor = executor;
         this.taskManager = taskManager;
     }
@@ -84,6 +92,14 @@ public class RequestHandlerRegistry<Request extends TransportRequest> {
         return canTripCircuitBreaker;
     }
 
+    /**
+     * Whether requests are read from the network buffers without copying their byte references. If so, the buffers are only released
+     * once the response is sent.
+     */
+    public boolean allowsUnsafeBuffers() {
+        return allowsUnsafeBuffers;
+    }
+
     public String getExecutor() {
         return executor;
     }
@@ -100,6 +116,6 @@ public class RequestHandlerRegistry<Request extends TransportRequest> {
     public static <R extends TransportRequest> RequestHandlerRegistry<R> replaceHandler(RequestHandlerRegistry<R> registry,
                                                                                         TransportRequestHandler<R> handler) {
         return new RequestHandlerRegistry<>(registry.action, registry.requestReader, registry.taskManager, handler,
-            registry.executor, registry.forceExecution, registry.canTripCircuitBreaker);
+            registry.executor, registry.forceExecution, registry.canTripCircuitBreaker, registry.allowsUnsafeBuffers);
     }
 }
@@ -19,130 +19,69 @@
 
 package org.codelibs.fesen.transport;
 
-import org.apache.lucene.util.BytesRef;
-import org.apache.lucene.util.BytesRefIterator;
-import org.codelibs.fesen.common.bytes.BytesArray;
 import org.codelibs.fesen.common.bytes.BytesReference;
 import org.codelibs.fesen.common.bytes.ReleasableBytesReference;
-import org.codelibs.fesen.common.compress.CompressorFactory;
-import org.codelibs.fesen.common.recycler.Recycler;
 import org.codelibs.fesen.common.util.PageCacheRecycler;
 
 import java.io.Closeable;
 import java.io.IOException;
-import java.util.ArrayDeque;
-import java.util.zip.DataFormatException;
-import java.util.zip.Inflater;
 
-public class TransportDecompressor implements Closeable {
-
-    private final Inflater inflater;
-    private final PageCacheRecycler recycler;
-    private final ArrayDeque<Recycler.V<byte[]>> pages;
-    private int pageOffset = PageCacheRecycler.BYTE_PAGE_SIZE;
-    private boolean hasReadHeader = false;
+/**
+ * Incrementally decompresses the content of a compressed transport message into recycled pages.
+ */
+public interface TransportDecompressor extends Closeable {
 
-    public TransportDecompressor(PageCacheRecycler recycler) {
-        this.recycler = recycler;
-        inflater = new Inflater(true);
-        pages = new ArrayDeque<>(4);
-    }
+    /**
+     * Decompresses the provided bytes and returns the number of bytes that were consumed.
+     */
+    int decompress(BytesReference bytesReference) throws IOException;
 
-    public int decompress(BytesReference bytesReference) throws IOException {
-        int bytesConsumed = 0;
-        if (hasReadHeader == false) {
-            if (CompressorFactory.COMPRESSOR.isCompressed(bytesReference) == false) {
-                int maxToRead = Math.min(bytesReference.length(), 10);
-                StringBuilder sb = new StringBuilder("stream marked as compressed, but no compressor found, first [")
-                    .append(maxToRead).append("] content bytes out of [").append(bytesReference.length())
-                    .append("] readable bytes with message size [").append(bytesReference.length()).append("] ").append("] are [");
-                for (int i = 0; i < maxToRead; i++) {
-                    sb.append(bytesReference.get(i)).append(",");
-                }
-                sb.append("]");
-                throw new IllegalStateException(sb.toString());
-            }
-            hasReadHeader = true;
-            int headerLength = CompressorFactory.COMPRESSOR.headerLength();
-            bytesReference = bytesReference.slice(headerLength, bytesReference.length() - headerLength);
-            bytesConsumed += headerLength;
-        }
+    /**
+     * Returns true if enough bytes are available to start decompressing.
+     */
+    boolean canDecompress(int bytesAvailable);
 
-        BytesRefIterator refIterator = bytesReference.iterator();
-        BytesRef ref;
-        while ((ref = refIterator.next()) != null) {
-            inflater.setInput(ref.bytes, ref.offset, ref.length);
-            bytesConsumed += ref.length;
-            boolean continueInflating = true;
-            while (continueInflating) {
-                final Recycler.V<byte[]> page;
-                final boolean isNewPage = pageOffset == PageCacheRecycler.BYTE_PAGE_SIZE;
-                if (isNewPage) {
-                    pageOffset = 0;
-                    page = recycler.bytePage(false);
-                } else {
-                    page = pages.getLast();
-                }
-                byte[] output = page.v();
-                try {
-                    int bytesInflated = inflater.inflate(output, pageOffset, PageCacheRecycler.BYTE_PAGE_SIZE - pageOffset);
-                    pageOffset += bytesInflated;
-                    if (isNewPage) {
-                        if (bytesInflated == 0) {
-                            page.close();
-                            pageOffset = PageCacheRecycler.BYTE_PAGE_SIZE;
-                        } else {
-                            pages.add(page);
-                        }
-                    }
-                } catch (DataFormatException e) {
-                    throw new IOException("Exception while inflating bytes", e);
-                }
-                if (inflater.needsInput()) {
-                    continueInflating = false;
-                }
-                if (inflater.finished()) {
-                    bytesConsumed -= inflater.getRemaining();
-                    continueInflating = false;
-                }
-                assert inflater.needsDictionary() == false;
-            }
-        }
+    /**
+     * Returns true once the end of the compressed stream was reached.
+     */
+    boolean isEOS();
 
-        return bytesConsumed;
-    }
+    /**
+     * Returns the next full page of decompressed bytes, or the last partial page once the end of the stream was reached,
+     * or {@code null} if no page is ready yet.
+     */
+    ReleasableBytesReference pollDecompressedPage();
 
-    public boolean canDecompress(int bytesAvailable) {
-        return hasReadHeader || bytesAvailable >= CompressorFactory.COMPRESSOR.headerLength();
-    }
-
-    public boolean isEOS() {
-        return inflater.finished();
-    }
+    @Override
+    void close();
 
-    public ReleasableBytesReference pollDecompressedPage() {
-        if (pages.isEmpty()) {
-            return null;
-        } else if (pages.size() == 1) {
-            if (isEOS()) {
-                Recycler.V<byte[]> page = pages.pollFirst();
-                ReleasableBytesReference reference = new ReleasableBytesReference(new BytesArray(page.v(), 0, pageOffset), page);
-                pageOffset = 0;
-                return reference;
-            } else {
-                return null;
+    /**
+     * Creates the decompressor for the scheme the given payload was compressed with.
+     *
+     * @param recycler the recycler to allocate decompressed pages from
+     * @param bytes    the start of the compressed payload, must hold at least {@link Compression.Scheme#HEADER_LENGTH} bytes
+     * @throws IllegalStateException if the payload was not compressed with a known scheme
+     */
+    static TransportDecompressor getDecompressor(PageCacheRecycler recycler, BytesReference bytes) {
+        final Compression.Scheme scheme = Compression.Scheme.fromCompressedBytes(bytes);
+        if (scheme == null) {
+            int maxToRead = Math.min(bytes.length(), 10);
+            StringBuilder sb = new StringBuilder("stream marked as compressed, but no compressor found, first [")
+                .append(maxToRead).append("] content bytes out of [").append(bytes.length())
+                .append("] readable bytes are [");
+            for (int i = 0; i < maxToRead; i++) {
+                sb.append(bytes.get(i)).append(",");
             }
-        } else {
-            Recycler.V<byte[]> page = pages.pollFirst();
-            return new ReleasableBytesReference(new BytesArray(page.v()), page);
+            sb.append("]");
+            throw new IllegalStateException(sb.toString());
         }
-    }
-
-    @Override
-    public void close() {
-        inflater.end();
-        for (Recycler.V<byte[]> page : pages) {
-            page.close();
+        switch (scheme) {
+            case DEFLATE:
+                return new DeflateTransportDecompressor(recycler);
+            case LZ4:
+                return new Lz4TransportDecompressor(recycler);
+            default:
+                throw new IllegalStateException("unknown compression scheme [" + scheme + "]");
         }
     }
 }
@@ -21,6 +21,7 @@ package org.codelibs.fesen.transport;
 import org.codelibs.fesen.Version;
 import org.codelibs.fesen.action.ActionListener;
 import org.codelibs.fesen.cluster.node.DiscoveryNode;
+import org.codelibs.fesen.common.Nullable;
 import org.codelibs.fesen.common.bytes.BytesReference;
 import org.codelibs.fesen.common.io.stream.BytesStreamOutput;
 import org.codelibs.fesen.common.io.stream.StreamInput;
@@ -31,9 +32,12 @@ import org.codelibs.fesen.threadpool.ThreadPool;
 
 import java.io.EOFException;
 import java.io.IOException;
+import java.util.EnumSet;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 
 /**
  * Sends and receives transport-level connection handshakes. This class will send the initial handshake,
@@ -43,6 +47,8 @@ final class TransportHandshaker {
 
     static final String HANDSHAKE_ACTION_NAME = "internal:tcp/handshake";
     private final ConcurrentMap<Long, HandshakeResponseHandler> pendingHandshakes = new ConcurrentHashMap<>();
+    // the compression schemes supported by the remote node of a channel whose handshake completed but that was not yet taken
+    private final ConcurrentMap<TcpChannel, Set<Compression.Scheme>> remoteCompressionSchemes = new ConcurrentHashMap<>();
     private final CounterMetric numHandshakes = new CounterMetric();
 
     private final Version version;
@@ -55,12 +61,22 @@ final class TransportHandshaker {
         this.handshakeRequestSender = handshakeRequestSender;
     }
 
+    /**
+     * The compression schemes this node can decompress. They are advertised in handshake requests and, if the remote node
+     * advertised its own schemes, in handshake responses.
+     */
+    static Set<Compression.Scheme> supportedCompressionSchemes() {
+        return EnumSet.allOf(Compression.Scheme.class);
+    }
+
     void sendHandshake(long requestId, DiscoveryNode node, TcpChannel channel, TimeValue timeout, ActionListener<Version> listener) {
         numHandshakes.inc();
-        final HandshakeResponseHandler handler = new HandshakeResponseHandler(requestId, version, listener);
+        final HandshakeResponseHandler handler = new HandshakeResponseHandler(requestId, version, channel, listener);
         pendingHandshakes.put(requestId, handler);
-        channel.addCloseListener(ActionListener.wrap(
-            () -> handler.handleLocalException(new TransportException("handshake failed because connection reset"))));
+        channel.addCloseListener(ActionListener.wrap(() -> {
+            remoteCompressionSchemes.remove(channel);
+            handler.handleLocalException(new TransportException("handshake failed because connection reset"));
+        }));
         boolean success = false;
         try {
             // for the request we use the minCompatVersion since we don't know what's the version of the node we talk to
@@ -92,13 +108,26 @@ final class TransportHandshaker {
             throw new IllegalStateException("Handshake request not fully read for requestId [" + requestId + "], action ["
                 + TransportHandshaker.HANDSHAKE_ACTION_NAME + "], available [" + stream.available() + "]; resetting");
         }
-        channel.sendResponse(new HandshakeResponse(this.version));
+        // only nodes that advertise their compression schemes know how to read ours from the response
+        final Set<Compression.Scheme> compressionSchemes =
+            handshakeRequest.compressionSchemes == null ? null : supportedCompressionSchemes();
+        channel.sendResponse(new HandshakeResponse(this.version, compressionSchemes));
     }
 
     TransportResponseHandler<HandshakeResponse> removeHandlerForHandshake(long requestId) {
         return pendingHandshakes.remove(requestId);
     }
 
+    /**
+     * Returns the compression schemes the remote node of the given channel can decompress, as learned by a completed
+     * handshake on that channel. Nodes that do not advertise their schemes are assumed to only support
+     * {@link Compression.Scheme#DEFLATE}.
+     */
+    Set<Compression.Scheme> takeRemoteCompressionSchemes(TcpChannel channel) {
+        final Set<Compression.Scheme> schemes = remoteCompressionSchemes.remove(channel);
+        return schemes == null ? EnumSet.of(Compression.Scheme.DEFLATE) : schemes;
+    }
+
     int getNumPendingHandshakes() {
         return pendingHandshakes.size();
     }
@@ -111,12 +140,14 @@ final class TransportHandshaker {
 
         private final long requestId;
         private final Version currentVersion;
+        private final TcpChannel channel;
         private final ActionListener<Version> listener;
         private final AtomicBoolean isDone = new AtomicBoolean(false);
 
-        private HandshakeResponseHandler(long requestId, Version currentVersion, ActionListener<Version> listener) {
+        private HandshakeResponseHandler(long requestId, Version currentVersion, TcpChannel channel, ActionListener<Version> listener) {
             this.requestId = requestId;
             this.currentVersion = currentVersion;
+            this.channel = channel;
             this.listener = listener;
         }
 
@@ -133,6 +164,9 @@ final class TransportHandshaker {
                     listener.onFailure(new IllegalStateException("Received message from unsupported version: [" + version
                         + "] minimal compatible version is: [" + currentVersion.minimumCompatibilityVersion() + "]"));
                 } else {
+                    if (response.compressionSchemes != null && channel.isOpen()) {
+                        remoteCompressionSchemes.put(channel, response.compressionSchemes);
+                    }
                     listener.onResponse(version);
                 }
             }
@@ -160,9 +194,16 @@ final class TransportHandshaker {
     static final class HandshakeRequest extends TransportRequest {
 
         private final Version version;
+        // null if the sender of the request does not advertise its compression schemes
+        private final Set<Compression.Scheme> compressionSchemes;
 
         HandshakeRequest(Version version) {
+            this(version, supportedCompressionSchemes());
+        }
+
+        HandshakeRequest(Version version, @Nullable Set<Compression.Scheme> compressionSchemes) {
             this.version = version;
+            this.compressionSchemes = compressionSchemes;
         }
 
         HandshakeRequest(StreamInput streamInput) throws IOException {
@@ -175,9 +216,16 @@ final class TransportHandshaker {
             }
             if (remainingMessage == null) {
                 version = null;
+                compressionSchemes = null;
             } else {
                 try (StreamInput messageStreamInput = remainingMessage.streamInput()) {
                     this.version = Version.readVersion(messageStreamInput);
+                    // the message is length-prefixed so older nodes ignore the schemes and newer nodes may append more fields
+                    if (messageStreamInput.available() > 0) {
+                        this.compressionSchemes = readCompressionSchemes(messageStreamInput);
+                    } else {
+                        this.compressionSchemes = null;
+                    }
                 }
             }
         }
@@ -188,6 +236,9 @@ final class TransportHandshaker {
             assert version != null;
             try (BytesStreamOutput messageStreamOutput = new BytesStreamOutput(4)) {
                 Version.writeVersion(version, messageStreamOutput);
+                if (compressionSchemes != null) {
+                    writeCompressionSchemes(compressionSchemes, messageStreamOutput);
+                }
                 BytesReference reference = messageStreamOutput.bytes();
                 streamOutput.writeBytesReference(reference);
             }
@@ -197,25 +248,60 @@ final class TransportHandshaker {
     static final class HandshakeResponse extends TransportResponse {
 
         private final Version responseVersion;
+        // only sent back to nodes that advertised their own compression schemes, which know to expect it
+        private final Set<Compression.Scheme> compressionSchemes;
 
         HandshakeResponse(Version responseVersion) {
+            this(responseVersion, null);
+        }
+
+        HandshakeResponse(Version responseVersion, @Nullable Set<Compression.Scheme> compressionSchemes) {
             this.responseVersion = responseVersion;
+            this.compressionSchemes = compressionSchemes;
         }
 
         private HandshakeResponse(StreamInput in) throws IOException {
             super(in);
             responseVersion = Version.readVersion(in);
+            if (in.available() > 0) {
+                compressionSchemes = readCompressionSchemes(in);
+            } else {
+                compressionSchemes = null;
+            }
         }
 
         @Override
         public void writeTo(StreamOutput out) throws IOException {
             assert responseVersion != null;
             Version.writeVersion(responseVersion, out);
+            if (compressionSchemes != null) {
+                writeCompressionSchemes(compressionSchemes, out);
+            }
         }
 
         Version getResponseVersion() {
             return responseVersion;
         }
+
+        Set<Compression.Scheme> getCompressionSchemes() {
+            return compressionSchemes;
+        }
+    }
+
+    // schemes are sent by name so that names unknown to the receiving node can be skipped
+    static void writeCompressionSchemes(Set<Compression.Scheme> schemes, StreamOutput out) throws IOException {
+        out.writeStringCollection(schemes.stream().map(Compression.Scheme::toString).collect(Collectors.toList()));
+    }
+
+    private static Set<Compression.Scheme> readCompressionSchemes(StreamInput in) throws IOException {
+        final Set<Compression.Scheme> schemes = EnumSet.noneOf(Compression.Scheme.class);
+        for (String name : in.readStringArray()) {
+            final Compression.Scheme scheme = Compression.Scheme.fromName(name);
+            if (scheme != null) {
+                schemes.add(scheme);
+            }
+        }
+        return schemes;
     }
 
     @FunctionalInterface
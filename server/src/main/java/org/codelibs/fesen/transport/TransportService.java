@@ -935,10 +935,30 @@ public class TransportService extends AbstractLifecycleComponent implements Repo
                                                                           boolean canTripCircuitBreaker,
                                                                           Writeable.Reader<Request> requestReader,
                                                                           TransportRequestHandler<Request> handler) {
+        registerRequestHandler(action, executor, forceExecution, canTripCircuitBreaker, false, requestReader, handler);
+    }
+
+    /**
+     * Registers a new request handler
+     *
+     * @param action                The action the request handler is associated with
+     * @param requestReader               The request class that will be used to construct new instances for streaming
+     * @param executor              The executor the request handling will be executed on
+     * @param forceExecution        Force execution on the executor queue and never reject it
+     * @param canTripCircuitBreaker Check the request size and raise an exception in case the limit is breached.
+     * @param allowsUnsafeBuffers   Read byte references of the request as slices of the network buffers rather than copies. The buffers
+     *                              are kept until the response is sent, so the handler must not use the request after that.
+     * @param handler               The handler itself that implements the request handling
+     */
+    public <Request extends TransportRequest> void registerRequestHandler(String action,
+                                                                          String executor, boolean forceExecution,
+                                                                          boolean canTripCircuitBreaker, boolean allowsUnsafeBuffers,
+                                                                          Writeable.Reader<Request> requestReader,
+                                                                          TransportRequestHandler<Request> handler) {
         validateActionName(action);
         handler = interceptor.interceptHandler(action, executor, forceExecution, handler);
         RequestHandlerRegistry<Request> reg = new RequestHandlerRegistry<>(
-            action, requestReader, taskManager, handler, executor, forceExecution, canTripCircuitBreaker);
+            action, requestReader, taskManager, handler, executor, forceExecution, canTripCircuitBreaker, allowsUnsafeBuffers);
         transport.registerRequestHandler(reg);
     }
 
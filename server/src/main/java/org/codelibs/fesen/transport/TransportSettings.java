@@ -32,6 +32,7 @@ import java.util.function.Function;
 import static java.util.Collections.emptyList;
 import static org.codelibs.fesen.common.settings.Setting.affixKeySetting;
 import static org.codelibs.fesen.common.settings.Setting.boolSetting;
+import static org.codelibs.fesen.common.settings.Setting.enumSetting;
 import static org.codelibs.fesen.common.settings.Setting.intSetting;
 import static org.codelibs.fesen.common.settings.Setting.listSetting;
 import static org.codelibs.fesen.common.settings.Setting.timeSetting;
@@ -62,10 +63,14 @@ public final class TransportSettings {
         intSetting("transport.publish_port", -1, -1, Setting.Property.NodeScope);
     public static final Setting.AffixSetting<Integer> PUBLISH_PORT_PROFILE = affixKeySetting("transport.profiles.", "publish_port",
         key -> intSetting(key, -1, -1, Setting.Property.NodeScope));
-    public static final Setting<Boolean> OLD_TRANSPORT_COMPRESS =
-        boolSetting("transport.tcp.compress", false, Setting.Property.NodeScope, Setting.Property.Deprecated);
-    public static final Setting<Boolean> TRANSPORT_COMPRESS =
-        boolSetting("transport.compress", OLD_TRANSPORT_COMPRESS, Setting.Property.NodeScope);
+    public static final Setting<Compression.Enabled> OLD_TRANSPORT_COMPRESS =
+        enumSetting(Compression.Enabled.class, "transport.tcp.compress", Compression.Enabled.FALSE, Setting.Property.NodeScope,
+            Setting.Property.Deprecated);
+    public static final Setting<Compression.Enabled> TRANSPORT_COMPRESS =
+        enumSetting(Compression.Enabled.class, "transport.compress", OLD_TRANSPORT_COMPRESS, Setting.Property.NodeScope);
+    // the scheme used to compress outbound messages, lz4 is only used towards nodes that advertise support for it
+    public static final Setting<Compression.Scheme> TRANSPORT_COMPRESSION_SCHEME =
+        enumSetting(Compression.Scheme.class, "transport.compression_scheme", Compression.Scheme.DEFLATE, Setting.Property.NodeScope);
     // the scheduled internal ping interval setting, defaults to disabled (-1)
     public static final Setting<TimeValue> PING_SCHEDULE =
         timeSetting("transport.ping_schedule", TimeValue.timeValueSeconds(-1), Setting.Property.NodeScope);
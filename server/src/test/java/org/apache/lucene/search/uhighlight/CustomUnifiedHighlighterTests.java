@@ -23,6 +23,7 @@ import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.custom.CustomAnalyzer;
 import org.apache.lucene.analysis.ngram.EdgeNGramTokenizerFactory;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.search.uhighlight.UnifiedHighlighter.OffsetSource;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.FieldType;
@@ -30,6 +31,7 @@ import org.apache.lucene.document.TextField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexOptions;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.RandomIndexWriter;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.queries.CommonTermsQuery;
@@ -46,7 +48,11 @@ import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.highlight.DefaultEncoder;
 import org.apache.lucene.store.Directory;
 import org.codelibs.fesen.common.Strings;
+import org.codelibs.fesen.common.lucene.index.FesenDirectoryReader;
 import org.codelibs.fesen.common.lucene.search.MultiPhrasePrefixQuery;
+import org.codelibs.fesen.common.settings.Settings;
+import org.codelibs.fesen.index.shard.ShardId;
+import org.codelibs.fesen.search.fetch.subphase.highlight.HighlightAnalysisCache;
 import org.codelibs.fesen.test.ESTestCase;
 
 import java.text.BreakIterator;
@@ -54,6 +60,7 @@ import java.util.Locale;
 
 import static org.apache.lucene.search.uhighlight.CustomUnifiedHighlighter.MULTIVAL_SEP_CHAR;
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 
 public class CustomUnifiedHighlighterTests extends ESTestCase {
     private void assertHighlightOneDoc(String fieldName, String[] inputs, Analyzer analyzer, Query query,
@@ -283,4 +290,78 @@ public class CustomUnifiedHighlighterTests extends ESTestCase {
             analyzer, query, Locale.ROOT, BreakIterator.getSentenceInstance(Locale.ROOT), 0, outputs);
     }
 
+
+    public void testAnalysisCache() throws Exception {
+        final String[] inputs = {
+            "This is a test. Just a test highlighting from unified highlighter.",
+            "This is the second highlighting value to perform highlighting on a longer text that gets scored lower."
+        };
+        final String[] expectedPassages = {
+            "Just a test <b>highlighting</b> from unified highlighter.",
+            "This is the second <b>highlighting</b> value to perform <b>highlighting</b> on a longer text that gets scored lower."
+        };
+        Analyzer analyzer = new StandardAnalyzer();
+        Directory dir = newDirectory();
+        RandomIndexWriter iw = new RandomIndexWriter(random(), dir, newIndexWriterConfig(analyzer));
+        Document doc = new Document();
+        for (String input : inputs) {
+            doc.add(new Field("text", input, TextField.TYPE_STORED));
+        }
+        iw.addDocument(doc);
+        DirectoryReader reader = iw.getReader();
+        IndexSearcher searcher = newSearcher(reader);
+        iw.close();
+        int docId = searcher.search(new MatchAllDocsQuery(), 1, Sort.INDEXORDER).scoreDocs[0].doc;
+        String rawValue = Strings.arrayToDelimitedString(inputs, String.valueOf(MULTIVAL_SEP_CHAR));
+        Query query = new TermQuery(new Term("text", "highlighting"));
+        HighlightAnalysisCache cache = new HighlightAnalysisCache(Settings.EMPTY);
+        for (int i = 0; i < 2; i++) {
+            CustomUnifiedHighlighter highlighter = new CustomUnifiedHighlighter(searcher, analyzer, OffsetSource.ANALYSIS,
+                new CustomPassageFormatter("<b>", "</b>", new DefaultEncoder()), Locale.ROOT,
+                BreakIterator.getSentenceInstance(Locale.ROOT), "index", "text", query, 0, expectedPassages.length,
+                name -> "text".equals(name), Integer.MAX_VALUE, Integer.MAX_VALUE, cache);
+            Snippet[] snippets = highlighter.highlightField(getOnlyLeafReader(reader), docId, () -> rawValue);
+            assertEquals(expectedPassages.length, snippets.length);
+            for (int j = 0; j < snippets.length; j++) {
+                assertEquals(expectedPassages[j], snippets[j].getText());
+            }
+            assertEquals(1, cache.count());
+        }
+        assertEquals(1, cache.stats().getMissCount());
+        assertEquals(1, cache.stats().getHitCount());
+        assertThat(cache.stats().getMemorySizeInBytes(), greaterThan(0L));
+        reader.close();
+        assertEquals(0, cache.count());
+        dir.close();
+    }
+
+    public void testAnalysisCacheSkipsLongContentAndClearsShards() throws Exception {
+        Analyzer analyzer = new StandardAnalyzer();
+        Directory dir = newDirectory();
+        RandomIndexWriter iw = new RandomIndexWriter(random(), dir, newIndexWriterConfig(analyzer));
+        iw.addDocument(new Document());
+        ShardId shardId = new ShardId("index", "_na_", 0);
+        DirectoryReader reader = FesenDirectoryReader.wrap(iw.getReader(), shardId);
+        iw.close();
+        LeafReader leaf = getOnlyLeafReader(reader);
+        HighlightAnalysisCache cache = new HighlightAnalysisCache(Settings.builder()
+            .put(HighlightAnalysisCache.MAX_CONTENT_LENGTH_SETTING.getKey(), 10)
+            .build());
+
+        String longContent = "highlighting is too long";
+        cache.getOrAnalyze(leaf, 0, "text", longContent, () -> analyzer.tokenStream("text", longContent));
+        assertEquals(0, cache.count());
+        assertEquals(0, cache.stats().getMissCount());
+
+        String shortContent = "short";
+        cache.getOrAnalyze(leaf, 0, "text", shortContent, () -> analyzer.tokenStream("text", shortContent));
+        assertEquals(1, cache.count());
+        cache.clear(new ShardId("other", "_na_", 0));
+        assertEquals(1, cache.count());
+        cache.clear(shardId);
+        assertEquals(0, cache.count());
+        assertEquals(1, cache.stats().getMissCount());
+        reader.close();
+        dir.close();
+    }
 }
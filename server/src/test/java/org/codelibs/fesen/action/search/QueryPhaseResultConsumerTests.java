@@ -31,16 +31,23 @@ import org.codelibs.fesen.action.search.SearchResponse;
 import org.codelibs.fesen.action.search.SearchShard;
 import org.codelibs.fesen.common.breaker.CircuitBreaker;
 import org.codelibs.fesen.common.breaker.NoopCircuitBreaker;
+import org.codelibs.fesen.common.io.stream.DelayableWriteable;
+import org.codelibs.fesen.common.io.stream.NamedWriteableRegistry;
 import org.codelibs.fesen.common.lucene.search.TopDocsAndMaxScore;
+import org.codelibs.fesen.common.settings.Settings;
 import org.codelibs.fesen.common.util.BigArrays;
 import org.codelibs.fesen.common.util.concurrent.EsExecutors;
 import org.codelibs.fesen.common.util.concurrent.EsThreadPoolExecutor;
 import org.codelibs.fesen.index.shard.ShardId;
 import org.codelibs.fesen.search.DocValueFormat;
+import org.codelibs.fesen.search.SearchModule;
 import org.codelibs.fesen.search.SearchShardTarget;
+import org.codelibs.fesen.search.aggregations.AggregationBuilders;
 import org.codelibs.fesen.search.aggregations.InternalAggregation;
 import org.codelibs.fesen.search.aggregations.InternalAggregations;
+import org.codelibs.fesen.search.aggregations.metrics.InternalMax;
 import org.codelibs.fesen.search.aggregations.pipeline.PipelineAggregator;
+import org.codelibs.fesen.search.builder.SearchSourceBuilder;
 import org.codelibs.fesen.search.query.QuerySearchResult;
 import org.codelibs.fesen.test.ESTestCase;
 import org.codelibs.fesen.threadpool.TestThreadPool;
@@ -56,12 +63,20 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
+import static java.util.Collections.emptyList;
+import static org.hamcrest.Matchers.greaterThan;
+
 public class QueryPhaseResultConsumerTests extends ESTestCase {
 
     private SearchPhaseController searchPhaseController;
     private ThreadPool threadPool;
     private EsThreadPoolExecutor executor;
 
+    @Override
+    protected NamedWriteableRegistry writableRegistry() {
+        return new NamedWriteableRegistry(new SearchModule(Settings.EMPTY, false, emptyList()).getNamedWriteables());
+    }
+
     @Before
     public void setup() {
         searchPhaseController = new SearchPhaseController(writableRegistry(),
@@ -129,6 +144,50 @@ public class QueryPhaseResultConsumerTests extends ESTestCase {
         assertEquals(1, searchProgressListener.onFinalReduce.get());
     }
 
+    public void testSerializePartialResults() throws Exception {
+        boolean serializePartialResults = randomBoolean();
+        int numShards = randomIntBetween(4, 64);
+        SearchRequest searchRequest = new SearchRequest("index");
+        searchRequest.source(new SearchSourceBuilder().aggregation(AggregationBuilders.max("test")).size(0));
+        searchRequest.setBatchedReduceSize(randomIntBetween(2, 4));
+        AtomicInteger partialReduces = new AtomicInteger();
+        SearchProgressListener progressListener = new SearchProgressListener() {
+            @Override
+            protected void onPartialReduce(List<SearchShard> shards, TotalHits totalHits, InternalAggregations aggs, int reducePhase) {
+                assertNotNull(aggs);
+                partialReduces.incrementAndGet();
+            }
+        };
+        // reduce on the calling thread so that the buffered results can be inspected between two reductions
+        QueryPhaseResultConsumer consumer = new QueryPhaseResultConsumer(searchRequest, EsExecutors.newDirectExecutorService(),
+            new NoopCircuitBreaker(CircuitBreaker.REQUEST), searchPhaseController, progressListener, writableRegistry(), numShards,
+            e -> { throw new AssertionError(e); }, serializePartialResults);
+
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < numShards; i++) {
+            double value = randomDouble();
+            max = Math.max(max, value);
+            QuerySearchResult result = new QuerySearchResult();
+            result.topDocs(new TopDocsAndMaxScore(new TopDocs(new TotalHits(1, TotalHits.Relation.EQUAL_TO), new ScoreDoc[0]), Float.NaN),
+                new DocValueFormat[0]);
+            result.aggregations(InternalAggregations.from(Collections.singletonList(
+                new InternalMax("test", value, DocValueFormat.RAW, Collections.emptyMap()))));
+            result.setSearchShardTarget(new SearchShardTarget("node", new ShardId("index", "uuid", i), null, OriginalIndices.NONE));
+            result.setShardIndex(i);
+            result.size(0);
+            consumer.consumeResult(result, () -> {});
+            // the result is buffered until the next partial reduce
+            assertEquals(serializePartialResults, result.aggregations() instanceof DelayableWriteable.Serialized);
+        }
+
+        SearchPhaseController.ReducedQueryPhase reduce = consumer.reduce();
+        assertThat(partialReduces.get(), greaterThan(0));
+        assertEquals(partialReduces.get() + 1, reduce.numReducePhases);
+        InternalMax internalMax = (InternalMax) reduce.aggregations.asList().get(0);
+        assertEquals(max, internalMax.getValue(), 0.0D);
+        consumer.close();
+    }
+
     private static class ThrowingSearchProgressListener extends SearchProgressListener {
         private final AtomicInteger onQueryResult = new AtomicInteger(0);
         private final AtomicInteger onPartialReduce = new AtomicInteger(0);
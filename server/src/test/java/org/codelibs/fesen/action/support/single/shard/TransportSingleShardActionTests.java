@@ -0,0 +1,237 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.codelibs.fesen.action.support.single.shard;
+
+import org.codelibs.fesen.action.ActionRequestValidationException;
+import org.codelibs.fesen.action.ActionResponse;
+import org.codelibs.fesen.action.IndicesRequest;
+import org.codelibs.fesen.action.support.ActionFilters;
+import org.codelibs.fesen.action.support.PlainActionFuture;
+import org.codelibs.fesen.cluster.ClusterState;
+import org.codelibs.fesen.cluster.metadata.IndexNameExpressionResolver;
+import org.codelibs.fesen.cluster.routing.ShardsIterator;
+import org.codelibs.fesen.cluster.service.ClusterService;
+import org.codelibs.fesen.common.io.stream.StreamInput;
+import org.codelibs.fesen.common.io.stream.StreamOutput;
+import org.codelibs.fesen.common.io.stream.Writeable;
+import org.codelibs.fesen.common.settings.Settings;
+import org.codelibs.fesen.common.unit.TimeValue;
+import org.codelibs.fesen.common.util.concurrent.ThreadContext;
+import org.codelibs.fesen.index.shard.ShardId;
+import org.codelibs.fesen.node.ResponseCollectorService;
+import org.codelibs.fesen.test.ESTestCase;
+import org.codelibs.fesen.test.transport.CapturingTransport;
+import org.codelibs.fesen.threadpool.TestThreadPool;
+import org.codelibs.fesen.threadpool.ThreadPool;
+import org.codelibs.fesen.transport.TransportService;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+import static org.codelibs.fesen.action.support.replication.ClusterStateCreationUtils.stateWithAssignedPrimariesAndReplicas;
+import static org.codelibs.fesen.test.ClusterServiceUtils.createClusterService;
+import static org.codelibs.fesen.test.ClusterServiceUtils.setState;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
+
+public class TransportSingleShardActionTests extends ESTestCase {
+
+    private static ThreadPool THREAD_POOL;
+
+    private ClusterService clusterService;
+    private CapturingTransport transport;
+    private TransportService transportService;
+    private ResponseCollectorService collector;
+    private TestTransportSingleShardAction action;
+
+    public static class Request extends SingleShardRequest<Request> {
+        public Request(String index) {
+            super(index);
+        }
+
+        public Request(StreamInput in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        public ActionRequestValidationException validate() {
+            return null;
+        }
+    }
+
+    public static class Response extends ActionResponse implements ExecutionStatsAwareResponse {
+        private long serviceTimeEWMA = -1;
+        private int nodeQueueSize = -1;
+
+        public Response() {}
+
+        public Response(StreamInput in) throws IOException {
+            super(in);
+            serviceTimeEWMA = in.readZLong();
+            nodeQueueSize = in.readInt();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeZLong(serviceTimeEWMA);
+            out.writeInt(nodeQueueSize);
+        }
+
+        @Override
+        public long serviceTimeEWMA() {
+            return serviceTimeEWMA;
+        }
+
+        @Override
+        public void serviceTimeEWMA(long serviceTimeEWMA) {
+            this.serviceTimeEWMA = serviceTimeEWMA;
+        }
+
+        @Override
+        public int nodeQueueSize() {
+            return nodeQueueSize;
+        }
+
+        @Override
+        public void nodeQueueSize(int nodeQueueSize) {
+            this.nodeQueueSize = nodeQueueSize;
+        }
+    }
+
+    class TestTransportSingleShardAction extends TransportSingleShardAction<Request, Response> {
+
+        TestTransportSingleShardAction(ResponseCollectorService collector) {
+            super("indices:data/read/test", THREAD_POOL, TransportSingleShardActionTests.this.clusterService,
+                TransportSingleShardActionTests.this.transportService,
+                new ActionFilters(new HashSet<>()), new MyResolver(), Request::new, ThreadPool.Names.GET, collector);
+        }
+
+        @Override
+        protected Response shardOperation(Request request, ShardId shardId) {
+            return new Response();
+        }
+
+        @Override
+        protected Writeable.Reader<Response> getResponseReader() {
+            return Response::new;
+        }
+
+        @Override
+        protected boolean resolveIndex(Request request) {
+            return false;
+        }
+
+        @Override
+        protected ShardsIterator shards(ClusterState state, InternalRequest request) {
+            return clusterService.operationRouting().getShards(state, request.concreteIndex(), 0, null, responseCollectorService);
+        }
+    }
+
+    class MyResolver extends IndexNameExpressionResolver {
+        MyResolver() {
+            super(new ThreadContext(Settings.EMPTY));
+        }
+
+        @Override
+        public String[] concreteIndexNames(ClusterState state, IndicesRequest request) {
+            return request.indices();
+        }
+    }
+
+    @BeforeClass
+    public static void startThreadPool() {
+        THREAD_POOL = new TestThreadPool(TransportSingleShardActionTests.class.getSimpleName());
+    }
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        transport = new CapturingTransport();
+        clusterService = createClusterService(THREAD_POOL);
+        transportService = transport.createTransportService(clusterService.getSettings(), THREAD_POOL,
+            TransportService.NOOP_TRANSPORT_INTERCEPTOR, x -> clusterService.localNode(), null, Collections.emptySet());
+        transportService.start();
+        transportService.acceptIncomingRequests();
+        collector = new ResponseCollectorService(clusterService);
+        action = new TestTransportSingleShardAction(collector);
+        setState(clusterService, stateWithAssignedPrimariesAndReplicas(new String[] { "test" }, 1, 2));
+    }
+
+    @Override
+    @After
+    public void tearDown() throws Exception {
+        super.tearDown();
+        clusterService.close();
+        transportService.close();
+    }
+
+    @AfterClass
+    public static void destroyThreadPool() {
+        ThreadPool.terminate(THREAD_POOL, 30, TimeUnit.SECONDS);
+        // since static must set to null to be eligible for collection
+        THREAD_POOL = null;
+    }
+
+    public void testReadsTheLeastLoadedCopyAndCollectsItsStats() throws Exception {
+        collector.addNodeStatistics("node_0", 4, TimeValue.timeValueMillis(200).nanos(), TimeValue.timeValueMillis(150).nanos());
+        collector.addNodeStatistics("node_1", 1, TimeValue.timeValueMillis(50).nanos(), TimeValue.timeValueMillis(20).nanos());
+        collector.addNodeStatistics("node_2", 4, TimeValue.timeValueMillis(200).nanos(), TimeValue.timeValueMillis(150).nanos());
+
+        PlainActionFuture<Response> listener = new PlainActionFuture<>();
+        action.execute(null, new Request("test"), listener);
+        CapturingTransport.CapturedRequest[] capturedRequests = transport.getCapturedRequestsAndClear();
+        assertThat(capturedRequests.length, equalTo(1));
+        assertThat(capturedRequests[0].node.getId(), equalTo("node_1"));
+
+        // the copy on node_1 reports that its queue filled up
+        final Response response = new Response();
+        response.nodeQueueSize(50);
+        response.serviceTimeEWMA(TimeValue.timeValueMillis(20).nanos());
+        transport.handleResponse(capturedRequests[0].requestId, response);
+        assertNotNull(listener.get());
+        final ResponseCollectorService.ComputedNodeStats stats = collector.getNodeStatistics("node_1").get();
+        assertThat(stats.queueSize, greaterThan(1));
+        assertThat(stats.serviceTime, equalTo((double) TimeValue.timeValueMillis(20).nanos()));
+
+        // so the next read goes to another copy
+        listener = new PlainActionFuture<>();
+        action.execute(null, new Request("test"), listener);
+        capturedRequests = transport.getCapturedRequestsAndClear();
+        assertThat(capturedRequests.length, equalTo(1));
+        assertThat(capturedRequests[0].node.getId(), not(equalTo("node_1")));
+    }
+
+    public void testShardOperationPiggybacksQueueSizeAndServiceTime() throws Exception {
+        final PlainActionFuture<Response> listener = new PlainActionFuture<>();
+        action.asyncShardOperation(new Request("test"), new ShardId("test", "_na_", 0), listener);
+        final Response response = listener.get();
+        assertThat(response.serviceTimeEWMA(), greaterThan(0L));
+        assertThat(response.nodeQueueSize(), greaterThanOrEqualTo(0));
+    }
+}
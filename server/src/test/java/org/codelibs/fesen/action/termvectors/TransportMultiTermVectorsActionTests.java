@@ -54,6 +54,7 @@ import org.codelibs.fesen.common.xcontent.XContentType;
 import org.codelibs.fesen.index.Index;
 import org.codelibs.fesen.index.shard.ShardId;
 import org.codelibs.fesen.indices.IndicesService;
+import org.codelibs.fesen.node.ResponseCollectorService;
 import org.codelibs.fesen.tasks.Task;
 import org.codelibs.fesen.tasks.TaskId;
 import org.codelibs.fesen.tasks.TaskManager;
@@ -156,7 +157,7 @@ public class TransportMultiTermVectorsActionTests extends ESTestCase {
         when(clusterService.operationRouting()).thenReturn(operationRouting);
 
         shardAction = new TransportShardMultiTermsVectorAction(clusterService, transportService, mock(IndicesService.class), threadPool,
-            new ActionFilters(emptySet()), new Resolver()) {
+            new ActionFilters(emptySet()), new Resolver(), new ResponseCollectorService(clusterService)) {
             @Override
             protected void doExecute(Task task, MultiTermVectorsShardRequest request,
                                      ActionListener<MultiTermVectorsShardResponse> listener) {
@@ -20,25 +20,39 @@ package org.codelibs.fesen.cluster.coordination;
 
 import org.codelibs.fesen.FesenException;
 import org.codelibs.fesen.Version;
+import org.codelibs.fesen.action.ActionListener;
 import org.codelibs.fesen.cluster.ClusterChangedEvent;
 import org.codelibs.fesen.cluster.ClusterState;
 import org.codelibs.fesen.cluster.Diff;
+import org.codelibs.fesen.cluster.IncompatibleClusterStateVersionException;
 import org.codelibs.fesen.cluster.coordination.PublicationTransportHandler;
 import org.codelibs.fesen.cluster.coordination.CoordinationMetadata.VotingConfiguration;
+import org.codelibs.fesen.cluster.metadata.Metadata;
 import org.codelibs.fesen.cluster.node.DiscoveryNode;
 import org.codelibs.fesen.cluster.node.DiscoveryNodes;
+import org.codelibs.fesen.common.compress.Compressor;
+import org.codelibs.fesen.common.compress.CompressorFactory;
+import org.codelibs.fesen.common.io.stream.InputStreamStreamInput;
+import org.codelibs.fesen.common.io.stream.NamedWriteableAwareStreamInput;
+import org.codelibs.fesen.common.io.stream.StreamInput;
 import org.codelibs.fesen.common.io.stream.StreamOutput;
 import org.codelibs.fesen.common.settings.ClusterSettings;
 import org.codelibs.fesen.common.settings.Settings;
+import org.codelibs.fesen.common.util.concurrent.ThreadContext;
 import org.codelibs.fesen.node.Node;
 import org.codelibs.fesen.test.ESTestCase;
 import org.codelibs.fesen.test.transport.CapturingTransport;
+import org.codelibs.fesen.transport.BytesTransportRequest;
+import org.codelibs.fesen.transport.ReceiveTimeoutTransportException;
 import org.codelibs.fesen.transport.TransportService;
 
 import java.io.IOException;
 import java.util.Collections;
+import java.util.Optional;
 
+import static org.hamcrest.Matchers.arrayWithSize;
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.instanceOf;
 
 public class PublicationTransportHandlerTests extends ESTestCase {
@@ -88,4 +102,172 @@ public class PublicationTransportHandlerTests extends ESTestCase {
         assertThat(e.getCause(), instanceOf(IOException.class));
         assertThat(e.getCause().getMessage(), containsString("Simulated failure of diff serialization"));
     }
+
+    public void testLaggingNodeReceivesDiffFromLastAcceptedState() throws IOException {
+        DeterministicTaskQueue deterministicTaskQueue =
+            new DeterministicTaskQueue(Settings.builder().put(Node.NODE_NAME_SETTING.getKey(), "test").build(), random());
+        final ClusterSettings clusterSettings = new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS);
+        final DiscoveryNode localNode = new DiscoveryNode("localNode", buildNewFakeTransportAddress(), Version.CURRENT);
+        final CapturingTransport transport = new CapturingTransport();
+        final TransportService transportService = transport.createTransportService(Settings.EMPTY,
+            deterministicTaskQueue.getThreadPool(),
+            TransportService.NOOP_TRANSPORT_INTERCEPTOR,
+            x -> localNode,
+            clusterSettings, Collections.emptySet());
+        final PublicationTransportHandler handler = new PublicationTransportHandler(transportService,
+            writableRegistry(), pu -> null, (pu, l) -> {});
+        transportService.start();
+        transportService.acceptIncomingRequests();
+
+        final DiscoveryNode otherNode = new DiscoveryNode("otherNode", buildNewFakeTransportAddress(), Version.CURRENT);
+        final ClusterState state1 = CoordinationStateTests.clusterState(2L, 1L,
+            DiscoveryNodes.builder().add(localNode).add(otherNode).localNodeId(localNode.getId()).build(),
+            VotingConfiguration.EMPTY_CONFIG, VotingConfiguration.EMPTY_CONFIG, 1L);
+        final ClusterState state2 = nextState(state1);
+        final ClusterState state3 = nextState(state2);
+        final ClusterState state4 = nextState(state3);
+
+        // the other node accepts the second state but misses the third one
+        CapturingTransport.CapturedRequest request = publish(handler, transportService, transport, otherNode, state1, state2);
+        transport.handleResponse(request.requestId, new PublishWithJoinResponse(new PublishResponse(2L, 2L), Optional.empty()));
+        deterministicTaskQueue.runAllTasks();
+        request = publish(handler, transportService, transport, otherNode, state2, state3);
+        transport.handleRemoteError(request.requestId, new FesenException("simulated"));
+        deterministicTaskQueue.runAllTasks();
+
+        // so the fourth state is sent as a diff from the second one
+        request = publish(handler, transportService, transport, otherNode, state3, state4);
+        try (StreamInput in = readPublishRequest(request)) {
+            assertFalse(in.readBoolean());
+            final Diff<ClusterState> diff = ClusterState.readDiffFrom(in, otherNode);
+            assertThat(diff.apply(state2).stateUUID(), equalTo(state4.stateUUID()));
+        }
+    }
+
+    public void testLaggingNodeFallsBackToFullStateIfCoalescedDiffIsRejected() throws IOException {
+        DeterministicTaskQueue deterministicTaskQueue =
+            new DeterministicTaskQueue(Settings.builder().put(Node.NODE_NAME_SETTING.getKey(), "test").build(), random());
+        final ClusterSettings clusterSettings = new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS);
+        final DiscoveryNode localNode = new DiscoveryNode("localNode", buildNewFakeTransportAddress(), Version.CURRENT);
+        final CapturingTransport transport = new CapturingTransport();
+        final TransportService transportService = transport.createTransportService(Settings.EMPTY,
+            deterministicTaskQueue.getThreadPool(),
+            TransportService.NOOP_TRANSPORT_INTERCEPTOR,
+            x -> localNode,
+            clusterSettings, Collections.emptySet());
+        final PublicationTransportHandler handler = new PublicationTransportHandler(transportService,
+            writableRegistry(), pu -> null, (pu, l) -> {});
+        transportService.start();
+        transportService.acceptIncomingRequests();
+
+        final DiscoveryNode otherNode = new DiscoveryNode("otherNode", buildNewFakeTransportAddress(), Version.CURRENT);
+        final ClusterState state1 = CoordinationStateTests.clusterState(2L, 1L,
+            DiscoveryNodes.builder().add(localNode).add(otherNode).localNodeId(localNode.getId()).build(),
+            VotingConfiguration.EMPTY_CONFIG, VotingConfiguration.EMPTY_CONFIG, 1L);
+        final ClusterState state2 = nextState(state1);
+        final ClusterState state3 = nextState(state2);
+        final ClusterState state4 = nextState(state3);
+
+        // the other node accepts the second state but its acknowledgement of the third one times out
+        CapturingTransport.CapturedRequest request = publish(handler, transportService, transport, otherNode, state1, state2);
+        transport.handleResponse(request.requestId, new PublishWithJoinResponse(new PublishResponse(2L, 2L), Optional.empty()));
+        deterministicTaskQueue.runAllTasks();
+        request = publish(handler, transportService, transport, otherNode, state2, state3);
+        transport.handleError(request.requestId, new ReceiveTimeoutTransportException(otherNode,
+            PublicationTransportHandler.PUBLISH_STATE_ACTION_NAME, "simulated"));
+        deterministicTaskQueue.runAllTasks();
+
+        // so the fourth state is sent as a diff from the second one, which the node rejects since it applied the third one after all
+        request = publish(handler, transportService, transport, otherNode, state3, state4);
+        try (StreamInput in = readPublishRequest(request)) {
+            assertFalse(in.readBoolean());
+            final Diff<ClusterState> diff = ClusterState.readDiffFrom(in, otherNode);
+            expectThrows(IncompatibleClusterStateVersionException.class, () -> diff.apply(state3));
+        }
+        transport.handleRemoteError(request.requestId, new IncompatibleClusterStateVersionException("simulated"));
+        deterministicTaskQueue.runAllTasks();
+
+        // and the full state is sent instead
+        final CapturingTransport.CapturedRequest[] requests = transport.getCapturedRequestsAndClear();
+        assertThat(requests, arrayWithSize(1));
+        try (StreamInput in = readPublishRequest(requests[0])) {
+            assertTrue(in.readBoolean());
+            assertThat(ClusterState.readFrom(in, otherNode).stateUUID(), equalTo(state4.stateUUID()));
+        }
+    }
+
+    public void testAcceptedStatesAreForgottenAcrossTerms() throws IOException {
+        DeterministicTaskQueue deterministicTaskQueue =
+            new DeterministicTaskQueue(Settings.builder().put(Node.NODE_NAME_SETTING.getKey(), "test").build(), random());
+        final ClusterSettings clusterSettings = new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS);
+        final DiscoveryNode localNode = new DiscoveryNode("localNode", buildNewFakeTransportAddress(), Version.CURRENT);
+        final CapturingTransport transport = new CapturingTransport();
+        final TransportService transportService = transport.createTransportService(Settings.EMPTY,
+            deterministicTaskQueue.getThreadPool(),
+            TransportService.NOOP_TRANSPORT_INTERCEPTOR,
+            x -> localNode,
+            clusterSettings, Collections.emptySet());
+        final PublicationTransportHandler handler = new PublicationTransportHandler(transportService,
+            writableRegistry(), pu -> null, (pu, l) -> {});
+        transportService.start();
+        transportService.acceptIncomingRequests();
+
+        final DiscoveryNode otherNode = new DiscoveryNode("otherNode", buildNewFakeTransportAddress(), Version.CURRENT);
+        final ClusterState state1 = CoordinationStateTests.clusterState(2L, 1L,
+            DiscoveryNodes.builder().add(localNode).add(otherNode).localNodeId(localNode.getId()).build(),
+            VotingConfiguration.EMPTY_CONFIG, VotingConfiguration.EMPTY_CONFIG, 1L);
+        final ClusterState state2 = nextState(state1);
+        final ClusterState state3 = nextState(state2);
+
+        // the other node accepts the second state from this node but the third one from another master
+        CapturingTransport.CapturedRequest request = publish(handler, transportService, transport, otherNode, state1, state2);
+        transport.handleResponse(request.requestId, new PublishWithJoinResponse(new PublishResponse(2L, 2L), Optional.empty()));
+        deterministicTaskQueue.runAllTasks();
+
+        // so once this node is elected again, the state it remembers is not used
+        final boolean steppedDown = randomBoolean();
+        if (steppedDown) {
+            handler.clearAcceptedStates();
+        }
+        final ClusterState state4 = nextState(ClusterState.builder(state3)
+            .metadata(Metadata.builder(state3.metadata()).coordinationMetadata(
+                CoordinationMetadata.builder(state3.coordinationMetadata()).term(steppedDown ? 2L : 3L).build()))
+            .build());
+        request = publish(handler, transportService, transport, otherNode, state3, state4);
+        try (StreamInput in = readPublishRequest(request)) {
+            assertFalse(in.readBoolean());
+            final Diff<ClusterState> diff = ClusterState.readDiffFrom(in, otherNode);
+            assertThat(diff.apply(state3).stateUUID(), equalTo(state4.stateUUID()));
+        }
+    }
+
+    private StreamInput readPublishRequest(CapturingTransport.CapturedRequest request) throws IOException {
+        final BytesTransportRequest bytesRequest = (BytesTransportRequest) request.request;
+        final Compressor compressor = CompressorFactory.compressor(bytesRequest.bytes());
+        assertNotNull(compressor);
+        final StreamInput in = new NamedWriteableAwareStreamInput(
+            new InputStreamStreamInput(compressor.threadLocalInputStream(bytesRequest.bytes().streamInput())), writableRegistry());
+        in.setVersion(bytesRequest.version());
+        return in;
+    }
+
+    private static ClusterState nextState(ClusterState clusterState) {
+        return CoordinationStateTests.setValue(ClusterState.builder(clusterState).incrementVersion().build(),
+            clusterState.version() + 1);
+    }
+
+    private static CapturingTransport.CapturedRequest publish(PublicationTransportHandler handler, TransportService transportService,
+                                                              CapturingTransport transport, DiscoveryNode destination,
+                                                              ClusterState previousState, ClusterState newState) {
+        final PublicationTransportHandler.PublicationContext context =
+            handler.newPublicationContext(new ClusterChangedEvent("test", newState, previousState));
+        final ThreadContext threadContext = transportService.getThreadPool().getThreadContext();
+        try (ThreadContext.StoredContext ignored = threadContext.stashContext()) {
+            threadContext.markAsSystemContext();
+            context.sendPublishRequest(destination, new PublishRequest(newState), ActionListener.wrap(() -> {}));
+        }
+        final CapturingTransport.CapturedRequest[] requests = transport.getCapturedRequestsAndClear();
+        assertThat(requests, arrayWithSize(1));
+        return requests[0];
+    }
 }
@@ -37,6 +37,7 @@ import org.codelibs.fesen.plugins.Plugin;
 import org.codelibs.fesen.test.ESSingleNodeTestCase;
 import org.codelibs.fesen.test.InternalSettingsPlugin;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 
@@ -122,6 +123,37 @@ public class MetadataMappingServiceTests extends ESSingleNodeTestCase {
         assertThat(result.resultingState.metadata().index("test").getMappingVersion(), equalTo(previousVersion));
     }
 
+    public void testIdenticalMappingUpdatesInBatch() throws Exception {
+        final IndexService indexService = createIndex("test", client().admin().indices().prepareCreate("test").addMapping("type"));
+        final long previousVersion = indexService.getMetadata().getMappingVersion();
+        final MetadataMappingService mappingService = getInstanceFromNode(MetadataMappingService.class);
+        final ClusterService clusterService = getInstanceFromNode(ClusterService.class);
+        final PutMappingClusterStateUpdateRequest first = ignoreAboveRequest(indexService.index(), 10);
+        final PutMappingClusterStateUpdateRequest second = ignoreAboveRequest(indexService.index(), 10);
+        ClusterStateTaskExecutor.ClusterTasksResult<PutMappingClusterStateUpdateRequest> result =
+                mappingService.putMappingExecutor.execute(clusterService.state(), Arrays.asList(first, second));
+        assertThat(result.executionResults.size(), equalTo(2));
+        assertTrue(result.executionResults.get(first).isSuccess());
+        assertTrue(result.executionResults.get(second).isSuccess());
+        assertThat(result.resultingState.metadata().index("test").getMappingVersion(), equalTo(1 + previousVersion));
+
+        // an identical update is applied again if another update changed the mapping in between
+        final PutMappingClusterStateUpdateRequest other = ignoreAboveRequest(indexService.index(), 20);
+        result = mappingService.putMappingExecutor.execute(clusterService.state(), Arrays.asList(first, other, second));
+        assertThat(result.executionResults.size(), equalTo(3));
+        assertTrue(result.executionResults.values().stream().allMatch(ClusterStateTaskExecutor.TaskResult::isSuccess));
+        assertThat(result.resultingState.metadata().index("test").getMappings().get("type").source().string(),
+                containsString("\"ignore_above\":10"));
+        assertThat(result.resultingState.metadata().index("test").getMappingVersion(), equalTo(3 + previousVersion));
+    }
+
+    private static PutMappingClusterStateUpdateRequest ignoreAboveRequest(Index index, int ignoreAbove) {
+        final PutMappingClusterStateUpdateRequest request = new PutMappingClusterStateUpdateRequest().type("type");
+        request.indices(new Index[] {index});
+        request.source("{ \"properties\": { \"field\": { \"type\": \"keyword\", \"ignore_above\": " + ignoreAbove + " }}}");
+        return request;
+    }
+
     public void testMappingUpdateAccepts_docAsType() throws Exception {
         final IndexService indexService = createIndex("test",
                 client().admin().indices().prepareCreate("test").addMapping("my_type"));
@@ -613,6 +613,41 @@ public class OperationRoutingTests extends ESTestCase {
         terminate(threadPool);
     }
 
+    public void testAdaptiveReplicaSelectionForGets() throws Exception {
+        final String[] indexNames = new String[] { "test" };
+        ClusterState state = ClusterStateCreationUtils.stateWithAssignedPrimariesAndReplicas(indexNames, 1, 2);
+        OperationRouting opRouting = new OperationRouting(Settings.EMPTY,
+                new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+        opRouting.setUseAdaptiveReplicaSelection(true);
+        TestThreadPool threadPool = new TestThreadPool("testAdaptiveReplicaSelectionForGets");
+        ClusterService clusterService = ClusterServiceUtils.createClusterService(threadPool);
+        ResponseCollectorService collector = new ResponseCollectorService(clusterService);
+
+        // without stats all the copies are ranked equally, so the reads are spread over the copies
+        Set<String> selectedNodes = new HashSet<>();
+        for (int i = 0; i < 3; i++) {
+            ShardIterator shardIterator = opRouting.getShards(state, "test", 0, null, collector);
+            assertThat(shardIterator.size(), equalTo(3));
+            selectedNodes.add(shardIterator.nextOrNull().currentNodeId());
+        }
+        assertThat(selectedNodes.size(), equalTo(3));
+
+        collector.addNodeStatistics("node_0", 2, TimeValue.timeValueMillis(200).nanos(), TimeValue.timeValueMillis(150).nanos());
+        collector.addNodeStatistics("node_1", 1, TimeValue.timeValueMillis(100).nanos(), TimeValue.timeValueMillis(50).nanos());
+        collector.addNodeStatistics("node_2", 1, TimeValue.timeValueMillis(200).nanos(), TimeValue.timeValueMillis(200).nanos());
+
+        // the least loaded node is preferred, both when routing by id and by shard id
+        assertThat(opRouting.getShards(state, "test", "1", null, null, collector).nextOrNull().currentNodeId(), equalTo("node_1"));
+        assertThat(opRouting.getShards(state, "test", 0, null, collector).nextOrNull().currentNodeId(), equalTo("node_1"));
+
+        // an explicit preference takes precedence over the ranking
+        assertThat(opRouting.getShards(state, "test", 0, "_only_nodes:node_2", collector).nextOrNull().currentNodeId(),
+            equalTo("node_2"));
+
+        IOUtils.close(clusterService);
+        terminate(threadPool);
+    }
+
     public void testAllocationAwarenessDeprecation() {
         OperationRouting routing = new OperationRouting(
             Settings.builder()
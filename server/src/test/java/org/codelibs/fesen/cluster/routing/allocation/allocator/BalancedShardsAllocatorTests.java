@@ -0,0 +1,98 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.codelibs.fesen.cluster.routing.allocation.allocator;
+
+import org.codelibs.fesen.Version;
+import org.codelibs.fesen.cluster.ClusterInfo;
+import org.codelibs.fesen.cluster.ClusterName;
+import org.codelibs.fesen.cluster.ClusterState;
+import org.codelibs.fesen.cluster.ESAllocationTestCase;
+import org.codelibs.fesen.cluster.metadata.IndexMetadata;
+import org.codelibs.fesen.cluster.metadata.Metadata;
+import org.codelibs.fesen.cluster.node.DiscoveryNodes;
+import org.codelibs.fesen.cluster.routing.RoutingNodes;
+import org.codelibs.fesen.cluster.routing.RoutingTable;
+import org.codelibs.fesen.cluster.routing.allocation.AllocationService;
+import org.codelibs.fesen.cluster.routing.allocation.RoutingAllocation;
+import org.codelibs.fesen.cluster.routing.allocation.allocator.BalancedShardsAllocator.Balancer;
+import org.codelibs.fesen.cluster.routing.allocation.allocator.BalancedShardsAllocator.NodeSorter;
+import org.codelibs.fesen.cluster.routing.allocation.allocator.BalancedShardsAllocator.WeightFunction;
+import org.codelibs.fesen.cluster.routing.allocation.decider.EnableAllocationDecider;
+import org.codelibs.fesen.common.settings.Settings;
+import org.codelibs.fesen.snapshots.SnapshotShardSizeInfo;
+
+public class BalancedShardsAllocatorTests extends ESAllocationTestCase {
+
+    public void testWeightDeltasMatchNodeSorter() {
+        // rebalancing would even out the shards, keep the random distribution instead
+        final AllocationService allocationService = createAllocationService(Settings.builder()
+            .put(EnableAllocationDecider.CLUSTER_ROUTING_REBALANCE_ENABLE_SETTING.getKey(), "none")
+            .build());
+        final Metadata.Builder metadata = Metadata.builder();
+        final RoutingTable.Builder routingTable = RoutingTable.builder();
+        final int numIndices = randomIntBetween(1, 20);
+        for (int i = 0; i < numIndices; i++) {
+            final IndexMetadata indexMetadata = IndexMetadata.builder("index-" + i)
+                .settings(settings(Version.CURRENT))
+                .numberOfShards(randomIntBetween(1, 10))
+                .numberOfReplicas(randomIntBetween(0, 3))
+                .build();
+            metadata.put(indexMetadata, false);
+            routingTable.addAsNew(indexMetadata);
+        }
+        final DiscoveryNodes.Builder nodes = DiscoveryNodes.builder();
+        int numNodes = randomIntBetween(1, 10);
+        for (int i = 0; i < numNodes; i++) {
+            nodes.add(newNode("node-" + i));
+        }
+        ClusterState clusterState = ClusterState.builder(ClusterName.CLUSTER_NAME_SETTING.getDefault(Settings.EMPTY))
+            .metadata(metadata)
+            .routingTable(routingTable.build())
+            .nodes(nodes)
+            .build();
+        clusterState = allocationService.reroute(clusterState, "reroute");
+        final int rounds = randomIntBetween(0, 5);
+        for (int i = 0; i < rounds; i++) {
+            clusterState = startRandomInitializingShard(clusterState, allocationService);
+            if (randomBoolean()) {
+                clusterState = startInitializingShardsAndReroute(allocationService, clusterState);
+            }
+            if (randomBoolean()) {
+                // empty nodes are the ones the delta of an index without shards on them depends on
+                clusterState = ClusterState.builder(clusterState)
+                    .nodes(DiscoveryNodes.builder(clusterState.nodes()).add(newNode("node-" + numNodes++)))
+                    .build();
+                clusterState = allocationService.reroute(clusterState, "add node");
+            }
+        }
+
+        final RoutingAllocation allocation = new RoutingAllocation(yesAllocationDeciders(), new RoutingNodes(clusterState, false),
+            clusterState, ClusterInfo.EMPTY, SnapshotShardSizeInfo.EMPTY, System.nanoTime());
+        final WeightFunction weightFunction = new WeightFunction(randomFloat(), randomFloat() + 0.1f);
+        final Balancer balancer = new Balancer(logger, allocation, weightFunction, 1.0f);
+        final String[] indices = clusterState.routingTable().indicesRouting().keys().toArray(String.class);
+        final float[] deltas = balancer.weightDeltas(indices);
+        final NodeSorter sorter = balancer.newNodeSorter();
+        for (int i = 0; i < indices.length; i++) {
+            sorter.reset(indices[i]);
+            assertEquals(indices[i], sorter.delta(), deltas[i], 0.0f);
+        }
+    }
+}
@@ -25,9 +25,11 @@ import org.codelibs.fesen.common.bytes.CompositeBytesReference;
 import org.codelibs.fesen.common.bytes.ReleasableBytesReference;
 import org.codelibs.fesen.common.io.stream.BytesStreamOutput;
 import org.codelibs.fesen.common.io.stream.ReleasableBytesStreamOutput;
+import org.codelibs.fesen.common.io.stream.StreamInput;
 import org.codelibs.fesen.common.util.ByteArray;
 import org.hamcrest.Matchers;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -88,6 +90,32 @@ public class ReleasableBytesReferenceTests extends AbstractBytesReferenceTestCas
         return ReleasableBytesReference.wrap(delegate);
     }
 
+    public void testUnsafeStreamInputSlices() throws IOException {
+        final BytesStreamOutput out = new BytesStreamOutput();
+        final int numValues = randomIntBetween(1, 10);
+        final List<BytesReference> values = new ArrayList<>();
+        for (int i = 0; i < numValues; i++) {
+            final BytesReference value = new BytesArray(randomByteArrayOfLength(randomIntBetween(0, 100)));
+            values.add(value);
+            out.writeVInt(i);
+            out.writeBytesReference(value);
+        }
+        final BytesArray array = new BytesArray(out.bytes().toBytesRef(), true);
+        try (ReleasableBytesReference reference = ReleasableBytesReference.wrap(array)) {
+            final StreamInput in = reference.unsafeStreamInput();
+            for (int i = 0; i < numValues; i++) {
+                assertThat(in.readVInt(), equalTo(i));
+                final BytesReference value = in.readBytesReference();
+                assertThat(value, equalTo(values.get(i)));
+                if (value.length() > 0) {
+                    assertSame(array.array(), value.toBytesRef().bytes);
+                }
+            }
+            assertThat(in.available(), equalTo(0));
+            expectThrows(EOFException.class, () -> in.readBytesReference(1));
+        }
+    }
+
     @Override
     public void testToBytesRefSharedPage() throws IOException {
         // CompositeBytesReference doesn't share pages
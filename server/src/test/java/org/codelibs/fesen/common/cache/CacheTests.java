@@ -29,6 +29,7 @@ import org.junit.Before;
 import java.lang.management.ManagementFactory;
 import java.lang.management.ThreadMXBean;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -52,6 +53,7 @@ import java.util.stream.Collectors;
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 
 public class CacheTests extends ESTestCase {
     private int numberOfEntries;
@@ -917,6 +919,100 @@ public class CacheTests extends ESTestCase {
         assertEquals(500, cache.count());
     }
 
+    public void testBufferedPromotionTorture() throws BrokenBarrierException, InterruptedException {
+        int numberOfThreads = randomIntBetween(2, 32);
+        final Cache<Integer, String> cache =
+                CacheBuilder.<Integer, String>builder()
+                        .setMaximumWeight(1000)
+                        .weigher((k, v) -> 2)
+                        .setBufferedPromotion(true)
+                        .build();
+        assertTrue(cache.isBufferedPromotion());
+
+        CyclicBarrier barrier = new CyclicBarrier(1 + numberOfThreads);
+        for (int i = 0; i < numberOfThreads; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    barrier.await();
+                    Random random = new Random(random().nextLong());
+                    for (int j = 0; j < numberOfEntries; j++) {
+                        Integer key = random.nextInt(numberOfEntries);
+                        int op = random.nextInt(10);
+                        if (op == 0) {
+                            cache.invalidate(key);
+                        } else if (op < 4) {
+                            cache.put(key, Integer.toString(key));
+                        } else {
+                            String value = cache.get(key);
+                            if (value != null) {
+                                assertEquals(Integer.toString(key), value);
+                            }
+                        }
+                    }
+                    barrier.await();
+                } catch (BrokenBarrierException | InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+            });
+            thread.start();
+        }
+
+        // wait for all threads to be ready
+        barrier.await();
+        // wait for all threads to finish
+        barrier.await();
+
+        cache.refresh();
+        assertThat(cache.count(), lessThanOrEqualTo(500));
+        assertEquals(2L * cache.count(), cache.weight());
+        int linked = 0;
+        for (Integer key : cache.keys()) {
+            assertEquals(Integer.toString(key), cache.get(key));
+            linked++;
+        }
+        assertEquals(cache.count(), linked);
+    }
+
+    public void testBufferedPromotionIsAppliedBeforeEviction() {
+        final List<Integer> evicted = new ArrayList<>();
+        Cache<Integer, String> cache =
+            CacheBuilder.<Integer, String>builder()
+                .setMaximumWeight(10)
+                .setBufferedPromotion(true)
+                .removalListener(notification -> evicted.add(notification.getKey()))
+                .build();
+        for (int i = 0; i < 10; i++) {
+            cache.put(i, Integer.toString(i));
+        }
+        // the promotion of key 0 sits in a read buffer until the next write drains it
+        assertEquals("0", cache.get(0));
+        cache.put(10, "10");
+        assertEquals(Collections.singletonList(1), evicted);
+        assertNotNull(cache.get(0));
+        assertNull(cache.get(1));
+    }
+
+    public void testReadBuffer() {
+        Cache.ReadBuffer<Integer, String> buffer = new Cache.ReadBuffer<>();
+        List<Cache.Entry<Integer, String>> entries = new ArrayList<>();
+        for (int i = 0; i < Cache.ReadBuffer.SIZE; i++) {
+            Cache.Entry<Integer, String> entry = new Cache.Entry<>(i, Integer.toString(i), 0);
+            entries.add(entry);
+            assertEquals(i + 1, buffer.offer(entry));
+        }
+        // a full buffer drops offers rather than blocking
+        assertEquals(-1, buffer.offer(new Cache.Entry<>(-1, "-1", 0)));
+
+        List<Cache.Entry<Integer, String>> drained = new ArrayList<>();
+        buffer.drain(drained::add);
+        assertEquals(entries, drained);
+
+        drained.clear();
+        buffer.drain(drained::add);
+        assertTrue(drained.isEmpty());
+        assertEquals(1, buffer.offer(entries.get(0)));
+    }
+
     public void testRemoveUsingValuesIterator() {
         final List<RemovalNotification<Integer, String>> removalNotifications = new ArrayList<>();
         Cache<Integer, String> cache =
@@ -0,0 +1,93 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.codelibs.fesen.common.compress;
+
+import org.apache.lucene.util.TestUtil;
+import org.codelibs.fesen.common.bytes.BytesArray;
+import org.codelibs.fesen.common.bytes.BytesReference;
+import org.codelibs.fesen.common.io.Streams;
+import org.codelibs.fesen.common.io.stream.BytesStreamOutput;
+import org.codelibs.fesen.test.ESTestCase;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+public class Lz4CompressTests extends ESTestCase {
+
+    private final Compressor compressor = new Lz4Compressor();
+
+    public void testRandomBytes() throws IOException {
+        for (int i = 0; i < 10; i++) {
+            byte[] bytes = new byte[TestUtil.nextInt(random(), 0, 3 * Lz4Compressor.BLOCK_SIZE)];
+            random().nextBytes(bytes);
+            assertRoundTrip(bytes);
+        }
+    }
+
+    public void testRepetitiveText() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < 2 * Lz4Compressor.BLOCK_SIZE + 17) {
+            sb.append("{\"index\":{\"_id\":\"").append(sb.length()).append("\"}}\n");
+        }
+        byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+        BytesReference compressed = assertRoundTrip(bytes);
+        assertTrue(compressed.length() < bytes.length / 2);
+    }
+
+    public void testFlushWritesIndependentBlocks() throws IOException {
+        byte[] bytes = randomByteArrayOfLength(between(1, 5000));
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            try (OutputStream compressed = compressor.threadLocalOutputStream(Streams.flushOnCloseStream(out))) {
+                int offset = 0;
+                while (offset < bytes.length) {
+                    int len = Math.min(bytes.length - offset, between(1, 100));
+                    compressed.write(bytes, offset, len);
+                    compressed.flush();
+                    offset += len;
+                }
+            }
+            assertArrayEquals(bytes, BytesReference.toBytes(compressor.uncompress(out.bytes())));
+        }
+    }
+
+    public void testTruncatedStream() throws IOException {
+        BytesReference compressed = compressor.compress(new BytesArray(randomByteArrayOfLength(between(1, 1000))));
+        BytesReference truncated = compressed.slice(0, between(compressor.headerLength(), compressed.length() - 1));
+        try (InputStream in = compressor.threadLocalInputStream(truncated.streamInput())) {
+            expectThrows(EOFException.class, () -> Streams.readFully(in, new byte[2000]));
+        }
+    }
+
+    public void testRejectsOtherHeaders() throws IOException {
+        BytesReference deflated = CompressorFactory.COMPRESSOR.compress(new BytesArray(randomByteArrayOfLength(10)));
+        assertFalse(compressor.isCompressed(deflated));
+        expectThrows(IllegalArgumentException.class, () -> compressor.threadLocalInputStream(deflated.streamInput()));
+    }
+
+    private BytesReference assertRoundTrip(byte[] bytes) throws IOException {
+        BytesReference compressed = compressor.compress(new BytesArray(bytes));
+        assertTrue(compressor.isCompressed(compressed));
+        assertArrayEquals(bytes, BytesReference.toBytes(compressor.uncompress(compressed)));
+        return compressed;
+    }
+}
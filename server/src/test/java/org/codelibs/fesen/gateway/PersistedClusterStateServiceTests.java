@@ -55,6 +55,8 @@ import org.codelibs.fesen.indices.breaker.NoneCircuitBreakerService;
 import org.codelibs.fesen.test.ESTestCase;
 import org.codelibs.fesen.test.MockLogAppender;
 import org.codelibs.fesen.test.junit.annotations.TestLogging;
+import org.codelibs.fesen.threadpool.TestThreadPool;
+import org.codelibs.fesen.threadpool.ThreadPool;
 
 import java.io.IOError;
 import java.io.IOException;
@@ -64,6 +66,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
@@ -72,6 +75,7 @@ import java.util.stream.Stream;
 import static org.hamcrest.Matchers.allOf;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.Matchers.nullValue;
 
@@ -739,6 +743,144 @@ public class PersistedClusterStateServiceTests extends ESTestCase {
         }
     }
 
+    public void testParallelSerializationOfIndexMetadata() throws IOException {
+        final ThreadPool threadPool = new TestThreadPool(getTestName());
+        try (NodeEnvironment nodeEnvironment = newNodeEnvironment(createDataPaths())) {
+            final PersistedClusterStateService persistedClusterStateService = new PersistedClusterStateService(nodeEnvironment,
+                xContentRegistry(), getBigArrays(), new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS),
+                () -> 0L, threadPool.generic(), randomIntBetween(2, PersistedClusterStateService.MAX_SERIALIZATION_PARALLELISM));
+
+            final Metadata.Builder metadata = Metadata.builder()
+                .coordinationMetadata(CoordinationMetadata.builder().term(1L).build());
+            final int numIndices = randomIntBetween(50, 200);
+            for (int i = 0; i < numIndices; i++) {
+                metadata.put(indexMetadata("index-" + i, randomIntBetween(0, 3), 1L).build(), false);
+            }
+            final ClusterState clusterState = ClusterState.builder(ClusterName.DEFAULT).version(1L).metadata(metadata).build();
+
+            try (Writer writer = persistedClusterStateService.createWriter()) {
+                writer.writeFullStateAndCommit(1L, clusterState);
+                assertSamePersistedIndices(persistedClusterStateService, clusterState);
+
+                // an index whose metadata changed without a version bump, as may happen across terms, is not served from the cache
+                final IndexMetadata changed = clusterState.metadata().index("index-0");
+                final ClusterState newTermState = ClusterState.builder(clusterState).version(2L)
+                    .metadata(Metadata.builder(clusterState.metadata())
+                        .coordinationMetadata(CoordinationMetadata.builder().term(2L).build())
+                        .put(IndexMetadata.builder(changed).settings(Settings.builder().put(changed.getSettings())
+                            .put(IndexMetadata.INDEX_NUMBER_OF_REPLICAS_SETTING.getKey(), changed.getNumberOfReplicas() + 1)).build(),
+                            false))
+                    .build();
+                writer.writeFullStateAndCommit(2L, newTermState);
+                assertSamePersistedIndices(persistedClusterStateService, newTermState);
+
+                final Metadata.Builder updatedMetadata = Metadata.builder(newTermState.metadata());
+                for (int i = 0; i < numIndices; i++) {
+                    if (randomBoolean()) {
+                        final IndexMetadata indexMetadata = newTermState.metadata().index("index-" + i);
+                        updatedMetadata.put(IndexMetadata.builder(indexMetadata).settings(Settings.builder()
+                            .put(indexMetadata.getSettings())
+                            .put(IndexMetadata.INDEX_NUMBER_OF_REPLICAS_SETTING.getKey(), indexMetadata.getNumberOfReplicas() + 1)).build(),
+                            true);
+                    }
+                }
+                final ClusterState updatedState = ClusterState.builder(newTermState).version(3L).metadata(updatedMetadata).build();
+                writer.writeIncrementalStateAndCommit(2L, newTermState, updatedState);
+                assertSamePersistedIndices(persistedClusterStateService, updatedState);
+            }
+        } finally {
+            ThreadPool.terminate(threadPool, 10, TimeUnit.SECONDS);
+        }
+    }
+
+    public void testRetainedSerializedIndexMetadataIsBounded() throws IOException {
+        try (NodeEnvironment nodeEnvironment = newNodeEnvironment(createDataPaths())) {
+            final PersistedClusterStateService persistedClusterStateService = newPersistedClusterStateService(nodeEnvironment);
+
+            final Metadata.Builder metadata = Metadata.builder()
+                .coordinationMetadata(CoordinationMetadata.builder().term(1L).build());
+            final int numIndices = randomIntBetween(10, 50);
+            for (int i = 0; i < numIndices; i++) {
+                metadata.put(indexMetadata("index-" + i, randomIntBetween(0, 3), 1L).build(), false);
+            }
+            final ClusterState clusterState = ClusterState.builder(ClusterName.DEFAULT).version(1L).metadata(metadata).build();
+
+            try (Writer writer = persistedClusterStateService.createWriter()) {
+                writer.writeFullStateAndCommit(1L, clusterState);
+                assertThat(writer.retainedSerializedIndices(), equalTo(numIndices));
+            }
+
+            try (Writer writer = persistedClusterStateService.createWriter()) {
+                // room for a few indices only
+                writer.maxRetainedSerializedBytes = 2048;
+                writer.writeFullStateAndCommit(1L, clusterState);
+                assertThat(writer.retainedSerializedIndices(), greaterThan(0));
+                assertThat(writer.retainedSerializedIndices(), lessThan(numIndices));
+
+                final ClusterState newTermState = ClusterState.builder(clusterState).version(2L)
+                    .metadata(Metadata.builder(clusterState.metadata())
+                        .coordinationMetadata(CoordinationMetadata.builder().term(2L).build()))
+                    .build();
+                writer.writeFullStateAndCommit(2L, newTermState);
+                assertSamePersistedIndices(persistedClusterStateService, newTermState);
+
+                writer.maxRetainedSerializedBytes = 0;
+                writer.writeFullStateAndCommit(2L, newTermState);
+                assertThat(writer.retainedSerializedIndices(), equalTo(0));
+                assertSamePersistedIndices(persistedClusterStateService, newTermState);
+            }
+        }
+    }
+
+    public void testDocumentBufferSizeFollowsTheLastWrite() throws IOException {
+        try (NodeEnvironment nodeEnvironment = newNodeEnvironment(createDataPaths())) {
+            final PersistedClusterStateService persistedClusterStateService = newPersistedClusterStateService(nodeEnvironment);
+            final IndexMetadata largeIndex = indexMetadata("large", 0, 1L).build();
+            final Settings.Builder largeSettings = Settings.builder().put(largeIndex.getSettings());
+            for (int i = 0; i < 1000; i++) {
+                largeSettings.put("index.meta." + i, randomAlphaOfLength(50));
+            }
+            final ClusterState largeState = ClusterState.builder(ClusterName.DEFAULT).version(1L)
+                .metadata(Metadata.builder().coordinationMetadata(CoordinationMetadata.builder().term(1L).build())
+                    .put(IndexMetadata.builder(largeIndex).settings(largeSettings).build(), false))
+                .build();
+            final ClusterState smallState = ClusterState.builder(ClusterName.DEFAULT).version(2L)
+                .metadata(Metadata.builder().coordinationMetadata(CoordinationMetadata.builder().term(1L).build())
+                    .put(indexMetadata("small", 0, 1L).build(), false))
+                .build();
+
+            try (Writer writer = persistedClusterStateService.createWriter()) {
+                writer.writeFullStateAndCommit(1L, largeState);
+                final int largeBufferUsed = writer.documentBufferUsed();
+                assertThat(largeBufferUsed, greaterThan(50 * 1000));
+                writer.writeIncrementalStateAndCommit(1L, largeState, smallState);
+                assertThat(writer.documentBufferUsed(), lessThan(largeBufferUsed));
+            }
+        }
+    }
+
+    private static IndexMetadata.Builder indexMetadata(String name, int numberOfReplicas, long version) {
+        return IndexMetadata.builder(name)
+            .version(version)
+            .settings(Settings.builder()
+                .put(IndexMetadata.INDEX_NUMBER_OF_REPLICAS_SETTING.getKey(), numberOfReplicas)
+                .put(IndexMetadata.INDEX_NUMBER_OF_SHARDS_SETTING.getKey(), 1)
+                .put(IndexMetadata.SETTING_INDEX_VERSION_CREATED.getKey(), Version.CURRENT)
+                .put(IndexMetadata.SETTING_INDEX_UUID, UUIDs.randomBase64UUID(random())));
+    }
+
+    private static void assertSamePersistedIndices(PersistedClusterStateService persistedClusterStateService,
+                                                   ClusterState expected) throws IOException {
+        final ClusterState persisted = loadPersistedClusterState(persistedClusterStateService);
+        assertThat(persisted.metadata().indices().size(), equalTo(expected.metadata().indices().size()));
+        for (IndexMetadata indexMetadata : expected.metadata()) {
+            final IndexMetadata persistedIndexMetadata = persisted.metadata().index(indexMetadata.getIndex().getName());
+            assertThat(persistedIndexMetadata.getIndexUUID(), equalTo(indexMetadata.getIndexUUID()));
+            assertThat(persistedIndexMetadata.getVersion(), equalTo(indexMetadata.getVersion()));
+            assertThat(persistedIndexMetadata.getNumberOfReplicas(), equalTo(indexMetadata.getNumberOfReplicas()));
+        }
+    }
+
     public void testReloadsMetadataAcrossMultipleSegments() throws IOException {
         try (NodeEnvironment nodeEnvironment = newNodeEnvironment(createDataPaths())) {
             final PersistedClusterStateService persistedClusterStateService = newPersistedClusterStateService(nodeEnvironment);
@@ -0,0 +1,69 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.codelibs.fesen.index.cache.query;
+
+import org.codelibs.fesen.common.io.stream.BytesStreamOutput;
+import org.codelibs.fesen.common.io.stream.StreamInput;
+import org.codelibs.fesen.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+public class QueryCacheStatsTests extends ESTestCase {
+
+    public void testSerialize() throws IOException {
+        QueryCacheStats stats = randomQueryCacheStats();
+        BytesStreamOutput out = new BytesStreamOutput();
+        stats.writeTo(out);
+        StreamInput input = out.bytes().streamInput();
+        QueryCacheStats read = new QueryCacheStats(input);
+        assertEquals(-1, input.read());
+        assertEquals(stats.getMemorySizeInBytes(), read.getMemorySizeInBytes());
+        assertEquals(stats.getHitCount(), read.getHitCount());
+        assertEquals(stats.getMissCount(), read.getMissCount());
+        assertEquals(stats.getCacheCount(), read.getCacheCount());
+        assertEquals(stats.getCacheSize(), read.getCacheSize());
+        assertEquals(stats.getQueryTypes(), read.getQueryTypes());
+    }
+
+    public void testAdd() {
+        QueryCacheStats first = new QueryCacheStats(1, 2, 3, 4, 5,
+            Map.of("TermQuery", new QueryCacheStats.QueryTypeStats(1, 2, 3, 4, 5, 6)));
+        QueryCacheStats second = new QueryCacheStats(1, 2, 3, 4, 5, Map.of(
+            "TermQuery", new QueryCacheStats.QueryTypeStats(1, 1, 1, 1, 1, 1),
+            "PointRangeQuery", new QueryCacheStats.QueryTypeStats(7, 3, 1, 1, 1, 1)));
+        first.add(second);
+        assertEquals(4, first.getHitCount());
+        assertEquals(2, first.getQueryTypes().size());
+        assertEquals(new QueryCacheStats.QueryTypeStats(2, 3, 4, 5, 6, 7), first.getQueryTypes().get("TermQuery"));
+        assertEquals(0.7, first.getQueryTypes().get("PointRangeQuery").getHitRatio(), 0d);
+    }
+
+    private static QueryCacheStats randomQueryCacheStats() {
+        Map<String, QueryCacheStats.QueryTypeStats> queryTypes = new HashMap<>();
+        int numQueryTypes = randomIntBetween(0, 5);
+        for (int i = 0; i < numQueryTypes; i++) {
+            queryTypes.put(randomAlphaOfLength(10), new QueryCacheStats.QueryTypeStats(randomNonNegativeLong(), randomNonNegativeLong(),
+                randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong()));
+        }
+        return new QueryCacheStats(randomLong(), randomLong(), randomLong(), randomLong(), randomLong(), queryTypes);
+    }
+}
@@ -20,6 +20,7 @@
 package org.codelibs.fesen.index.codec;
 
 import org.apache.logging.log4j.LogManager;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.codecs.Codec;
 import org.apache.lucene.codecs.lucene87.Lucene87Codec;
 import org.apache.lucene.codecs.lucene87.Lucene87StoredFieldsFormat;
@@ -29,18 +30,24 @@ import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.SegmentReader;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.search.suggest.document.Completion84PostingsFormat;
+import org.apache.lucene.search.suggest.document.CompletionAnalyzer;
+import org.apache.lucene.search.suggest.document.CompletionTerms;
+import org.apache.lucene.search.suggest.document.SuggestField;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.LuceneTestCase.SuppressCodecs;
+import org.codelibs.fesen.common.compress.CompressedXContent;
 import org.codelibs.fesen.common.settings.Settings;
 import org.codelibs.fesen.env.Environment;
 import org.codelibs.fesen.index.IndexSettings;
 import org.codelibs.fesen.index.analysis.IndexAnalyzers;
 import org.codelibs.fesen.index.codec.CodecService;
 import org.codelibs.fesen.index.codec.PerFieldMappingPostingFormatCodec;
+import org.codelibs.fesen.index.mapper.IdFieldMapper;
 import org.codelibs.fesen.index.mapper.MapperService;
 import org.codelibs.fesen.index.similarity.SimilarityService;
-import org.codelibs.fesen.indices.mapper.MapperRegistry;
-import org.codelibs.fesen.plugins.MapperPlugin;
+import org.codelibs.fesen.indices.IndicesModule;
 import org.codelibs.fesen.test.ESTestCase;
 import org.codelibs.fesen.test.IndexSettingsModule;
 
@@ -48,6 +55,7 @@ import java.io.IOException;
 import java.util.Collections;
 
 import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.not;
 
 @SuppressCodecs("*") // we test against default codec so never get a random one here!
 public class CodecTests extends ESTestCase {
@@ -87,16 +95,57 @@ public class CodecTests extends ESTestCase {
         dir.close();
     }
 
+    public void testCompletionPostingsFormat() throws Exception {
+        PerFieldMappingPostingFormatCodec codec = (PerFieldMappingPostingFormatCodec) createCodecService(Settings.EMPTY).codec("default");
+        assertThat(codec.getPostingsFormatForField("suggest"), instanceOf(Completion84PostingsFormat.class));
+
+        codec = (PerFieldMappingPostingFormatCodec) createCodecService(
+            Settings.builder().put(IndexSettings.COMPLETION_FST_OFF_HEAP_SETTING.getKey(), true).build()).codec("default");
+        assertThat(codec.getPostingsFormatForField("suggest"), instanceOf(OffHeapCompletionPostingsFormat.class));
+
+        // segments are read with the format that they were written with
+        Directory dir = newDirectory();
+        IndexWriterConfig iwc = newIndexWriterConfig(new CompletionAnalyzer(new StandardAnalyzer()));
+        iwc.setCodec(codec);
+        IndexWriter iw = new IndexWriter(dir, iwc);
+        Document doc = new Document();
+        doc.add(new SuggestField("suggest", "fesen", 1));
+        iw.addDocument(doc);
+        iw.commit();
+        iw.close();
+        DirectoryReader ir = DirectoryReader.open(dir);
+        Terms terms = ir.leaves().get(0).reader().terms("suggest");
+        assertThat(terms, instanceOf(CompletionTerms.class));
+        assertNotNull(((CompletionTerms) terms).suggester());
+        ir.close();
+        dir.close();
+    }
+
+    public void testIdBloomFilter() throws Exception {
+        PerFieldMappingPostingFormatCodec codec = (PerFieldMappingPostingFormatCodec) createCodecService(Settings.EMPTY).codec("default");
+        assertThat(codec.getPostingsFormatForField(IdFieldMapper.NAME), not(instanceOf(IdBloomFilterPostingsFormat.class)));
+
+        codec = (PerFieldMappingPostingFormatCodec) createCodecService(
+            Settings.builder().put(IndexSettings.ID_BLOOM_FILTER_ENABLED_SETTING.getKey(), true).build()).codec("default");
+        assertThat(codec.getPostingsFormatForField(IdFieldMapper.NAME), instanceOf(IdBloomFilterPostingsFormat.class));
+        assertThat(codec.getPostingsFormatForField("field"), not(instanceOf(IdBloomFilterPostingsFormat.class)));
+    }
+
     private CodecService createCodecService() throws IOException {
+        return createCodecService(Settings.EMPTY);
+    }
+
+    private CodecService createCodecService(Settings indexSettings) throws IOException {
         Settings nodeSettings = Settings.builder()
                 .put(Environment.PATH_HOME_SETTING.getKey(), createTempDir())
                 .build();
-        IndexSettings settings = IndexSettingsModule.newIndexSettings("_na", nodeSettings);
+        IndexSettings settings = IndexSettingsModule.newIndexSettings("_na", indexSettings);
         SimilarityService similarityService = new SimilarityService(settings, null, Collections.emptyMap());
         IndexAnalyzers indexAnalyzers = createTestAnalysis(settings, nodeSettings).indexAnalyzers;
-        MapperRegistry mapperRegistry = new MapperRegistry(Collections.emptyMap(), Collections.emptyMap(), MapperPlugin.NOOP_FIELD_FILTER);
-        MapperService service = new MapperService(settings, indexAnalyzers, xContentRegistry(), similarityService, mapperRegistry,
-                () -> null, () -> false, null);
+        MapperService service = new MapperService(settings, indexAnalyzers, xContentRegistry(), similarityService,
+                new IndicesModule(Collections.emptyList()).getMapperRegistry(), () -> null, () -> false, null);
+        service.merge("_doc", new CompressedXContent("{\"properties\":{\"suggest\":{\"type\":\"completion\"}}}"),
+                MapperService.MergeReason.MAPPING_UPDATE);
         return new CodecService(service, LogManager.getLogger("test"));
     }
 
@@ -27,6 +27,9 @@ import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.core.LogEvent;
 import org.apache.logging.log4j.core.appender.AbstractAppender;
 import org.apache.logging.log4j.core.filter.RegexFilter;
+import org.apache.lucene.codecs.FieldsProducer;
+import org.apache.lucene.codecs.PostingsFormat;
+import org.apache.lucene.codecs.lucene87.Lucene87Codec;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.LongPoint;
 import org.apache.lucene.document.NumericDocValuesField;
@@ -107,6 +110,7 @@ import org.codelibs.fesen.core.internal.io.IOUtils;
 import org.codelibs.fesen.index.IndexSettings;
 import org.codelibs.fesen.index.VersionType;
 import org.codelibs.fesen.index.codec.CodecService;
+import org.codelibs.fesen.index.codec.IdBloomFilterPostingsFormat;
 import org.codelibs.fesen.index.engine.CommitStats;
 import org.codelibs.fesen.index.engine.DeleteVersionValue;
 import org.codelibs.fesen.index.engine.Engine;
@@ -221,6 +225,7 @@ import static org.hamcrest.Matchers.hasKey;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.in;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
@@ -299,6 +304,52 @@ public class InternalEngineTests extends EngineTestCase {
         }
     }
 
+    public void testBloomFilterRamBytesUsed() throws Exception {
+        final boolean bloomFilter = randomBoolean();
+        final PostingsFormat idPostingsFormat = new IdBloomFilterPostingsFormat();
+        IndexWriterConfig iwc = newIndexWriterConfig().setCodec(new Lucene87Codec() {
+            @Override
+            public PostingsFormat getPostingsFormatForField(String field) {
+                if (bloomFilter && IdFieldMapper.NAME.equals(field)) {
+                    return idPostingsFormat;
+                }
+                return super.getPostingsFormatForField(field);
+            }
+        });
+        try (Directory dir = newDirectory(); IndexWriter writer = new IndexWriter(dir, iwc)) {
+            int numDocs = randomIntBetween(1, 100);
+            for (int i = 0; i < numDocs; i++) {
+                Document doc = new Document();
+                doc.add(new Field(IdFieldMapper.NAME, Uid.encodeId(Integer.toString(i)), IdFieldMapper.Defaults.FIELD_TYPE));
+                writer.addDocument(doc);
+            }
+            try (DirectoryReader reader = DirectoryReader.open(writer)) {
+                long bytes = 0;
+                for (LeafReaderContext context : reader.leaves()) {
+                    final FieldsProducer postingsReader = Lucene.segmentReader(context.reader()).getPostingsReader();
+                    final long segmentBytes = Engine.bloomFilterRamBytesUsed(postingsReader);
+                    assertThat(segmentBytes, lessThan(postingsReader.ramBytesUsed()));
+                    bytes += segmentBytes;
+                    // the filter only rules out ids that the segment does not contain
+                    final Set<BytesRef> ids = new HashSet<>();
+                    final TermsEnum termsEnum = context.reader().terms(IdFieldMapper.NAME).iterator();
+                    for (BytesRef id = termsEnum.next(); id != null; id = termsEnum.next()) {
+                        ids.add(BytesRef.deepCopyOf(id));
+                    }
+                    for (int i = 0; i < numDocs + 10; i++) {
+                        final BytesRef id = Uid.encodeId(Integer.toString(i));
+                        assertEquals(ids.contains(id), termsEnum.seekExact(id));
+                    }
+                }
+                if (bloomFilter) {
+                    assertThat(bytes, greaterThan(0L));
+                } else {
+                    assertThat(bytes, equalTo(0L));
+                }
+            }
+        }
+    }
+
     public void testSegmentsWithoutSoftDeletes() throws Exception {
         Settings settings = Settings.builder()
             .put(defaultSettings.getSettings())
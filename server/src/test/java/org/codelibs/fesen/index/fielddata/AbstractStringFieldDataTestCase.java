@@ -28,6 +28,7 @@ import org.apache.lucene.document.SortedSetDocValuesField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.OrdinalMap;
 import org.apache.lucene.index.SortedSetDocValues;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.index.TermsEnum;
@@ -49,6 +50,7 @@ import org.apache.lucene.util.TestUtil;
 import org.apache.lucene.util.UnicodeUtil;
 import org.codelibs.fesen.common.lucene.index.FesenDirectoryReader;
 import org.codelibs.fesen.common.lucene.search.Queries;
+import org.codelibs.fesen.common.unit.TimeValue;
 import org.codelibs.fesen.index.fielddata.IndexFieldData;
 import org.codelibs.fesen.index.fielddata.IndexOrdinalsFieldData;
 import org.codelibs.fesen.index.fielddata.LeafOrdinalsFieldData;
@@ -617,4 +619,52 @@ public abstract class AbstractStringFieldDataTestCase extends AbstractFieldDataI
         indexService.clearCaches(false, true);
         assertThat(indicesFieldDataCache.getCache().weight(), equalTo(0L));
     }
+
+    public void testOnlyLookupsOfLoadedGlobalOrdinalsAreRecentUses() throws Exception {
+        fillExtendedMvSet();
+        refreshReader();
+        final ShardId shardId = new ShardId("foo", "_na_", 1);
+        final TimeValue maxIdle = TimeValue.timeValueHours(1);
+        IndexOrdinalsFieldData ifd = getForField("string", "value", hasDocValues());
+        IndexFieldDataCache cache = indicesFieldDataCache.buildIndexFieldDataCache(new IndexFieldDataCache.Listener() {},
+            indexService.index(), "value");
+        assertFalse(cache.hasRecentlyUsedGlobal(shardId, maxIdle.nanos()));
+        // a load, e.g. by the warmer, doesn't count as a use
+        cache.load(topLevelReader, ifd);
+        assertFalse(cache.hasRecentlyUsedGlobal(shardId, maxIdle.nanos()));
+        cache.load(topLevelReader, ifd);
+        assertTrue(cache.hasRecentlyUsedGlobal(shardId, maxIdle.nanos()));
+    }
+
+    public void testGlobalOrdinalsAreBuiltIncrementallyFromThePreviousReader() throws Exception {
+        fillExtendedMvSet();
+        refreshReader();
+        IndexOrdinalsFieldData ifd = getForField("string", "value", hasDocValues());
+        ifd.loadGlobal(topLevelReader);
+
+        Document d = new Document();
+        addField(d, "_id", "9");
+        addField(d, "value", "055");
+        writer.addDocument(d);
+        final DirectoryReader previousReader = topLevelReader;
+        topLevelReader = FesenDirectoryReader.wrap(DirectoryReader.open(writer), new ShardId("foo", "_na_", 1));
+        final IndexOrdinalsFieldData globalOrdinals = ifd.loadGlobal(topLevelReader);
+        previousReader.close();
+
+        int incrementalBuilds = 0;
+        for (Accountable ramUsage : indicesFieldDataCache.getCache().values()) {
+            if (ramUsage instanceof GlobalOrdinalsIndexFieldData && ((GlobalOrdinalsIndexFieldData) ramUsage).isIncrementalBuild()) {
+                incrementalBuilds++;
+            }
+        }
+        assertThat(incrementalBuilds, equalTo(1));
+
+        final OrdinalMap expected = ifd.loadGlobalDirect(topLevelReader).getOrdinalMap();
+        final OrdinalMap actual = globalOrdinals.getOrdinalMap();
+        assertThat(actual.getValueCount(), equalTo(expected.getValueCount()));
+        for (long globalOrd = 0; globalOrd < expected.getValueCount(); globalOrd++) {
+            assertThat(actual.getFirstSegmentNumber(globalOrd), equalTo(expected.getFirstSegmentNumber(globalOrd)));
+            assertThat(actual.getFirstSegmentOrd(globalOrd), equalTo(expected.getFirstSegmentOrd(globalOrd)));
+        }
+    }
 }
@@ -0,0 +1,142 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.codelibs.fesen.index.fielddata.ordinals;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.OrdinalMap;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.LongValues;
+import org.codelibs.fesen.index.fielddata.IndexFieldDataCache;
+import org.codelibs.fesen.index.fielddata.IndexOrdinalsFieldData;
+import org.codelibs.fesen.index.fielddata.plain.AbstractLeafOrdinalsFieldData;
+import org.codelibs.fesen.index.fielddata.plain.SortedSetOrdinalsIndexFieldData;
+import org.codelibs.fesen.indices.breaker.NoneCircuitBreakerService;
+import org.codelibs.fesen.search.aggregations.support.CoreValuesSourceType;
+import org.codelibs.fesen.test.ESTestCase;
+
+import java.io.IOException;
+
+public class GlobalOrdinalsBuilderTests extends ESTestCase {
+
+    private static final Logger logger = LogManager.getLogger(GlobalOrdinalsBuilderTests.class);
+
+    private static final String FIELD = "field";
+
+    public void testIncrementalBuild() throws IOException {
+        try (Directory dir = newDirectory();
+             IndexWriter w = new IndexWriter(dir, new IndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE))) {
+            final int numSegments = randomIntBetween(2, 5);
+            for (int segment = 0; segment < numSegments; segment++) {
+                addDocs(w, segment, randomIntBetween(200, 500));
+                w.flush();
+            }
+            try (DirectoryReader first = DirectoryReader.open(w)) {
+                final GlobalOrdinalsIndexFieldData previous = build(first, null);
+                assertFalse(previous.isIncrementalBuild());
+
+                if (randomBoolean()) {
+                    // drops the first segment from the next reader, the previous global ordinals still refer to it
+                    w.deleteDocuments(new Term("segment", "0"));
+                }
+                final int numAddedSegments = randomIntBetween(1, 3);
+                for (int segment = 0; segment < numAddedSegments; segment++) {
+                    addDocs(w, numSegments + segment, randomIntBetween(1, 5));
+                    w.flush();
+                }
+                try (DirectoryReader second = DirectoryReader.openIfChanged(first)) {
+                    final GlobalOrdinalsIndexFieldData incremental = build(second, previous);
+                    assertTrue(incremental.isIncrementalBuild());
+                    final GlobalOrdinalsIndexFieldData full = build(second, null);
+                    assertFalse(full.isIncrementalBuild());
+                    assertSameOrdinalMap(second, full.getOrdinalMap(), incremental.getOrdinalMap());
+                }
+            }
+        }
+    }
+
+    public void testFullBuildWithoutSharedSegments() throws IOException {
+        try (Directory dir = newDirectory();
+             IndexWriter w = new IndexWriter(dir, new IndexWriterConfig())) {
+            for (int segment = 0; segment < 3; segment++) {
+                addDocs(w, segment, randomIntBetween(50, 100));
+                w.flush();
+            }
+            try (DirectoryReader first = DirectoryReader.open(w)) {
+                final GlobalOrdinalsIndexFieldData previous = build(first, null);
+                w.forceMerge(1);
+                addDocs(w, 3, randomIntBetween(1, 5));
+                w.flush();
+                try (DirectoryReader second = DirectoryReader.openIfChanged(first)) {
+                    final GlobalOrdinalsIndexFieldData merged = build(second, previous);
+                    assertFalse(merged.isIncrementalBuild());
+                    assertSameOrdinalMap(second, build(second, null).getOrdinalMap(), merged.getOrdinalMap());
+                }
+            }
+        }
+    }
+
+    private static void addDocs(IndexWriter w, int segment, int numDocs) throws IOException {
+        for (int i = 0; i < numDocs; i++) {
+            final Document doc = new Document();
+            doc.add(new StringField("segment", Integer.toString(segment), Field.Store.NO));
+            final int numValues = randomIntBetween(0, 3);
+            for (int j = 0; j < numValues; j++) {
+                doc.add(new SortedSetDocValuesField(FIELD, new BytesRef(randomAlphaOfLengthBetween(1, 3))));
+            }
+            w.addDocument(doc);
+        }
+    }
+
+    private static GlobalOrdinalsIndexFieldData build(DirectoryReader reader, GlobalOrdinalsIndexFieldData previous)
+            throws IOException {
+        final IndexOrdinalsFieldData fieldData = new SortedSetOrdinalsIndexFieldData(new IndexFieldDataCache.None(), FIELD,
+            CoreValuesSourceType.BYTES, new NoneCircuitBreakerService(), AbstractLeafOrdinalsFieldData.DEFAULT_SCRIPT_FUNCTION);
+        return (GlobalOrdinalsIndexFieldData) GlobalOrdinalsBuilder.build(reader, fieldData, previous, new NoneCircuitBreakerService(),
+            logger, AbstractLeafOrdinalsFieldData.DEFAULT_SCRIPT_FUNCTION);
+    }
+
+    private static void assertSameOrdinalMap(DirectoryReader reader, OrdinalMap expected, OrdinalMap actual) throws IOException {
+        assertEquals(expected.getValueCount(), actual.getValueCount());
+        for (int segment = 0; segment < reader.leaves().size(); segment++) {
+            final long valueCount = DocValues.getSortedSet(reader.leaves().get(segment).reader(), FIELD).getValueCount();
+            final LongValues expectedOrds = expected.getGlobalOrds(segment);
+            final LongValues actualOrds = actual.getGlobalOrds(segment);
+            for (long ord = 0; ord < valueCount; ord++) {
+                assertEquals(expectedOrds.get(ord), actualOrds.get(ord));
+            }
+        }
+        for (long globalOrd = 0; globalOrd < expected.getValueCount(); globalOrd++) {
+            assertEquals(expected.getFirstSegmentNumber(globalOrd), actual.getFirstSegmentNumber(globalOrd));
+            assertEquals(expected.getFirstSegmentOrd(globalOrd), actual.getFirstSegmentOrd(globalOrd));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.codelibs.fesen.index.translog;
+
+import org.codelibs.fesen.env.NodeEnvironment;
+import org.codelibs.fesen.index.shard.ShardId;
+import org.codelibs.fesen.test.ESTestCase;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.aMapWithSize;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class TranslogSyncTrackerTests extends ESTestCase {
+
+    public void testTranslogsOfANodePathShareTheMetricOfItsFileStore() throws IOException {
+        try (NodeEnvironment nodeEnv = newNodeEnvironment()) {
+            final TranslogSyncTracker tracker = new TranslogSyncTracker(nodeEnv);
+            final NodeEnvironment.NodePath nodePath = nodeEnv.nodePaths()[0];
+            final Path first = nodePath.resolve(new ShardId("first", "_na_", 0)).resolve("translog");
+            final Path second = nodePath.resolve(new ShardId("second", "_na_", randomIntBetween(0, 5))).resolve("translog");
+            final TranslogSyncMetric metric = tracker.metricFor(first);
+            assertThat(tracker.metricFor(second), sameInstance(metric));
+
+            metric.onSync(randomLongBetween(0, 2000));
+            tracker.metricFor(second).onSync(randomLongBetween(0, 2000));
+            final Map<String, TranslogSyncStats> stats = tracker.stats();
+            assertThat(stats, aMapWithSize(1));
+            assertThat(stats, hasKey(nodePath.fileStore.toString()));
+            assertThat(stats.get(nodePath.fileStore.toString()).getCount(), equalTo(2L));
+        }
+    }
+
+    public void testLatencyBuckets() {
+        final TranslogSyncMetric metric = new TranslogSyncMetric();
+        metric.onSync(0);
+        metric.onSync(1);
+        metric.onSync(1000);
+        metric.onSync(5000);
+        final long[] histogram = metric.stats().getLatencyHistogram();
+        final int last = TranslogSyncStats.LATENCY_BUCKETS_MILLIS.length;
+        // the bounds of the buckets are exclusive
+        assertThat(histogram[0], equalTo(1L));
+        assertThat(histogram[1], equalTo(1L));
+        assertThat(histogram[last], equalTo(2L));
+        assertThat(metric.stats().getTimeInMillis(), equalTo(6001L));
+    }
+}
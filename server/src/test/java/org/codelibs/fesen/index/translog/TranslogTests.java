@@ -493,14 +493,30 @@ public class TranslogTests extends ESTestCase {
             final TranslogStats copy = new TranslogStats(out.bytes().streamInput());
             assertThat(copy.estimatedNumberOfOperations(), equalTo(4));
             assertThat(copy.getTranslogSizeInBytes(), equalTo(355L));
+            assertThat(copy.getSyncCount(), equalTo(stats.getSyncCount()));
+            assertArrayEquals(stats.getSyncLatencyHistogram(), copy.getSyncLatencyHistogram());
 
+            final StringBuilder histogram = new StringBuilder();
+            final long[] bounds = TranslogSyncStats.LATENCY_BUCKETS_MILLIS;
+            for (int i = 0; i <= bounds.length; i++) {
+                histogram.append(i == 0 ? "{" : ",{");
+                if (i > 0) {
+                    histogram.append("\"ge_millis\":").append(bounds[i - 1]).append(i < bounds.length ? "," : "");
+                }
+                if (i < bounds.length) {
+                    histogram.append("\"lt_millis\":").append(bounds[i]);
+                }
+                histogram.append(",\"count\":").append(copy.getSyncLatencyHistogram()[i]).append("}");
+            }
             try (XContentBuilder builder = XContentFactory.jsonBuilder()) {
                 builder.startObject();
                 copy.toXContent(builder, ToXContent.EMPTY_PARAMS);
                 builder.endObject();
                 assertThat(Strings.toString(builder), equalTo("{\"translog\":{\"operations\":4,\"size_in_bytes\":" + 355
                     + ",\"uncommitted_operations\":4,\"uncommitted_size_in_bytes\":" + 300
-                    + ",\"earliest_last_modified_age\":" + stats.getEarliestLastModifiedAge() + "}}"));
+                    + ",\"earliest_last_modified_age\":" + stats.getEarliestLastModifiedAge()
+                    + ",\"sync\":{\"total\":" + copy.getSyncCount() + ",\"total_time_in_millis\":" + copy.getSyncTimeInMillis()
+                    + ",\"latency_histogram\":[" + histogram + "]}}}"));
             }
         }
         translog.getDeletionPolicy().setLocalCheckpointOfSafeCommit(randomLongBetween(3, Long.MAX_VALUE));
@@ -516,6 +532,63 @@ public class TranslogTests extends ESTestCase {
         }
     }
 
+    public void testSyncStats() throws IOException {
+        assertThat(translog.stats().getSyncCount(), equalTo(0L));
+        int expectedSyncs = 0;
+        final int operations = randomIntBetween(1, 20);
+        for (int i = 0; i < operations; i++) {
+            final Translog.Location location = translog.add(new Translog.Index("test", Integer.toString(i), i, primaryTerm.get(),
+                new byte[]{1}));
+            if (randomBoolean()) {
+                assertTrue(translog.ensureSynced(location));
+                expectedSyncs++;
+                // already synced locations do not count
+                assertFalse(translog.ensureSynced(location));
+            }
+        }
+        final TranslogStats stats = translog.stats();
+        assertThat(stats.getSyncCount(), equalTo((long) expectedSyncs));
+        assertThat(Arrays.stream(stats.getSyncLatencyHistogram()).sum(), equalTo((long) expectedSyncs));
+
+        final TranslogStats total = new TranslogStats();
+        total.add(stats);
+        total.add(stats);
+        assertThat(total.getSyncCount(), equalTo(2L * expectedSyncs));
+        assertThat(Arrays.stream(total.getSyncLatencyHistogram()).sum(), equalTo(2L * expectedSyncs));
+    }
+
+    public void testDeviceSyncStatsOutliveTheTranslog() throws IOException {
+        final TranslogSyncMetric deviceSyncMetric = new TranslogSyncMetric();
+        final TranslogConfig config = new TranslogConfig(shardId, createTempDir(), translog.getConfig().getIndexSettings(),
+            NON_RECYCLING_INSTANCE, deviceSyncMetric);
+        final String translogUUID;
+        try (Translog first = createTranslog(config)) {
+            translogUUID = first.getTranslogUUID();
+            assertTrue(first.ensureSynced(first.add(new Translog.Index("test", "1", 0, primaryTerm.get(), new byte[]{1}))));
+            assertThat(first.stats().getSyncCount(), equalTo(1L));
+        }
+        try (Translog reopened = openTranslog(config, translogUUID)) {
+            assertThat(reopened.stats().getSyncCount(), equalTo(0L));
+            assertTrue(reopened.ensureSynced(reopened.add(new Translog.Index("test", "2", 1, primaryTerm.get(), new byte[]{1}))));
+            assertThat(reopened.stats().getSyncCount(), equalTo(1L));
+        }
+        final TranslogSyncStats deviceStats = deviceSyncMetric.stats();
+        assertThat(deviceStats.getCount(), equalTo(2L));
+        assertThat(Arrays.stream(deviceStats.getLatencyHistogram()).sum(), equalTo(2L));
+
+        final TranslogStats nodeStats = new TranslogStats();
+        nodeStats.setSyncStatsByDevice(Collections.singletonMap("device", deviceStats));
+        final TranslogStats total = new TranslogStats();
+        total.add(nodeStats);
+        total.add(nodeStats);
+        final BytesStreamOutput out = new BytesStreamOutput();
+        total.writeTo(out);
+        final TranslogStats copy = new TranslogStats(out.bytes().streamInput());
+        assertThat(copy.getSyncStatsByDevice().keySet(), equalTo(Collections.singleton("device")));
+        assertThat(copy.getSyncStatsByDevice().get("device").getCount(), equalTo(4L));
+        assertThat(copy.getSyncStatsByDevice().get("device").getTimeInMillis(), equalTo(2 * deviceStats.getTimeInMillis()));
+    }
+
     public void testUncommittedOperations() throws Exception {
         final TranslogDeletionPolicy deletionPolicy = translog.getDeletionPolicy();
         deletionPolicy.setRetentionAgeInMillis(randomLong());
@@ -24,6 +24,8 @@ import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.ConstantScoreScorer;
 import org.apache.lucene.search.ConstantScoreWeight;
 import org.apache.lucene.search.DocIdSetIterator;
@@ -32,9 +34,11 @@ import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.QueryCachingPolicy;
+import org.apache.lucene.search.QueryVisitor;
 import org.apache.lucene.search.ScoreMode;
 import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.ScorerSupplier;
+import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.Weight;
 import org.apache.lucene.store.Directory;
 import org.codelibs.fesen.common.lucene.index.FesenDirectoryReader;
@@ -46,6 +50,8 @@ import org.codelibs.fesen.indices.IndicesQueryCache;
 import org.codelibs.fesen.test.ESTestCase;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Set;
 
 public class IndicesQueryCacheTests extends ESTestCase {
@@ -53,9 +59,15 @@ public class IndicesQueryCacheTests extends ESTestCase {
     private static class DummyQuery extends Query {
 
         private final int id;
+        private final long scorerDelayMillis;
 
         DummyQuery(int id) {
+            this(id, 0);
+        }
+
+        DummyQuery(int id, long scorerDelayMillis) {
             this.id = id;
+            this.scorerDelayMillis = scorerDelayMillis;
         }
 
         @Override
@@ -79,6 +91,13 @@ public class IndicesQueryCacheTests extends ESTestCase {
             return new ConstantScoreWeight(this, boost) {
                 @Override
                 public Scorer scorer(LeafReaderContext context) throws IOException {
+                    if (scorerDelayMillis > 0) {
+                        try {
+                            Thread.sleep(scorerDelayMillis);
+                        } catch (InterruptedException e) {
+                            throw new AssertionError(e);
+                        }
+                    }
                     return new ConstantScoreScorer(this, score(), scoreMode, DocIdSetIterator.all(context.reader().maxDoc()));
                 }
 
@@ -428,4 +447,238 @@ public class IndicesQueryCacheTests extends ESTestCase {
         cache.onClose(shard);
         cache.close();
     }
+
+    public void testQueryTypeStats() throws IOException {
+        Directory dir = newDirectory();
+        IndexWriter w = new IndexWriter(dir, newIndexWriterConfig());
+        w.addDocument(new Document());
+        DirectoryReader r = DirectoryReader.open(w);
+        w.close();
+        ShardId shard = new ShardId("index", "_na_", 0);
+        r = FesenDirectoryReader.wrap(r, shard);
+        IndexSearcher s = new IndexSearcher(r);
+        s.setQueryCachingPolicy(alwaysCachePolicy());
+
+        Settings settings = Settings.builder()
+                .put(IndicesQueryCache.INDICES_CACHE_QUERY_COUNT_SETTING.getKey(), 10)
+                .put(IndicesQueryCache.INDICES_QUERIES_CACHE_ALL_SEGMENTS_SETTING.getKey(), true)
+                .build();
+        IndicesQueryCache cache = new IndicesQueryCache(settings);
+        s.setQueryCache(cache);
+
+        assertEquals(1, s.count(new DummyQuery(0)));
+        assertEquals(1, s.count(new DummyQuery(0)));
+        assertEquals(1, s.count(new DummyQuery(1)));
+
+        QueryCacheStats.QueryTypeStats stats = cache.getStats(shard).getQueryTypes().get("DummyQuery");
+        assertNotNull(stats);
+        assertEquals(1L, stats.getHitCount());
+        assertEquals(2L, stats.getMissCount());
+        assertEquals(1d / 3, stats.getHitRatio(), 0d);
+        assertEquals(2L, stats.getCacheCount());
+        assertTrue(stats.getCachedBytes() > 0);
+        assertTrue(stats.getBuildTimeInNanos() > 0);
+        assertTrue(stats.getSavedTimeInNanos() > 0);
+
+        IOUtils.close(r, dir);
+        cache.onClose(shard);
+        cache.close();
+    }
+
+    public void testHitsSaveTheBuildTimeOfTheirEntry() throws IOException {
+        Directory dir = newDirectory();
+        IndexWriter w = new IndexWriter(dir, newIndexWriterConfig());
+        w.addDocument(new Document());
+        DirectoryReader r = DirectoryReader.open(w);
+        w.close();
+        ShardId shard = new ShardId("index", "_na_", 0);
+        r = FesenDirectoryReader.wrap(r, shard);
+        IndexSearcher s = new IndexSearcher(r);
+        s.setQueryCachingPolicy(alwaysCachePolicy());
+
+        Settings settings = Settings.builder()
+                .put(IndicesQueryCache.INDICES_CACHE_QUERY_COUNT_SETTING.getKey(), 10)
+                .put(IndicesQueryCache.INDICES_QUERIES_CACHE_ALL_SEGMENTS_SETTING.getKey(), true)
+                .build();
+        IndicesQueryCache cache = new IndicesQueryCache(settings);
+        s.setQueryCache(cache);
+
+        assertEquals(1, s.count(new DummyQuery(0)));
+        final long cheapBuildTimeInNanos = cache.getStats(shard).getQueryTypes().get("DummyQuery").getBuildTimeInNanos();
+        assertEquals(1, s.count(new DummyQuery(1, 20)));
+        final int numHits = randomIntBetween(1, 5);
+        for (int i = 0; i < numHits; ++i) {
+            assertEquals(1, s.count(new DummyQuery(0)));
+        }
+
+        // the hits are credited with the build time of the cheap entry, not with the average of the type
+        QueryCacheStats.QueryTypeStats stats = cache.getStats(shard).getQueryTypes().get("DummyQuery");
+        assertEquals(numHits, stats.getHitCount());
+        assertEquals(2L, stats.getCacheCount());
+        assertEquals(numHits * cheapBuildTimeInNanos, stats.getSavedTimeInNanos());
+
+        IOUtils.close(r, dir);
+        cache.onClose(shard);
+        cache.close();
+    }
+
+    public void testQueryType() {
+        assertEquals("TermQuery[foo]", IndicesQueryCache.queryType(new TermQuery(new Term("foo", "bar"))));
+        assertEquals("DummyQuery", IndicesQueryCache.queryType(new DummyQuery(0)));
+        BooleanQuery.Builder sameField = new BooleanQuery.Builder();
+        sameField.add(new TermQuery(new Term("foo", "bar")), BooleanClause.Occur.SHOULD);
+        sameField.add(new TermQuery(new Term("foo", "baz")), BooleanClause.Occur.SHOULD);
+        assertEquals("BooleanQuery[foo]", IndicesQueryCache.queryType(sameField.build()));
+        BooleanQuery.Builder twoFields = new BooleanQuery.Builder();
+        twoFields.add(new TermQuery(new Term("foo", "bar")), BooleanClause.Occur.SHOULD);
+        twoFields.add(new TermQuery(new Term("baz", "bar")), BooleanClause.Occur.SHOULD);
+        assertEquals("BooleanQuery", IndicesQueryCache.queryType(twoFields.build()));
+    }
+
+    public void testCostAwareAdmission() throws IOException {
+        Directory dir = newDirectory();
+        IndexWriter w = new IndexWriter(dir, newIndexWriterConfig());
+        w.addDocument(new Document());
+        DirectoryReader r = DirectoryReader.open(w);
+        w.close();
+        ShardId shard = new ShardId("index", "_na_", 0);
+        r = FesenDirectoryReader.wrap(r, shard);
+        IndexSearcher s = new IndexSearcher(r);
+        s.setQueryCachingPolicy(alwaysCachePolicy());
+
+        final boolean costAware = randomBoolean();
+        Settings settings = Settings.builder()
+                .put(IndicesQueryCache.INDICES_CACHE_QUERY_COUNT_SETTING.getKey(), 10)
+                .put(IndicesQueryCache.INDICES_QUERIES_CACHE_ALL_SEGMENTS_SETTING.getKey(), true)
+                .put(IndicesQueryCache.INDICES_QUERIES_CACHE_COST_AWARE_SETTING.getKey(), costAware)
+                .build();
+        IndicesQueryCache cache = new IndicesQueryCache(settings);
+        s.setQueryCache(cache);
+
+        // entries that are never looked up again don't pay off
+        final int numQueries = (int) (IndicesQueryCache.MIN_CACHE_COUNT_FOR_ADMISSION + 2 * IndicesQueryCache.ADMISSION_SAMPLING_INTERVAL);
+        for (int i = 0; i < numQueries; ++i) {
+            assertEquals(1, s.count(new DummyQuery(i)));
+        }
+        QueryCacheStats stats = cache.getStats(shard);
+        assertEquals(numQueries, stats.getMissCount());
+        if (costAware) {
+            assertEquals(IndicesQueryCache.MIN_CACHE_COUNT_FOR_ADMISSION + 2, stats.getCacheCount());
+        } else {
+            assertEquals(numQueries, stats.getCacheCount());
+        }
+
+        IOUtils.close(r, dir);
+        cache.onClose(shard);
+        cache.close();
+    }
+
+    public void testMergingSegmentsAreNotCached() throws IOException {
+        Directory dir = newDirectory();
+        IndexWriter w = new IndexWriter(dir, newIndexWriterConfig());
+        for (int i = 0; i < 10000; ++i) {
+            w.addDocument(new Document());
+        }
+        w.forceMerge(1);
+        DirectoryReader r = DirectoryReader.open(w);
+        w.close();
+        ShardId shard = new ShardId("index", "_na_", 0);
+        r = FesenDirectoryReader.wrap(r, shard);
+        IndexSearcher s = new IndexSearcher(r);
+        s.setQueryCachingPolicy(alwaysCachePolicy());
+
+        final boolean merging = randomBoolean();
+        Settings settings = Settings.builder()
+                .put(IndicesQueryCache.INDICES_CACHE_QUERY_COUNT_SETTING.getKey(), 10)
+                .put(IndicesQueryCache.INDICES_QUERIES_CACHE_COST_AWARE_SETTING.getKey(), true)
+                .build();
+        IndicesQueryCache cache = new IndicesQueryCache(settings, reader -> merging);
+        s.setQueryCache(cache);
+
+        assertEquals(10000, s.count(new DummyQuery(0)));
+        assertEquals(merging ? 0L : 1L, cache.getStats(shard).getCacheCount());
+
+        IOUtils.close(r, dir);
+        cache.onClose(shard);
+        cache.close();
+    }
+
+    public void testMergingSegmentsAreCachedByDefault() throws IOException {
+        Directory dir = newDirectory();
+        IndexWriter w = new IndexWriter(dir, newIndexWriterConfig());
+        for (int i = 0; i < 10000; ++i) {
+            w.addDocument(new Document());
+        }
+        w.forceMerge(1);
+        DirectoryReader r = DirectoryReader.open(w);
+        w.close();
+        ShardId shard = new ShardId("index", "_na_", 0);
+        r = FesenDirectoryReader.wrap(r, shard);
+        IndexSearcher s = new IndexSearcher(r);
+        s.setQueryCachingPolicy(alwaysCachePolicy());
+
+        Settings settings = Settings.builder()
+                .put(IndicesQueryCache.INDICES_CACHE_QUERY_COUNT_SETTING.getKey(), 10)
+                .build();
+        // without cost-aware caching the merging segments are not even looked up
+        IndicesQueryCache cache = new IndicesQueryCache(settings, reader -> {
+            throw new AssertionError("merging segments should only be checked by a cost aware cache");
+        });
+        s.setQueryCache(cache);
+
+        assertEquals(10000, s.count(new DummyQuery(0)));
+        assertEquals(1L, cache.getStats(shard).getCacheCount());
+
+        IOUtils.close(r, dir);
+        cache.onClose(shard);
+        cache.close();
+    }
+
+    public void testQueryTypesAreBounded() throws IOException {
+        Directory dir = newDirectory();
+        IndexWriter w = new IndexWriter(dir, newIndexWriterConfig());
+        w.addDocument(new Document());
+        DirectoryReader r = DirectoryReader.open(w);
+        w.close();
+        ShardId shard = new ShardId("index", "_na_", 0);
+        r = FesenDirectoryReader.wrap(r, shard);
+        IndexSearcher s = new IndexSearcher(r);
+        s.setQueryCachingPolicy(alwaysCachePolicy());
+
+        Settings settings = Settings.builder()
+                .put(IndicesQueryCache.INDICES_CACHE_QUERY_COUNT_SETTING.getKey(), 10)
+                .put(IndicesQueryCache.INDICES_QUERIES_CACHE_ALL_SEGMENTS_SETTING.getKey(), true)
+                .build();
+        IndicesQueryCache cache = new IndicesQueryCache(settings);
+        s.setQueryCache(cache);
+
+        // every field makes a new query type
+        final int numFields = QueryCacheStats.MAX_QUERY_TYPES + randomIntBetween(1, 10);
+        for (int i = 0; i < numFields; ++i) {
+            final String field = "field" + i;
+            assertEquals(1, s.count(new DummyQuery(i) {
+                @Override
+                public void visit(QueryVisitor visitor) {
+                    visitor.acceptField(field);
+                }
+            }));
+        }
+
+        final Map<String, QueryCacheStats.QueryTypeStats> queryTypes = cache.getStats(shard).getQueryTypes();
+        assertEquals(QueryCacheStats.MAX_QUERY_TYPES + 1, queryTypes.size());
+        assertEquals(numFields - QueryCacheStats.MAX_QUERY_TYPES, queryTypes.get(QueryCacheStats.OTHER_QUERY_TYPE).getMissCount());
+
+        // the statistics of several shards are bounded too
+        final QueryCacheStats total = new QueryCacheStats();
+        total.add(cache.getStats(shard));
+        total.add(new QueryCacheStats(0, 0, 0, 0, 0, Collections.singletonMap("DummyQuery[unseen]",
+            new QueryCacheStats.QueryTypeStats(0, 1, 0, 0, 0, 0))));
+        assertEquals(QueryCacheStats.MAX_QUERY_TYPES + 1, total.getQueryTypes().size());
+        assertEquals(numFields - QueryCacheStats.MAX_QUERY_TYPES + 1,
+            total.getQueryTypes().get(QueryCacheStats.OTHER_QUERY_TYPE).getMissCount());
+
+        IOUtils.close(r, dir);
+        cache.onClose(shard);
+        cache.close();
+    }
 }
@@ -39,6 +39,7 @@ import org.codelibs.fesen.common.io.stream.BytesStreamOutput;
 import org.codelibs.fesen.common.lucene.index.FesenDirectoryReader;
 import org.codelibs.fesen.common.settings.Settings;
 import org.codelibs.fesen.common.unit.ByteSizeValue;
+import org.codelibs.fesen.common.util.concurrent.EsExecutors;
 import org.codelibs.fesen.common.xcontent.XContentHelper;
 import org.codelibs.fesen.common.xcontent.XContentType;
 import org.codelibs.fesen.core.internal.io.IOUtils;
@@ -50,7 +51,10 @@ import org.codelibs.fesen.indices.IndicesRequestCache;
 import org.codelibs.fesen.test.ESTestCase;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class IndicesRequestCacheTests extends ESTestCase {
@@ -276,6 +280,150 @@ public class IndicesRequestCacheTests extends ESTestCase {
         IOUtils.close(reader, secondReader, thirdReader, writer, dir, cache);
     }
 
+    public void testEvictionSpillsToDiskTier() throws Exception {
+        final ByteSizeValue size;
+        {
+            IndicesRequestCache cache = new IndicesRequestCache(Settings.EMPTY);
+            ShardRequestCache requestCacheStats = new ShardRequestCache();
+            Directory dir = newDirectory();
+            IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig());
+            writer.addDocument(newDoc(0, "foo"));
+            DirectoryReader reader = FesenDirectoryReader.wrap(DirectoryReader.open(writer),
+                new ShardId("foo", "bar", 1));
+            TermQueryBuilder termQuery = new TermQueryBuilder("id", "0");
+            BytesReference termBytes = XContentHelper.toXContent(termQuery, XContentType.JSON, false);
+            TestEntity entity = new TestEntity(requestCacheStats, new AtomicBoolean(true));
+            cache.getOrCompute(entity, new Loader(reader, 0), reader, termBytes);
+            size = requestCacheStats.stats().getMemorySize();
+            IOUtils.close(reader, writer, dir, cache);
+        }
+        // the on-heap cache only has room for a single entry
+        IndicesRequestCache cache = new IndicesRequestCache(Settings.builder()
+            .put(IndicesRequestCache.INDICES_CACHE_QUERY_SIZE.getKey(), size.getBytes() + 1 + "b")
+            .put(IndicesRequestCache.INDICES_CACHE_QUERY_DISK_SIZE.getKey(), "1mb")
+            .build(), new Path[] { createTempDir(), createTempDir() }, EsExecutors.newDirectExecutorService());
+        AtomicBoolean indexShard = new AtomicBoolean(true);
+        ShardRequestCache requestCacheStats = new ShardRequestCache(true);
+        Directory dir = newDirectory();
+        IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig());
+
+        writer.addDocument(newDoc(0, "foo"));
+        DirectoryReader reader = FesenDirectoryReader.wrap(DirectoryReader.open(writer),
+            new ShardId("foo", "bar", 1));
+        TermQueryBuilder termQuery = new TermQueryBuilder("id", "0");
+        BytesReference termBytes = XContentHelper.toXContent(termQuery, XContentType.JSON, false);
+        TestEntity entity = new TestEntity(requestCacheStats, indexShard);
+        Loader loader = new Loader(reader, 0);
+
+        writer.updateDocument(new Term("id", "0"), newDoc(0, "bar"));
+        DirectoryReader secondReader = FesenDirectoryReader.wrap(DirectoryReader.open(writer),
+            new ShardId("foo", "bar", 1));
+        TestEntity secondEntity = new TestEntity(requestCacheStats, indexShard);
+        Loader secondLoader = new Loader(secondReader, 0);
+
+        BytesReference value1 = cache.getOrCompute(entity, loader, reader, termBytes);
+        assertEquals("foo", value1.streamInput().readString());
+        BytesReference value2 = cache.getOrCompute(secondEntity, secondLoader, secondReader, termBytes);
+        assertEquals("bar", value2.streamInput().readString());
+        assertEquals(1, cache.count());
+        assertEquals(1, cache.diskCount());
+        assertTrue(requestCacheStats.stats().isDiskTierEnabled());
+        assertEquals(1, requestCacheStats.stats().getEvictions());
+        assertEquals(value1.length(), requestCacheStats.stats().getDiskSizeInBytes());
+        assertEquals(2, requestCacheStats.stats().getDiskMissCount());
+        assertEquals(0, requestCacheStats.stats().getDiskHitCount());
+
+        // the evicted entry is read from the disk tier and promoted back, which spills the other entry
+        Loader thirdLoader = new Loader(reader, 0);
+        BytesReference value3 = cache.getOrCompute(entity, thirdLoader, reader, termBytes);
+        assertEquals("foo", value3.streamInput().readString());
+        assertTrue(thirdLoader.loadedFromCache);
+        assertEquals(1, requestCacheStats.stats().getDiskHitCount());
+        assertEquals(1, cache.count());
+        assertEquals(1, cache.diskCount());
+        assertEquals(value2.length(), requestCacheStats.stats().getDiskSizeInBytes());
+
+        // closing the reader cleans the spilled entry
+        secondReader.close();
+        cache.cleanCache();
+        assertEquals(1, cache.count());
+        assertEquals(0, cache.diskCount());
+        assertEquals(0, requestCacheStats.stats().getDiskSizeInBytes());
+        assertEquals(0, requestCacheStats.stats().getDiskEvictions());
+        IOUtils.close(reader, writer, dir, cache);
+    }
+
+    public void testSpillsAreWrittenByTheExecutor() throws Exception {
+        final ByteSizeValue size;
+        {
+            IndicesRequestCache cache = new IndicesRequestCache(Settings.EMPTY);
+            ShardRequestCache requestCacheStats = new ShardRequestCache();
+            Directory dir = newDirectory();
+            IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig());
+            writer.addDocument(newDoc(0, "foo"));
+            DirectoryReader reader = FesenDirectoryReader.wrap(DirectoryReader.open(writer),
+                new ShardId("foo", "bar", 1));
+            TermQueryBuilder termQuery = new TermQueryBuilder("id", "0");
+            BytesReference termBytes = XContentHelper.toXContent(termQuery, XContentType.JSON, false);
+            TestEntity entity = new TestEntity(requestCacheStats, new AtomicBoolean(true));
+            cache.getOrCompute(entity, new Loader(reader, 0), reader, termBytes);
+            assertFalse(requestCacheStats.stats().isDiskTierEnabled());
+            size = requestCacheStats.stats().getMemorySize();
+            IOUtils.close(reader, writer, dir, cache);
+        }
+        final List<Runnable> spills = new ArrayList<>();
+        // the on-heap cache only has room for a single entry
+        IndicesRequestCache cache = new IndicesRequestCache(Settings.builder()
+            .put(IndicesRequestCache.INDICES_CACHE_QUERY_SIZE.getKey(), size.getBytes() + 1 + "b")
+            .put(IndicesRequestCache.INDICES_CACHE_QUERY_DISK_SIZE.getKey(), "1mb")
+            .build(), new Path[] { createTempDir() }, spills::add);
+        AtomicBoolean indexShard = new AtomicBoolean(true);
+        ShardRequestCache requestCacheStats = new ShardRequestCache(true);
+        Directory dir = newDirectory();
+        IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig());
+
+        writer.addDocument(newDoc(0, "foo"));
+        DirectoryReader reader = FesenDirectoryReader.wrap(DirectoryReader.open(writer),
+            new ShardId("foo", "bar", 1));
+        TermQueryBuilder termQuery = new TermQueryBuilder("id", "0");
+        BytesReference termBytes = XContentHelper.toXContent(termQuery, XContentType.JSON, false);
+        TestEntity entity = new TestEntity(requestCacheStats, indexShard);
+
+        writer.updateDocument(new Term("id", "0"), newDoc(0, "bar"));
+        DirectoryReader secondReader = FesenDirectoryReader.wrap(DirectoryReader.open(writer),
+            new ShardId("foo", "bar", 1));
+        TestEntity secondEntity = new TestEntity(requestCacheStats, indexShard);
+
+        cache.getOrCompute(entity, new Loader(reader, 0), reader, termBytes);
+        BytesReference value2 = cache.getOrCompute(secondEntity, new Loader(secondReader, 0), secondReader, termBytes);
+        // the evicted entry waits for the executor
+        assertEquals(1, spills.size());
+        assertEquals(0, cache.diskCount());
+        assertEquals(0, requestCacheStats.stats().getDiskSizeInBytes());
+
+        // a pending entry is promoted without being written, which queues the other entry behind the running spill
+        Loader loader = new Loader(reader, 0);
+        assertEquals("foo", cache.getOrCompute(entity, loader, reader, termBytes).streamInput().readString());
+        assertTrue(loader.loadedFromCache);
+        assertEquals(1, requestCacheStats.stats().getDiskHitCount());
+        assertEquals(1, spills.size());
+        spills.remove(0).run();
+        assertEquals(0, spills.size());
+        assertEquals(1, cache.diskCount());
+        assertEquals(value2.length(), requestCacheStats.stats().getDiskSizeInBytes());
+
+        // invalidating a pending entry prevents it from being written
+        loader = new Loader(secondReader, 0);
+        assertEquals("bar", cache.getOrCompute(secondEntity, loader, secondReader, termBytes).streamInput().readString());
+        assertTrue(loader.loadedFromCache);
+        assertEquals(1, spills.size());
+        cache.invalidate(entity, reader, termBytes);
+        spills.remove(0).run();
+        assertEquals(0, cache.diskCount());
+        assertEquals(0, requestCacheStats.stats().getDiskSizeInBytes());
+        IOUtils.close(reader, secondReader, writer, dir, cache);
+    }
+
     public void testClearAllEntityIdentity() throws Exception {
         IndicesRequestCache cache = new IndicesRequestCache(Settings.EMPTY);
         AtomicBoolean indexShard =  new AtomicBoolean(true);
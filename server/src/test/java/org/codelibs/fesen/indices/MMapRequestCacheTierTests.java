@@ -0,0 +1,213 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.codelibs.fesen.indices;
+
+import org.codelibs.fesen.common.bytes.BytesArray;
+import org.codelibs.fesen.common.bytes.BytesReference;
+import org.codelibs.fesen.common.bytes.CompositeBytesReference;
+import org.codelibs.fesen.test.ESTestCase;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class MMapRequestCacheTierTests extends ESTestCase {
+
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private MMapRequestCacheTier<String> newTier(Path path, long size) throws Exception {
+        return new MMapRequestCacheTier<>(path, size, (key, sizeInBytes, evicted) -> {
+            if (evicted) {
+                evictions.incrementAndGet();
+            } else {
+                invalidations.incrementAndGet();
+            }
+        });
+    }
+
+    public void testPutAndGet() throws Exception {
+        try (MMapRequestCacheTier<String> tier = newTier(createTempDir(), 1024 * 1024)) {
+            Map<String, BytesReference> values = new HashMap<>();
+            for (int i = 0; i < 100; i++) {
+                BytesReference value = randomBytesReference(between(0, 1000));
+                values.put("key" + i, value);
+                assertTrue(tier.put("key" + i, value));
+            }
+            assertNull(tier.get("missing"));
+            assertEquals(values.size(), tier.count());
+            long size = 0;
+            for (Map.Entry<String, BytesReference> entry : values.entrySet()) {
+                assertEquals(entry.getValue(), tier.get(entry.getKey()));
+                size += entry.getValue().length();
+            }
+            assertEquals(size, tier.sizeInBytes());
+            assertEquals(0, evictions.get());
+
+            // replacing a value invalidates the previous one
+            BytesReference value = randomBytesReference(between(1, 1000));
+            assertTrue(tier.put("key0", value));
+            assertEquals(value, tier.get("key0"));
+            assertEquals(1, invalidations.get());
+        }
+    }
+
+    public void testRecyclingSegmentEvictsItsEntries() throws Exception {
+        final int size = MMapRequestCacheTier.DEFAULT_SEGMENT_COUNT * 100;
+        try (MMapRequestCacheTier<String> tier = newTier(createTempDir(), size)) {
+            // each segment holds two entries
+            for (int i = 0; i < 2 * MMapRequestCacheTier.DEFAULT_SEGMENT_COUNT; i++) {
+                assertTrue(tier.put("key" + i, randomBytesReference(50)));
+            }
+            assertEquals(2 * MMapRequestCacheTier.DEFAULT_SEGMENT_COUNT, tier.count());
+            assertEquals(0, evictions.get());
+
+            BytesReference value = randomBytesReference(50);
+            assertTrue(tier.put("new", value));
+            assertEquals(2, evictions.get());
+            assertNull(tier.get("key0"));
+            assertNull(tier.get("key1"));
+            assertNotNull(tier.get("key2"));
+            assertEquals(value, tier.get("new"));
+            assertEquals(2 * MMapRequestCacheTier.DEFAULT_SEGMENT_COUNT - 1, tier.count());
+            assertEquals(50 * tier.count(), tier.sizeInBytes());
+
+            // values larger than a segment are rejected
+            assertFalse(tier.put("large", randomBytesReference(101)));
+            assertNull(tier.get("large"));
+        }
+    }
+
+    public void testStripesSegmentsAcrossDirectories() throws Exception {
+        final Path[] directories = new Path[] { createTempDir().resolve("first"), createTempDir().resolve("second") };
+        final int size = MMapRequestCacheTier.DEFAULT_SEGMENT_COUNT * 100;
+        try (MMapRequestCacheTier<String> tier = new MMapRequestCacheTier<>(directories, size, (key, sizeInBytes, evicted) -> {})) {
+            for (int i = 0; i < 2 * MMapRequestCacheTier.DEFAULT_SEGMENT_COUNT; i++) {
+                assertTrue(tier.put("key" + i, randomBytesReference(100)));
+            }
+            for (int i = 0; i < MMapRequestCacheTier.DEFAULT_SEGMENT_COUNT; i++) {
+                assertTrue(Files.exists(directories[i % 2].resolve("segment_" + i)));
+                assertFalse(Files.exists(directories[(i + 1) % 2].resolve("segment_" + i)));
+            }
+        }
+        for (Path directory : directories) {
+            assertFalse(Files.exists(directory));
+        }
+    }
+
+    public void testInvalidate() throws Exception {
+        try (MMapRequestCacheTier<String> tier = newTier(createTempDir(), 1024 * 1024)) {
+            for (int i = 0; i < 10; i++) {
+                tier.put("key" + i, randomBytesReference(10));
+            }
+            tier.invalidate("key0");
+            tier.invalidate("missing");
+            assertNull(tier.get("key0"));
+            assertEquals(1, invalidations.get());
+
+            for (Iterator<String> iterator = tier.keys().iterator(); iterator.hasNext(); ) {
+                if (iterator.next().equals("key5")) {
+                    iterator.remove();
+                }
+            }
+            assertNull(tier.get("key5"));
+            assertEquals(8, tier.count());
+            assertEquals(80, tier.sizeInBytes());
+            assertEquals(2, invalidations.get());
+            assertEquals(0, evictions.get());
+        }
+    }
+
+    public void testClose() throws Exception {
+        Path path = createTempDir().resolve("tier");
+        MMapRequestCacheTier<String> tier = newTier(path, 1024);
+        for (int i = 0; i < 10; i++) {
+            tier.put("key" + i, randomBytesReference(10));
+        }
+        tier.close();
+        assertEquals(10, invalidations.get());
+        assertEquals(0, tier.count());
+        assertFalse(tier.put("key", randomBytesReference(10)));
+        assertFalse(Files.exists(path));
+    }
+
+    public void testConcurrentReadsAndWrites() throws Exception {
+        try (MMapRequestCacheTier<String> tier = newTier(createTempDir(), 16 * 1024)) {
+            final int numThreads = between(2, 6);
+            final CountDownLatch startLatch = new CountDownLatch(1);
+            final List<Thread> threads = new ArrayList<>();
+            final List<AssertionError> failures = new ArrayList<>();
+            for (int t = 0; t < numThreads; t++) {
+                final int thread = t;
+                final Random random = new Random(randomLong());
+                threads.add(new Thread(() -> {
+                    try {
+                        startLatch.await();
+                        for (int i = 0; i < 1000; i++) {
+                            // values are derived from their key so that reads can be checked
+                            String key = "key" + thread + "_" + random.nextInt(50);
+                            if (random.nextBoolean()) {
+                                tier.put(key, valueOf(key));
+                            } else {
+                                BytesReference value = tier.get(key);
+                                if (value != null) {
+                                    assertEquals(valueOf(key), value);
+                                }
+                            }
+                        }
+                    } catch (AssertionError e) {
+                        synchronized (failures) {
+                            failures.add(e);
+                        }
+                    } catch (Exception e) {
+                        throw new AssertionError(e);
+                    }
+                }));
+            }
+            threads.forEach(Thread::start);
+            startLatch.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertEquals(Collections.emptyList(), failures);
+        }
+    }
+
+    private static BytesReference valueOf(String key) {
+        BytesReference prefix = new BytesArray(key);
+        List<BytesReference> parts = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            parts.add(prefix);
+        }
+        return CompositeBytesReference.of(parts.toArray(new BytesReference[0]));
+    }
+
+    private static BytesReference randomBytesReference(int length) {
+        return new BytesArray(randomByteArrayOfLength(length));
+    }
+}
@@ -19,13 +19,22 @@
 
 package org.codelibs.fesen.indices;
 
+import org.codelibs.fesen.action.admin.indices.stats.CommonStats;
+import org.codelibs.fesen.action.admin.indices.stats.CommonStatsFlags;
+import org.codelibs.fesen.common.Strings;
+import org.codelibs.fesen.common.io.stream.BytesStreamOutput;
 import org.codelibs.fesen.common.xcontent.ToXContent;
+import org.codelibs.fesen.common.xcontent.XContentBuilder;
+import org.codelibs.fesen.common.xcontent.XContentFactory;
 import org.codelibs.fesen.indices.NodeIndicesStats;
+import org.codelibs.fesen.search.fetch.subphase.highlight.HighlightAnalysisCacheStats;
 import org.codelibs.fesen.test.ESTestCase;
 
+import java.io.IOException;
 import java.util.Collections;
 
 import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.object.HasToString.hasToString;
 
 public class NodeIndicesStatsTests extends ESTestCase {
@@ -40,4 +49,24 @@ public class NodeIndicesStatsTests extends ESTestCase {
             hasToString(containsString("level parameter must be one of [indices] or [node] or [shards] but was [" + level + "]")));
     }
 
+    public void testHighlightAnalysisCacheStats() throws IOException {
+        final HighlightAnalysisCacheStats cacheStats = new HighlightAnalysisCacheStats(randomNonNegativeLong(), randomNonNegativeLong(),
+            randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong());
+        final NodeIndicesStats stats = new NodeIndicesStats(new CommonStats(CommonStatsFlags.NONE), Collections.emptyMap(), cacheStats);
+        final BytesStreamOutput out = new BytesStreamOutput();
+        stats.writeTo(out);
+        final NodeIndicesStats copy = new NodeIndicesStats(out.bytes().streamInput());
+        assertThat(copy.getHighlightAnalysisCacheStats().getMemorySizeInBytes(), equalTo(cacheStats.getMemorySizeInBytes()));
+        assertThat(copy.getHighlightAnalysisCacheStats().getCount(), equalTo(cacheStats.getCount()));
+        assertThat(copy.getHighlightAnalysisCacheStats().getEvictions(), equalTo(cacheStats.getEvictions()));
+        assertThat(copy.getHighlightAnalysisCacheStats().getHitCount(), equalTo(cacheStats.getHitCount()));
+        assertThat(copy.getHighlightAnalysisCacheStats().getMissCount(), equalTo(cacheStats.getMissCount()));
+
+        final XContentBuilder builder = XContentFactory.jsonBuilder().startObject();
+        copy.toXContent(builder, ToXContent.EMPTY_PARAMS);
+        builder.endObject();
+        assertThat(Strings.toString(builder), containsString("\"highlight_analysis_cache\":{\"memory_size_in_bytes\":"
+            + cacheStats.getMemorySizeInBytes() + ",\"count\":" + cacheStats.getCount()));
+    }
+
 }
@@ -45,10 +45,12 @@ import org.codelibs.fesen.common.settings.Settings;
 import org.codelibs.fesen.common.unit.TimeValue;
 import org.codelibs.fesen.common.xcontent.XContentBuilder;
 import org.codelibs.fesen.index.Index;
+import org.codelibs.fesen.cluster.metadata.IndexMetadata;
 import org.codelibs.fesen.index.IndexModule;
 import org.codelibs.fesen.index.IndexNotFoundException;
 import org.codelibs.fesen.index.IndexService;
 import org.codelibs.fesen.index.IndexSettings;
+import org.codelibs.fesen.index.MergePolicyConfig;
 import org.codelibs.fesen.index.engine.Engine;
 import org.codelibs.fesen.index.query.AbstractQueryBuilder;
 import org.codelibs.fesen.index.query.MatchAllQueryBuilder;
@@ -76,11 +78,16 @@ import org.codelibs.fesen.search.SearchContextMissingException;
 import org.codelibs.fesen.search.SearchPhaseResult;
 import org.codelibs.fesen.search.SearchService;
 import org.codelibs.fesen.search.SearchShardTarget;
+import org.codelibs.fesen.search.aggregations.AggregationBuilder;
 import org.codelibs.fesen.search.aggregations.AggregationBuilders;
 import org.codelibs.fesen.search.aggregations.InternalAggregation;
 import org.codelibs.fesen.search.aggregations.MultiBucketConsumerService;
 import org.codelibs.fesen.search.aggregations.bucket.global.GlobalAggregationBuilder;
+import org.codelibs.fesen.search.aggregations.bucket.histogram.Histogram;
+import org.codelibs.fesen.search.aggregations.bucket.terms.RareTermsAggregationBuilder;
 import org.codelibs.fesen.search.aggregations.bucket.terms.TermsAggregationBuilder;
+import org.codelibs.fesen.search.aggregations.metrics.Cardinality;
+import org.codelibs.fesen.search.aggregations.metrics.Max;
 import org.codelibs.fesen.search.aggregations.support.ValueType;
 import org.codelibs.fesen.search.builder.SearchSourceBuilder;
 import org.codelibs.fesen.search.fetch.FetchSearchResult;
@@ -91,6 +98,7 @@ import org.codelibs.fesen.search.internal.SearchContext;
 import org.codelibs.fesen.search.internal.ShardSearchContextId;
 import org.codelibs.fesen.search.internal.ShardSearchRequest;
 import org.codelibs.fesen.search.query.QuerySearchResult;
+import org.codelibs.fesen.search.sort.SortOrder;
 import org.codelibs.fesen.search.suggest.SuggestBuilder;
 import org.codelibs.fesen.test.ESSingleNodeTestCase;
 import org.codelibs.fesen.threadpool.ThreadPool;
@@ -205,7 +213,10 @@ public class SearchServiceTests extends ESSingleNodeTestCase {
 
     @Override
     protected Settings nodeSettings() {
-        return Settings.builder().put("search.default_search_timeout", "5s").build();
+        return Settings.builder()
+            .put("search.default_search_timeout", "5s")
+            .put(SearchService.CONCURRENT_SEGMENT_SEARCH_SETTING.getKey(), true)
+            .build();
     }
 
     public void testClearOnClose() {
@@ -406,6 +417,82 @@ public class SearchServiceTests extends ESSingleNodeTestCase {
         assertEquals(0, totalStats.getFetchCurrent());
     }
 
+    public void testConcurrentSegmentSearch() {
+        final Settings settings = Settings.builder()
+            .put(IndexMetadata.SETTING_NUMBER_OF_SHARDS, 1)
+            .put(MergePolicyConfig.INDEX_MERGE_POLICY_SEGMENTS_PER_TIER_SETTING.getKey(), 100)
+            .build();
+        createIndex("sequential", settings, "_doc", "keyword", "type=keyword", "value", "type=long");
+        createIndex("concurrent", Settings.builder().put(settings)
+            .put(IndexSettings.INDEX_CONCURRENT_SEGMENT_SEARCH_SETTING.getKey(), true).build(),
+            "_doc", "keyword", "type=keyword", "value", "type=long");
+        final int numSegments = randomIntBetween(12, 20);
+        for (int i = 0; i < numSegments; i++) {
+            final int numDocs = randomIntBetween(1, 20);
+            for (int j = 0; j < numDocs; j++) {
+                final String keyword = randomFrom("a", "b", "c", "d", "e");
+                final long value = i * 100 + j;
+                client().prepareIndex("sequential", "_doc").setSource("keyword", keyword, "value", value).get();
+                client().prepareIndex("concurrent", "_doc").setSource("keyword", keyword, "value", value).get();
+            }
+            client().admin().indices().prepareRefresh("sequential", "concurrent").get();
+        }
+
+        final SearchSourceBuilder source = new SearchSourceBuilder()
+            .size(randomIntBetween(0, 20))
+            .sort("value", randomFrom(SortOrder.values()))
+            .aggregation(AggregationBuilders.histogram("histogram").field("value").interval(50)
+                .subAggregation(AggregationBuilders.max("max").field("value")))
+            .aggregation(AggregationBuilders.cardinality("cardinality").field("value"));
+        final SearchResponse sequential = client().prepareSearch("sequential").setSource(source).get();
+        final SearchResponse concurrent = client().prepareSearch("concurrent").setSource(source).get();
+
+        assertThat(concurrent.getHits().getTotalHits(), equalTo(sequential.getHits().getTotalHits()));
+        assertThat(concurrent.getHits().getHits().length, equalTo(sequential.getHits().getHits().length));
+        for (int i = 0; i < sequential.getHits().getHits().length; i++) {
+            assertThat(concurrent.getHits().getAt(i).getSortValues(), equalTo(sequential.getHits().getAt(i).getSortValues()));
+        }
+        final Histogram sequentialHistogram = sequential.getAggregations().get("histogram");
+        final Histogram concurrentHistogram = concurrent.getAggregations().get("histogram");
+        assertThat(concurrentHistogram.getBuckets().size(), equalTo(sequentialHistogram.getBuckets().size()));
+        for (int i = 0; i < sequentialHistogram.getBuckets().size(); i++) {
+            final Histogram.Bucket bucket = sequentialHistogram.getBuckets().get(i);
+            final Histogram.Bucket other = concurrentHistogram.getBuckets().get(i);
+            assertThat(other.getKey(), equalTo(bucket.getKey()));
+            assertThat(other.getDocCount(), equalTo(bucket.getDocCount()));
+            assertThat(((Max) other.getAggregations().get("max")).getValue(),
+                equalTo(((Max) bucket.getAggregations().get("max")).getValue()));
+        }
+        assertThat(((Cardinality) concurrent.getAggregations().get("cardinality")).getValue(),
+            equalTo(((Cardinality) sequential.getAggregations().get("cardinality")).getValue()));
+    }
+
+    public void testConcurrentSegmentSearchWithShardSizedAggregations() throws IOException {
+        createIndex("index", Settings.builder().put(IndexSettings.INDEX_CONCURRENT_SEGMENT_SEARCH_SETTING.getKey(), true).build(),
+            "_doc", "keyword", "type=keyword", "value", "type=long");
+        final SearchService service = getInstanceFromNode(SearchService.class);
+        final IndexService indexService = getInstanceFromNode(IndicesService.class).indexServiceSafe(resolveIndex("index"));
+        final IndexShard indexShard = indexService.getShard(0);
+        final AggregationBuilder[] aggregations = new AggregationBuilder[] {
+            AggregationBuilders.histogram("histogram").field("value").interval(10),
+            AggregationBuilders.terms("terms").field("keyword"),
+            new RareTermsAggregationBuilder("rare_terms").field("keyword"),
+            AggregationBuilders.histogram("histogram").field("value").interval(10)
+                .subAggregation(AggregationBuilders.terms("terms").field("keyword"))
+        };
+        for (AggregationBuilder aggregation : aggregations) {
+            final SearchRequest searchRequest = new SearchRequest().allowPartialSearchResults(true)
+                .source(new SearchSourceBuilder().aggregation(aggregation));
+            final ShardSearchRequest request = new ShardSearchRequest(OriginalIndices.NONE, searchRequest, indexShard.shardId(), 1,
+                new AliasFilter(null, Strings.EMPTY_ARRAY), 1.0f, -1, null, null);
+            try (ReaderContext reader = createReaderContext(indexService, indexShard);
+                 SearchContext context = service.createContext(reader, request, null, randomBoolean())) {
+                // shard_size and shard level doc count thresholds cannot be applied to the partial counts of a slice
+                assertThat(context.aggregations().supportsConcurrentSegmentSearch(), equalTo(aggregation == aggregations[0]));
+            }
+        }
+    }
+
     public void testTimeout() throws IOException {
         createIndex("index");
         final SearchService service = getInstanceFromNode(SearchService.class);
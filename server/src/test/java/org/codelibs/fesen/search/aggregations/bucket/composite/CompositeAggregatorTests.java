@@ -33,6 +33,7 @@ import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.RandomIndexWriter;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.DocValuesFieldExistsQuery;
@@ -64,6 +65,13 @@ import org.codelibs.fesen.index.mapper.KeywordFieldMapper;
 import org.codelibs.fesen.index.mapper.MappedFieldType;
 import org.codelibs.fesen.index.mapper.MapperService;
 import org.codelibs.fesen.index.mapper.NumberFieldMapper;
+import org.codelibs.fesen.script.AggregationScript;
+import org.codelibs.fesen.script.Script;
+import org.codelibs.fesen.script.ScriptContext;
+import org.codelibs.fesen.script.ScriptEngine;
+import org.codelibs.fesen.script.ScriptModule;
+import org.codelibs.fesen.script.ScriptService;
+import org.codelibs.fesen.script.ScriptType;
 import org.codelibs.fesen.search.aggregations.Aggregator;
 import org.codelibs.fesen.search.aggregations.AggregatorTestCase;
 import org.codelibs.fesen.search.aggregations.bucket.composite.CompositeAggregationBuilder;
@@ -114,6 +122,8 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 public class CompositeAggregatorTests  extends AggregatorTestCase {
+    private static final String MIRROR_LETTER_SCRIPT = "mirror_letter";
+
     private static MappedFieldType[] FIELD_TYPES;
 
     @Override
@@ -138,6 +148,47 @@ public class CompositeAggregatorTests  extends AggregatorTestCase {
         FIELD_TYPES = null;
     }
 
+    @Override
+    protected ScriptService getMockScriptService() {
+        // a value script that maps each letter to its mirror in the alphabet, the mock script engine cannot be used since its
+        // aggregation scripts always need the score, which composite sources reject
+        ScriptEngine scriptEngine = new ScriptEngine() {
+            @Override
+            public String getType() {
+                return MIRROR_LETTER_SCRIPT;
+            }
+
+            @Override
+            public <T> T compile(String name, String code, ScriptContext<T> context, Map<String, String> params) {
+                AggregationScript.Factory factory = (scriptParams, lookup) -> new AggregationScript.LeafFactory() {
+                    @Override
+                    public AggregationScript newInstance(LeafReaderContext ctx) {
+                        return new AggregationScript(scriptParams, lookup, ctx) {
+                            @Override
+                            public Object execute() {
+                                String value = (String) get_value();
+                                return Character.toString((char) ('a' + 'z' - value.charAt(0)));
+                            }
+                        };
+                    }
+
+                    @Override
+                    public boolean needs_score() {
+                        return false;
+                    }
+                };
+                return context.factoryClazz.cast(factory);
+            }
+
+            @Override
+            public Set<ScriptContext<?>> getSupportedContexts() {
+                return Collections.singleton(AggregationScript.CONTEXT);
+            }
+        };
+        Map<String, ScriptEngine> engines = Collections.singletonMap(scriptEngine.getType(), scriptEngine);
+        return new ScriptService(Settings.EMPTY, engines, ScriptModule.CORE_CONTEXTS);
+    }
+
     @Override
     protected MapperService mapperServiceMock() {
         MapperService mapperService = mock(MapperService.class);
@@ -2182,6 +2233,35 @@ public class CompositeAggregatorTests  extends AggregatorTestCase {
         );
     }
 
+    public void testWithKeywordValueScriptAndAfter() throws Exception {
+        final List<Map<String, List<Object>>> dataset = new ArrayList<>();
+        dataset.addAll(
+            Arrays.asList(
+                createDocument("keyword", "a"),
+                createDocument("keyword", "b"),
+                createDocument("keyword", "c"),
+                createDocument("keyword", "c")
+            )
+        );
+        // all the indexed terms sort before the after key but the script maps them after it
+        testSearchCase(Arrays.asList(new MatchAllDocsQuery(), new DocValuesFieldExistsQuery("keyword")), dataset,
+            () -> new CompositeAggregationBuilder("name",
+                Collections.singletonList(new TermsValuesSourceBuilder("keyword").field("keyword")
+                    .script(new Script(ScriptType.INLINE, MIRROR_LETTER_SCRIPT, MIRROR_LETTER_SCRIPT, Collections.emptyMap()))))
+                .aggregateAfter(Collections.singletonMap("keyword", "m")),
+            (result) -> {
+                assertEquals(3, result.getBuckets().size());
+                assertEquals("{keyword=z}", result.afterKey().toString());
+                assertEquals("{keyword=x}", result.getBuckets().get(0).getKeyAsString());
+                assertEquals(2L, result.getBuckets().get(0).getDocCount());
+                assertEquals("{keyword=y}", result.getBuckets().get(1).getKeyAsString());
+                assertEquals(1L, result.getBuckets().get(1).getDocCount());
+                assertEquals("{keyword=z}", result.getBuckets().get(2).getKeyAsString());
+                assertEquals(1L, result.getBuckets().get(2).getDocCount());
+            }
+        );
+    }
+
     public void testIndexSortWithDuplicate() throws Exception {
         final List<Map<String, List<Object>>> dataset = new ArrayList<>();
         dataset.addAll(
@@ -19,8 +19,14 @@
 
 package org.codelibs.fesen.search.aggregations.bucket.composite;
 
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
 import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.RandomIndexWriter;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.BoostQuery;
 import org.apache.lucene.search.ConstantScoreQuery;
@@ -28,6 +34,8 @@ import org.apache.lucene.search.DocValuesFieldExistsQuery;
 import org.apache.lucene.search.IndexOrDocValuesQuery;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
 import org.codelibs.fesen.common.util.BigArrays;
 import org.codelibs.fesen.index.mapper.IpFieldMapper;
 import org.codelibs.fesen.index.mapper.KeywordFieldMapper;
@@ -41,6 +49,8 @@ import org.codelibs.fesen.search.aggregations.bucket.composite.LongValuesSource;
 import org.codelibs.fesen.search.aggregations.bucket.composite.SingleDimensionValuesSource;
 import org.codelibs.fesen.test.ESTestCase;
 
+import java.io.IOException;
+
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -249,6 +259,77 @@ public class SingleDimensionValuesSourceTests extends ESTestCase {
         }
     }
 
+    public void testCanSkipLeaf() throws IOException {
+        try (Directory directory = newDirectory()) {
+            try (RandomIndexWriter writer = new RandomIndexWriter(random(), directory)) {
+                for (long value = 10; value <= 20; value++) {
+                    Document document = new Document();
+                    document.add(new LongPoint("number", value));
+                    document.add(new StringField("keyword", Character.toString((char) ('a' + value)), Field.Store.NO));
+                    writer.addDocument(document);
+                }
+                writer.forceMerge(1);
+            }
+            try (IndexReader reader = DirectoryReader.open(directory)) {
+                LeafReaderContext leaf = reader.leaves().get(0);
+                MappedFieldType number = new NumberFieldMapper.NumberFieldType("number", NumberFieldMapper.NumberType.LONG);
+                LongValuesSource source = new LongValuesSource(BigArrays.NON_RECYCLING_INSTANCE, number, context -> null,
+                    value -> value, DocValueFormat.RAW, false, 1, 1);
+                assertFalse(source.canSkipLeaf(leaf, null, null));
+                assertFalse(source.canSkipLeaf(leaf, 20L, null));
+                assertTrue(source.canSkipLeaf(leaf, 21L, null));
+                assertFalse(source.canSkipLeaf(leaf, null, 10L));
+                assertTrue(source.canSkipLeaf(leaf, null, 9L));
+                assertFalse(source.canSkipLeaf(leaf, 5L, 15L));
+
+                LongValuesSource sourceRev = new LongValuesSource(BigArrays.NON_RECYCLING_INSTANCE, number, context -> null,
+                    value -> value, DocValueFormat.RAW, false, 1, -1);
+                assertFalse(sourceRev.canSkipLeaf(leaf, 10L, null));
+                assertTrue(sourceRev.canSkipLeaf(leaf, 9L, null));
+                assertFalse(sourceRev.canSkipLeaf(leaf, null, 20L));
+                assertTrue(sourceRev.canSkipLeaf(leaf, null, 21L));
+
+                LongValuesSource rounded = new LongValuesSource(BigArrays.NON_RECYCLING_INSTANCE, number, context -> null,
+                    value -> value - value % 10, DocValueFormat.RAW, false, 1, 1);
+                assertFalse(rounded.canSkipLeaf(leaf, 20L, null));
+                assertTrue(rounded.canSkipLeaf(leaf, 21L, null));
+
+                LongValuesSource sourceWithMissing = new LongValuesSource(BigArrays.NON_RECYCLING_INSTANCE, number, context -> null,
+                    value -> value, DocValueFormat.RAW, true, 1, 1);
+                assertFalse(sourceWithMissing.canSkipLeaf(leaf, 21L, null));
+
+                // the indexed values do not bound the values of a script
+                LongValuesSource scripted = new LongValuesSource(BigArrays.NON_RECYCLING_INSTANCE, number, context -> null,
+                    value -> value, DocValueFormat.RAW, false, true, 1, 1);
+                assertFalse(scripted.canSkipLeaf(leaf, 21L, null));
+                assertFalse(scripted.canSkipLeaf(leaf, null, 9L));
+
+                MappedFieldType keyword = new KeywordFieldMapper.KeywordFieldType("keyword");
+                BinaryValuesSource binary = new BinaryValuesSource(BigArrays.NON_RECYCLING_INSTANCE, (b) -> {}, keyword,
+                    context -> null, DocValueFormat.RAW, false, 1, 1);
+                assertFalse(binary.canSkipLeaf(leaf, new BytesRef("k"), new BytesRef("u")));
+                assertTrue(binary.canSkipLeaf(leaf, new BytesRef("v"), null));
+                assertTrue(binary.canSkipLeaf(leaf, null, new BytesRef("j")));
+                BinaryValuesSource scriptedBinary = new BinaryValuesSource(BigArrays.NON_RECYCLING_INSTANCE, (b) -> {}, keyword,
+                    context -> null, DocValueFormat.RAW, false, true, 1, 1);
+                assertFalse(scriptedBinary.canSkipLeaf(leaf, new BytesRef("v"), null));
+                GlobalOrdinalValuesSource globalOrdinals = new GlobalOrdinalValuesSource(BigArrays.NON_RECYCLING_INSTANCE, keyword,
+                    context -> null, DocValueFormat.RAW, false, 1, -1);
+                assertFalse(globalOrdinals.canSkipLeaf(leaf, new BytesRef("u"), new BytesRef("k")));
+                assertTrue(globalOrdinals.canSkipLeaf(leaf, new BytesRef("j"), null));
+                assertTrue(globalOrdinals.canSkipLeaf(leaf, null, new BytesRef("v")));
+                GlobalOrdinalValuesSource scriptedGlobalOrdinals = new GlobalOrdinalValuesSource(BigArrays.NON_RECYCLING_INSTANCE,
+                    keyword, context -> null, DocValueFormat.RAW, false, true, 1, -1);
+                assertFalse(scriptedGlobalOrdinals.canSkipLeaf(leaf, new BytesRef("j"), null));
+
+                MappedFieldType notIndexed = new NumberFieldMapper.NumberFieldType("other", NumberFieldMapper.NumberType.LONG);
+                LongValuesSource docValuesOnly = new LongValuesSource(BigArrays.NON_RECYCLING_INSTANCE, notIndexed, context -> null,
+                    value -> value, DocValueFormat.RAW, false, 1, 1);
+                assertFalse(docValuesOnly.canSkipLeaf(leaf, 21L, null));
+            }
+        }
+    }
+
     private static IndexReader mockIndexReader(int maxDoc, int numDocs) {
         IndexReader reader = mock(IndexReader.class);
         when(reader.hasDeletions()).thenReturn(maxDoc - numDocs > 0);
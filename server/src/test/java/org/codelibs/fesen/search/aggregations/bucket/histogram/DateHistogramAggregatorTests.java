@@ -20,11 +20,15 @@
 package org.codelibs.fesen.search.aggregations.bucket.histogram;
 
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
 import org.apache.lucene.document.LongPoint;
 import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.ConstantScoreQuery;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.MatchNoDocsQuery;
@@ -44,10 +48,15 @@ import org.codelibs.fesen.search.aggregations.bucket.terms.TermsAggregationBuild
 import org.codelibs.fesen.search.aggregations.support.AggregationInspectionHelper;
 
 import java.io.IOException;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 import static java.util.stream.Collectors.toList;
@@ -1159,6 +1168,57 @@ public class DateHistogramAggregatorTests extends DateHistogramAggregatorTestCas
         assertWarnings("[interval] on [date_histogram] is deprecated, use [fixed_interval] or [calendar_interval] in the future.");
     }
 
+    public void testCountFromPoints() throws IOException {
+        DateFieldMapper.DateFieldType fieldType = aggregableDateFieldType(false, true);
+        try (Directory directory = newDirectory()) {
+            int numDocs = randomIntBetween(1, 500);
+            long start = asLong("2020-01-01T00:00:00");
+            try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
+                for (int i = 0; i < numDocs; i++) {
+                    long instant = start + randomLongBetween(0, TimeUnit.DAYS.toMillis(400));
+                    Document document = new Document();
+                    document.add(new StringField("id", Integer.toString(i), Field.Store.NO));
+                    document.add(new SortedNumericDocValuesField(AGGREGABLE_DATE, instant));
+                    document.add(new LongPoint(AGGREGABLE_DATE, instant));
+                    document.add(new LongPoint(SEARCHABLE_DATE, instant));
+                    indexWriter.addDocument(document);
+                }
+                if (randomBoolean()) {
+                    indexWriter.deleteDocuments(new Term("id", Integer.toString(randomIntBetween(0, numDocs - 1))));
+                }
+            }
+
+            try (IndexReader indexReader = DirectoryReader.open(directory)) {
+                IndexSearcher indexSearcher = newSearcher(indexReader, true, true);
+                DateHistogramAggregationBuilder aggregationBuilder = new DateHistogramAggregationBuilder("_name")
+                    .field(AGGREGABLE_DATE)
+                    .calendarInterval(randomFrom(DateHistogramInterval.HOUR, DateHistogramInterval.DAY, DateHistogramInterval.MONTH))
+                    .timeZone(randomFrom(ZoneOffset.UTC, ZoneId.of("Europe/Paris"), ZoneId.of("America/New_York")));
+                if (randomBoolean()) {
+                    aggregationBuilder.hardBounds(new LongBounds(start + TimeUnit.DAYS.toMillis(100), start + TimeUnit.DAYS.toMillis(300)));
+                }
+
+                // any other query than a match_all query disables counting from the points
+                Query collectAll = new ConstantScoreQuery(new MatchAllDocsQuery());
+                InternalDateHistogram collected = searchAndReduce(indexSearcher, collectAll, aggregationBuilder, fieldType);
+                InternalDateHistogram counted = searchAndReduce(indexSearcher, new MatchAllDocsQuery(), aggregationBuilder, fieldType);
+                assertEquals(collected.getBuckets(), counted.getBuckets());
+
+                DateHistogramAggregator aggregator = createAggregator(aggregationBuilder.calendarInterval(DateHistogramInterval.DAY),
+                    indexSearcher, fieldType);
+                aggregator.preCollection();
+                indexSearcher.search(new MatchAllDocsQuery(), aggregator);
+                aggregator.postCollection();
+                Map<String, Object> debug = new HashMap<>();
+                aggregator.collectDebugInfo(debug::put);
+                int segmentsWithoutDeletes = (int) indexSearcher.getIndexReader().leaves().stream()
+                    .filter(ctx -> ctx.reader().hasDeletions() == false)
+                    .count();
+                assertThat(debug.get("segments_counted_from_index"), equalTo(segmentsWithoutDeletes));
+            }
+        }
+    }
+
     private void testSearchCase(Query query, List<String> dataset,
                                 Consumer<DateHistogramAggregationBuilder> configure,
                                 Consumer<InternalDateHistogram> verify, boolean useNanosecondResolution) throws IOException {
@@ -19,12 +19,18 @@
 
 package org.codelibs.fesen.search.aggregations.bucket.range;
 
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
 import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.document.SortedNumericDocValuesField;
 import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.ConstantScoreQuery;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
@@ -45,7 +51,9 @@ import java.io.IOException;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Consumer;
 
 import static java.util.Collections.singleton;
@@ -297,6 +305,57 @@ public class RangeAggregatorTests extends AggregatorTestCase {
         });
     }
 
+    public void testCountFromPoints() throws IOException {
+        MappedFieldType fieldType = new NumberFieldMapper.NumberFieldType(NUMBER_FIELD_NAME, NumberFieldMapper.NumberType.LONG);
+        RangeAggregationBuilder aggregationBuilder = new RangeAggregationBuilder("test_range_agg").field(NUMBER_FIELD_NAME);
+        aggregationBuilder.addUnboundedTo(randomDoubleBetween(-1000, 1000, true));
+        aggregationBuilder.addUnboundedFrom(randomDoubleBetween(-1000, 1000, true));
+        int numRanges = randomIntBetween(1, 10);
+        for (int i = 0; i < numRanges; i++) {
+            double from = randomBoolean() ? randomIntBetween(-1000, 1000) : randomDoubleBetween(-1000, 1000, true);
+            aggregationBuilder.addRange(from, from + randomDoubleBetween(0, 500, true));
+        }
+
+        try (Directory directory = newDirectory()) {
+            int numDocs = randomIntBetween(1, 500);
+            // values that can't be represented exactly as doubles disable counting from the points
+            boolean exactValues = randomBoolean();
+            try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
+                for (int i = 0; i < numDocs; i++) {
+                    long value = exactValues ? randomLongBetween(-1000, 1000) : Long.MAX_VALUE - i;
+                    Document document = new Document();
+                    document.add(new StringField("id", Integer.toString(i), Field.Store.NO));
+                    document.add(new SortedNumericDocValuesField(NUMBER_FIELD_NAME, value));
+                    document.add(new LongPoint(NUMBER_FIELD_NAME, value));
+                    indexWriter.addDocument(document);
+                }
+                if (randomBoolean()) {
+                    indexWriter.deleteDocuments(new Term("id", Integer.toString(randomIntBetween(0, numDocs - 1))));
+                }
+            }
+
+            try (IndexReader indexReader = DirectoryReader.open(directory)) {
+                IndexSearcher indexSearcher = newSearcher(indexReader, true, true);
+                // any other query than a match_all query disables counting from the points
+                Query collectAll = new ConstantScoreQuery(new MatchAllDocsQuery());
+                InternalRange<?, ?> collected = searchAndReduce(indexSearcher, collectAll, aggregationBuilder, fieldType);
+                InternalRange<?, ?> counted = searchAndReduce(indexSearcher, new MatchAllDocsQuery(), aggregationBuilder, fieldType);
+                assertEquals(collected, counted);
+
+                RangeAggregator aggregator = createAggregator(aggregationBuilder, indexSearcher, fieldType);
+                aggregator.preCollection();
+                indexSearcher.search(new MatchAllDocsQuery(), aggregator);
+                aggregator.postCollection();
+                Map<String, Object> debug = new HashMap<>();
+                aggregator.collectDebugInfo(debug::put);
+                int segmentsWithoutDeletes = (int) indexSearcher.getIndexReader().leaves().stream()
+                    .filter(ctx -> ctx.reader().hasDeletions() == false)
+                    .count();
+                assertThat(debug.get("segments_counted_from_index"), equalTo(exactValues ? segmentsWithoutDeletes : 0));
+            }
+        }
+    }
+
     private void testCase(Query query,
                           CheckedConsumer<RandomIndexWriter, IOException> buildIndex,
                           Consumer<InternalRange<? extends InternalRange.Bucket, ? extends InternalRange>> verify) throws IOException {
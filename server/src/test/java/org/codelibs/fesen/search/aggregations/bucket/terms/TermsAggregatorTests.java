@@ -31,10 +31,14 @@ import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.ConstantScoreQuery;
 import org.apache.lucene.search.DocValuesFieldExistsQuery;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
 import org.apache.lucene.search.TotalHits;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.BytesRef;
@@ -249,6 +253,67 @@ public class TermsAggregatorTests extends AggregatorTestCase {
         directory.close();
     }
 
+    public void testCountFromPostings() throws Exception {
+        MappedFieldType fieldType = new KeywordFieldMapper.KeywordFieldType("string");
+        try (Directory directory = newDirectory()) {
+            int numDocs = randomIntBetween(1, 500);
+            try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
+                for (int i = 0; i < numDocs; i++) {
+                    Document document = new Document();
+                    document.add(new StringField("id", Integer.toString(i), Field.Store.NO));
+                    int numValues = randomIntBetween(0, 3);
+                    for (int j = 0; j < numValues; j++) {
+                        String value = "t" + randomIntBetween(0, 20);
+                        document.add(new StringField("string", value, Field.Store.NO));
+                        document.add(new SortedSetDocValuesField("string", new BytesRef(value)));
+                    }
+                    indexWriter.addDocument(document);
+                }
+                if (randomBoolean()) {
+                    indexWriter.deleteDocuments(new Term("id", Integer.toString(randomIntBetween(0, numDocs - 1))));
+                }
+            }
+
+            try (IndexReader indexReader = DirectoryReader.open(directory)) {
+                IndexSearcher indexSearcher = newIndexSearcher(indexReader);
+                TermsAggregationBuilder aggregationBuilder = new TermsAggregationBuilder("_name")
+                    .field("string")
+                    .size(100)
+                    .order(BucketOrder.key(true));
+                if (randomBoolean()) {
+                    aggregationBuilder.includeExclude(new IncludeExclude("t1.*", null));
+                }
+                TermsAggregatorFactory.COLLECT_SEGMENT_ORDS = randomBoolean();
+                TermsAggregatorFactory.REMAP_GLOBAL_ORDS = randomBoolean();
+                try {
+                    // any other query than a match_all query disables counting from the postings
+                    Query collectAll = new ConstantScoreQuery(new MatchAllDocsQuery());
+                    StringTerms collected = searchAndReduce(indexSearcher, collectAll, aggregationBuilder, fieldType);
+                    StringTerms counted = searchAndReduce(indexSearcher, new MatchAllDocsQuery(), aggregationBuilder, fieldType);
+                    assertEquals(collected, counted);
+
+                    GlobalOrdinalsStringTermsAggregator aggregator = createAggregator(aggregationBuilder, indexSearcher, fieldType);
+                    aggregator.preCollection();
+                    indexSearcher.search(new MatchAllDocsQuery(), aggregator);
+                    aggregator.postCollection();
+                    Map<String, Object> debug = new HashMap<>();
+                    aggregator.collectDebugInfo(debug::put);
+                    // documents may have no value, so a segment may have no terms for the field at all
+                    int segmentsWithTermsAndWithoutDeletes = 0;
+                    for (LeafReaderContext ctx : indexReader.leaves()) {
+                        if (ctx.reader().hasDeletions() == false && ctx.reader().terms("string") != null) {
+                            segmentsWithTermsAndWithoutDeletes++;
+                        }
+                    }
+                    assertThat(debug.get("segments_counted_from_index"), equalTo(segmentsWithTermsAndWithoutDeletes));
+                } finally {
+                    TermsAggregatorFactory.COLLECT_SEGMENT_ORDS = null;
+                    TermsAggregatorFactory.REMAP_GLOBAL_ORDS = null;
+                }
+            }
+        }
+    }
+
     public void testSimple() throws Exception {
         try (Directory directory = newDirectory()) {
             try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
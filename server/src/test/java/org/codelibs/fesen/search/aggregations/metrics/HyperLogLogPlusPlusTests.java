@@ -22,9 +22,12 @@ package org.codelibs.fesen.search.aggregations.metrics;
 import com.carrotsearch.hppc.BitMixer;
 import com.carrotsearch.hppc.IntHashSet;
 
+import org.codelibs.fesen.Version;
 import org.codelibs.fesen.common.breaker.CircuitBreaker;
 import org.codelibs.fesen.common.breaker.CircuitBreakingException;
 import org.codelibs.fesen.common.breaker.NoopCircuitBreaker;
+import org.codelibs.fesen.common.io.stream.BytesStreamOutput;
+import org.codelibs.fesen.common.io.stream.StreamInput;
 import org.codelibs.fesen.common.util.BigArrays;
 import org.codelibs.fesen.indices.breaker.CircuitBreakerService;
 import org.codelibs.fesen.search.aggregations.metrics.AbstractHyperLogLog;
@@ -32,6 +35,7 @@ import org.codelibs.fesen.search.aggregations.metrics.AbstractLinearCounting;
 import org.codelibs.fesen.search.aggregations.metrics.HyperLogLogPlusPlus;
 import org.codelibs.fesen.test.ESTestCase;
 
+import java.io.IOException;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static org.codelibs.fesen.search.aggregations.metrics.AbstractHyperLogLog.MAX_PRECISION;
@@ -187,4 +191,57 @@ public class HyperLogLogPlusPlusTests extends ESTestCase {
         }
     }
 
+    public void testMergeRegisters() {
+        final int p = randomIntBetween(MIN_PRECISION, MAX_PRECISION);
+        final HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(p, BigArrays.NON_RECYCLING_INSTANCE, 1);
+        final HyperLogLogPlusPlus expected = new HyperLogLogPlusPlus(p, BigArrays.NON_RECYCLING_INSTANCE, 1);
+        final long bucket = randomInt(5);
+        expected.upgradeToHll(0);
+        final int numShards = randomIntBetween(2, 10);
+        for (int i = 0; i < numShards; ++i) {
+            final HyperLogLogPlusPlus shard = new HyperLogLogPlusPlus(p, BigArrays.NON_RECYCLING_INSTANCE, 1);
+            final int numValues = randomIntBetween(1, 20000);
+            for (int j = 0; j < numValues; ++j) {
+                shard.collect(bucket, BitMixer.mix64(randomInt()));
+            }
+            if (shard.getAlgorithm(bucket) == AbstractHyperLogLogPlusPlus.LINEAR_COUNTING) {
+                shard.upgradeToHll(bucket);
+            }
+            counts.merge(0, shard, bucket);
+            // merges one register at a time
+            final AbstractHyperLogLog.RunLenIterator runLens = shard.getHyperLogLog(bucket);
+            for (int register = 0; runLens.next(); ++register) {
+                expected.addRunLen(0, register, runLens.value());
+            }
+        }
+        assertTrue(counts.equals(0, expected, 0));
+        assertEquals(expected.cardinality(0), counts.cardinality(0));
+    }
+
+    public void testSerialization() throws IOException {
+        final int p = randomIntBetween(MIN_PRECISION, MAX_PRECISION);
+        final HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(p, BigArrays.NON_RECYCLING_INSTANCE, 1);
+        // from a few hashes, which are mostly empty registers, to many hashes, which fill all registers
+        final int numValues = randomFrom(randomIntBetween(0, 10), randomIntBetween(100, 1000), randomIntBetween(10000, 1000000));
+        for (int i = 0; i < numValues; ++i) {
+            counts.collect(0, BitMixer.mix64(randomInt()));
+        }
+        if (counts.getAlgorithm(0) == AbstractHyperLogLogPlusPlus.LINEAR_COUNTING && randomBoolean()) {
+            counts.upgradeToHll(0);
+        }
+        final Version version = randomFrom(Version.CURRENT, Version.V_0_13_0, Version.V_0_12_0);
+        final BytesStreamOutput out = new BytesStreamOutput();
+        out.setVersion(version);
+        counts.writeTo(0, out);
+        final StreamInput in = out.bytes().streamInput();
+        in.setVersion(version);
+        final AbstractHyperLogLogPlusPlus read = AbstractHyperLogLogPlusPlus.readFrom(in, BigArrays.NON_RECYCLING_INSTANCE);
+        assertEquals(-1, in.read());
+        assertTrue(counts.equals(0, read, 0));
+        assertEquals(counts.cardinality(0), read.cardinality(0));
+        if (counts.getAlgorithm(0) == AbstractHyperLogLogPlusPlus.HYPERLOGLOG && version.onOrAfter(Version.V_0_13_1)) {
+            // the registers either compress to runs or get packed to 6 bits each
+            assertTrue(out.size() <= 3 + (1 << p) / 4 * 3);
+        }
+    }
 }
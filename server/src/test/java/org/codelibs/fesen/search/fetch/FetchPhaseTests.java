@@ -30,14 +30,35 @@ public class FetchPhaseTests extends ESTestCase {
             docs[i] = new FetchPhase.DocIdToIndex(start, i);
             ++ start;
         }
-        assertTrue(FetchPhase.hasSequentialDocs(docs));
+        assertEquals(10, FetchPhase.countNearbyDocs(docs, 0, docs.length));
 
         int from = randomIntBetween(0, 9);
         start = docs[from].docId;
         for (int i = from; i < 10; i++) {
-            start += randomIntBetween(2, 10);
+            start += randomIntBetween(FetchPhase.NEARBY_DOCS_MAX_GAP + 1, FetchPhase.NEARBY_DOCS_MAX_GAP * 2);
             docs[i] = new FetchPhase.DocIdToIndex(start, i);
         }
-        assertFalse(FetchPhase.hasSequentialDocs(docs));
+        // only the docs before the gaps are nearby
+        assertEquals(from > 1 ? from : 0, FetchPhase.countNearbyDocs(docs, 0, docs.length));
+    }
+
+    public void testNearbyDocs() {
+        FetchPhase.DocIdToIndex[] docs = new FetchPhase.DocIdToIndex[] {
+            new FetchPhase.DocIdToIndex(0, 3),
+            new FetchPhase.DocIdToIndex(FetchPhase.NEARBY_DOCS_MAX_GAP, 1),
+            new FetchPhase.DocIdToIndex(FetchPhase.NEARBY_DOCS_MAX_GAP * 3, 0),
+            new FetchPhase.DocIdToIndex(FetchPhase.NEARBY_DOCS_MAX_GAP * 5, 2),
+            new FetchPhase.DocIdToIndex(FetchPhase.NEARBY_DOCS_MAX_GAP * 5 + 1, 4)
+        };
+        assertTrue(FetchPhase.isNearbyDoc(docs, 0, 0, docs.length));
+        assertTrue(FetchPhase.isNearbyDoc(docs, 1, 0, docs.length));
+        assertFalse(FetchPhase.isNearbyDoc(docs, 2, 0, docs.length));
+        assertTrue(FetchPhase.isNearbyDoc(docs, 3, 0, docs.length));
+        assertTrue(FetchPhase.isNearbyDoc(docs, 4, 0, docs.length));
+        assertEquals(4, FetchPhase.countNearbyDocs(docs, 0, docs.length));
+        // docs of other segments are not considered
+        assertFalse(FetchPhase.isNearbyDoc(docs, 3, 0, 4));
+        assertEquals(2, FetchPhase.countNearbyDocs(docs, 0, 4));
+        assertEquals(0, FetchPhase.countNearbyDocs(docs, 1, 4));
     }
 }
@@ -84,7 +84,10 @@ import static org.codelibs.fesen.search.internal.ExitableDirectoryReader.Exitabl
 import static org.codelibs.fesen.search.internal.ExitableDirectoryReader.ExitablePointValues;
 import static org.codelibs.fesen.search.internal.ExitableDirectoryReader.ExitableTerms;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 
 public class ContextIndexSearcherTests extends ESTestCase {
     public void testIntersectScorerAndRoleBits() throws Exception {
@@ -172,6 +175,40 @@ public class ContextIndexSearcherTests extends ESTestCase {
         directory.close();
     }
 
+    public void testSlicesAreContiguous() throws IOException {
+        Directory dir = newDirectory();
+        IndexWriter w = new IndexWriter(dir, newIndexWriterConfig(null).setMergePolicy(NoMergePolicy.INSTANCE));
+        final int numSegments = randomIntBetween(1, 30);
+        for (int i = 0; i < numSegments; i++) {
+            final int numDocs = randomIntBetween(1, 20);
+            for (int j = 0; j < numDocs; j++) {
+                w.addDocument(new Document());
+            }
+            w.commit();
+        }
+        w.close();
+
+        DirectoryReader reader = DirectoryReader.open(dir);
+        final int maxDocsPerSlice = randomIntBetween(1, 100);
+        final int maxSegmentsPerSlice = randomIntBetween(1, 10);
+        IndexSearcher.LeafSlice[] slices = ContextIndexSearcher.slices(reader.leaves(), maxDocsPerSlice, maxSegmentsPerSlice);
+        int ord = 0;
+        for (IndexSearcher.LeafSlice slice : slices) {
+            assertThat(slice.leaves.length, greaterThan(0));
+            assertThat(slice.leaves.length, lessThanOrEqualTo(maxSegmentsPerSlice));
+            int docCount = 0;
+            for (LeafReaderContext leaf : slice.leaves) {
+                assertThat(leaf.ord, equalTo(ord++));
+                docCount += leaf.reader().maxDoc();
+            }
+            // only the last leaf of a slice may go over the maximum number of docs
+            assertThat(docCount - slice.leaves[slice.leaves.length - 1].reader().maxDoc(), lessThan(maxDocsPerSlice));
+        }
+        assertThat(ord, equalTo(reader.leaves().size()));
+        reader.close();
+        dir.close();
+    }
+
     public void testContextIndexSearcherSparseNoDeletions() throws IOException {
         doTestContextIndexSearcher(true, false);
     }
@@ -26,6 +26,7 @@ import org.apache.lucene.document.LatLonDocValuesField;
 import org.apache.lucene.document.LatLonPoint;
 import org.apache.lucene.document.LongPoint;
 import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedNumericDocValuesField;
 import org.apache.lucene.document.SortedSetDocValuesField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
@@ -54,11 +55,13 @@ import org.apache.lucene.search.LeafCollector;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.MatchNoDocsQuery;
 import org.apache.lucene.search.MultiTermQuery;
+import org.apache.lucene.search.PointRangeQuery;
 import org.apache.lucene.search.PrefixQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.SortedNumericSortField;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TotalHitCountCollector;
@@ -89,9 +92,12 @@ import org.codelibs.fesen.index.search.ESToParentBlockJoinQuery;
 import org.codelibs.fesen.index.shard.IndexShard;
 import org.codelibs.fesen.index.shard.IndexShardTestCase;
 import org.codelibs.fesen.search.DocValueFormat;
+import org.codelibs.fesen.search.SearchService;
 import org.codelibs.fesen.search.internal.ContextIndexSearcher;
+import org.codelibs.fesen.search.internal.ReaderContext;
 import org.codelibs.fesen.search.internal.ScrollContext;
 import org.codelibs.fesen.search.internal.SearchContext;
+import org.codelibs.fesen.search.internal.ShardSearchContextId;
 import org.codelibs.fesen.search.query.EarlyTerminatingCollector;
 import org.codelibs.fesen.search.query.QueryPhase;
 import org.codelibs.fesen.search.query.QuerySearchResult;
@@ -99,6 +105,7 @@ import org.codelibs.fesen.search.query.TopDocsCollectorContext;
 import org.codelibs.fesen.search.sort.SortAndFormats;
 import org.codelibs.fesen.tasks.TaskCancelledException;
 import org.codelibs.fesen.test.TestSearchContext;
+import org.codelibs.fesen.threadpool.ThreadPool;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -122,7 +129,8 @@ public class QueryPhaseTests extends IndexShardTestCase {
 
     @Override
     public Settings threadPoolSettings() {
-        return Settings.builder().put(super.threadPoolSettings()).put("thread_pool.search.min_queue_size", 10).build();
+        return Settings.builder().put(super.threadPoolSettings()).put("thread_pool.search.min_queue_size", 10)
+            .put(SearchService.CONCURRENT_SEGMENT_SEARCH_SETTING.getKey(), true).build();
     }
 
     @Override
@@ -636,6 +644,115 @@ public class QueryPhaseTests extends IndexShardTestCase {
         dir.close();
     }
 
+    public void testIndexSortSearchAfterPointInTime() throws Exception {
+        Directory dir = newDirectory();
+        final Sort sort = new Sort(new SortField("rank", SortField.Type.INT));
+        IndexWriterConfig iwc = newIndexWriterConfig().setIndexSort(sort);
+        RandomIndexWriter w = new RandomIndexWriter(random(), dir, iwc);
+        final int numDocs = scaledRandomIntBetween(100, 200);
+        for (int i = 0; i < numDocs; ++i) {
+            Document doc = new Document();
+            doc.add(new NumericDocValuesField("rank", numDocs - i));
+            w.addDocument(doc);
+        }
+        w.close();
+
+        final IndexReader reader = DirectoryReader.open(dir);
+        final ReaderContext readerContext = new ReaderContext(new ShardSearchContextId("pit", 1L), null, indexShard, null, 1000L, false);
+        TestSearchContext context = new TestSearchContext(null, indexShard, newContextSearcher(reader));
+        context.setReaderContext(readerContext);
+        context.parsedQuery(new ParsedQuery(new MatchAllDocsQuery()));
+        context.setSize(randomIntBetween(1, 10));
+        context.setTask(new SearchShardTask(123L, "", "", "", null, Collections.emptyMap()));
+        context.sort(new SortAndFormats(sort, new DocValueFormat[]{DocValueFormat.RAW}));
+
+        int expectedRank = 1;
+        while (true) {
+            QueryPhase.executeInternal(context);
+            TopDocs topDocs = context.queryResult().topDocs().topDocs;
+            assertThat(topDocs.totalHits.value, equalTo((long) numDocs));
+            assertThat(topDocs.totalHits.relation, equalTo(TotalHits.Relation.EQUAL_TO));
+            if (topDocs.scoreDocs.length == 0) {
+                break;
+            }
+            for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                assertThat(((FieldDoc) scoreDoc).fields[0], equalTo(expectedRank++));
+            }
+            FieldDoc last = (FieldDoc) topDocs.scoreDocs[topDocs.scoreDocs.length - 1];
+            context.searchAfter(new FieldDoc(Integer.MAX_VALUE, Float.NaN, last.fields));
+            // the following pages do not count the hits again
+            context.setSearcher(newEarlyTerminationContextSearcher(reader, context.size()));
+        }
+        assertThat(expectedRank, equalTo(numDocs + 1));
+        reader.close();
+        dir.close();
+    }
+
+    public void testLongSortSearchAfter() throws Exception {
+        final String fieldName = "long-field";
+        MapperService mapperService = mock(MapperService.class);
+        when(mapperService.fieldType(fieldName))
+            .thenReturn(new NumberFieldMapper.NumberFieldType(fieldName, NumberFieldMapper.NumberType.LONG));
+        final int numDocs = scaledRandomIntBetween(500, 2000);
+        final boolean allHaveValues = randomBoolean();
+        Directory dir = newDirectory();
+        IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(null));
+        List<Long> values = new ArrayList<>();
+        for (long i = 0; i < numDocs; ++i) {
+            values.add(i * 3);
+        }
+        Collections.shuffle(values, random());
+        for (int i = 0; i < numDocs; ++i) {
+            Document doc = new Document();
+            if (allHaveValues || randomInt(9) > 0) {
+                doc.add(new LongPoint(fieldName, values.get(i)));
+                doc.add(new SortedNumericDocValuesField(fieldName, values.get(i)));
+            }
+            writer.addDocument(doc);
+            if (rarely()) {
+                writer.commit();
+            }
+        }
+        writer.close();
+        final IndexReader reader = DirectoryReader.open(dir);
+
+        final SortField sortField = new SortedNumericSortField(fieldName, SortField.Type.LONG, randomBoolean());
+        sortField.setMissingValue(randomFrom(Long.MIN_VALUE, Long.MAX_VALUE));
+        final Sort sort = new Sort(sortField);
+        final TopDocs expected = new IndexSearcher(reader).search(new MatchAllDocsQuery(), numDocs, sort);
+
+        TestSearchContext context = spy(new TestSearchContext(null, indexShard, newContextSearcher(reader)));
+        when(context.mapperService()).thenReturn(mapperService);
+        context.parsedQuery(new ParsedQuery(new MatchAllDocsQuery()));
+        context.setTask(new SearchShardTask(123L, "", "", "", null, Collections.emptyMap()));
+        context.sort(new SortAndFormats(sort, new DocValueFormat[]{DocValueFormat.RAW}));
+        context.trackTotalHitsUpTo(SearchContext.TRACK_TOTAL_HITS_DISABLED);
+        context.setSize(randomIntBetween(1, 50));
+
+        int index = 0;
+        while (true) {
+            QueryPhase.executeInternal(context);
+            TopDocs topDocs = context.queryResult().topDocs().topDocs;
+            for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                // documents without a value share the missing value so their order is only defined by the doc id
+                FieldDoc expectedDoc = (FieldDoc) expected.scoreDocs[index++];
+                assertThat(((FieldDoc) scoreDoc).fields[0], equalTo(expectedDoc.fields[0]));
+            }
+            if (topDocs.scoreDocs.length < context.size()) {
+                break;
+            }
+            FieldDoc last = (FieldDoc) topDocs.scoreDocs[topDocs.scoreDocs.length - 1];
+            context.searchAfter(new FieldDoc(last.doc, Float.NaN, last.fields));
+            if (allHaveValues) {
+                assertThat(SearchAfterPaging.buildFilter(context, reader, context.sort(), context.searchAfter()),
+                    instanceOf(PointRangeQuery.class));
+            }
+        }
+        assertThat(index, equalTo(numDocs));
+        reader.close();
+        dir.close();
+    }
+
     public void testDisableTopScoreCollection() throws Exception {
         Directory dir = newDirectory();
         IndexWriterConfig iwc = newIndexWriterConfig(new StandardAnalyzer());
@@ -943,6 +1060,71 @@ public class QueryPhaseTests extends IndexShardTestCase {
         dir.close();
     }
 
+    public void testConcurrentSegmentSearch() throws Exception {
+        Directory dir = newDirectory();
+        IndexWriterConfig iwc = newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE);
+        IndexWriter w = new IndexWriter(dir, iwc);
+        final int numSegments = randomIntBetween(12, 20);
+        int numDocs = 0;
+        for (int i = 0; i < numSegments; i++) {
+            final int segmentSize = randomIntBetween(5, 30);
+            for (int j = 0; j < segmentSize; j++) {
+                Document doc = new Document();
+                if (randomBoolean()) {
+                    doc.add(new StringField("foo", "bar", Store.NO));
+                }
+                doc.add(new NumericDocValuesField("rank", randomIntBetween(0, 50)));
+                w.addDocument(doc);
+                numDocs++;
+            }
+            w.commit();
+        }
+        w.close();
+
+        IndexReader reader = DirectoryReader.open(dir);
+        ContextIndexSearcher concurrentSearcher = new ContextIndexSearcher(reader, IndexSearcher.getDefaultSimilarity(),
+            IndexSearcher.getDefaultQueryCache(), IndexSearcher.getDefaultQueryCachingPolicy(), true,
+            indexShard.getThreadPool().executor(ThreadPool.Names.INDEX_SEARCHER));
+        assertTrue(concurrentSearcher.isConcurrentSearchEnabled());
+        assertFalse(newContextSearcher(reader).isConcurrentSearchEnabled());
+
+        final Sort sort = new Sort(new SortField("rank", SortField.Type.INT), SortField.FIELD_DOC);
+        for (boolean sorted : new boolean[] { false, true }) {
+            for (Query postFilter : new Query[] { null, new TermQuery(new Term("foo", "bar")) }) {
+                for (int size : new int[] { 0, randomIntBetween(1, numDocs + 10) }) {
+                    TopDocs expected = null;
+                    for (ContextIndexSearcher searcher : new ContextIndexSearcher[] { newContextSearcher(reader), concurrentSearcher }) {
+                        TestSearchContext context = new TestSearchContext(null, indexShard, searcher);
+                        context.parsedQuery(new ParsedQuery(new TermQuery(new Term("foo", "bar"))));
+                        context.setTask(new SearchShardTask(123L, "", "", "", null, Collections.emptyMap()));
+                        context.setSize(size);
+                        if (sorted) {
+                            context.sort(new SortAndFormats(sort, new DocValueFormat[] { DocValueFormat.RAW, DocValueFormat.RAW }));
+                        }
+                        if (postFilter != null) {
+                            context.parsedPostFilter(new ParsedQuery(postFilter));
+                        }
+                        assertThat(QueryPhase.canSearchConcurrently(context, searcher), equalTo(searcher == concurrentSearcher));
+                        QueryPhase.executeInternal(context);
+                        TopDocs topDocs = context.queryResult().topDocs().topDocs;
+                        if (expected == null) {
+                            expected = topDocs;
+                        } else {
+                            assertThat(topDocs.totalHits, equalTo(expected.totalHits));
+                            assertThat(topDocs.scoreDocs.length, equalTo(expected.scoreDocs.length));
+                            for (int i = 0; i < topDocs.scoreDocs.length; i++) {
+                                assertThat(topDocs.scoreDocs[i].doc, equalTo(expected.scoreDocs[i].doc));
+                                assertThat(topDocs.scoreDocs[i].shardIndex, equalTo(-1));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        reader.close();
+        dir.close();
+    }
+
     public void testCancellationDuringPreprocess() throws IOException {
         try (Directory dir = newDirectory();
              RandomIndexWriter w = new RandomIndexWriter(random(), dir, newIndexWriterConfig())) {
@@ -19,12 +19,14 @@
 
 package org.codelibs.fesen.search.suggest.phrase;
 
+import org.apache.lucene.codecs.TermStats;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.TextField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
 import org.apache.lucene.search.spell.DirectSpellChecker;
 import org.apache.lucene.search.spell.JaroWinklerDistance;
 import org.apache.lucene.search.spell.LevenshteinDistance;
@@ -248,6 +250,42 @@ public class DirectCandidateGeneratorTests extends ESTestCase {
 
     }
 
+    public void testBatchedTermStats() throws Exception {
+        try (Directory dir = newDirectory()) {
+            IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig());
+            int numDocs = randomIntBetween(10, 50);
+            for (int i = 0; i < numDocs; i++) {
+                Document doc = new Document();
+                doc.add(new TextField("field", "term" + (i % 7) + " term" + (i % 3), Field.Store.NO));
+                writer.addDocument(doc);
+                if (rarely()) {
+                    writer.commit();
+                }
+            }
+            try (IndexReader reader = DirectoryReader.open(writer)) {
+                writer.close();
+                DirectCandidateGenerator generator = new DirectCandidateGenerator(new DirectSpellChecker(), "field",
+                    SuggestMode.SUGGEST_ALWAYS, reader, 0f, 10);
+                BytesRef[] terms = new BytesRef[randomIntBetween(1, 20)];
+                for (int i = 0; i < terms.length; i++) {
+                    terms[i] = new BytesRef("term" + randomIntBetween(0, 9));
+                }
+                TermStats[] termStats = generator.internalTermStats(terms);
+                DirectCandidateGenerator other = new DirectCandidateGenerator(new DirectSpellChecker(), "field",
+                    SuggestMode.SUGGEST_ALWAYS, reader, 0f, 10);
+                for (int i = 0; i < terms.length; i++) {
+                    TermStats expected = other.internalTermStats(terms[i]);
+                    assertThat(termStats[i].docFreq, equalTo(expected.docFreq));
+                    assertThat(termStats[i].totalTermFreq, equalTo(expected.totalTermFreq));
+                    // cached
+                    assertThat(generator.internalTermStats(terms[i]).docFreq, equalTo(expected.docFreq));
+                    assertThat(generator.internalTermStats(terms[i]).totalTermFreq, equalTo(expected.totalTermFreq));
+                    assertThat(expected.docFreq, equalTo(reader.docFreq(new Term("field", terms[i]))));
+                }
+            }
+        }
+    }
+
     private void assertIllegalXContent(String directGenerator, Class<? extends Exception> exceptionClass, String exceptionMsg)
             throws IOException {
         try (XContentParser parser = createParser(JsonXContent.jsonXContent, directGenerator)) {
@@ -35,7 +35,7 @@ public class CompressibleBytesOutputStreamTests extends ESTestCase {
 
     public void testStreamWithoutCompression() throws IOException {
         BytesStream bStream = new ZeroOutOnCloseStream();
-        CompressibleBytesOutputStream stream = new CompressibleBytesOutputStream(bStream, false);
+        CompressibleBytesOutputStream stream = new CompressibleBytesOutputStream(bStream, null);
 
         byte[] expectedBytes = randomBytes(randomInt(30));
         stream.write(expectedBytes);
@@ -63,7 +63,8 @@ public class CompressibleBytesOutputStreamTests extends ESTestCase {
 
     public void testStreamWithCompression() throws IOException {
         BytesStream bStream = new ZeroOutOnCloseStream();
-        CompressibleBytesOutputStream stream = new CompressibleBytesOutputStream(bStream, true);
+        Compression.Scheme scheme = randomFrom(Compression.Scheme.values());
+        CompressibleBytesOutputStream stream = new CompressibleBytesOutputStream(bStream, scheme);
 
         byte[] expectedBytes = randomBytes(randomInt(30));
         stream.write(expectedBytes);
@@ -71,9 +72,10 @@ public class CompressibleBytesOutputStreamTests extends ESTestCase {
         BytesReference bytesRef = stream.materializeBytes();
         stream.close();
 
-        assertTrue(CompressorFactory.COMPRESSOR.isCompressed(bytesRef));
+        assertTrue(scheme.compressor().isCompressed(bytesRef));
+        assertEquals(scheme, Compression.Scheme.fromCompressedBytes(bytesRef));
 
-        StreamInput streamInput = new InputStreamStreamInput(CompressorFactory.COMPRESSOR.threadLocalInputStream(bytesRef.streamInput()));
+        StreamInput streamInput = new InputStreamStreamInput(scheme.compressor().threadLocalInputStream(bytesRef.streamInput()));
         byte[] actualBytes = new byte[expectedBytes.length];
         streamInput.readBytes(actualBytes, 0, expectedBytes.length);
 
@@ -90,7 +92,7 @@ public class CompressibleBytesOutputStreamTests extends ESTestCase {
 
     public void testCompressionWithCallingMaterializeFails() throws IOException {
         BytesStream bStream = new ZeroOutOnCloseStream();
-        CompressibleBytesOutputStream stream = new CompressibleBytesOutputStream(bStream, true);
+        CompressibleBytesOutputStream stream = new CompressibleBytesOutputStream(bStream, Compression.Scheme.DEFLATE);
 
         byte[] expectedBytes = randomBytes(between(1, 30));
         stream.write(expectedBytes);
@@ -22,6 +22,7 @@ package org.codelibs.fesen.transport;
 import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.lucene.util.BytesRef;
 import org.codelibs.fesen.FesenException;
 import org.codelibs.fesen.Version;
 import org.codelibs.fesen.action.ActionListener;
@@ -33,6 +34,7 @@ import org.codelibs.fesen.common.io.stream.BytesStreamOutput;
 import org.codelibs.fesen.common.io.stream.InputStreamStreamInput;
 import org.codelibs.fesen.common.io.stream.NamedWriteableRegistry;
 import org.codelibs.fesen.common.io.stream.StreamInput;
+import org.codelibs.fesen.common.io.stream.StreamOutput;
 import org.codelibs.fesen.common.logging.Loggers;
 import org.codelibs.fesen.common.settings.Settings;
 import org.codelibs.fesen.common.unit.TimeValue;
@@ -157,7 +159,7 @@ public class InboundHandlerTests extends ESTestCase {
         requestHandlers.registerHandler(registry);
         String requestValue = randomAlphaOfLength(10);
         OutboundMessage.Request request = new OutboundMessage.Request(threadPool.getThreadContext(), new String[0],
-            new TestRequest(requestValue), version, action, requestId, false, false);
+            new TestRequest(requestValue), version, action, requestId, false, null);
 
         BytesReference fullRequestBytes = request.serialize(new BytesStreamOutput());
         BytesReference requestContent = fullRequestBytes.slice(headerSize, fullRequestBytes.length() - headerSize);
@@ -196,6 +198,47 @@ public class InboundHandlerTests extends ESTestCase {
         }
     }
 
+    public void testRequestWithUnsafeBuffersRetainsContentUntilResponse() throws Exception {
+        String action = "test-request";
+        int headerSize = TcpHeader.headerSize(version);
+        boolean allowsUnsafeBuffers = randomBoolean();
+        AtomicReference<BytesRequest> requestCaptor = new AtomicReference<>();
+        AtomicReference<TransportChannel> channelCaptor = new AtomicReference<>();
+        RequestHandlerRegistry<BytesRequest> registry = new RequestHandlerRegistry<>(action, BytesRequest::new, taskManager,
+            (request, channel, task) -> {
+                channelCaptor.set(channel);
+                requestCaptor.set(request);
+            }, ThreadPool.Names.SAME, false, true, allowsUnsafeBuffers);
+        requestHandlers.registerHandler(registry);
+        BytesReference bytes = new BytesArray(randomByteArrayOfLength(between(1, 1024)));
+        long requestId = randomNonNegativeLong();
+        OutboundMessage.Request request = new OutboundMessage.Request(threadPool.getThreadContext(), new String[0],
+            new BytesRequest(bytes), version, action, requestId, false, null);
+
+        BytesReference fullRequestBytes = request.serialize(new BytesStreamOutput());
+        BytesReference requestContent = new BytesArray(fullRequestBytes.slice(headerSize, fullRequestBytes.length() - headerSize)
+            .toBytesRef(), true);
+        AtomicBoolean released = new AtomicBoolean();
+        Header requestHeader = new Header(fullRequestBytes.length() - 6, requestId, TransportStatus.setRequest((byte) 0), version);
+        InboundMessage requestMessage = new InboundMessage(requestHeader,
+            new ReleasableBytesReference(requestContent, () -> assertTrue(released.compareAndSet(false, true))), () -> {});
+        requestHeader.finishParsingHeader(requestMessage.openOrGetStreamInput());
+        handler.inboundMessage(channel, requestMessage);
+        // the pipeline closes the message once it is handled
+        requestMessage.close();
+
+        assertEquals(bytes, requestCaptor.get().bytes);
+        BytesRef bytesRef = requestCaptor.get().bytes.toBytesRef();
+        if (allowsUnsafeBuffers) {
+            assertSame(requestContent.toBytesRef().bytes, bytesRef.bytes);
+            assertFalse(released.get());
+            channelCaptor.get().sendResponse(TransportResponse.Empty.INSTANCE);
+        } else {
+            assertNotSame(requestContent.toBytesRef().bytes, bytesRef.bytes);
+        }
+        assertTrue(released.get());
+    }
+
     public void testSendsErrorResponseToHandshakeFromCompatibleVersion() throws Exception {
         // Nodes use their minimum compatibility version for the TCP handshake, so a node from v(major-1).x will report its version as
         // v(major-2).last in the TCP handshake, with which we are not really compatible. We put extra effort into making sure that if
@@ -297,6 +340,26 @@ public class InboundHandlerTests extends ESTestCase {
         }
     }
 
+    private static class BytesRequest extends TransportRequest {
+
+        final BytesReference bytes;
+
+        BytesRequest(BytesReference bytes) {
+            this.bytes = bytes;
+        }
+
+        BytesRequest(StreamInput in) throws IOException {
+            super(in);
+            bytes = in.readBytesReference();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeBytesReference(bytes);
+        }
+    }
+
     private static InboundMessage unreadableInboundHandshake(Version remoteVersion, Header requestHeader) {
         return new InboundMessage(requestHeader, ReleasableBytesReference.wrap(BytesArray.EMPTY), () -> { }) {
             @Override
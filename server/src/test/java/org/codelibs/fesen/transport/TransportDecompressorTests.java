@@ -19,10 +19,10 @@
 
 package org.codelibs.fesen.transport;
 
+import org.codelibs.fesen.common.bytes.BytesArray;
 import org.codelibs.fesen.common.bytes.BytesReference;
 import org.codelibs.fesen.common.bytes.CompositeBytesReference;
 import org.codelibs.fesen.common.bytes.ReleasableBytesReference;
-import org.codelibs.fesen.common.compress.CompressorFactory;
 import org.codelibs.fesen.common.io.Streams;
 import org.codelibs.fesen.common.io.stream.BytesStreamOutput;
 import org.codelibs.fesen.common.io.stream.OutputStreamStreamOutput;
@@ -31,23 +31,25 @@ import org.codelibs.fesen.common.io.stream.StreamOutput;
 import org.codelibs.fesen.common.lease.Releasables;
 import org.codelibs.fesen.common.util.PageCacheRecycler;
 import org.codelibs.fesen.test.ESTestCase;
-import org.codelibs.fesen.transport.TransportDecompressor;
 
 import java.io.IOException;
 import java.io.OutputStream;
 
+import static org.hamcrest.Matchers.containsString;
+
 public class TransportDecompressorTests extends ESTestCase {
 
     public void testSimpleCompression() throws IOException {
+        Compression.Scheme scheme = randomFrom(Compression.Scheme.values());
         try (BytesStreamOutput output = new BytesStreamOutput()) {
             byte randomByte = randomByte();
-            try (OutputStream deflateStream = CompressorFactory.COMPRESSOR.threadLocalOutputStream(Streams.flushOnCloseStream(output))) {
+            try (OutputStream deflateStream = scheme.compressor().threadLocalOutputStream(Streams.flushOnCloseStream(output))) {
                 deflateStream.write(randomByte);
             }
 
             BytesReference bytes = output.bytes();
 
-            TransportDecompressor decompressor = new TransportDecompressor(PageCacheRecycler.NON_RECYCLING_INSTANCE);
+            TransportDecompressor decompressor = newDecompressor(scheme);
             int bytesConsumed = decompressor.decompress(bytes);
             assertEquals(bytes.length(), bytesConsumed);
             assertTrue(decompressor.isEOS());
@@ -59,8 +61,9 @@ public class TransportDecompressorTests extends ESTestCase {
     }
 
     public void testMultiPageCompression() throws IOException {
+        Compression.Scheme scheme = randomFrom(Compression.Scheme.values());
         try (BytesStreamOutput output = new BytesStreamOutput()) {
-            try (StreamOutput deflateStream = new OutputStreamStreamOutput(CompressorFactory.COMPRESSOR.threadLocalOutputStream(
+            try (StreamOutput deflateStream = new OutputStreamStreamOutput(scheme.compressor().threadLocalOutputStream(
                     Streams.flushOnCloseStream(output)))) {
                 for (int i = 0; i < 10000; ++i) {
                     deflateStream.writeInt(i);
@@ -69,7 +72,7 @@ public class TransportDecompressorTests extends ESTestCase {
 
             BytesReference bytes = output.bytes();
 
-            TransportDecompressor decompressor = new TransportDecompressor(PageCacheRecycler.NON_RECYCLING_INSTANCE);
+            TransportDecompressor decompressor = newDecompressor(scheme);
             int bytesConsumed = decompressor.decompress(bytes);
             assertEquals(bytes.length(), bytesConsumed);
             assertTrue(decompressor.isEOS());
@@ -88,9 +91,10 @@ public class TransportDecompressorTests extends ESTestCase {
     }
 
     public void testIncrementalMultiPageCompression() throws IOException {
+        Compression.Scheme scheme = randomFrom(Compression.Scheme.values());
         try (BytesStreamOutput output = new BytesStreamOutput()) {
             try (StreamOutput deflateStream = new OutputStreamStreamOutput(
-                    CompressorFactory.COMPRESSOR.threadLocalOutputStream(Streams.flushOnCloseStream(output)))) {
+                    scheme.compressor().threadLocalOutputStream(Streams.flushOnCloseStream(output)))) {
                 for (int i = 0; i < 10000; ++i) {
                     deflateStream.writeInt(i);
                 }
@@ -98,7 +102,7 @@ public class TransportDecompressorTests extends ESTestCase {
 
             BytesReference bytes = output.bytes();
 
-            TransportDecompressor decompressor = new TransportDecompressor(PageCacheRecycler.NON_RECYCLING_INSTANCE);
+            TransportDecompressor decompressor = newDecompressor(scheme);
 
             int split1 = (int) (bytes.length() * 0.3);
             int split2 = (int) (bytes.length() * 0.65);
@@ -130,4 +134,29 @@ public class TransportDecompressorTests extends ESTestCase {
         }
     }
 
+    public void testDetectsScheme() throws IOException {
+        Compression.Scheme scheme = randomFrom(Compression.Scheme.values());
+        try (BytesStreamOutput output = new BytesStreamOutput()) {
+            try (OutputStream compressedStream = scheme.compressor().threadLocalOutputStream(Streams.flushOnCloseStream(output))) {
+                compressedStream.write(randomByte());
+            }
+            TransportDecompressor decompressor = TransportDecompressor.getDecompressor(PageCacheRecycler.NON_RECYCLING_INSTANCE,
+                output.bytes());
+            assertSame(newDecompressor(scheme).getClass(), decompressor.getClass());
+        }
+        IllegalStateException e = expectThrows(IllegalStateException.class,
+            () -> TransportDecompressor.getDecompressor(PageCacheRecycler.NON_RECYCLING_INSTANCE, new BytesArray("1234")));
+        assertThat(e.getMessage(), containsString("no compressor found"));
+    }
+
+    private static TransportDecompressor newDecompressor(Compression.Scheme scheme) {
+        switch (scheme) {
+            case DEFLATE:
+                return new DeflateTransportDecompressor(PageCacheRecycler.NON_RECYCLING_INSTANCE);
+            case LZ4:
+                return new Lz4TransportDecompressor(PageCacheRecycler.NON_RECYCLING_INSTANCE);
+            default:
+                throw new AssertionError("unknown scheme " + scheme);
+        }
+    }
 }
@@ -36,12 +36,14 @@ import org.codelibs.fesen.transport.TransportResponseHandler;
 
 import java.io.IOException;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.Matchers.containsString;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class TransportHandshakerTests extends ESTestCase {
 
@@ -109,6 +111,7 @@ public class TransportHandshakerTests extends ESTestCase {
         TaskId.EMPTY_TASK_ID.writeTo(futureHandshake);
         try (BytesStreamOutput internalMessage = new BytesStreamOutput()) {
             Version.writeVersion(Version.CURRENT, internalMessage);
+            TransportHandshaker.writeCompressionSchemes(TransportHandshaker.supportedCompressionSchemes(), internalMessage);
             lengthCheckingHandshake.writeBytesReference(internalMessage.bytes());
             internalMessage.write(new byte[1024]);
             futureHandshake.writeBytesReference(internalMessage.bytes());
@@ -117,7 +120,7 @@ public class TransportHandshakerTests extends ESTestCase {
         // We check that the handshake we serialize for this test equals the actual request.
         // Otherwise, we need to update the test.
         assertEquals(currentHandshakeBytes.bytes().length(), lengthCheckingHandshake.bytes().length());
-        assertEquals(1031, futureHandshakeStream.available());
+        assertEquals(1044, futureHandshakeStream.available());
         final PlainActionFuture<TransportResponse> responseFuture = PlainActionFuture.newFuture();
         final TestTransportChannel channel = new TestTransportChannel(responseFuture);
         handshaker.handleHandshake(channel, reqId, futureHandshakeStream);
@@ -128,6 +131,35 @@ public class TransportHandshakerTests extends ESTestCase {
         assertEquals(Version.CURRENT, response.getResponseVersion());
     }
 
+    public void testHandshakeNegotiatesCompressionSchemes() throws IOException {
+        when(channel.isOpen()).thenReturn(true);
+        long reqId = randomLongBetween(1, 10);
+        handshaker.sendHandshake(reqId, node, channel, new TimeValue(30, TimeUnit.SECONDS), PlainActionFuture.newFuture());
+
+        // a remote node that advertises its schemes gets ours in the response
+        final boolean remoteAdvertisesSchemes = randomBoolean();
+        TransportHandshaker.HandshakeRequest handshakeRequest = remoteAdvertisesSchemes
+            ? new TransportHandshaker.HandshakeRequest(Version.CURRENT)
+            : new TransportHandshaker.HandshakeRequest(Version.CURRENT, null);
+        BytesStreamOutput bytesStreamOutput = new BytesStreamOutput();
+        handshakeRequest.writeTo(bytesStreamOutput);
+        final PlainActionFuture<TransportResponse> responseFuture = PlainActionFuture.newFuture();
+        handshaker.handleHandshake(new TestTransportChannel(responseFuture), reqId, bytesStreamOutput.bytes().streamInput());
+
+        BytesStreamOutput responseBytes = new BytesStreamOutput();
+        responseFuture.actionGet().writeTo(responseBytes);
+        TransportResponseHandler<TransportHandshaker.HandshakeResponse> handler = handshaker.removeHandlerForHandshake(reqId);
+        handler.handleResponse(handler.read(responseBytes.bytes().streamInput()));
+
+        if (remoteAdvertisesSchemes) {
+            assertEquals(TransportHandshaker.supportedCompressionSchemes(), handshaker.takeRemoteCompressionSchemes(channel));
+        } else {
+            assertEquals(EnumSet.of(Compression.Scheme.DEFLATE), handshaker.takeRemoteCompressionSchemes(channel));
+        }
+        // the schemes are only handed out once
+        assertEquals(EnumSet.of(Compression.Scheme.DEFLATE), handshaker.takeRemoteCompressionSchemes(channel));
+    }
+
     public void testHandshakeError() throws IOException {
         PlainActionFuture<Version> versionFuture = PlainActionFuture.newFuture();
         long reqId = randomLongBetween(1, 10);
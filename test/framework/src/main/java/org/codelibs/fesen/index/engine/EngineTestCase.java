@@ -192,6 +192,7 @@ public abstract class EngineTestCase extends ESTestCase {
             .put(IndexSettings.INDEX_SOFT_DELETES_SETTING.getKey(), randomBoolean())
             .put(IndexSettings.INDEX_SOFT_DELETES_RETENTION_OPERATIONS_SETTING.getKey(),
                 randomBoolean() ? IndexSettings.INDEX_SOFT_DELETES_RETENTION_OPERATIONS_SETTING.get(Settings.EMPTY) : between(0, 1000))
+            .put(EngineConfig.INDEX_PACKED_VERSION_MAP.getKey(), randomBoolean())
             .build();
     }
 
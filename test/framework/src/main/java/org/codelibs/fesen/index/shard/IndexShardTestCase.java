@@ -73,6 +73,7 @@ import org.codelibs.fesen.index.similarity.SimilarityService;
 import org.codelibs.fesen.index.snapshots.IndexShardSnapshotStatus;
 import org.codelibs.fesen.index.store.Store;
 import org.codelibs.fesen.index.translog.Translog;
+import org.codelibs.fesen.index.translog.TranslogSyncTracker;
 import org.codelibs.fesen.indices.breaker.CircuitBreakerService;
 import org.codelibs.fesen.indices.breaker.HierarchyCircuitBreakerService;
 import org.codelibs.fesen.indices.recovery.AsyncRecoveryTarget;
@@ -406,7 +407,8 @@ public abstract class IndexShardTestCase extends ESTestCase {
                     Arrays.asList(listeners),
                     globalCheckpointSyncer,
                     retentionLeaseSyncer,
-                    breakerService);
+                    breakerService,
+                    null);
             indexShard.addShardFailureCallback(DEFAULT_SHARD_FAILURE_HANDLER);
             success = true;
         } finally {
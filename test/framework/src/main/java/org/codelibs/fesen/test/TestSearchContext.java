@@ -85,6 +85,8 @@ public class TestSearchContext extends SearchContext {
     SortAndFormats sort;
     boolean trackScores = false;
     int trackTotalHitsUpTo = SearchContext.DEFAULT_TRACK_TOTAL_HITS_UP_TO;
+    FieldDoc searchAfter;
+    ReaderContext readerContext;
 
     ContextIndexSearcher searcher;
     int from;
@@ -377,12 +379,13 @@ public class TestSearchContext extends SearchContext {
 
     @Override
     public SearchContext searchAfter(FieldDoc searchAfter) {
-        return null;
+        this.searchAfter = searchAfter;
+        return this;
     }
 
     @Override
     public FieldDoc searchAfter() {
-        return null;
+        return searchAfter;
     }
 
     @Override
@@ -616,6 +619,10 @@ public class TestSearchContext extends SearchContext {
 
     @Override
     public ReaderContext readerContext() {
-        throw new UnsupportedOperationException();
+        return readerContext;
+    }
+
+    public void setReaderContext(ReaderContext readerContext) {
+        this.readerContext = readerContext;
     }
 }